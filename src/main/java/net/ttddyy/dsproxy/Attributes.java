@@ -0,0 +1,61 @@
+package net.ttddyy.dsproxy;
+
+/**
+ * Identity keyed attributes of {@link ExecutionInfo} and {@link ConnectionInfo}, kept in an array of key and value
+ * pairs. Listeners have only a few attributes, so that a linear scan is cheaper than a hash map.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+class Attributes {
+
+    private Attributes() {
+    }
+
+    /**
+     * @param attributes current key and value pairs. can be {@code null}
+     * @param key        attribute key. compared by identity
+     * @param value      attribute value. {@code null} to remove
+     * @return key and value pairs to keep. same as given one unless grown
+     */
+    static Object[] set(Object[] attributes, Object key, Object value) {
+        int empty = -1;
+        if (attributes != null) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (attributes[i] == key) {
+                    attributes[i] = value != null ? key : null;
+                    attributes[i + 1] = value;
+                    return attributes;
+                } else if (attributes[i] == null && empty < 0) {
+                    empty = i;
+                }
+            }
+        }
+        if (value == null) {
+            return attributes;
+        }
+        if (empty < 0) {
+            empty = attributes == null ? 0 : attributes.length;
+            Object[] newAttributes = new Object[empty + 4];  // two more pairs
+            if (attributes != null) {
+                System.arraycopy(attributes, 0, newAttributes, 0, empty);
+            }
+            attributes = newAttributes;
+        }
+        attributes[empty] = key;
+        attributes[empty + 1] = value;
+        return attributes;
+    }
+
+    static Object get(Object[] attributes, Object key) {
+        if (attributes != null) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (attributes[i] == key) {
+                    return attributes[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -1,5 +1,9 @@
 package net.ttddyy.dsproxy;
 
+import net.ttddyy.dsproxy.proxy.OpenResourceTracker;
+import net.ttddyy.dsproxy.proxy.PreparedStatementCache;
+import net.ttddyy.dsproxy.proxy.WriteCoalescer;
+
 import java.sql.Connection;
 
 /**
@@ -13,6 +17,19 @@ public class ConnectionInfo {
     private boolean isClosed;
     private int commitCount;
     private int rollbackCount;
+    private WriteCoalescer writeCoalescer;
+    private PreparedStatementCache.ConnectionCache preparedStatementCache;
+    private long acquiredTime;
+    private Boolean autoCommit;  // null until first known
+    private OpenResourceTracker.ConnectionResources openResources;
+    private ConnectionStats stats;
+    private Object[] attributes;  // key and value pairs. created on first use
+
+    // stats of current transaction
+    private long transactionStartTime;
+    private int transactionQueryCount;
+    private long transactionDatabaseTime;
+    private long transactionRowsAffected;
 
     public String getDataSourceName() {
         return dataSourceName;
@@ -98,4 +115,184 @@ public class ConnectionInfo {
         isClosed = closed;
     }
 
+    /**
+     * @return write coalescing state of the connection. {@code null} when write coalescing is disabled.
+     * @since 1.4.11
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return writeCoalescer;
+    }
+
+    /**
+     * @param writeCoalescer write coalescing state of the connection
+     * @since 1.4.11
+     */
+    public void setWriteCoalescer(WriteCoalescer writeCoalescer) {
+        this.writeCoalescer = writeCoalescer;
+    }
+
+    /**
+     * @return prepared statement cache of the connection. {@code null} when prepared statement cache is disabled.
+     * @since 1.4.11
+     */
+    public PreparedStatementCache.ConnectionCache getPreparedStatementCache() {
+        return preparedStatementCache;
+    }
+
+    /**
+     * @param preparedStatementCache prepared statement cache of the connection
+     * @since 1.4.11
+     */
+    public void setPreparedStatementCache(PreparedStatementCache.ConnectionCache preparedStatementCache) {
+        this.preparedStatementCache = preparedStatementCache;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the connection is acquired. {@code 0} when connection metrics are disabled.
+     * @since 1.4.11
+     */
+    public long getAcquiredTime() {
+        return acquiredTime;
+    }
+
+    /**
+     * @param acquiredTime {@link System#nanoTime()} when the connection is acquired
+     * @since 1.4.11
+     */
+    public void setAcquiredTime(long acquiredTime) {
+        this.acquiredTime = acquiredTime;
+    }
+
+    /**
+     * @return open statements and result sets of the connection. {@code null} when open resource tracking is disabled.
+     * @since 1.4.11
+     */
+    public OpenResourceTracker.ConnectionResources getOpenResources() {
+        return openResources;
+    }
+
+    /**
+     * @param openResources open statements and result sets of the connection
+     * @since 1.4.11
+     */
+    public void setOpenResources(OpenResourceTracker.ConnectionResources openResources) {
+        this.openResources = openResources;
+    }
+
+    /**
+     * @return stats of the connection. {@code null} when connection stats are disabled.
+     * @since 1.4.11
+     */
+    public ConnectionStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @param stats stats of the connection
+     * @since 1.4.11
+     */
+    public void setStats(ConnectionStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * @return auto-commit mode of the connection. {@code null} when it is not yet known or transaction listener is disabled.
+     * @since 1.4.11
+     */
+    public Boolean getAutoCommit() {
+        return autoCommit;
+    }
+
+    /**
+     * @param autoCommit auto-commit mode of the connection
+     * @since 1.4.11
+     */
+    public void setAutoCommit(Boolean autoCommit) {
+        this.autoCommit = autoCommit;
+    }
+
+    /**
+     * Add a query execution to the stats of current transaction. The first call starts the transaction.
+     *
+     * @param startTime    {@link System#nanoTime()} when the execution started
+     * @param elapsedTime  elapsed time of the execution in nanoseconds
+     * @param rowsAffected number of rows affected by the execution
+     * @since 1.4.11
+     */
+    public void addTransactionQuery(long startTime, long elapsedTime, long rowsAffected) {
+        if (this.transactionQueryCount == 0) {
+            this.transactionStartTime = startTime;
+        }
+        this.transactionQueryCount++;
+        this.transactionDatabaseTime += elapsedTime;
+        this.transactionRowsAffected += rowsAffected;
+    }
+
+    /**
+     * Clear the stats of current transaction.
+     *
+     * @since 1.4.11
+     */
+    public void resetTransaction() {
+        this.transactionStartTime = 0;
+        this.transactionQueryCount = 0;
+        this.transactionDatabaseTime = 0;
+        this.transactionRowsAffected = 0;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the first query of current transaction started
+     * @since 1.4.11
+     */
+    public long getTransactionStartTime() {
+        return transactionStartTime;
+    }
+
+    /**
+     * @return number of query executions in current transaction
+     * @since 1.4.11
+     */
+    public int getTransactionQueryCount() {
+        return transactionQueryCount;
+    }
+
+    /**
+     * @return time spent in query executions of current transaction in nanoseconds
+     * @since 1.4.11
+     */
+    public long getTransactionDatabaseTime() {
+        return transactionDatabaseTime;
+    }
+
+    /**
+     * @return number of rows affected in current transaction
+     * @since 1.4.11
+     */
+    public long getTransactionRowsAffected() {
+        return transactionRowsAffected;
+    }
+
+    /**
+     * Per-connection state of listeners, discarded with the connection.
+     *
+     * A connection is used by one thread at a time, so that attributes are not synchronized. The listener instance
+     * itself is usually used as the key.
+     *
+     * @param key   attribute key. compared by identity
+     * @param value attribute value. {@code null} to remove
+     * @since 1.4.11
+     */
+    public void setAttribute(Object key, Object value) {
+        this.attributes = Attributes.set(this.attributes, key, value);
+    }
+
+    /**
+     * @param key attribute key. compared by identity
+     * @return attribute value or {@code null}
+     * @since 1.4.11
+     */
+    public Object getAttribute(Object key) {
+        return Attributes.get(this.attributes, key);
+    }
+
 }
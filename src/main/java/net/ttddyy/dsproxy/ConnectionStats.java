@@ -0,0 +1,181 @@
+package net.ttddyy.dsproxy;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Per-connection statistics, kept on {@link ConnectionInfo}.
+ *
+ * Stats are updated by the thread using the connection, and read by any thread, such as a monitoring thread or a
+ * connection-scoped listener, with {@link #snapshot()}. A connection is used by one thread at a time, so that updates
+ * use a single-writer seqlock instead of locks: the writer makes the sequence odd, updates plain fields, and makes it
+ * even again by an ordered write. A reader retries until it reads the same even sequence before and after reading the
+ * fields, so that a snapshot never mixes values of two updates. Writers never wait.
+ *
+ * Rows fetched are updated by whichever thread reads a result set, which may not be the owner of the connection. They
+ * are kept in a separate atomic counter, so that they do not contend with the writer of the other stats, and are read
+ * independently of them in a snapshot.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.support.ProxyDataSourceBuilder#collectConnectionStats()
+ * @since 1.4.11
+ */
+public class ConnectionStats {
+
+    /**
+     * Consistent copy of {@link ConnectionStats}.
+     */
+    public static class Snapshot {
+        private final long queryCount;
+        private final long rowsFetched;
+        private final long rowsAffected;
+        private final long databaseTime;
+        private final long statementCount;
+        private final long lastActivityTime;
+
+        public Snapshot(long queryCount, long rowsFetched, long rowsAffected, long databaseTime, long statementCount,
+                        long lastActivityTime) {
+            this.queryCount = queryCount;
+            this.rowsFetched = rowsFetched;
+            this.rowsAffected = rowsAffected;
+            this.databaseTime = databaseTime;
+            this.statementCount = statementCount;
+            this.lastActivityTime = lastActivityTime;
+        }
+
+        /**
+         * @return number of query executions
+         */
+        public long getQueryCount() {
+            return queryCount;
+        }
+
+        /**
+         * @return number of rows read by {@code ResultSet#next()}. Only counted when result set proxy is enabled
+         */
+        public long getRowsFetched() {
+            return rowsFetched;
+        }
+
+        /**
+         * @return number of rows inserted, updated or deleted
+         */
+        public long getRowsAffected() {
+            return rowsAffected;
+        }
+
+        /**
+         * @return time spent in query executions in nanoseconds
+         */
+        public long getDatabaseTime() {
+            return databaseTime;
+        }
+
+        /**
+         * @return number of statements created, including ones reused from prepared statement cache
+         */
+        public long getStatementCount() {
+            return statementCount;
+        }
+
+        /**
+         * @return time in millis of the last query execution or statement creation. {@code 0} when none
+         */
+        public long getLastActivityTime() {
+            return lastActivityTime;
+        }
+
+        @Override
+        public String toString() {
+            return "queries=" + this.queryCount + ", rowsFetched=" + this.rowsFetched + ", rowsAffected=" + this.rowsAffected
+                    + ", databaseTime=" + this.databaseTime + "ns, statements=" + this.statementCount
+                    + ", lastActivity=" + this.lastActivityTime;
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<ConnectionStats> SEQUENCE =
+            AtomicIntegerFieldUpdater.newUpdater(ConnectionStats.class, "sequence");
+
+    private static final AtomicLongFieldUpdater<ConnectionStats> ROWS_FETCHED =
+            AtomicLongFieldUpdater.newUpdater(ConnectionStats.class, "rowsFetched");
+
+    private volatile int sequence;  // odd while being updated
+    private long queryCount;
+    private long rowsAffected;
+    private long databaseTime;
+    private long statementCount;
+    private long lastActivityTime;
+
+    private volatile long rowsFetched;  // updated by any thread
+
+    /**
+     * Record a query execution. Called by the thread using the connection.
+     *
+     * @param elapsedTime  elapsed time of the execution in nanoseconds
+     * @param rowsAffected number of rows affected by the execution
+     */
+    public void queryExecuted(long elapsedTime, long rowsAffected) {
+        int sequence = beginUpdate();
+        this.queryCount++;
+        this.databaseTime += elapsedTime;
+        if (rowsAffected > 0) {
+            this.rowsAffected += rowsAffected;
+        }
+        this.lastActivityTime = System.currentTimeMillis();
+        SEQUENCE.lazySet(this, sequence + 2);  // ordered after the writes of the fields
+    }
+
+    /**
+     * Record a statement creation. Called by the thread using the connection.
+     */
+    public void statementCreated() {
+        int sequence = beginUpdate();
+        this.statementCount++;
+        this.lastActivityTime = System.currentTimeMillis();
+        SEQUENCE.lazySet(this, sequence + 2);
+    }
+
+    /**
+     * Record rows read from a result set. Can be called by any thread.
+     *
+     * @param rows number of rows
+     */
+    public void rowsFetched(long rows) {
+        ROWS_FETCHED.addAndGet(this, rows);
+    }
+
+    /**
+     * Make the sequence odd. Only the thread using the connection updates it, so that no compare-and-set is needed.
+     *
+     * @return even sequence before the update
+     */
+    private int beginUpdate() {
+        this.sequence = this.sequence + 1;
+        // volatile read after the volatile write keeps the following writes of plain fields after the odd sequence
+        return this.sequence - 1;
+    }
+
+    /**
+     * Read a consistent copy of the stats. Does not block the writer.
+     *
+     * @return snapshot
+     */
+    public Snapshot snapshot() {
+        long rowsFetched = this.rowsFetched;
+        for (int spins = 0; ; spins++) {
+            int before = this.sequence;
+            if ((before & 1) == 0) {
+                Snapshot snapshot = new Snapshot(this.queryCount, rowsFetched, this.rowsAffected, this.databaseTime,
+                        this.statementCount, this.lastActivityTime);
+                // compare-and-set of the same value keeps the reads of plain fields before the validation
+                if (SEQUENCE.compareAndSet(this, before, before)) {
+                    return snapshot;
+                }
+            }
+            if (spins > 100) {
+                Thread.yield();  // writer may be preempted in the middle of an update
+            }
+        }
+    }
+
+}
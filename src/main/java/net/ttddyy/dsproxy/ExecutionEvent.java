@@ -0,0 +1,227 @@
+package net.ttddyy.dsproxy;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a query execution, detached from JDBC resources.
+ *
+ * Unlike {@link ExecutionInfo} and {@link QueryInfo}, which are mutable and reference the statement and its results,
+ * an event can be kept or passed to other threads, such as an async exporter, after the execution. Parameter values
+ * are converted to immutable forms; streams and LOBs are replaced with a placeholder. Events are created by
+ * {@link net.ttddyy.dsproxy.listener.ExecutionEventEncoder}.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.listener.ExecutionEventEncoder
+ * @see net.ttddyy.dsproxy.listener.ExecutionEventDispatcher
+ * @since 1.4.11
+ */
+public final class ExecutionEvent {
+
+    private final String dataSourceName;
+    private final String connectionId;
+    private final String threadName;
+    private final StatementType statementType;
+    private final String methodName;
+    private final boolean success;
+    private final String errorType;
+    private final String errorMessage;
+    private final boolean batch;
+    private final int batchSize;
+    private final long timestamp;
+    private final long elapsedNanos;
+    private final long rowsAffected;
+    private final String[] queries;
+    private final String[] fingerprints;
+    private final long[] fingerprintIds;
+    private final Object[][] parameterKeys;
+    private final Object[][] parameterValues;
+
+    public ExecutionEvent(String dataSourceName, String connectionId, String threadName, StatementType statementType,
+                          String methodName, boolean success, String errorType, String errorMessage, boolean batch,
+                          int batchSize, long timestamp, long elapsedNanos, long rowsAffected, String[] queries,
+                          String[] fingerprints, long[] fingerprintIds, Object[][] parameterKeys,
+                          Object[][] parameterValues) {
+        this.dataSourceName = dataSourceName;
+        this.connectionId = connectionId;
+        this.threadName = threadName;
+        this.statementType = statementType;
+        this.methodName = methodName;
+        this.success = success;
+        this.errorType = errorType;
+        this.errorMessage = errorMessage;
+        this.batch = batch;
+        this.batchSize = batchSize;
+        this.timestamp = timestamp;
+        this.elapsedNanos = elapsedNanos;
+        this.rowsAffected = rowsAffected;
+        this.queries = queries;
+        this.fingerprints = fingerprints;
+        this.fingerprintIds = fingerprintIds;
+        this.parameterKeys = parameterKeys;
+        this.parameterValues = parameterValues;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    /**
+     * @return name of the thread that executed the query
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public StatementType getStatementType() {
+        return statementType;
+    }
+
+    /**
+     * @return name of the executed method. e.g. {@code executeQuery}
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return class name of the thrown exception. {@code null} when succeeded
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+
+    /**
+     * @return message of the thrown exception. {@code null} when succeeded
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return time in millis when the execution finished
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return sum of update counts. {@code 0} for queries
+     */
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    /**
+     * @return number of queries. More than one for batch executions of {@link java.sql.Statement}
+     */
+    public int getQueryCount() {
+        return queries.length;
+    }
+
+    /**
+     * Query string. The same string instance is shared by events of the same query.
+     *
+     * @param index query index
+     * @return query string
+     */
+    public String getQuery(int index) {
+        return queries[index];
+    }
+
+    /**
+     * @param index query index
+     * @return query with literals replaced by {@code ?}
+     * @see net.ttddyy.dsproxy.listener.QueryUtils#getFingerprint(String)
+     */
+    public String getFingerprint(int index) {
+        return fingerprints[index];
+    }
+
+    /**
+     * 64-bit hash of the fingerprint, to group the same query without comparing strings.
+     *
+     * @param index query index
+     * @return fingerprint id
+     */
+    public long getFingerprintId(int index) {
+        return fingerprintIds[index];
+    }
+
+    /**
+     * @return number of parameter sets. Batch size for batch executions of prepared statements
+     */
+    public int getParameterSetCount() {
+        return parameterKeys.length;
+    }
+
+    /**
+     * Parameter keys of a parameter set, ordered by index followed by names.
+     *
+     * @param index parameter set index
+     * @return copy of keys. {@link Integer} for parameter index, {@link String} for parameter name
+     */
+    public Object[] getParameterKeys(int index) {
+        return parameterKeys[index].clone();
+    }
+
+    /**
+     * Parameter values of a parameter set, in the order of {@link #getParameterKeys(int)}.
+     *
+     * @param index parameter set index
+     * @return copy of values
+     */
+    public Object[] getParameterValues(int index) {
+        return parameterValues[index].clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("name:").append(dataSourceName);
+        sb.append(", connection:").append(connectionId);
+        sb.append(", thread:").append(threadName);
+        sb.append(", success:").append(success);
+        sb.append(", type:").append(statementType);
+        sb.append(", batch:").append(batch);
+        sb.append(", batchSize:").append(batchSize);
+        sb.append(", elapsedNanos:").append(elapsedNanos);
+        sb.append(", rowsAffected:").append(rowsAffected);
+        sb.append(", queries:").append(Arrays.toString(queries));
+        sb.append(", params:[");
+        for (int i = 0; i < parameterKeys.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("(");
+            for (int j = 0; j < parameterKeys[i].length; j++) {
+                if (j > 0) {
+                    sb.append(",");
+                }
+                sb.append(parameterKeys[i][j]).append("=").append(parameterValues[i][j]);
+            }
+            sb.append(")");
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
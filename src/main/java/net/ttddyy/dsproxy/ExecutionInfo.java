@@ -1,7 +1,10 @@
 package net.ttddyy.dsproxy;
 
+import net.ttddyy.dsproxy.proxy.CompactGeneratedKeys;
+
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
@@ -12,17 +15,25 @@ import java.sql.Statement;
 public class ExecutionInfo {
     private String dataSourceName;
     private String connectionId;
+    private ConnectionInfo connectionInfo;
     private Method method;
     private Object[] methodArgs;
     private Object result;
     private long elapsedTime;
+    private long elapsedNanos;
     private Throwable throwable;
     private StatementType statementType;
     private boolean isSuccess;
+    private boolean isAborted;
     private boolean isBatch;
     private int batchSize;
     private Statement statement;
     private ResultSet generatedKeys;
+    private CompactGeneratedKeys compactGeneratedKeys;
+    private boolean isBatchChunk;
+    private int totalBatchSize;
+    private int batchChunkCount;
+    private Object[] attributes;  // key and value pairs. created on first use
 
     public ExecutionInfo() {
     }
@@ -30,9 +41,12 @@ public class ExecutionInfo {
     public ExecutionInfo(ConnectionInfo connectionInfo, Statement statement, boolean isBatch, int batchSize, Method method, Object[] methodArgs) {
         this.dataSourceName = connectionInfo.getDataSourceName();
         this.connectionId = connectionInfo.getConnectionId();
+        this.connectionInfo = connectionInfo;
         this.statement = statement;
         this.isBatch = isBatch;
         this.batchSize = batchSize;
+        this.totalBatchSize = batchSize;
+        this.batchChunkCount = isBatch ? 1 : 0;
         this.method = method;
         this.methodArgs = methodArgs;
 
@@ -77,6 +91,21 @@ public class ExecutionInfo {
         this.connectionId = connectionId;
     }
 
+    /**
+     * @return connection info of the statement
+     * @since 1.4.11
+     */
+    public ConnectionInfo getConnectionInfo() {
+        return connectionInfo;
+    }
+
+    /**
+     * @since 1.4.11
+     */
+    public void setConnectionInfo(ConnectionInfo connectionInfo) {
+        this.connectionInfo = connectionInfo;
+    }
+
     /**
      * Contains query execution result.
      * Only available after successful query execution.
@@ -105,6 +134,24 @@ public class ExecutionInfo {
         this.elapsedTime = elapsedTime;
     }
 
+    /**
+     * Duration of query execution in nanoseconds, measured by {@link System#nanoTime()}.
+     *
+     * @return query execution time in nanoseconds
+     * @since 1.4.11
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @param elapsedNanos query execution time in nanoseconds
+     * @since 1.4.11
+     */
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
     public Throwable getThrowable() {
         return throwable;
     }
@@ -141,6 +188,38 @@ public class ExecutionInfo {
         this.isSuccess = isSuccess;
     }
 
+    /**
+     * Whether the query is not executed because a listener aborted it in {@code beforeQuery}. Listeners that account
+     * executions skip aborted ones in {@code afterQuery}.
+     *
+     * @return {@code true} when the query is not executed
+     * @since 1.4.11
+     */
+    public boolean isAborted() {
+        return isAborted;
+    }
+
+    /**
+     * @param isAborted {@code true} when the query is not executed
+     * @since 1.4.11
+     */
+    public void setAborted(boolean isAborted) {
+        this.isAborted = isAborted;
+    }
+
+    /**
+     * Abort the query from {@code beforeQuery}. The statement proxy does not execute the query, calls
+     * {@code afterQuery} of the listeners, and throws the exception to the caller.
+     *
+     * @param exception exception to throw instead of executing the query
+     * @since 1.4.11
+     */
+    public void abort(SQLException exception) {
+        this.throwable = exception;
+        this.isSuccess = false;
+        this.isAborted = true;
+    }
+
     public boolean isBatch() {
         return isBatch;
     }
@@ -173,10 +252,16 @@ public class ExecutionInfo {
     }
 
     /**
+     * When generated keys are retrieved in compact mode, a new view on {@link #getCompactGeneratedKeys()} is returned
+     * on each call, so that callers do not share the cursor.
+     *
      * @return Generated keys of the current statement
      * @since 1.4.5
      */
     public ResultSet getGeneratedKeys() {
+        if (generatedKeys == null && compactGeneratedKeys != null) {
+            return compactGeneratedKeys.toResultSet();
+        }
         return generatedKeys;
     }
 
@@ -184,4 +269,84 @@ public class ExecutionInfo {
         this.generatedKeys = generatedKeys;
     }
 
+    /**
+     * @return Generated keys of the current statement when compact generated keys is enabled, otherwise {@code null}
+     * @see net.ttddyy.dsproxy.proxy.ProxyConfig#isCompactGeneratedKeys()
+     * @since 1.4.11
+     */
+    public CompactGeneratedKeys getCompactGeneratedKeys() {
+        return compactGeneratedKeys;
+    }
+
+    public void setCompactGeneratedKeys(CompactGeneratedKeys compactGeneratedKeys) {
+        this.compactGeneratedKeys = compactGeneratedKeys;
+    }
+
+    /**
+     * @return {@code true} if this is an execution of batch chunk performed by {@code addBatch()} when batch chunking
+     * is enabled
+     * @see net.ttddyy.dsproxy.proxy.ProxyConfig#getBatchChunkSize()
+     * @since 1.4.11
+     */
+    public boolean isBatchChunk() {
+        return isBatchChunk;
+    }
+
+    public void setBatchChunk(boolean isBatchChunk) {
+        this.isBatchChunk = isBatchChunk;
+    }
+
+    /**
+     * For the final {@code executeBatch()} of chunked batch, number of entries including the ones executed by previous
+     * chunks. Otherwise, same as {@link #getBatchSize()}.
+     *
+     * @return total number of batch entries
+     * @since 1.4.11
+     */
+    public int getTotalBatchSize() {
+        return totalBatchSize;
+    }
+
+    public void setTotalBatchSize(int totalBatchSize) {
+        this.totalBatchSize = totalBatchSize;
+    }
+
+    /**
+     * For the final {@code executeBatch()} of chunked batch, number of chunks including itself.
+     * Otherwise, {@code 1} for batch execution and {@code 0} for others.
+     *
+     * @return number of batch chunks
+     * @since 1.4.11
+     */
+    public int getBatchChunkCount() {
+        return batchChunkCount;
+    }
+
+    public void setBatchChunkCount(int batchChunkCount) {
+        this.batchChunkCount = batchChunkCount;
+    }
+
+    /**
+     * Per-execution state of listeners.
+     *
+     * A listener stores its state in {@code beforeQuery} and retrieves it in {@code afterQuery}, instead of keeping
+     * a map or a thread-local keyed by execution. The listener instance itself is usually used as the key.
+     *
+     * @param key   attribute key. compared by identity
+     * @param value attribute value. {@code null} to remove
+     * @since 1.4.11
+     */
+    public void setAttribute(Object key, Object value) {
+        this.attributes = Attributes.set(this.attributes, key, value);
+    }
+
+    /**
+     * @param key attribute key. compared by identity
+     * @return attribute value or {@code null}
+     * @since 1.4.11
+     */
+    public Object getAttribute(Object key) {
+        return Attributes.get(this.attributes, key);
+    }
+
 }
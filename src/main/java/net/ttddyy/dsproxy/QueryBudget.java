@@ -0,0 +1,199 @@
+package net.ttddyy.dsproxy;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of queries for a unit of work of the current thread, such as an http request.
+ *
+ * A budget is opened for the current thread by {@link #open()}, and closed by {@link Scope#close()} at the end of the
+ * unit of work. While it is open, {@link net.ttddyy.dsproxy.listener.QueryBudgetListener} accumulates query count,
+ * elapsed time and rows affected to the {@link Scope}, and checks them before each query execution. Scopes can be
+ * nested; closing an inner scope restores the outer one.
+ *
+ * <pre>
+ * {@code
+ * QueryBudget budget = QueryBudget.create().maxQueries(100).maxTime(2, TimeUnit.SECONDS);
+ * QueryBudget.Scope scope = budget.open();
+ * try {
+ *     // perform queries
+ * } finally {
+ *     scope.close();
+ * }
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.listener.QueryBudgetListener
+ * @see net.ttddyy.dsproxy.support.QueryBudgetFilter
+ * @since 1.4.11
+ */
+public class QueryBudget {
+
+    private static ThreadLocal<Scope> scopeHolder = new ThreadLocal<Scope>();
+
+    /**
+     * Usage of a budget by the current thread. Not thread-safe; only used by the thread that opened it.
+     */
+    public static class Scope implements Closeable {
+        private final QueryBudget budget;
+        private final Scope outer;
+        private int queryCount;
+        private long elapsedTime;
+        private long rowsAffected;
+        private boolean reported;
+        private boolean closed;
+
+        private Scope(QueryBudget budget, Scope outer) {
+            this.budget = budget;
+            this.outer = outer;
+        }
+
+        /**
+         * Record a query execution.
+         *
+         * @param elapsedTime  elapsed time in millis
+         * @param rowsAffected number of rows affected
+         */
+        public void add(long elapsedTime, long rowsAffected) {
+            this.queryCount++;
+            this.elapsedTime += elapsedTime;
+            this.rowsAffected += rowsAffected;
+        }
+
+        /**
+         * @return {@code true} if executing one more query exceeds the budget
+         */
+        public boolean isExceeded() {
+            QueryBudget budget = this.budget;
+            return (budget.maxQueries > 0 && this.queryCount >= budget.maxQueries)
+                    || (budget.maxTime > 0 && this.elapsedTime >= budget.maxTime)
+                    || (budget.maxRows > 0 && this.rowsAffected >= budget.maxRows);
+        }
+
+        /**
+         * Mark the exceeded budget as reported.
+         *
+         * @return {@code true} if it was not yet reported
+         */
+        public boolean markReported() {
+            boolean first = !this.reported;
+            this.reported = true;
+            return first;
+        }
+
+        /**
+         * End this scope, and restore the outer scope. Closing a closed scope does nothing.
+         */
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            if (scopeHolder.get() == this) {
+                if (this.outer != null) {
+                    scopeHolder.set(this.outer);
+                } else {
+                    scopeHolder.remove();
+                }
+            }
+        }
+
+        public QueryBudget getBudget() {
+            return this.budget;
+        }
+
+        public int getQueryCount() {
+            return this.queryCount;
+        }
+
+        /**
+         * @return elapsed time of queries in millis
+         */
+        public long getElapsedTime() {
+            return this.elapsedTime;
+        }
+
+        public long getRowsAffected() {
+            return this.rowsAffected;
+        }
+
+        @Override
+        public String toString() {
+            return "queries=" + this.queryCount + "/" + this.budget.maxQueries
+                    + ", time=" + this.elapsedTime + "/" + this.budget.maxTime + "ms"
+                    + ", rowsAffected=" + this.rowsAffected + "/" + this.budget.maxRows;
+        }
+    }
+
+    private int maxQueries;
+    private long maxTime;  // in millis
+    private long maxRows;
+
+    public static QueryBudget create() {
+        return new QueryBudget();
+    }
+
+    /**
+     * @return the innermost open scope of the current thread. {@code null} when no budget is open
+     */
+    public static Scope current() {
+        return scopeHolder.get();
+    }
+
+    /**
+     * Start using this budget on the current thread.
+     *
+     * @return scope to close at the end of the unit of work
+     */
+    public Scope open() {
+        Scope scope = new Scope(this, scopeHolder.get());
+        scopeHolder.set(scope);
+        return scope;
+    }
+
+    /**
+     * @param maxQueries max number of query executions. {@code 0} for no limit
+     * @return this
+     */
+    public QueryBudget maxQueries(int maxQueries) {
+        this.maxQueries = maxQueries;
+        return this;
+    }
+
+    /**
+     * @param maxTime  max total elapsed time of queries. {@code 0} for no limit
+     * @param timeUnit time unit of maxTime
+     * @return this
+     */
+    public QueryBudget maxTime(long maxTime, TimeUnit timeUnit) {
+        this.maxTime = timeUnit.toMillis(maxTime);
+        return this;
+    }
+
+    /**
+     * @param maxRows max total number of rows affected by updates. {@code 0} for no limit
+     * @return this
+     */
+    public QueryBudget maxRows(long maxRows) {
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    public int getMaxQueries() {
+        return this.maxQueries;
+    }
+
+    /**
+     * @return max time in millis
+     */
+    public long getMaxTime() {
+        return this.maxTime;
+    }
+
+    public long getMaxRows() {
+        return this.maxRows;
+    }
+
+}
@@ -0,0 +1,31 @@
+package net.ttddyy.dsproxy;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by the statement proxy instead of executing a query when the {@link QueryBudget} of the current thread is
+ * exceeded.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.listener.QueryBudgetListener
+ * @since 1.4.11
+ */
+public class QueryBudgetExceededException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient QueryBudget.Scope scope;  // scope is bound to a thread and not serializable
+
+    public QueryBudgetExceededException(String message, QueryBudget.Scope scope) {
+        super(message);
+        this.scope = scope;
+    }
+
+    /**
+     * @return scope whose budget is exceeded
+     */
+    public QueryBudget.Scope getScope() {
+        return this.scope;
+    }
+
+}
@@ -1,36 +1,192 @@
 package net.ttddyy.dsproxy;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Hold QueryCount object by datasource name.
  *
+ * <p>Query counts are kept in a {@link Context} bound to the current thread. To count queries performed on other
+ * threads, such as tasks submitted to a thread pool, into the counts of the originating thread(e.g. http request),
+ * {@link #capture()} the context and {@link #attach(Context)} it on the other thread, or wrap the tasks or the executor
+ * by {@link #wrap(Runnable)}, {@link #wrap(Callable)} or {@link #wrap(Executor)}. Counts are updated concurrently
+ * without locks.
+ *
+ * <p>Context is created at the first query of a thread. Threads without queries, such as virtual threads of requests
+ * that do not access the database, do not allocate one even when {@link #clear()} is called.
+ *
+ * <pre>
+ * {@code
+ * Executor executor = QueryCountHolder.wrap(threadPool);
+ * CompletableFuture.runAsync(task, executor);  // queries in the task are counted to the current request
+ * }
+ * </pre>
+ *
  * @author Tadaya Tsuyukubo
  * @see net.ttddyy.dsproxy.listener.QueryCountStrategy
  */
 public class QueryCountHolder {
 
-    private static ThreadLocal<ConcurrentMap<String, QueryCount>> queryCountMapHolder = new ThreadLocal<ConcurrentMap<String, QueryCount>>() {
-        @Override
-        protected ConcurrentMap<String, QueryCount> initialValue() {
-            return new ConcurrentHashMap<String, QueryCount>();
+    /**
+     * Query counts of a unit of work, shared by the threads it is attached to.
+     *
+     * Counts are kept in a small copy-on-write array of entries, one per datasource, which is allocated at the first
+     * query. Lookup is a linear scan of the array without locking, which is cheaper than a hash map lookup for the
+     * few datasources an application has.
+     *
+     * @since 1.4.11
+     */
+    public static class Context {
+
+        private static final Entry[] EMPTY = new Entry[0];
+
+        private static final AtomicReferenceFieldUpdater<Context, Entry[]> ENTRIES_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(Context.class, Entry[].class, "entries");
+
+        private static class Entry {
+            private final String dataSourceName;
+            private final QueryCount queryCount;
+
+            private Entry(String dataSourceName, QueryCount queryCount) {
+                this.dataSourceName = dataSourceName;
+                this.queryCount = queryCount;
+            }
+        }
+
+        private volatile Entry[] entries = EMPTY;
+        private volatile int generation;
+
+        public QueryCount get(String dataSourceName) {
+            for (Entry entry : this.entries) {
+                if (entry.dataSourceName.equals(dataSourceName)) {
+                    return entry.queryCount;
+                }
+            }
+            return null;
+        }
+
+        public QueryCount getOrCreate(String dataSourceName) {
+            QueryCount queryCount = get(dataSourceName);
+            if (queryCount != null) {
+                return queryCount;
+            }
+            QueryCount created = new QueryCount();
+            while (true) {
+                Entry[] current = this.entries;
+                for (Entry entry : current) {
+                    if (entry.dataSourceName.equals(dataSourceName)) {
+                        return entry.queryCount;  // created by another thread
+                    }
+                }
+                if (ENTRIES_UPDATER.compareAndSet(this, current, append(current, new Entry(dataSourceName, created)))) {
+                    return created;
+                }
+            }
         }
-    };
+
+        public void put(String dataSourceName, QueryCount count) {
+            Entry entry = new Entry(dataSourceName, count);
+            while (true) {
+                Entry[] current = this.entries;
+                Entry[] updated = null;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i].dataSourceName.equals(dataSourceName)) {
+                        if (current[i].queryCount == count) {
+                            return;
+                        }
+                        updated = current.clone();
+                        updated[i] = entry;
+                        break;
+                    }
+                }
+                if (updated == null) {
+                    updated = append(current, entry);
+                }
+                if (ENTRIES_UPDATER.compareAndSet(this, current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        private static Entry[] append(Entry[] entries, Entry entry) {
+            Entry[] appended = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, appended, 0, entries.length);
+            appended[entries.length] = entry;
+            return appended;
+        }
+
+        /**
+         * @return copy of query counts by datasource name
+         */
+        public Map<String, QueryCount> getQueryCountMap() {
+            Map<String, QueryCount> map = new LinkedHashMap<String, QueryCount>();
+            for (Entry entry : this.entries) {
+                map.put(entry.dataSourceName, entry.queryCount);
+            }
+            return map;
+        }
+
+        public boolean isEmpty() {
+            return this.entries.length == 0;
+        }
+
+        public void clear() {
+            this.entries = EMPTY;
+            this.generation++;  // concurrent clears may lose an increment, but still change the value
+        }
+
+        /**
+         * Incremented by {@link #clear()}, for state bound to the unit of work of the context to detect the end of it.
+         *
+         * @return number of times the context is cleared
+         */
+        public int getGeneration() {
+            return this.generation;
+        }
+    }
+
+    // no initial value, so that threads that do not perform queries do not allocate a context
+    private static ThreadLocal<Context> contextHolder = new ThreadLocal<Context>();
+
+    private static Context getOrCreateContext() {
+        Context context = contextHolder.get();
+        if (context == null) {
+            context = new Context();
+            contextHolder.set(context);
+        }
+        return context;
+    }
 
     public static QueryCount get(String dataSourceName) {
-        final Map<String, QueryCount> map = queryCountMapHolder.get();
-        return map.get(dataSourceName);
+        Context context = contextHolder.get();
+        return context != null ? context.get(dataSourceName) : null;
+    }
+
+    /**
+     * Get the query count of the datasource, or create one if it does not exist.
+     *
+     * @param dataSourceName datasource name
+     * @return query count
+     * @since 1.4.11
+     */
+    public static QueryCount getOrCreate(String dataSourceName) {
+        return getOrCreateContext().getOrCreate(dataSourceName);
     }
 
     public static QueryCount getGrandTotal() {
         final QueryCount totalCount = new QueryCount();
-        final Map<String, QueryCount> map = queryCountMapHolder.get();
-        for (QueryCount queryCount : map.values()) {
+        final Context context = contextHolder.get();
+        if (context == null) {
+            return totalCount;
+        }
+        for (QueryCount queryCount : context.getQueryCountMap().values()) {
             totalCount.setSelect(totalCount.getSelect() + queryCount.getSelect());
             totalCount.setInsert(totalCount.getInsert() + queryCount.getInsert());
             totalCount.setUpdate(totalCount.getUpdate() + queryCount.getUpdate());
@@ -45,7 +201,7 @@ public class QueryCountHolder {
     }
 
     public static void put(String dataSourceName, QueryCount count) {
-        queryCountMapHolder.get().put(dataSourceName, count);
+        getOrCreateContext().put(dataSourceName, count);
     }
 
     public static List<String> getDataSourceNamesAsList() {
@@ -53,10 +209,106 @@ public class QueryCountHolder {
     }
 
     public static Set<String> getDataSourceNames() {
-        return queryCountMapHolder.get().keySet();
+        Context context = contextHolder.get();
+        if (context == null) {
+            return Collections.emptySet();
+        }
+        return context.getQueryCountMap().keySet();
     }
 
     public static void clear() {
-        queryCountMapHolder.get().clear();
+        Context context = contextHolder.get();
+        if (context != null) {
+            context.clear();
+        }
+    }
+
+    /**
+     * @return context of the current thread to propagate to other threads
+     * @since 1.4.11
+     */
+    public static Context capture() {
+        return getOrCreateContext();
+    }
+
+    /**
+     * Bind the context to the current thread.
+     *
+     * @param context context captured on another thread
+     * @return previous context of the current thread, to be passed to {@link #detach(Context)}
+     * @since 1.4.11
+     */
+    public static Context attach(Context context) {
+        Context previous = contextHolder.get();
+        contextHolder.set(context);
+        return previous;  // may be null
+    }
+
+    /**
+     * Restore the context of the current thread.
+     *
+     * @param previous context returned by {@link #attach(Context)}
+     * @since 1.4.11
+     */
+    public static void detach(Context previous) {
+        if (previous != null) {
+            contextHolder.set(previous);
+        } else {
+            contextHolder.remove();
+        }
+    }
+
+    /**
+     * @param task task to run on another thread
+     * @return task that runs with the context of the current thread
+     * @since 1.4.11
+     */
+    public static Runnable wrap(final Runnable task) {
+        final Context context = capture();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Context previous = attach(context);
+                try {
+                    task.run();
+                } finally {
+                    detach(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param task task to run on another thread
+     * @return task that runs with the context of the current thread
+     * @since 1.4.11
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final Context context = capture();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Context previous = attach(context);
+                try {
+                    return task.call();
+                } finally {
+                    detach(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param executor executor to run tasks on other threads
+     * @return executor that runs tasks with the context of the thread submitting them
+     * @since 1.4.11
+     */
+    public static Executor wrap(final Executor executor) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executor.execute(wrap(command));
+            }
+        };
     }
 }
@@ -51,7 +51,7 @@ public class QueryInfo {
 
             for (ParameterSetOperation param : paramsList) {
                 Object[] args = param.getArgs();
-                map.put(args[0].toString(), args[1]);
+                map.put(args[0].toString(), param.isPreview() ? param.getPreviewValue() : args[1]);
             }
 
             result.add(map);
@@ -0,0 +1,109 @@
+package net.ttddyy.dsproxy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a transaction.
+ *
+ * Elapsed time is measured from the start of the first query of the transaction to its end. Idle time is the elapsed
+ * time not spent in query executions, such as application processing while the transaction is open.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.listener.TransactionListener
+ * @since 1.4.11
+ */
+public class TransactionInfo {
+
+    /**
+     * How the transaction ended.
+     */
+    public enum Outcome {
+        /**
+         * {@code commit()}, or {@code setAutoCommit(true)} which commits the transaction.
+         */
+        COMMIT,
+        /**
+         * {@code rollback()}.
+         */
+        ROLLBACK,
+        /**
+         * {@code close()} without ending the transaction. Result depends on the driver or connection pool.
+         */
+        CLOSE
+    }
+
+    private final String dataSourceName;
+    private final String connectionId;
+    private final Outcome outcome;
+    private final int queryCount;
+    private final long elapsedNanos;
+    private final long databaseNanos;
+    private final long rowsAffected;
+
+    public TransactionInfo(String dataSourceName, String connectionId, Outcome outcome, int queryCount,
+                           long elapsedNanos, long databaseNanos, long rowsAffected) {
+        this.dataSourceName = dataSourceName;
+        this.connectionId = connectionId;
+        this.outcome = outcome;
+        this.queryCount = queryCount;
+        this.elapsedNanos = elapsedNanos;
+        this.databaseNanos = databaseNanos;
+        this.rowsAffected = rowsAffected;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return number of query executions. A batch execution is counted as one.
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return elapsed time of the transaction in milliseconds
+     */
+    public long getElapsedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+    }
+
+    /**
+     * @return time spent in query executions in milliseconds
+     */
+    public long getDatabaseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.databaseNanos);
+    }
+
+    /**
+     * @return elapsed time not spent in query executions in milliseconds
+     */
+    public long getIdleTime() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, this.elapsedNanos - this.databaseNanos));
+    }
+
+    /**
+     * @return sum of update counts returned by update and batch executions
+     */
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction[" + this.outcome + "] dataSource=" + this.dataSourceName
+                + ", connection=" + this.connectionId + ", queries=" + this.queryCount
+                + ", rows=" + this.rowsAffected + ", time=" + getElapsedTime() + "ms"
+                + ", db=" + getDatabaseTime() + "ms, idle=" + getIdleTime() + "ms";
+    }
+
+}
@@ -0,0 +1,273 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pass query executions to a slow {@link ExecutionEventListener}, such as audit shipping or metrics push, on worker
+ * threads instead of the query thread.
+ *
+ * {@code afterQuery} encodes the execution to an {@link ExecutionEvent} on the query thread, which does not reference
+ * the statement, result sets or parameter values such as streams and LOBs, and puts it on a bounded queue drained by
+ * the worker threads. When the queue is full, the {@link BackpressurePolicy} of this adapter decides what to do with
+ * the new execution.
+ *
+ * Listeners that must see executions synchronously, such as {@link DataSourceQueryCountListener}, should be registered
+ * as they are. Lag between the execution and the delegate call, and dropped executions are available as metrics.
+ *
+ * <pre>
+ * {@code
+ * AsyncQueryExecutionListener async = new AsyncQueryExecutionListener(auditExporter, 10000, 2, BackpressurePolicy.DROP);
+ * DataSource ds = ProxyDataSourceBuilder.create(actualDataSource).countQuery().listener(async).build();
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ExecutionEventEncoder
+ * @since 1.4.11
+ */
+public class AsyncQueryExecutionListener implements QueryExecutionListener {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * What to do when the queue is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Discard the new execution.
+         */
+        DROP,
+        /**
+         * Discard the oldest queued execution, and queue the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Call the delegate on the query thread.
+         */
+        CALLER_RUNS,
+        /**
+         * Wait on the query thread until the queue has space.
+         */
+        BLOCK
+    }
+
+    private class Task implements Runnable {
+        private final ExecutionEvent event;
+        private final long queuedTime;
+
+        private Task(ExecutionEvent event) {
+            this.event = event;
+            this.queuedTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long lag = System.nanoTime() - this.queuedTime;
+            processedCount.incrementAndGet();
+            totalLag.addAndGet(lag);
+            long max;
+            while (lag > (max = maxLag.get()) && !maxLag.compareAndSet(max, lag)) {
+                // retry
+            }
+            try {
+                delegate.onEvent(this.event);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to call listener " + delegate, e);  // keep worker running
+            }
+        }
+    }
+
+    private class BackpressureHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            switch (backpressurePolicy) {
+                case DROP:
+                    droppedCount.incrementAndGet();
+                    break;
+                case DROP_OLDEST:
+                    // workers are all running when the queue is full, so that queue directly instead of execute()
+                    while (!executor.getQueue().offer(r)) {
+                        if (executor.getQueue().poll() != null) {
+                            droppedCount.incrementAndGet();
+                        }
+                    }
+                    break;
+                case CALLER_RUNS:
+                    r.run();
+                    break;
+                case BLOCK:
+                    try {
+                        executor.getQueue().put(r);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        droppedCount.incrementAndGet();
+                    }
+                    break;
+            }
+        }
+    }
+
+    protected Logger logger = Logger.getLogger(AsyncQueryExecutionListener.class.getName());
+    protected boolean useDaemonThread = true;
+
+    protected final ExecutionEventListener delegate;
+    protected final ExecutionEventEncoder encoder;
+    protected final BackpressurePolicy backpressurePolicy;
+    protected final ThreadPoolExecutor executor;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong totalLag = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    public AsyncQueryExecutionListener(ExecutionEventListener delegate) {
+        this(delegate, DEFAULT_QUEUE_CAPACITY, 1, BackpressurePolicy.DROP);
+    }
+
+    /**
+     * @param delegate           listener to call on worker threads
+     * @param queueCapacity      max number of executions waiting for the workers
+     * @param workerCount        number of worker threads
+     * @param backpressurePolicy what to do when the queue is full
+     */
+    public AsyncQueryExecutionListener(ExecutionEventListener delegate, int queueCapacity, int workerCount,
+                                       BackpressurePolicy backpressurePolicy) {
+        this(delegate, new ExecutionEventEncoder(), queueCapacity, workerCount, backpressurePolicy);
+    }
+
+    /**
+     * @param delegate           listener to call on worker threads
+     * @param encoder            encoder to create events. can be shared with other listeners of the datasource
+     * @param queueCapacity      max number of executions waiting for the workers
+     * @param workerCount        number of worker threads
+     * @param backpressurePolicy what to do when the queue is full
+     */
+    public AsyncQueryExecutionListener(ExecutionEventListener delegate, ExecutionEventEncoder encoder,
+                                       int queueCapacity, int workerCount, BackpressurePolicy backpressurePolicy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive but was " + queueCapacity);
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive but was " + workerCount);
+        }
+        this.delegate = delegate;
+        this.encoder = encoder;
+        this.backpressurePolicy = backpressurePolicy;
+        this.executor = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = Executors.defaultThreadFactory().newThread(r);
+                thread.setDaemon(AsyncQueryExecutionListener.this.useDaemonThread);
+                return thread;
+            }
+        }, new BackpressureHandler());
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        this.executor.execute(new Task(this.encoder.encode(execInfo, queryInfoList)));
+    }
+
+    /**
+     * Stop accepting executions, and wait for the queued ones to be processed.
+     *
+     * @param timeout  max time to wait
+     * @param timeUnit time unit of timeout
+     * @return {@code true} if all queued executions are processed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        this.executor.shutdown();
+        return this.executor.awaitTermination(timeout, timeUnit);
+    }
+
+    public ExecutionEventListener getDelegate() {
+        return this.delegate;
+    }
+
+    public ExecutionEventEncoder getEncoder() {
+        return this.encoder;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return this.backpressurePolicy;
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return number of executions waiting for the workers
+     */
+    public int getQueueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * @return number of executions passed to the delegate
+     */
+    public long getProcessedCount() {
+        return this.processedCount.get();
+    }
+
+    /**
+     * @return number of executions discarded by backpressure or shutdown
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * @param timeUnit time unit of the result
+     * @return max time between the execution and the delegate call
+     */
+    public long getMaxLag(TimeUnit timeUnit) {
+        return timeUnit.convert(this.maxLag.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param timeUnit time unit of the result
+     * @return average time between the execution and the delegate call
+     */
+    public long getAverageLag(TimeUnit timeUnit) {
+        long processed = this.processedCount.get();
+        return processed == 0 ? 0 : timeUnit.convert(this.totalLag.get() / processed, TimeUnit.NANOSECONDS);
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Must be set before the first query, since worker threads are created at the first query.
+     *
+     * @param useDaemonThread use daemon thread or not. (default is true)
+     */
+    public void setUseDaemonThread(boolean useDaemonThread) {
+        this.useDaemonThread = useDaemonThread;
+    }
+
+}
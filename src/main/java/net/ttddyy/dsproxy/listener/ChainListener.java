@@ -9,6 +9,12 @@ import java.util.List;
 /**
  * Execute chain of listeners.
  *
+ * When a listener throws a runtime exception from {@code beforeQuery}, the query is not executed. In that case, the
+ * listeners whose {@code beforeQuery} have already been called receive {@code afterQuery} with the exception as an
+ * aborted execution({@link ExecutionInfo#isAborted()}), so that they can release the state kept for the query.
+ * Listeners that abort a query with a {@link java.sql.SQLException} use {@link ExecutionInfo#abort(java.sql.SQLException)}
+ * instead, such as {@link QueryBudgetListener}.
+ *
  * @author Tadaya Tsuyukubo
  */
 public class ChainListener implements QueryExecutionListener {
@@ -16,8 +22,30 @@ public class ChainListener implements QueryExecutionListener {
 
     @Override
     public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
-        for (QueryExecutionListener listener : listeners) {
-            listener.beforeQuery(execInfo, queryInfoList);
+        int size = listeners.size();
+        for (int i = 0; i < size; i++) {
+            try {
+                listeners.get(i).beforeQuery(execInfo, queryInfoList);
+            } catch (RuntimeException e) {
+                afterAbortedQuery(execInfo, queryInfoList, i, e);
+                throw e;
+            } catch (Error e) {
+                afterAbortedQuery(execInfo, queryInfoList, i, e);
+                throw e;
+            }
+        }
+    }
+
+    private void afterAbortedQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, int count, Throwable throwable) {
+        execInfo.setThrowable(throwable);
+        execInfo.setSuccess(false);
+        execInfo.setAborted(true);
+        for (int i = 0; i < count; i++) {
+            try {
+                listeners.get(i).afterQuery(execInfo, queryInfoList);
+            } catch (RuntimeException e) {
+                // keep the original exception
+            }
         }
     }
 
@@ -0,0 +1,35 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.TransactionInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Execute chain of {@link TransactionListener}.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class CompositeTransactionListener implements TransactionListener {
+    private List<TransactionListener> listeners = new ArrayList<TransactionListener>();
+
+    @Override
+    public void afterTransaction(TransactionInfo transactionInfo) {
+        for (TransactionListener listener : this.listeners) {
+            listener.afterTransaction(transactionInfo);
+        }
+    }
+
+    public boolean addListener(TransactionListener listener) {
+        return this.listeners.add(listener);
+    }
+
+    public List<TransactionListener> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<TransactionListener> listeners) {
+        this.listeners = listeners;
+    }
+}
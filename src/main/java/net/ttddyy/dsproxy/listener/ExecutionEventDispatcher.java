@@ -0,0 +1,72 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Encode each query execution to an {@link ExecutionEvent} once, and pass the same event to all
+ * {@link ExecutionEventListener}s.
+ *
+ * Listeners may keep the event or hand it to other threads. When no listener is registered, events are not created.
+ *
+ * <pre>
+ * {@code
+ * ExecutionEventDispatcher dispatcher = new ExecutionEventDispatcher();
+ * dispatcher.addListener(auditExporter);
+ * dispatcher.addListener(metricsExporter);
+ * DataSource ds = ProxyDataSourceBuilder.create(actualDataSource).listener(dispatcher).build();
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class ExecutionEventDispatcher implements QueryExecutionListener {
+
+    protected ExecutionEventEncoder encoder;
+    protected List<ExecutionEventListener> listeners = new CopyOnWriteArrayList<ExecutionEventListener>();
+
+    public ExecutionEventDispatcher() {
+        this(new ExecutionEventEncoder());
+    }
+
+    public ExecutionEventDispatcher(ExecutionEventEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+        ExecutionEvent event = this.encoder.encode(execInfo, queryInfoList);
+        for (ExecutionEventListener listener : this.listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    public void addListener(ExecutionEventListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(ExecutionEventListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public List<ExecutionEventListener> getListeners() {
+        return this.listeners;
+    }
+
+    public ExecutionEventEncoder getEncoder() {
+        return this.encoder;
+    }
+
+}
@@ -0,0 +1,249 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.BoundedCache;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLXML;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Create {@link ExecutionEvent} from {@link ExecutionInfo} and {@link QueryInfo}s.
+ *
+ * Canonical query string, fingerprint and fingerprint id are computed once per distinct query and cached, so that
+ * events of the same query share them. The cache is bounded, and evicts the least recently used query.
+ * An encoder is thread-safe, and is meant to be shared by listeners of a datasource.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ExecutionEventDispatcher
+ * @since 1.4.11
+ */
+public class ExecutionEventEncoder {
+
+    public static final int DEFAULT_MAX_CACHED_QUERIES = 1000;
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static class QueryEntry {
+        private final String query;
+        private final String fingerprint;
+        private final long fingerprintId;
+
+        private QueryEntry(String query, String fingerprint, long fingerprintId) {
+            this.query = query;
+            this.fingerprint = fingerprint;
+            this.fingerprintId = fingerprintId;
+        }
+    }
+
+    private final BoundedCache<String, QueryEntry> queryCache;
+
+    public ExecutionEventEncoder() {
+        this(DEFAULT_MAX_CACHED_QUERIES);
+    }
+
+    /**
+     * @param maxCachedQueries max number of distinct queries to cache fingerprints
+     */
+    public ExecutionEventEncoder(int maxCachedQueries) {
+        this.queryCache = new BoundedCache<String, QueryEntry>(maxCachedQueries);
+    }
+
+    public ExecutionEvent encode(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        int queryCount = queryInfoList.size();
+        String[] queries = new String[queryCount];
+        String[] fingerprints = new String[queryCount];
+        long[] fingerprintIds = new long[queryCount];
+        int parameterSetCount = 0;
+        for (int i = 0; i < queryCount; i++) {
+            QueryInfo queryInfo = queryInfoList.get(i);
+            QueryEntry entry = getQueryEntry(queryInfo.getQuery());
+            queries[i] = entry.query;
+            fingerprints[i] = entry.fingerprint;
+            fingerprintIds[i] = entry.fingerprintId;
+            parameterSetCount += queryInfo.getParametersList().size();
+        }
+
+        Object[][] parameterKeys = new Object[parameterSetCount][];
+        Object[][] parameterValues = new Object[parameterSetCount][];
+        int index = 0;
+        for (QueryInfo queryInfo : queryInfoList) {
+            for (List<ParameterSetOperation> operations : queryInfo.getParametersList()) {
+                encodeParameters(operations, parameterKeys, parameterValues, index++);
+            }
+        }
+
+        Method method = execInfo.getMethod();
+        Throwable throwable = execInfo.getThrowable();
+        return new ExecutionEvent(execInfo.getDataSourceName(), execInfo.getConnectionId(),
+                Thread.currentThread().getName(), execInfo.getStatementType(),
+                method != null ? method.getName() : null, execInfo.isSuccess(),
+                throwable != null ? throwable.getClass().getName() : null,
+                throwable != null ? throwable.getMessage() : null,
+                execInfo.isBatch(), execInfo.getBatchSize(), System.currentTimeMillis(), execInfo.getElapsedNanos(),
+                QueryUtils.getRowsAffected(execInfo.getResult()), queries, fingerprints, fingerprintIds,
+                parameterKeys, parameterValues);
+    }
+
+    private QueryEntry getQueryEntry(String query) {
+        if (query == null) {
+            return new QueryEntry(null, null, 0);
+        }
+        QueryEntry entry = this.queryCache.get(query);
+        if (entry == null) {
+            String fingerprint = QueryUtils.getFingerprint(query);
+            entry = new QueryEntry(query, fingerprint, hash(fingerprint));
+            this.queryCache.put(query, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the string.
+     *
+     * @param value string to hash
+     * @return hash
+     */
+    protected static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= (c & 0xff);
+            hash *= FNV_PRIME;
+            hash ^= (c >>> 8);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private void encodeParameters(List<ParameterSetOperation> operations, Object[][] parameterKeys,
+                                  Object[][] parameterValues, int index) {
+        int size = operations.size();
+        if (size == 0) {
+            parameterKeys[index] = NO_PARAMETERS;
+            parameterValues[index] = NO_PARAMETERS;
+            return;
+        }
+
+        Object[] keys = new Object[size];
+        Object[] values = new Object[size];
+        int count = 0;
+        for (ParameterSetOperation operation : operations) {
+            if (ParameterSetOperation.isRegisterOutParameterOperation(operation)) {
+                continue;
+            }
+            Object[] args = operation.getArgs();
+            Object key = args[0];
+            Object value;
+            if (operation.isPreview()) {
+                value = operation.getPreviewValue();
+            } else {
+                value = ParameterSetOperation.isSetNullParameterOperation(operation) ? null : toImmutable(args[1]);
+            }
+
+            // keep the last value set to the same key, then sort by insertion
+            int position = indexOf(keys, count, key);
+            if (position >= 0) {
+                values[position] = value;
+                continue;
+            }
+            int i = count++;
+            while (i > 0 && compareKeys(keys[i - 1], key) > 0) {
+                keys[i] = keys[i - 1];
+                values[i] = values[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+        if (count < size) {
+            keys = Arrays.copyOf(keys, count);
+            values = Arrays.copyOf(values, count);
+        }
+        parameterKeys[index] = keys;
+        parameterValues[index] = values;
+    }
+
+    private static int indexOf(Object[] keys, int count, Object key) {
+        for (int i = 0; i < count; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // parameter index first, then parameter name
+    private static int compareKeys(Object left, Object right) {
+        boolean leftIndex = left instanceof Integer;
+        boolean rightIndex = right instanceof Integer;
+        if (leftIndex && rightIndex) {
+            int l = (Integer) left;
+            int r = (Integer) right;
+            return l < r ? -1 : (l == r ? 0 : 1);
+        } else if (leftIndex) {
+            return -1;
+        } else if (rightIndex) {
+            return 1;
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    /**
+     * Convert a parameter value to an immutable form.
+     *
+     * Strings, numbers, booleans and characters are kept as they are. Dates and byte arrays are converted to strings,
+     * and streams and LOBs are replaced with their type in brackets. e.g. {@code [InputStream]}.
+     *
+     * @param value parameter value
+     * @return immutable value
+     */
+    protected Object toImmutable(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte || value instanceof Double || value instanceof Float
+                || value instanceof BigDecimal || value instanceof BigInteger) {
+            return value;
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        } else if (value instanceof byte[]) {
+            return "[byte[" + ((byte[]) value).length + "]]";
+        } else if (value instanceof InputStream) {
+            return "[InputStream]";
+        } else if (value instanceof Reader) {
+            return "[Reader]";
+        } else if (value instanceof Blob) {
+            return "[Blob]";
+        } else if (value instanceof Clob) {
+            return "[Clob]";
+        } else if (value instanceof SQLXML) {
+            return "[SQLXML]";
+        }
+        return value.toString();  // dates and other values
+    }
+
+    /**
+     * @return number of cached queries
+     */
+    public int getCachedQueryCount() {
+        return this.queryCache.size();
+    }
+
+    public int getMaxCachedQueries() {
+        return this.queryCache.getMaxSize();
+    }
+
+}
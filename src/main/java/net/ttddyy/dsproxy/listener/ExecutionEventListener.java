@@ -0,0 +1,16 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+
+/**
+ * Listener that receives {@link ExecutionEvent} after query executions.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ExecutionEventDispatcher
+ * @since 1.4.11
+ */
+public interface ExecutionEventListener {
+
+    void onEvent(ExecutionEvent event);
+
+}
@@ -0,0 +1,242 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of currently executing queries.
+ *
+ * Any thread can take a snapshot by {@link #getInFlightQueries()} or {@link #dump()} without blocking query
+ * execution. Query threads only perform a put and a remove on a {@link ConcurrentMap} keyed by a sequential id, and
+ * keep the running query as an attribute of {@link ExecutionInfo} to find it in {@link #afterQuery(ExecutionInfo, List)}.
+ *
+ * <pre>
+ * {@code
+ * InFlightQueryListener inFlight = new InFlightQueryListener();
+ * DataSource ds = ProxyDataSourceBuilder.create(actualDataSource).listener(inFlight).build();
+ *
+ * // from a monitoring endpoint
+ * String dump = inFlight.dump();
+ * int cancelled = inFlight.cancelOlderThan(30, TimeUnit.SECONDS);
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class InFlightQueryListener implements QueryExecutionListener {
+
+    /**
+     * Currently executing query.
+     */
+    public static class InFlightQuery {
+        private final long id;
+        private final String query;
+        private final long startTimeInNanos;
+        private final String dataSourceName;
+        private final String connectionId;
+        private final String threadName;
+        private final int batchSize;
+        private final Statement statement;
+        private volatile String fingerprint;
+
+        public InFlightQuery(long id, ExecutionInfo executionInfo, List<QueryInfo> queryInfoList, long startTimeInNanos, String threadName) {
+            this.id = id;
+            this.query = queryInfoList == null || queryInfoList.isEmpty() ? null : queryInfoList.get(0).getQuery();
+            this.startTimeInNanos = startTimeInNanos;
+            this.dataSourceName = executionInfo.getDataSourceName();
+            this.connectionId = executionInfo.getConnectionId();
+            this.threadName = threadName;
+            this.batchSize = executionInfo.getBatchSize();
+            this.statement = executionInfo.getStatement();
+        }
+
+        public long getId() {
+            return this.id;
+        }
+
+        /**
+         * @return the (first) query being executed
+         */
+        public String getQuery() {
+            return this.query;
+        }
+
+        /**
+         * @return fingerprint of the query. Computed at first access.
+         * @see QueryUtils#getFingerprint(String)
+         */
+        public String getFingerprint() {
+            String fingerprint = this.fingerprint;
+            if (fingerprint == null && this.query != null) {
+                fingerprint = QueryUtils.getFingerprint(this.query);
+                this.fingerprint = fingerprint;
+            }
+            return fingerprint;
+        }
+
+        /**
+         * @return value of {@link System#nanoTime()} when the query started
+         */
+        public long getStartTimeInNanos() {
+            return this.startTimeInNanos;
+        }
+
+        public long getElapsedTime(TimeUnit timeUnit) {
+            return timeUnit.convert(System.nanoTime() - this.startTimeInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public String getDataSourceName() {
+            return this.dataSourceName;
+        }
+
+        public String getConnectionId() {
+            return this.connectionId;
+        }
+
+        public String getThreadName() {
+            return this.threadName;
+        }
+
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        /**
+         * Call {@link Statement#cancel()} on the executing statement.
+         *
+         * @return {@code true} if cancel is requested to the statement
+         */
+        public boolean cancel() {
+            if (this.statement == null) {
+                return false;
+            }
+            try {
+                this.statement.cancel();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("id=").append(this.id);
+            sb.append(", elapsed=").append(getElapsedTime(TimeUnit.MILLISECONDS)).append("ms");
+            sb.append(", dataSource=").append(this.dataSourceName);
+            sb.append(", connection=").append(this.connectionId);
+            sb.append(", thread=").append(this.threadName);
+            sb.append(", batchSize=").append(this.batchSize);
+            sb.append(", query=").append(getFingerprint());
+            return sb.toString();
+        }
+    }
+
+    private static final Comparator<InFlightQuery> OLDEST_FIRST = new Comparator<InFlightQuery>() {
+        @Override
+        public int compare(InFlightQuery left, InFlightQuery right) {
+            long diff = left.startTimeInNanos - right.startTimeInNanos;  // nanoTime may overflow
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    };
+
+    private final ConcurrentMap<Long, InFlightQuery> inFlightQueries = new ConcurrentHashMap<Long, InFlightQuery>();
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long id = this.idGenerator.incrementAndGet();
+        String threadName = Thread.currentThread().getName();
+        InFlightQuery inFlightQuery = new InFlightQuery(id, execInfo, queryInfoList, System.nanoTime(), threadName);
+        execInfo.setAttribute(this, inFlightQuery);
+        this.inFlightQueries.put(id, inFlightQuery);
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        InFlightQuery inFlightQuery = (InFlightQuery) execInfo.getAttribute(this);
+        if (inFlightQuery != null) {
+            execInfo.setAttribute(this, null);
+            this.inFlightQueries.remove(inFlightQuery.id);
+        }
+    }
+
+    /**
+     * Snapshot of currently executing queries.
+     *
+     * @return queries ordered by start time, oldest first
+     */
+    public List<InFlightQuery> getInFlightQueries() {
+        List<InFlightQuery> result = new ArrayList<InFlightQuery>(this.inFlightQueries.values());
+        Collections.sort(result, OLDEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Snapshot of queries executing longer than the given time.
+     *
+     * @param time     elapsed time
+     * @param timeUnit time unit
+     * @return queries ordered by start time, oldest first
+     */
+    public List<InFlightQuery> getInFlightQueriesOlderThan(long time, TimeUnit timeUnit) {
+        long thresholdInNanos = timeUnit.toNanos(time);
+        long now = System.nanoTime();
+        List<InFlightQuery> result = new ArrayList<InFlightQuery>();
+        for (InFlightQuery inFlightQuery : getInFlightQueries()) {
+            if (now - inFlightQuery.startTimeInNanos >= thresholdInNanos) {
+                result.add(inFlightQuery);
+            }
+        }
+        return result;
+    }
+
+    public int getInFlightQueryCount() {
+        return this.inFlightQueries.size();
+    }
+
+    /**
+     * Text representation of currently executing queries, one query per line, oldest first.
+     *
+     * @return dump of in-flight queries
+     */
+    public String dump() {
+        List<InFlightQuery> queries = getInFlightQueries();
+        StringBuilder sb = new StringBuilder();
+        sb.append("In-flight queries: ").append(queries.size());
+        for (InFlightQuery inFlightQuery : queries) {
+            sb.append("\n").append(inFlightQuery);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Call {@link Statement#cancel()} on queries executing longer than the given time.
+     *
+     * @param time     elapsed time
+     * @param timeUnit time unit
+     * @return number of queries requested to cancel
+     */
+    public int cancelOlderThan(long time, TimeUnit timeUnit) {
+        int count = 0;
+        for (InFlightQuery inFlightQuery : getInFlightQueriesOlderThan(time, timeUnit)) {
+            if (inFlightQuery.cancel()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
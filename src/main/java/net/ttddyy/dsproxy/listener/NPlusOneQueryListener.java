@@ -0,0 +1,433 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.BoundedCache;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Detect N+1 query patterns.
+ *
+ * Counts executions per query fingerprint({@link QueryUtils#getFingerprint(String)}) within a unit of work, and when
+ * the same fingerprint is executed more than {@link #getThreshold()} times, reports it once by
+ * {@link #onNPlusOneQuery(NPlusOneQuery)} at the end of the unit of work, with the number of executions, total elapsed
+ * time and the call site sampled when the threshold was exceeded.
+ *
+ * Unit of work is determined by {@link Scope}:
+ * <ul>
+ * <li>{@link Scope#TRANSACTION}(default): per transaction of a connection. Ends at {@code commit()},
+ * {@code rollback()}, {@code setAutoCommit(true)} or {@code close()} of the connection. Executions in auto-commit
+ * mode are transactions by themselves and are not counted. This requires the listener to be registered also as
+ * {@link MethodExecutionListener}, otherwise a warning is logged and nothing is reported. Counters are kept in
+ * {@link ConnectionInfo}, so that they are discarded with connections that are never closed.</li>
+ * <li>{@link Scope#THREAD}: per thread, across connections. Ends when {@link #endUnitOfWork()} is called, typically at
+ * the end of a request. Counts are also discarded when {@link QueryCountHolder#clear()} is called, for example by
+ * {@link net.ttddyy.dsproxy.support.QueryCounterClearFilter}, so that counts of a pooled thread do not leak to the
+ * next request. Call {@link #endUnitOfWork()} before clearing to report them. Suitable when each query acquires a
+ * connection in auto-commit mode.</li>
+ * </ul>
+ *
+ * While no pattern is detected, each query costs an update of a hash table of the unit of work. Counters are
+ * confined to a connection or a thread and are updated without locks.
+ *
+ * <pre>
+ * {@code
+ * NPlusOneQueryListener listener = new NPlusOneQueryListener(10) {
+ *     protected void onNPlusOneQuery(NPlusOneQuery query) {
+ *         logger.warn(query.toString());
+ *     }
+ * };
+ * DataSource ds = ProxyDataSourceBuilder.create(actualDataSource).listener(listener).methodListener(listener).build();
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class NPlusOneQueryListener implements QueryExecutionListener, MethodExecutionListener {
+
+    public static final int DEFAULT_THRESHOLD = 10;
+
+    private static final int MAX_FINGERPRINT_CACHE_SIZE = 1000;
+
+    /**
+     * Scope of unit of work.
+     */
+    public enum Scope {
+        TRANSACTION, THREAD
+    }
+
+    /**
+     * Detected N+1 query pattern.
+     */
+    public static class NPlusOneQuery {
+        private final String fingerprint;
+        private final String query;
+        private final String dataSourceName;
+        private final String connectionId;
+        private final int count;
+        private final long totalElapsedTime;
+        private final StackTraceElement[] callSite;
+
+        public NPlusOneQuery(String fingerprint, String query, String dataSourceName, String connectionId, int count,
+                             long totalElapsedTime, StackTraceElement[] callSite) {
+            this.fingerprint = fingerprint;
+            this.query = query;
+            this.dataSourceName = dataSourceName;
+            this.connectionId = connectionId;
+            this.count = count;
+            this.totalElapsedTime = totalElapsedTime;
+            this.callSite = callSite;
+        }
+
+        public String getFingerprint() {
+            return this.fingerprint;
+        }
+
+        /**
+         * @return the query that exceeded the threshold
+         */
+        public String getQuery() {
+            return this.query;
+        }
+
+        public String getDataSourceName() {
+            return this.dataSourceName;
+        }
+
+        /**
+         * @return connection id of the execution that exceeded the threshold
+         */
+        public String getConnectionId() {
+            return this.connectionId;
+        }
+
+        /**
+         * @return number of executions in the unit of work
+         */
+        public int getCount() {
+            return this.count;
+        }
+
+        /**
+         * @return total elapsed time of the executions in milliseconds
+         */
+        public long getTotalElapsedTime() {
+            return this.totalElapsedTime;
+        }
+
+        /**
+         * @return stack trace of the execution that exceeded the threshold
+         */
+        public StackTraceElement[] getCallSite() {
+            return this.callSite;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("N+1 query: count=").append(this.count);
+            sb.append(", time=").append(this.totalElapsedTime).append("ms");
+            sb.append(", dataSource=").append(this.dataSourceName);
+            sb.append(", query=").append(this.fingerprint);
+            for (StackTraceElement element : this.callSite) {
+                sb.append("\n\tat ").append(element);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Open addressing hash table of executions per fingerprint in a unit of work.
+     */
+    protected static class FingerprintCounter {
+        private String[] fingerprints = new String[16];
+        private int[] counts = new int[16];
+        private long[] elapsedTimes = new long[16];
+        private NPlusOneQuery[] detected = new NPlusOneQuery[16];
+        private int size;
+
+        /**
+         * @return updated count
+         */
+        protected int increment(String fingerprint, long elapsedTime) {
+            int index = indexOf(fingerprint);
+            if (this.fingerprints[index] == null) {
+                this.fingerprints[index] = fingerprint;
+                if (++this.size * 2 > this.fingerprints.length) {
+                    resize();
+                    index = indexOf(fingerprint);
+                }
+            }
+            this.elapsedTimes[index] += elapsedTime;
+            return ++this.counts[index];
+        }
+
+        protected void detected(String fingerprint, NPlusOneQuery nPlusOneQuery) {
+            this.detected[indexOf(fingerprint)] = nPlusOneQuery;
+        }
+
+        /**
+         * @return detected queries with final counts and elapsed times
+         */
+        protected List<NPlusOneQuery> getDetected() {
+            List<NPlusOneQuery> result = new ArrayList<NPlusOneQuery>();
+            for (int i = 0; i < this.detected.length; i++) {
+                NPlusOneQuery query = this.detected[i];
+                if (query != null) {
+                    result.add(new NPlusOneQuery(query.fingerprint, query.query, query.dataSourceName,
+                            query.connectionId, this.counts[i], this.elapsedTimes[i], query.callSite));
+                }
+            }
+            return result;
+        }
+
+        private int indexOf(String fingerprint) {
+            int mask = this.fingerprints.length - 1;
+            int index = fingerprint.hashCode() & mask;
+            while (this.fingerprints[index] != null && !this.fingerprints[index].equals(fingerprint)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void resize() {
+            String[] oldFingerprints = this.fingerprints;
+            int[] oldCounts = this.counts;
+            long[] oldElapsedTimes = this.elapsedTimes;
+            NPlusOneQuery[] oldDetected = this.detected;
+            int capacity = oldFingerprints.length * 2;
+            this.fingerprints = new String[capacity];
+            this.counts = new int[capacity];
+            this.elapsedTimes = new long[capacity];
+            this.detected = new NPlusOneQuery[capacity];
+            for (int i = 0; i < oldFingerprints.length; i++) {
+                if (oldFingerprints[i] != null) {
+                    int index = indexOf(oldFingerprints[i]);
+                    this.fingerprints[index] = oldFingerprints[i];
+                    this.counts[index] = oldCounts[i];
+                    this.elapsedTimes[index] = oldElapsedTimes[i];
+                    this.detected[index] = oldDetected[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Counter of a thread, bound to the {@link QueryCountHolder} context when it is created.
+     */
+    protected static class ThreadCounter {
+        private final FingerprintCounter counter = new FingerprintCounter();
+        private final QueryCountHolder.Context context;
+        private final int generation;
+
+        protected ThreadCounter(QueryCountHolder.Context context) {
+            this.context = context;
+            this.generation = context.getGeneration();
+        }
+
+        /**
+         * @return {@code true} when the context is cleared or another context is attached to the thread
+         */
+        protected boolean isStale(QueryCountHolder.Context current) {
+            return this.context != current || this.generation != current.getGeneration();
+        }
+
+        protected FingerprintCounter getCounter() {
+            return this.counter;
+        }
+    }
+
+    protected Logger logger = Logger.getLogger(NPlusOneQueryListener.class.getName());
+
+    protected int threshold;
+    protected Scope scope;
+    protected ThreadLocal<ThreadCounter> counterByThread = new ThreadLocal<ThreadCounter>();
+    protected BoundedCache<String, String> fingerprintCache = new BoundedCache<String, String>(MAX_FINGERPRINT_CACHE_SIZE);
+    private final Object autoCommitKey = new Object();  // ConnectionInfo attribute when auto-commit is not tracked
+    private volatile boolean methodListenerCalled;
+    private volatile boolean methodListenerWarned;
+
+    public NPlusOneQueryListener() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public NPlusOneQueryListener(int threshold) {
+        this(threshold, Scope.TRANSACTION);
+    }
+
+    /**
+     * @param threshold report when a fingerprint is executed more than this number of times
+     * @param scope     scope of unit of work
+     */
+    public NPlusOneQueryListener(int threshold, Scope scope) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive but was " + threshold);
+        }
+        this.threshold = threshold;
+        this.scope = scope;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList == null || queryInfoList.isEmpty()) {
+            return;
+        }
+        String query = queryInfoList.get(0).getQuery();
+        if (query == null) {
+            return;
+        }
+        String fingerprint = getFingerprint(query);
+
+        if (this.scope == Scope.TRANSACTION && !this.methodListenerCalled && !this.methodListenerWarned) {
+            this.methodListenerWarned = true;
+            this.logger.log(Level.WARNING, "NPlusOneQueryListener with TRANSACTION scope needs to be registered also as MethodExecutionListener. N+1 queries are not reported.");
+        }
+
+        ConnectionInfo connectionInfo = execInfo.getConnectionInfo();
+        if (this.scope == Scope.TRANSACTION && connectionInfo != null && isAutoCommit(execInfo, connectionInfo)) {
+            return;
+        }
+
+        FingerprintCounter counter = getOrCreateCounter(connectionInfo);
+        int count = counter.increment(fingerprint, execInfo.getElapsedTime());
+        if (count == this.threshold + 1) {
+            StackTraceElement[] callSite = new Throwable().getStackTrace();
+            NPlusOneQuery nPlusOneQuery = new NPlusOneQuery(fingerprint, query, execInfo.getDataSourceName(),
+                    execInfo.getConnectionId(), count, 0, callSite);
+            counter.detected(fingerprint, nPlusOneQuery);
+        }
+    }
+
+    /**
+     * Auto-commit mode is taken from {@link ConnectionInfo#getAutoCommit()} when transaction listener tracks it.
+     * Otherwise, it is asked to the connection once, and then updated by {@code setAutoCommit()}.
+     */
+    protected boolean isAutoCommit(ExecutionInfo execInfo, ConnectionInfo connectionInfo) {
+        Boolean autoCommit = connectionInfo.getAutoCommit();
+        if (autoCommit == null) {
+            autoCommit = (Boolean) connectionInfo.getAttribute(this.autoCommitKey);
+        }
+        if (autoCommit == null) {
+            Statement statement = execInfo.getStatement();
+            try {
+                autoCommit = statement != null && statement.getConnection().getAutoCommit();
+            } catch (SQLException e) {
+                autoCommit = false;  // count in doubt
+            }
+            connectionInfo.setAttribute(this.autoCommitKey, autoCommit);
+        }
+        return autoCommit;
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        this.methodListenerCalled = true;
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (this.scope != Scope.TRANSACTION || !(executionContext.getTarget() instanceof Connection)) {
+            return;
+        }
+        ConnectionInfo connectionInfo = executionContext.getConnectionInfo();
+        if (connectionInfo == null) {
+            return;
+        }
+        Method method = executionContext.getMethod();
+        String methodName = method.getName();
+        boolean isEndOfTransaction = "commit".equals(methodName) || "close".equals(methodName)
+                || ("rollback".equals(methodName) && method.getParameterTypes().length == 0);
+        if ("setAutoCommit".equals(methodName)) {
+            boolean autoCommit = (Boolean) executionContext.getMethodArgs()[0];
+            connectionInfo.setAttribute(this.autoCommitKey, autoCommit);
+            isEndOfTransaction = autoCommit;  // changing to auto-commit mode commits the transaction
+        }
+        if (isEndOfTransaction) {
+            FingerprintCounter counter = (FingerprintCounter) connectionInfo.getAttribute(this);
+            if (counter != null) {
+                connectionInfo.setAttribute(this, null);
+                report(counter);
+            }
+        }
+    }
+
+    /**
+     * End the unit of work of the current thread for {@link Scope#THREAD}, and report detected N+1 queries.
+     */
+    public void endUnitOfWork() {
+        ThreadCounter threadCounter = this.counterByThread.get();
+        this.counterByThread.remove();
+        if (threadCounter != null) {
+            report(threadCounter.getCounter());
+        }
+    }
+
+    protected FingerprintCounter getOrCreateCounter(ConnectionInfo connectionInfo) {
+        if (this.scope == Scope.THREAD || connectionInfo == null) {
+            QueryCountHolder.Context context = QueryCountHolder.capture();
+            ThreadCounter threadCounter = this.counterByThread.get();
+            if (threadCounter == null || threadCounter.isStale(context)) {
+                threadCounter = new ThreadCounter(context);  // discard counts of the previous unit of work
+                this.counterByThread.set(threadCounter);
+            }
+            return threadCounter.getCounter();
+        }
+        FingerprintCounter counter = (FingerprintCounter) connectionInfo.getAttribute(this);
+        if (counter == null) {
+            counter = new FingerprintCounter();
+            connectionInfo.setAttribute(this, counter);
+        }
+        return counter;
+    }
+
+    protected String getFingerprint(String query) {
+        String fingerprint = this.fingerprintCache.get(query);
+        if (fingerprint == null) {
+            fingerprint = QueryUtils.getFingerprint(query);
+            this.fingerprintCache.put(query, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    protected void report(FingerprintCounter counter) {
+        for (NPlusOneQuery nPlusOneQuery : counter.getDetected()) {
+            onNPlusOneQuery(nPlusOneQuery);
+        }
+    }
+
+    /**
+     * Callback method when N+1 query pattern is detected. Called once per fingerprint at the end of unit of work.
+     *
+     * @param nPlusOneQuery detected query
+     */
+    protected void onNPlusOneQuery(NPlusOneQuery nPlusOneQuery) {
+    }
+
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    public Scope getScope() {
+        return this.scope;
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+}
@@ -0,0 +1,104 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryBudget;
+import net.ttddyy.dsproxy.QueryBudgetExceededException;
+import net.ttddyy.dsproxy.QueryInfo;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enforce {@link QueryBudget} of the current thread.
+ *
+ * Before each query execution, the open {@link QueryBudget.Scope} of the current thread is looked up from a thread
+ * local, and when its budget is exceeded, {@link #onBudgetExceeded(QueryBudget.Scope, ExecutionInfo, List)} is called
+ * once per scope. In fail-fast mode, the query is aborted by {@link ExecutionInfo#abort(java.sql.SQLException)}, and
+ * the statement proxy throws {@link QueryBudgetExceededException} instead of executing it, so that a runaway unit of
+ * work stops issuing queries. After each execution, its elapsed time and rows affected are added to the scope. Aborted
+ * queries are not added. Threads without open budget are not affected.
+ *
+ * By default, exceeded budgets are logged by JUL(Java Util Logging). Subclass can override the callback to emit
+ * metrics.
+ *
+ * <pre>
+ * {@code
+ * DataSource ds = ProxyDataSourceBuilder.create(actualDataSource).listener(new QueryBudgetListener(true)).build();
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.support.QueryBudgetFilter
+ * @since 1.4.11
+ */
+public class QueryBudgetListener implements QueryExecutionListener {
+
+    protected Logger logger = Logger.getLogger(QueryBudgetListener.class.getName());
+    protected Level logLevel = Level.WARNING;
+
+    protected boolean failFast;
+
+    public QueryBudgetListener() {
+    }
+
+    /**
+     * @param failFast {@code true} to throw {@link QueryBudgetExceededException} instead of executing queries over
+     *                 the budget
+     */
+    public QueryBudgetListener(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QueryBudget.Scope scope = QueryBudget.current();
+        if (scope == null || !scope.isExceeded()) {
+            return;
+        }
+        if (scope.markReported()) {
+            onBudgetExceeded(scope, execInfo, queryInfoList);
+        }
+        if (this.failFast) {
+            execInfo.abort(new QueryBudgetExceededException("Query budget exceeded: " + scope, scope));
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QueryBudget.Scope scope = QueryBudget.current();
+        if (scope != null && !execInfo.isAborted()) {
+            scope.add(execInfo.getElapsedTime(), QueryUtils.getRowsAffected(execInfo.getResult()));
+        }
+    }
+
+    /**
+     * Callback when the budget is exceeded. Called once per scope, before the first query over the budget.
+     *
+     * @param scope         scope whose budget is exceeded
+     * @param execInfo      execution info of the query over the budget
+     * @param queryInfoList queries over the budget
+     */
+    protected void onBudgetExceeded(QueryBudget.Scope scope, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String query = queryInfoList == null || queryInfoList.isEmpty() ? null : queryInfoList.get(0).getQuery();
+        this.logger.log(this.logLevel, "Query budget exceeded: " + scope + ", dataSource=" + execInfo.getDataSourceName()
+                + ", query=" + query);
+    }
+
+    public boolean isFailFast() {
+        return this.failFast;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public void setLogLevel(Level logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+}
@@ -3,13 +3,17 @@ package net.ttddyy.dsproxy.listener;
 import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.QueryInfo;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -37,6 +41,11 @@ import java.util.concurrent.TimeUnit;
  * {@code}
  * </pre>
  *
+ * By default, a task is scheduled on the {@link #getExecutor() executor} for each query. For high query throughput,
+ * {@link #setTimerWheelTick(long, TimeUnit)} switches to a hashed-wheel timer: a running query is registered with a
+ * lock-free enqueue and kept as an attribute of {@link ExecutionInfo} for {@link #afterQuery(ExecutionInfo, List)}, and a single ticker
+ * task on the executor checks overdue queries every tick. Slow queries are then detected with the tick resolution.
+ *
  * @author Tadaya Tsuyukubo
  * @see net.ttddyy.dsproxy.listener.logging.CommonsSlowQueryListener
  * @see net.ttddyy.dsproxy.listener.logging.JULSlowQueryListener
@@ -76,10 +85,17 @@ public class SlowQueryListener implements QueryExecutionListener {
     protected long threshold;
     protected TimeUnit thresholdTimeUnit;
     protected Map<String, RunningQueryContext> inExecution = new ConcurrentHashMap<String, RunningQueryContext>();
+    protected TimerWheel timerWheel;
 
     @Override
     public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
 
+        if (this.timerWheel != null) {
+            long thresholdInMillis = this.thresholdTimeUnit.toMillis(this.threshold);
+            this.timerWheel.register(execInfo, queryInfoList, thresholdInMillis);
+            return;
+        }
+
         final String execInfoKey = getExecutionInfoKey(execInfo);
 
         // only pass the key to prevent hard reference from Runnable to ExecutionInfo. (Issue-53)
@@ -110,6 +126,10 @@ public class SlowQueryListener implements QueryExecutionListener {
 
     @Override
     public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (this.timerWheel != null) {
+            this.timerWheel.complete(execInfo);
+            return;
+        }
         String executionInfoKey = getExecutionInfoKey(execInfo);
         this.inExecution.remove(executionInfoKey);
     }
@@ -164,6 +184,26 @@ public class SlowQueryListener implements QueryExecutionListener {
         return thresholdTimeUnit;
     }
 
+    /**
+     * Detect slow queries with a hashed-wheel timer that ticks at the given interval instead of scheduling a task per
+     * query.
+     *
+     * Slow queries are reported within one tick after exceeding the threshold. The ticker runs on the
+     * {@link #getExecutor() executor} and is started at the first query.
+     * {@link #getExecutionInfoKey(ExecutionInfo)} is not used in this mode.
+     *
+     * @param tick     tick duration
+     * @param tickUnit time unit of tick
+     * @since 1.4.11
+     */
+    public void setTimerWheelTick(long tick, TimeUnit tickUnit) {
+        long tickInMillis = tickUnit.toMillis(tick);
+        if (tickInMillis <= 0) {
+            throw new IllegalArgumentException("tick must be at least 1 millisecond");
+        }
+        this.timerWheel = new TimerWheel(tickInMillis);
+    }
+
     /**
      * When set to {@code true}(default), the executor creates daemon threads to check slow queries.
      *
@@ -174,4 +214,140 @@ public class SlowQueryListener implements QueryExecutionListener {
         this.useDaemonThread = useDaemonThread;
     }
 
+    /**
+     * {@link RunningQueryContext} registered to {@link TimerWheel}.
+     *
+     * Its state is changed either by {@link #afterQuery(ExecutionInfo, List)} or by the ticker only once, so that
+     * {@link #onSlowQuery(ExecutionInfo, List, long)} is called at most once and never after the query has finished.
+     */
+    protected static class TimerWheelEntry extends RunningQueryContext {
+        private static final int RUNNING = 0;
+        private static final int COMPLETED = 1;
+        private static final int REPORTED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private final long deadlineInMillis;
+
+        public TimerWheelEntry(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList, long nowInMills, long deadlineInMillis) {
+            super(executionInfo, queryInfoList, nowInMills);
+            this.deadlineInMillis = deadlineInMillis;
+        }
+
+        private boolean complete() {
+            if (this.state.compareAndSet(RUNNING, COMPLETED)) {
+                // release references while waiting for removal by the ticker
+                this.executionInfo = null;
+                this.queryInfoList = null;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isCompleted() {
+            return this.state.get() == COMPLETED;
+        }
+    }
+
+    /**
+     * Hashed-wheel timer for running queries.
+     *
+     * Query threads only enqueue new entries to a lock-free queue. Wheel buckets are accessed only by the ticker,
+     * which moves the new entries to the bucket of their deadline and checks the buckets of elapsed ticks.
+     * Finished queries are dropped lazily by the ticker.
+     */
+    protected class TimerWheel implements Runnable {
+
+        private static final int WHEEL_SIZE = 512;  // power of two
+
+        private final long tickInMillis;
+        private final List<List<TimerWheelEntry>> buckets;
+        private final ConcurrentLinkedQueue<TimerWheelEntry> pending = new ConcurrentLinkedQueue<TimerWheelEntry>();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private long startTimeInMillis;
+        private long lastTick;  // last processed tick; only accessed by the ticker
+
+        protected TimerWheel(long tickInMillis) {
+            this.tickInMillis = tickInMillis;
+            this.buckets = new ArrayList<List<TimerWheelEntry>>(WHEEL_SIZE);
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                this.buckets.add(new ArrayList<TimerWheelEntry>());
+            }
+        }
+
+        protected void register(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, long thresholdInMillis) {
+            if (!this.started.get() && this.started.compareAndSet(false, true)) {
+                this.startTimeInMillis = System.currentTimeMillis();
+                executor.scheduleAtFixedRate(this, this.tickInMillis, this.tickInMillis, TimeUnit.MILLISECONDS);
+            }
+            long now = System.currentTimeMillis();
+            TimerWheelEntry entry = new TimerWheelEntry(execInfo, queryInfoList, now, now + thresholdInMillis);
+            execInfo.setAttribute(this, entry);
+            this.pending.add(entry);
+        }
+
+        protected void complete(ExecutionInfo execInfo) {
+            TimerWheelEntry entry = (TimerWheelEntry) execInfo.getAttribute(this);
+            if (entry != null) {
+                execInfo.setAttribute(this, null);
+                entry.complete();
+            }
+        }
+
+        @Override
+        public void run() {
+            long now = System.currentTimeMillis();
+            long currentTick = (now - this.startTimeInMillis) / this.tickInMillis;
+
+            TimerWheelEntry entry;
+            while ((entry = this.pending.poll()) != null) {
+                if (entry.isCompleted()) {
+                    continue;
+                }
+                long deadlineTick = (entry.deadlineInMillis - this.startTimeInMillis + this.tickInMillis - 1) / this.tickInMillis;
+                long tick = Math.max(deadlineTick, this.lastTick + 1);
+                this.buckets.get((int) (tick & (WHEEL_SIZE - 1))).add(entry);
+            }
+
+            // when ticker is delayed, process missed ticks. visiting all buckets once is enough.
+            long fromTick = Math.max(this.lastTick + 1, currentTick - WHEEL_SIZE + 1);
+            for (long tick = fromTick; tick <= currentTick; tick++) {
+                expire(this.buckets.get((int) (tick & (WHEEL_SIZE - 1))), now);
+            }
+            this.lastTick = currentTick;
+        }
+
+        private void expire(List<TimerWheelEntry> bucket, long now) {
+            int i = 0;
+            while (i < bucket.size()) {
+                TimerWheelEntry entry = bucket.get(i);
+                boolean remove = entry.isCompleted();
+                if (!remove && entry.deadlineInMillis <= now) {
+                    remove = true;
+                    if (entry.state.compareAndSet(TimerWheelEntry.RUNNING, TimerWheelEntry.REPORTED)) {
+                        report(entry, now);
+                    }
+                }
+                if (remove) {
+                    // swap-remove; order within a bucket doesn't matter
+                    int last = bucket.size() - 1;
+                    bucket.set(i, bucket.get(last));
+                    bucket.remove(last);
+                } else {
+                    i++;  // deadline is in a later round
+                }
+            }
+        }
+
+        private void report(TimerWheelEntry entry, long now) {
+            try {
+                if (entry.executionInfo.getElapsedTime() == 0) {
+                    entry.executionInfo.setElapsedTime(now - entry.startTimeInMills);
+                }
+                onSlowQuery(entry.executionInfo, entry.queryInfoList, entry.startTimeInMills);
+            } catch (RuntimeException ex) {
+                // keep the ticker alive; an exception would cancel the periodic task
+            }
+        }
+    }
+
 }
@@ -6,6 +6,9 @@ import net.ttddyy.dsproxy.QueryCountHolder;
 /**
  * Uses {@link QueryCountHolder} which uses thread local to hold {@link QueryCount}.
  *
+ * Queries on other threads are counted to the same {@link QueryCount} when the context of the thread is propagated by
+ * {@link QueryCountHolder#capture()} or {@link QueryCountHolder#wrap(Runnable)}.
+ *
  * @author Tadaya Tsuyukubo
  * @since 1.4.2
  */
@@ -13,12 +16,7 @@ public class ThreadQueryCountHolder implements QueryCountStrategy {
 
     @Override
     public QueryCount getOrCreateQueryCount(String dataSourceName) {
-        QueryCount queryCount = QueryCountHolder.get(dataSourceName);
-        if (queryCount == null) {
-            queryCount = new QueryCount();
-            QueryCountHolder.put(dataSourceName, queryCount);
-        }
-        return queryCount;
+        return QueryCountHolder.getOrCreate(dataSourceName);
     }
 
 }
@@ -0,0 +1,24 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.TransactionInfo;
+
+/**
+ * Listener interface for transactions.
+ *
+ * A transaction starts at the first query execution while auto-commit is disabled, and ends at {@code commit()},
+ * {@code rollback()}, {@code setAutoCommit(true)} or {@code close()} of the connection.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.support.ProxyDataSourceBuilder#transactionListener(TransactionListener)
+ * @since 1.4.11
+ */
+public interface TransactionListener {
+
+    /**
+     * Called once at the end of each transaction that executed queries.
+     *
+     * @param transactionInfo summary of the transaction
+     */
+    void afterTransaction(TransactionInfo transactionInfo);
+
+}
@@ -31,6 +31,10 @@ public abstract class AbstractQueryLogEntryCreator implements QueryLogEntryCreat
 
     protected ParameterValueConverter setNullParameterValueConverter = new SetNullParameterValueConverter();
     protected ParameterValueConverter registerOutParameterValueConverter = new RegisterOutParameterValueConverter();
+    protected ParameterValueConverter parameterValueConverter;  // can be null to display values by "toString()"
+    protected int maxParametersLength;  // 0 for no limit
+
+    private volatile Boolean parametersMapOverridden;  // resolved on first use
 
     /**
      * Comparator considering string as integer.
@@ -62,6 +66,51 @@ public abstract class AbstractQueryLogEntryCreator implements QueryLogEntryCreat
         }
     }
 
+    /**
+     * @param sb          StringBuilder to write
+     * @param paramsStart length of sb when parameters started
+     * @return {@code true} when written parameters exceed max parameters length
+     * @since 1.4.11
+     */
+    protected boolean isParametersLengthExceeded(StringBuilder sb, int paramsStart) {
+        return this.maxParametersLength > 0 && sb.length() - paramsStart >= this.maxParametersLength;
+    }
+
+    /**
+     * Keys and display values of parameters of a single execution, ordered by parameter index, followed by parameter
+     * names.
+     *
+     * @since 1.4.11
+     */
+    protected static class SortedParameters {
+        private final Object[] keys;
+        private final String[] values;
+        private final int size;
+
+        protected SortedParameters(Object[] keys, String[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * @param i position
+         * @return parameterIndex or parameterName as String
+         */
+        public String getKey(int i) {
+            Object key = this.keys[i];
+            return key instanceof String ? (String) key : key.toString();
+        }
+
+        public String getValue(int i) {
+            return this.values[i];
+        }
+    }
+
     protected void chompIfEndWith(StringBuilder sb, char c) {
         final int lastCharIndex = sb.length() - 1;
         if (sb.charAt(lastCharIndex) == c) {
@@ -98,6 +147,121 @@ public abstract class AbstractQueryLogEntryCreator implements QueryLogEntryCreat
         return paramMap;
     }
 
+    /**
+     * Sort parameters by key without converting parameter index to string.
+     *
+     * Parameters are usually set in the order of index, so that each parameter is appended to the end. Parameter names
+     * that are numbers are ordered as parameter index. When the same key is set more than once, the last value is used.
+     *
+     * @param params list of ParameterSetOperation
+     * @return sorted parameters
+     * @since 1.4.11
+     */
+    protected SortedParameters getSortedParameters(List<ParameterSetOperation> params) {
+        int capacity = params.size();
+        Object[] keys = new Object[capacity];
+        int[] indexes = new int[capacity];  // -1 for parameter names
+        String[] values = new String[capacity];
+        int size = 0;
+        for (ParameterSetOperation param : params) {
+            Object key = param.getArgs()[0];  // either int(parameterIndex) or string(parameterName)
+            int index = key instanceof Integer ? (Integer) key : parseIndex(key.toString());
+
+            // find the position from the end, since parameters are mostly set in order
+            int position = size;
+            int compared = 1;
+            while (position > 0 && (compared = compareKeys(keys[position - 1], indexes[position - 1], key, index)) > 0) {
+                position--;
+            }
+            if (position > 0 && compared == 0) {
+                values[position - 1] = getParameterValueToDisplay(param);  // override the old value
+                continue;
+            }
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(indexes, position, indexes, position + 1, size - position);
+            System.arraycopy(values, position, values, position + 1, size - position);
+            keys[position] = key;
+            indexes[position] = index;
+            values[position] = getParameterValueToDisplay(param);
+            size++;
+        }
+        return new SortedParameters(keys, values, size);
+    }
+
+    /**
+     * Whether a subclass overrides {@link #getParametersToDisplay(List)} or other hooks taking a {@link SortedMap} of
+     * parameters. When overridden, parameters are sorted with {@link #getParametersToDisplay(List)} and written by the
+     * {@link SortedMap} based hooks, so that existing customizations keep working.
+     *
+     * @return {@code true} when {@link SortedMap} based hooks are overridden
+     * @since 1.4.11
+     */
+    protected boolean isParametersMapOverridden() {
+        Boolean overridden = this.parametersMapOverridden;
+        if (overridden == null) {
+            overridden = resolveParametersMapOverridden();
+            this.parametersMapOverridden = overridden;
+        }
+        return overridden;
+    }
+
+    /**
+     * Subclasses that have {@link SortedMap} based hooks add their check to this method.
+     *
+     * @return {@code true} when {@link SortedMap} based hooks are overridden
+     * @since 1.4.11
+     */
+    protected boolean resolveParametersMapOverridden() {
+        return isOverridden(AbstractQueryLogEntryCreator.class, "getParametersToDisplay", List.class);
+    }
+
+    /**
+     * @param baseClass      class that declares the method
+     * @param methodName     method name
+     * @param parameterTypes parameter types of the method
+     * @return {@code true} when a class between this class and the base class declares the method
+     * @since 1.4.11
+     */
+    protected boolean isOverridden(Class<?> baseClass, String methodName, Class<?>... parameterTypes) {
+        for (Class<?> clazz = getClass(); clazz != null && clazz != baseClass; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared in this class
+            }
+        }
+        return false;
+    }
+
+    private static int parseIndex(String name) {
+        int length = name.length();
+        if (length == 0 || length > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    // parameter index first, then parameter name
+    private static int compareKeys(Object leftKey, int leftIndex, Object rightKey, int rightIndex) {
+        if (leftIndex >= 0 && rightIndex >= 0) {
+            return leftIndex < rightIndex ? -1 : (leftIndex == rightIndex ? 0 : 1);
+        } else if (leftIndex >= 0) {
+            return -1;
+        } else if (rightIndex >= 0) {
+            return 1;
+        }
+        return leftKey.toString().compareTo(rightKey.toString());
+    }
+
     /**
      * @param param parameter set operation
      * @return parameterIndex or parameterName as String
@@ -148,6 +312,12 @@ public abstract class AbstractQueryLogEntryCreator implements QueryLogEntryCreat
      * @since 1.4
      */
     public String getDisplayValue(ParameterSetOperation param) {
+        if (param.isPreview()) {
+            return param.getPreviewValue();  // already converted
+        }
+        if (this.parameterValueConverter != null) {
+            return this.parameterValueConverter.getValue(param);
+        }
         Object value = param.getArgs()[1];
         return value == null ? null : value.toString();
     }
@@ -168,4 +338,25 @@ public abstract class AbstractQueryLogEntryCreator implements QueryLogEntryCreat
         this.registerOutParameterValueConverter = registerOutParameterValueConverter;
     }
 
+    /**
+     * Set converter for parameter values other than setNull and registerOutParameter.
+     *
+     * @param parameterValueConverter parameter value converter. {@code null} to display values by {@code toString()}
+     * @see BoundedParameterValueConverter
+     * @since 1.4.11
+     */
+    public void setParameterValueConverter(ParameterValueConverter parameterValueConverter) {
+        this.parameterValueConverter = parameterValueConverter;
+    }
+
+    /**
+     * Set max length of parameters in a log entry. Parameter sets after the limit are omitted and only counted.
+     *
+     * @param maxParametersLength max number of characters. {@code 0} for no limit
+     * @since 1.4.11
+     */
+    public void setMaxParametersLength(int maxParametersLength) {
+        this.maxParametersLength = maxParametersLength;
+    }
+
 }
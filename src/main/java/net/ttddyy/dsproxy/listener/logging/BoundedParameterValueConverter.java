@@ -0,0 +1,137 @@
+package net.ttddyy.dsproxy.listener.logging;
+
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * Convert parameter values to display values bounded in length.
+ *
+ * <ul>
+ * <li>strings and other values: truncated to max value length. e.g. {@code abcde...(5000 chars)}
+ * <li>byte arrays: hex of the leading bytes and the length. e.g. {@code 0x0102...(1024 bytes)}
+ * <li>streams: type and the length when specified. e.g. {@code [InputStream(1024)]}
+ * <li>LOBs: type and the length. e.g. {@code [Blob(1024)]}
+ * </ul>
+ *
+ * Streams and LOBs are never read.
+ *
+ * <pre>
+ * {@code
+ * DefaultQueryLogEntryCreator creator = new DefaultQueryLogEntryCreator();
+ * creator.setParameterValueConverter(new BoundedParameterValueConverter(200, 16));
+ * creator.setMaxParametersLength(4000);
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @see AbstractQueryLogEntryCreator#setParameterValueConverter(ParameterValueConverter)
+ * @see net.ttddyy.dsproxy.support.ProxyDataSourceBuilder#captureParameterPreview()
+ * @since 1.4.11
+ */
+public class BoundedParameterValueConverter implements ParameterValueConverter {
+
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 100;
+    public static final int DEFAULT_MAX_BYTES = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    protected int maxValueLength;
+    protected int maxBytes;
+
+    public BoundedParameterValueConverter() {
+        this(DEFAULT_MAX_VALUE_LENGTH, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxValueLength max number of characters of a value
+     * @param maxBytes       max number of leading bytes of a byte array to display in hex
+     */
+    public BoundedParameterValueConverter(int maxValueLength, int maxBytes) {
+        this.maxValueLength = maxValueLength;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String getValue(ParameterSetOperation param) {
+        if (param.isPreview()) {
+            return param.getPreviewValue();
+        }
+        Object[] args = param.getArgs();
+        Object value = args[1];
+        if (value instanceof InputStream || value instanceof Reader) {
+            // setBinaryStream(index, stream, length) etc.
+            Object length = args.length > 2 ? args[2] : null;
+            String type = value instanceof InputStream ? "InputStream" : "Reader";
+            return length instanceof Number ? "[" + type + "(" + length + ")]" : "[" + type + "]";
+        }
+        return getDisplayValue(value);
+    }
+
+    /**
+     * @param value parameter value
+     * @return display value
+     */
+    public String getDisplayValue(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof byte[]) {
+            return toHex((byte[]) value);
+        } else if (value instanceof InputStream) {
+            return "[InputStream]";
+        } else if (value instanceof Reader) {
+            return "[Reader]";
+        } else if (value instanceof Blob) {
+            try {
+                return "[Blob(" + ((Blob) value).length() + ")]";
+            } catch (SQLException e) {
+                return "[Blob]";
+            }
+        } else if (value instanceof Clob) {
+            try {
+                return "[Clob(" + ((Clob) value).length() + ")]";
+            } catch (SQLException e) {
+                return "[Clob]";
+            }
+        }
+        return truncate(value.toString());
+    }
+
+    protected String toHex(byte[] bytes) {
+        int length = Math.min(bytes.length, this.maxBytes);
+        StringBuilder sb = new StringBuilder(2 + length * 2 + 20);
+        sb.append("0x");
+        for (int i = 0; i < length; i++) {
+            sb.append(HEX[(bytes[i] >> 4) & 0xf]);
+            sb.append(HEX[bytes[i] & 0xf]);
+        }
+        if (length < bytes.length) {
+            sb.append("...(").append(bytes.length).append(" bytes)");
+        }
+        return sb.toString();
+    }
+
+    protected String truncate(String value) {
+        if (value.length() <= this.maxValueLength) {
+            return value;
+        }
+        int end = this.maxValueLength;
+        if (end > 0 && Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;  // do not split a surrogate pair
+        }
+        return value.substring(0, end) + "...(" + value.length() + " chars)";
+    }
+
+    public int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+}
@@ -214,24 +214,55 @@ public class DefaultJsonQueryLogEntryCreator extends AbstractQueryLogEntryCreato
      */
     protected void writeParamsEntry(StringBuilder sb, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
         boolean isPrepared = execInfo.getStatementType() == StatementType.PREPARED;
+        boolean usesParametersMap = isParametersMapOverridden();
         sb.append("\"params\":[");
+        final int paramsStart = sb.length();
+        int omitted = 0;
         for (QueryInfo queryInfo : queryInfoList) {
 
             for (List<ParameterSetOperation> parameters : queryInfo.getParametersList()) {
-                SortedMap<String, String> paramMap = getParametersToDisplay(parameters);
+                if (omitted > 0 || isParametersLengthExceeded(sb, paramsStart)) {
+                    omitted++;
+                    continue;
+                }
+                if (usesParametersMap) {
+                    // customized by overriding SortedMap based hooks
+                    SortedMap<String, String> paramMap = getParametersToDisplay(parameters);
+                    if (isPrepared) {
+                        writeParamsForSinglePreparedEntry(sb, paramMap, execInfo, queryInfoList);
+                    } else {
+                        writeParamsForSingleCallableEntry(sb, paramMap, execInfo, queryInfoList);
+                    }
+                    continue;
+                }
+
+                SortedParameters sortedParameters = getSortedParameters(parameters);
                 // parameters per batch
                 if (isPrepared) {
-                    writeParamsForSinglePreparedEntry(sb, paramMap, execInfo, queryInfoList);
+                    writeParamsForSinglePreparedEntry(sb, sortedParameters, execInfo, queryInfoList);
                 } else {
-                    writeParamsForSingleCallableEntry(sb, paramMap, execInfo, queryInfoList);
+                    writeParamsForSingleCallableEntry(sb, sortedParameters, execInfo, queryInfoList);
                 }
             }
         }
+        if (omitted > 0) {
+            sb.append("\"...(").append(omitted).append(" more)\",");
+        }
         chompIfEndWith(sb, ',');
         sb.append("]");
         sb.append("}");
     }
 
+    @Override
+    protected boolean resolveParametersMapOverridden() {
+        return super.resolveParametersMapOverridden()
+                || isOverridden(DefaultJsonQueryLogEntryCreator.class, "writeParamsForSinglePreparedEntry",
+                StringBuilder.class, SortedMap.class, ExecutionInfo.class, List.class)
+                || isOverridden(DefaultJsonQueryLogEntryCreator.class, "writeParamsForSingleCallableEntry",
+                StringBuilder.class, Map.class, ExecutionInfo.class, List.class)
+                || isOverridden(DefaultJsonQueryLogEntryCreator.class, "escapeSpecialCharacter", String.class);
+    }
+
     /**
      * Write parameters for single execution as json.
      *
@@ -241,7 +272,10 @@ public class DefaultJsonQueryLogEntryCreator extends AbstractQueryLogEntryCreato
      * @param paramMap      sorted parameters map
      * @param execInfo      execution info
      * @param queryInfoList query info list
+     * @deprecated use {@link #writeParamsForSinglePreparedEntry(StringBuilder, SortedParameters, ExecutionInfo, List)}.
+     * Still called when overridden. See {@link #isParametersMapOverridden()}
      */
+    @Deprecated
     protected void writeParamsForSinglePreparedEntry(StringBuilder sb, SortedMap<String, String> paramMap, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
         sb.append("[");
         for (Map.Entry<String, String> paramEntry : paramMap.entrySet()) {
@@ -268,7 +302,10 @@ public class DefaultJsonQueryLogEntryCreator extends AbstractQueryLogEntryCreato
      * @param paramMap      sorted parameters map
      * @param execInfo      execution info
      * @param queryInfoList query info list
+     * @deprecated use {@link #writeParamsForSingleCallableEntry(StringBuilder, SortedParameters, ExecutionInfo, List)}.
+     * Still called when overridden. See {@link #isParametersMapOverridden()}
      */
+    @Deprecated
     protected void writeParamsForSingleCallableEntry(StringBuilder sb, Map<String, String> paramMap, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
         sb.append("{");
         for (Map.Entry<String, String> paramEntry : paramMap.entrySet()) {
@@ -290,17 +327,87 @@ public class DefaultJsonQueryLogEntryCreator extends AbstractQueryLogEntryCreato
         sb.append("},");
     }
 
+    /**
+     * Write parameters for single execution as json.
+     *
+     * <p>default: ["foo","100"],
+     *
+     * @param sb               StringBuilder to write
+     * @param sortedParameters sorted parameters
+     * @param execInfo         execution info
+     * @param queryInfoList    query info list
+     * @since 1.4.11
+     */
+    protected void writeParamsForSinglePreparedEntry(StringBuilder sb, SortedParameters sortedParameters, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        sb.append("[");
+        for (int i = 0; i < sortedParameters.size(); i++) {
+            writeJsonValue(sb, sortedParameters.getValue(i));
+            sb.append(",");
+        }
+        chompIfEndWith(sb, ',');
+        sb.append("],");
+    }
+
+    /**
+     * Write parameters for single execution.
+     *
+     * <p>default: {"1":"foo","bar":"100"},
+     *
+     * @param sb               StringBuilder to write
+     * @param sortedParameters sorted parameters
+     * @param execInfo         execution info
+     * @param queryInfoList    query info list
+     * @since 1.4.11
+     */
+    protected void writeParamsForSingleCallableEntry(StringBuilder sb, SortedParameters sortedParameters, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        sb.append("{");
+        for (int i = 0; i < sortedParameters.size(); i++) {
+            sb.append("\"");
+            appendEscaped(sb, sortedParameters.getKey(i));
+            sb.append("\":");
+            writeJsonValue(sb, sortedParameters.getValue(i));
+            sb.append(",");
+        }
+        chompIfEndWith(sb, ',');
+        sb.append("},");
+    }
+
+    private void writeJsonValue(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+        } else {
+            sb.append("\"");
+            appendEscaped(sb, value);
+            sb.append("\"");
+        }
+    }
+
     protected String escapeSpecialCharacter(String input) {
         if (input == null) {
             return "null";
         }
         StringBuilder sb = new StringBuilder();
+        appendEscaped(sb, input);
+        return sb.toString();
+    }
+
+    /**
+     * Write json escaped string without creating intermediate string.
+     *
+     * @param sb    StringBuilder to write
+     * @param input string to escape
+     * @since 1.4.11
+     */
+    protected void appendEscaped(StringBuilder sb, String input) {
         for (int i = 0; i < input.length(); i++) {
             char c = input.charAt(i);
             String value = JSON_SPECIAL_CHARS.get(c);
-            sb.append(value != null ? value : c);
+            if (value != null) {
+                sb.append(value);
+            } else {
+                sb.append(c);
+            }
         }
-        return sb.toString();
     }
 
 }
@@ -255,29 +255,59 @@ public class DefaultQueryLogEntryCreator extends AbstractQueryLogEntryCreator {
     protected void writeParamsEntry(StringBuilder sb, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
 
         boolean isPrepared = execInfo.getStatementType() == StatementType.PREPARED;
+        boolean usesParametersMap = isParametersMapOverridden();
 
         sb.append("Params:[");
+        final int paramsStart = sb.length();
+        int omitted = 0;
 
         for (QueryInfo queryInfo : queryInfoList) {
             for (List<ParameterSetOperation> parameters : queryInfo.getParametersList()) {
-                SortedMap<String, String> paramMap = getParametersToDisplay(parameters);
+                if (omitted > 0 || isParametersLengthExceeded(sb, paramsStart)) {
+                    omitted++;
+                    continue;
+                }
+                if (usesParametersMap) {
+                    // customized by overriding SortedMap based hooks
+                    SortedMap<String, String> paramMap = getParametersToDisplay(parameters);
+                    if (isPrepared) {
+                        writeParamsForSinglePreparedEntry(sb, paramMap, execInfo, queryInfoList);
+                    } else {
+                        writeParamsForSingleCallableEntry(sb, paramMap, execInfo, queryInfoList);
+                    }
+                    continue;
+                }
+
+                SortedParameters sortedParameters = getSortedParameters(parameters);
 
                 // parameters per batch.
                 //   for prepared: (val1,val2,...)
                 //   for callable: (key1=val1,key2=val2,...)
                 if (isPrepared) {
-                    writeParamsForSinglePreparedEntry(sb, paramMap, execInfo, queryInfoList);
+                    writeParamsForSinglePreparedEntry(sb, sortedParameters, execInfo, queryInfoList);
                 } else {
-                    writeParamsForSingleCallableEntry(sb, paramMap, execInfo, queryInfoList);
+                    writeParamsForSingleCallableEntry(sb, sortedParameters, execInfo, queryInfoList);
                 }
 
             }
         }
 
+        if (omitted > 0) {
+            sb.append("...(").append(omitted).append(" more),");
+        }
         chompIfEndWith(sb, ',');
         sb.append("]");
     }
 
+    @Override
+    protected boolean resolveParametersMapOverridden() {
+        return super.resolveParametersMapOverridden()
+                || isOverridden(DefaultQueryLogEntryCreator.class, "writeParamsForSinglePreparedEntry",
+                StringBuilder.class, SortedMap.class, ExecutionInfo.class, List.class)
+                || isOverridden(DefaultQueryLogEntryCreator.class, "writeParamsForSingleCallableEntry",
+                StringBuilder.class, SortedMap.class, ExecutionInfo.class, List.class);
+    }
+
     /**
      * Write query parameters for PreparedStatement.
      *
@@ -288,7 +318,10 @@ public class DefaultQueryLogEntryCreator extends AbstractQueryLogEntryCreator {
      * @param execInfo      execution info
      * @param queryInfoList query info list
      * @since 1.4
+     * @deprecated use {@link #writeParamsForSinglePreparedEntry(StringBuilder, SortedParameters, ExecutionInfo, List)}.
+     * Still called when overridden. See {@link #isParametersMapOverridden()}
      */
+    @Deprecated
     protected void writeParamsForSinglePreparedEntry(StringBuilder sb, SortedMap<String, String> paramMap, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
         sb.append("(");
         for (Map.Entry<String, String> paramEntry : paramMap.entrySet()) {
@@ -309,7 +342,10 @@ public class DefaultQueryLogEntryCreator extends AbstractQueryLogEntryCreator {
      * @param execInfo      execution info
      * @param queryInfoList query info list
      * @since 1.4
+     * @deprecated use {@link #writeParamsForSingleCallableEntry(StringBuilder, SortedParameters, ExecutionInfo, List)}.
+     * Still called when overridden. See {@link #isParametersMapOverridden()}
      */
+    @Deprecated
     protected void writeParamsForSingleCallableEntry(StringBuilder sb, SortedMap<String, String> paramMap, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
         sb.append("(");
         for (Map.Entry<String, String> paramEntry : paramMap.entrySet()) {
@@ -322,6 +358,50 @@ public class DefaultQueryLogEntryCreator extends AbstractQueryLogEntryCreator {
         sb.append("),");
     }
 
+    /**
+     * Write query parameters for PreparedStatement.
+     *
+     * <p>default: (foo,100),
+     *
+     * @param sb               StringBuilder to write
+     * @param sortedParameters sorted parameters
+     * @param execInfo         execution info
+     * @param queryInfoList    query info list
+     * @since 1.4.11
+     */
+    protected void writeParamsForSinglePreparedEntry(StringBuilder sb, SortedParameters sortedParameters, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        sb.append("(");
+        for (int i = 0; i < sortedParameters.size(); i++) {
+            sb.append(sortedParameters.getValue(i));
+            sb.append(",");
+        }
+        chompIfEndWith(sb, ',');
+        sb.append("),");
+    }
+
+    /**
+     * Write parameters for single execution.
+     *
+     * <p>default: (1=foo,bar=100),
+     *
+     * @param sb               StringBuilder to write
+     * @param sortedParameters sorted parameters
+     * @param execInfo         execution info
+     * @param queryInfoList    query info list
+     * @since 1.4.11
+     */
+    protected void writeParamsForSingleCallableEntry(StringBuilder sb, SortedParameters sortedParameters, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        sb.append("(");
+        for (int i = 0; i < sortedParameters.size(); i++) {
+            sb.append(sortedParameters.getKey(i));
+            sb.append("=");
+            sb.append(sortedParameters.getValue(i));
+            sb.append(",");
+        }
+        chompIfEndWith(sb, ',');
+        sb.append("),");
+    }
+
 
     /**
      * Enable multiline output in {@link #getLogEntry(ExecutionInfo, List, boolean, boolean)}.
@@ -0,0 +1,219 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrite batch execution of a single-row insert into multi-row inserts.
+ *
+ * For a {@link PreparedStatement} with simple insert such as {@code INSERT INTO emp (id, name) VALUES (?, ?)},
+ * {@link PreparedStatement#executeBatch()} is performed as chunked executions of
+ * {@code INSERT INTO emp (id, name) VALUES (?, ?), (?, ?), ...} whose number of parameters is bounded by
+ * {@link #getMaxParameters()}. Parameters captured by the proxy are re-bound to the multi-row statements, and the
+ * per-row update counts are reconstructed from the total count of each chunk.
+ *
+ * This is effective for drivers that send batch entries one by one. The rewrite is applied only when:
+ * <ul>
+ * <li>query is {@code INSERT INTO table [(columns)] VALUES (...)} with no nested parentheses, string literals or
+ * trailing clauses</li>
+ * <li>all batch entries set exactly the parameters of the values clause by index</li>
+ * <li>statement is not created with auto-generated keys</li>
+ * </ul>
+ * Otherwise, the batch is executed as is.
+ *
+ * When each chunk reports the same number of rows as its entries, update counts are {@code 1}, otherwise
+ * {@link Statement#SUCCESS_NO_INFO}.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class BatchInsertRewriter {
+
+    public static final int DEFAULT_MAX_PARAMETERS = 1000;
+
+    private static final Pattern INSERT_PATTERN = Pattern.compile(
+            "^\\s*(INSERT\\s+INTO\\s+[\\w.\"`\\[\\]]+\\s*(?:\\([^()'?]*\\))?\\s*VALUES)\\s*(\\([^()']*\\))\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Parsed single-row insert.
+     */
+    public static class InsertQuery {
+        private final String insertClause;
+        private final String valuesTuple;
+        private final int parameterCount;
+
+        private InsertQuery(String insertClause, String valuesTuple, int parameterCount) {
+            this.insertClause = insertClause;
+            this.valuesTuple = valuesTuple;
+            this.parameterCount = parameterCount;
+        }
+
+        public int getParameterCount() {
+            return this.parameterCount;
+        }
+
+        /**
+         * @param rows number of rows
+         * @return insert query with given number of value tuples
+         */
+        public String toMultiRowQuery(int rows) {
+            StringBuilder sb = new StringBuilder(this.insertClause.length() + (this.valuesTuple.length() + 2) * rows);
+            sb.append(this.insertClause).append(" ");
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(this.valuesTuple);
+            }
+            return sb.toString();
+        }
+    }
+
+    private final int maxParameters;
+
+    public BatchInsertRewriter() {
+        this(DEFAULT_MAX_PARAMETERS);
+    }
+
+    public BatchInsertRewriter(int maxParameters) {
+        if (maxParameters <= 0) {
+            throw new IllegalArgumentException("maxParameters must be positive but was " + maxParameters);
+        }
+        this.maxParameters = maxParameters;
+    }
+
+    public int getMaxParameters() {
+        return this.maxParameters;
+    }
+
+    /**
+     * @param query query of prepared statement
+     * @return parsed insert, or {@code null} if the query is not a simple single-row insert
+     */
+    public InsertQuery parse(String query) {
+        if (query == null) {
+            return null;
+        }
+        Matcher matcher = INSERT_PATTERN.matcher(query);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String valuesTuple = matcher.group(2);
+        int parameterCount = 0;
+        for (int i = 0; i < valuesTuple.length(); i++) {
+            if (valuesTuple.charAt(i) == '?') {
+                parameterCount++;
+            }
+        }
+        if (parameterCount == 0 || parameterCount > this.maxParameters) {
+            return null;
+        }
+        return new InsertQuery(matcher.group(1), valuesTuple, parameterCount);
+    }
+
+    /**
+     * @param insertQuery     parsed insert
+     * @param batchParameters parameters of batch entries
+     * @return {@code true} if all entries set exactly the parameters of the insert by index
+     */
+    public boolean isRewritable(InsertQuery insertQuery, List<Map<ParameterKey, ParameterSetOperation>> batchParameters) {
+        if (batchParameters.size() < 2) {
+            return false;
+        }
+        int parameterCount = insertQuery.getParameterCount();
+        for (Map<ParameterKey, ParameterSetOperation> params : batchParameters) {
+            if (params.size() != parameterCount) {
+                return false;
+            }
+            for (ParameterKey key : params.keySet()) {
+                if (!key.isByIndex() || key.getIndex() < 1 || key.getIndex() > parameterCount) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Execute batch entries with multi-row inserts.
+     *
+     * @param connection      actual connection
+     * @param insertQuery     parsed insert
+     * @param batchParameters parameters of batch entries
+     * @return per-entry update counts
+     * @throws SQLException on failure. {@link BatchUpdateException} contains update counts of succeeded chunks
+     */
+    public int[] execute(Connection connection, InsertQuery insertQuery, List<Map<ParameterKey, ParameterSetOperation>> batchParameters) throws SQLException {
+        int parameterCount = insertQuery.getParameterCount();
+        int rowsPerChunk = Math.max(1, this.maxParameters / parameterCount);
+        int totalRows = batchParameters.size();
+        int[] updateCounts = new int[totalRows];
+
+        PreparedStatement fullChunkStatement = null;
+        int row = 0;
+        try {
+            while (row < totalRows) {
+                int rows = Math.min(rowsPerChunk, totalRows - row);
+                PreparedStatement ps;
+                if (rows == rowsPerChunk) {
+                    if (fullChunkStatement == null) {
+                        fullChunkStatement = connection.prepareStatement(insertQuery.toMultiRowQuery(rows));
+                    }
+                    ps = fullChunkStatement;
+                } else {
+                    ps = connection.prepareStatement(insertQuery.toMultiRowQuery(rows));
+                }
+                try {
+                    for (int i = 0; i < rows; i++) {
+                        bind(ps, batchParameters.get(row + i), i * parameterCount);
+                    }
+                    int count = ps.executeUpdate();
+                    Arrays.fill(updateCounts, row, row + rows, count == rows ? 1 : Statement.SUCCESS_NO_INFO);
+                } finally {
+                    if (ps != fullChunkStatement) {
+                        ps.close();
+                    }
+                }
+                row += rows;
+            }
+        } catch (SQLException e) {
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, row), e);
+        } finally {
+            if (fullChunkStatement != null) {
+                fullChunkStatement.close();
+            }
+        }
+        return updateCounts;
+    }
+
+    private void bind(PreparedStatement ps, Map<ParameterKey, ParameterSetOperation> params, int offset) throws SQLException {
+        for (ParameterSetOperation operation : params.values()) {
+            Method method = operation.getMethod();
+            Object[] args = operation.getArgs().clone();
+            args[0] = (Integer) args[0] + offset;
+            try {
+                method.invoke(ps, args);
+            } catch (InvocationTargetException e) {
+                Throwable target = e.getTargetException();
+                if (target instanceof SQLException) {
+                    throw (SQLException) target;
+                }
+                throw new SQLException("Failed to set parameter", target);
+            } catch (IllegalAccessException e) {
+                throw new SQLException("Failed to set parameter", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread-safe cache bounded by number of entries, evicting least recently used entries.
+ *
+ * Lookups are a single {@link ConcurrentHashMap} read and do not take any lock. Each entry records the insertion
+ * count when it was last accessed. When the number of entries exceeds the max size, the inserting thread evicts least
+ * recently used entries down to 90% of the max size, so that the cost of eviction is shared by many insertions.
+ * Only one thread evicts at a time, and others continue without waiting. Under concurrent access, recency is
+ * approximate.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class BoundedCache<K, V> {
+
+    private static class Entry<V> {
+        private final V value;
+        private volatile long lastAccess;
+
+        private Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<K, Entry<V>>();
+    private final int maxSize;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    // number of insertions. concurrent insertions may share the same value, which only blurs recency.
+    private volatile long clock;
+
+    /**
+     * @param maxSize max number of entries
+     */
+    public BoundedCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive but was " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key key
+     * @return cached value or {@code null}
+     */
+    public V get(K key) {
+        Entry<V> entry = this.map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = this.clock;
+        if (entry.lastAccess != now) {
+            entry.lastAccess = now;  // do not write when already accessed since the last insertion
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        long now = this.clock;
+        this.clock = now + 1;
+        if (this.map.put(key, new Entry<V>(value, now)) == null && this.map.size() > this.maxSize) {
+            evict();
+        }
+    }
+
+    public void remove(K key) {
+        this.map.remove(key);
+    }
+
+    public void clear() {
+        this.map.clear();
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    private void evict() {
+        if (!this.evicting.compareAndSet(false, true)) {
+            return;  // other thread is evicting
+        }
+        try {
+            int excess = this.map.size() - (this.maxSize - this.maxSize / 10);
+            if (excess <= 0) {
+                return;
+            }
+            long[] accesses = new long[this.map.size() + 16];
+            int count = 0;
+            for (Entry<V> entry : this.map.values()) {
+                if (count == accesses.length) {
+                    accesses = Arrays.copyOf(accesses, count * 2);
+                }
+                accesses[count++] = entry.lastAccess;
+            }
+            if (count == 0) {
+                return;
+            }
+            Arrays.sort(accesses, 0, count);
+            long threshold = accesses[Math.min(excess, count) - 1];
+
+            for (Map.Entry<K, Entry<V>> mapEntry : this.map.entrySet()) {
+                if (excess == 0) {
+                    break;
+                }
+                Entry<V> entry = mapEntry.getValue();
+                if (entry.lastAccess <= threshold && this.map.remove(mapEntry.getKey(), entry)) {
+                    excess--;
+                }
+            }
+        } finally {
+            this.evicting.set(false);
+        }
+    }
+
+}
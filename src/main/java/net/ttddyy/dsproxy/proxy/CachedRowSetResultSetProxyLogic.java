@@ -26,6 +26,7 @@ public class CachedRowSetResultSetProxyLogic implements ResultSetProxyLogic {
     private ResultSet cachedRowSet;
     private ConnectionInfo connectionInfo;
     private ProxyConfig proxyConfig;
+    private ResultSetFetchUtils.Cursor cursor;  // created on first fetch
 
     // default impl "com.sun.rowset.CachedRowSetImpl" does NOT support "isClosed()", so enable handling in this class
     protected boolean supportIsClosedMethod = true;
@@ -76,6 +77,13 @@ public class CachedRowSetResultSetProxyLogic implements ResultSetProxyLogic {
             return this.isClosed;
         }
 
+        if (ResultSetFetchUtils.isFetchMethod(method)) {
+            if (this.cursor == null) {
+                this.cursor = new ResultSetFetchUtils.ResultSetCursor(this.cachedRowSet);
+            }
+            return ResultSetFetchUtils.invoke(this.cursor, method, args);
+        }
+
         // TODO: handle getStatement() method to return proxied statement
 
         try {
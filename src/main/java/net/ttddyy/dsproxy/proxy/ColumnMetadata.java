@@ -0,0 +1,130 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of column information of a {@link java.sql.ResultSet}.
+ *
+ * Holds column labels, sql types and a case-insensitive column label to index lookup.
+ * Since it doesn't hold any reference to the original {@link ResultSetMetaData}, the same instance can be shared among
+ * result sets of the same query.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ColumnMetadataCache
+ * @since 1.4.11
+ */
+public class ColumnMetadata {
+
+    /**
+     * Read column information from given {@link ResultSetMetaData}.
+     *
+     * @param metaData result set metadata
+     * @return column metadata
+     * @throws SQLException when failed to access metadata
+     */
+    public static ColumnMetadata from(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        int[] columnTypes = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+            columnTypes[i] = metaData.getColumnType(i + 1);
+        }
+        return new ColumnMetadata(columnLabels, columnTypes);
+    }
+
+    private final int columnCount;
+    private final String[] columnLabels;
+    private final int[] columnTypes;
+
+    // contains both labels as is and lower-cased labels. value is 1-based column index.
+    private final Map<String, Integer> labelToIndex;
+
+    public ColumnMetadata(String[] columnLabels, int[] columnTypes) {
+        this.columnCount = columnLabels.length;
+        this.columnLabels = columnLabels.clone();
+        this.columnTypes = columnTypes.clone();
+
+        Map<String, Integer> labelToIndex = new HashMap<String, Integer>(columnCount * 4);
+        // register lower-cased labels first so that any label lookup falls back to them, then as-is labels for exact
+        // match. When same label appears more than once, the first column wins as defined in ResultSet javadoc.
+        for (int i = 0; i < columnCount; i++) {
+            String label = columnLabels[i];
+            if (label == null) {
+                continue;
+            }
+            String lowerCaseLabel = label.toLowerCase();
+            if (!labelToIndex.containsKey(lowerCaseLabel)) {
+                labelToIndex.put(lowerCaseLabel, i + 1);
+            }
+        }
+        for (int i = 0; i < columnCount; i++) {
+            String label = columnLabels[i];
+            if (label != null && !labelToIndex.containsKey(label)) {
+                labelToIndex.put(label, labelToIndex.get(label.toLowerCase()));
+            }
+        }
+        this.labelToIndex = labelToIndex;
+    }
+
+    /**
+     * Check column count and column labels against given {@link ResultSetMetaData}, so that a cached instance is not
+     * used for a result set whose shape has changed. e.g. {@code SELECT *} after DDL.
+     *
+     * @param metaData result set metadata
+     * @return {@code true} when column count and labels are the same
+     * @throws SQLException when failed to access metadata
+     */
+    public boolean matches(ResultSetMetaData metaData) throws SQLException {
+        if (metaData.getColumnCount() != this.columnCount) {
+            return false;
+        }
+        for (int i = 0; i < this.columnCount; i++) {
+            String label = metaData.getColumnLabel(i + 1);
+            if (label == null ? this.columnLabels[i] != null : !label.equals(this.columnLabels[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getColumnCount() {
+        return this.columnCount;
+    }
+
+    /**
+     * @param columnIndex 1-based column index
+     * @return column label
+     */
+    public String getColumnLabel(int columnIndex) {
+        return this.columnLabels[columnIndex - 1];
+    }
+
+    /**
+     * @param columnIndex 1-based column index
+     * @return sql type from {@link java.sql.Types}
+     */
+    public int getColumnType(int columnIndex) {
+        return this.columnTypes[columnIndex - 1];
+    }
+
+    /**
+     * Resolve column index by case-insensitive column label.
+     *
+     * When the given label matches the one returned by the driver, it resolves with single hash lookup.
+     *
+     * @param columnLabel column label
+     * @return 1-based column index or {@code null} when no column matches
+     */
+    public Integer getColumnIndex(String columnLabel) {
+        Integer index = this.labelToIndex.get(columnLabel);
+        if (index == null) {
+            index = this.labelToIndex.get(columnLabel.toLowerCase());
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of {@link ColumnMetadata} keyed by query.
+ *
+ * One instance is held by {@link ProxyConfig}, so that result sets of the same query on a datasource read
+ * {@link java.sql.ResultSetMetaData} only once.
+ * When number of entries exceeds the max size, least recently used entries are evicted.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ProxyConfig#getColumnMetadataCache()
+ * @since 1.4.11
+ */
+public class ColumnMetadataCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final BoundedCache<String, ColumnMetadata> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public ColumnMetadataCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ColumnMetadataCache(int maxSize) {
+        this.cache = new BoundedCache<String, ColumnMetadata>(maxSize);
+    }
+
+    /**
+     * Return cached {@link ColumnMetadata} for the query, or read it from given {@link ResultSet} and cache it.
+     *
+     * A cached entry is used only when its column count and labels match the {@link java.sql.ResultSetMetaData} of
+     * the result set. Otherwise, the shape of the result has changed, and the entry is replaced.
+     *
+     * @param query     query that has produced the result set
+     * @param resultSet result set to read metadata from when not cached
+     * @return column metadata
+     * @throws SQLException when failed to access metadata
+     */
+    public ColumnMetadata getOrCreate(String query, ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        ColumnMetadata columnMetadata = this.cache.get(query);
+        if (columnMetadata != null && columnMetadata.matches(metaData)) {
+            this.hitCount.incrementAndGet();
+            return columnMetadata;
+        }
+        this.missCount.incrementAndGet();
+        columnMetadata = ColumnMetadata.from(metaData);
+        put(query, columnMetadata);
+        return columnMetadata;
+    }
+
+    public ColumnMetadata get(String query) {
+        return this.cache.get(query);
+    }
+
+    public void put(String query, ColumnMetadata columnMetadata) {
+        this.cache.put(query, columnMetadata);
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    public int getMaxSize() {
+        return this.cache.getMaxSize();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+}
@@ -0,0 +1,340 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Generated keys eagerly read from {@link ResultSet} returned by {@link java.sql.Statement#getGeneratedKeys()}.
+ *
+ * <p>When generated keys consist of single integral column, keys are kept in a {@code long} array. Otherwise, or when
+ * a key is SQL {@code NULL}, values are kept in a row-major {@code Object} array.
+ * Since the original {@link ResultSet} is closed after reading, it doesn't require a {@link ResultSet} proxy nor
+ * row cache to make keys available to both listeners and application.
+ * When a {@link ResultSet} is required, {@link #toResultSet()} returns a lightweight read-only view.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ProxyConfig#isCompactGeneratedKeys()
+ * @see net.ttddyy.dsproxy.ExecutionInfo#getCompactGeneratedKeys()
+ * @since 1.4.11
+ */
+public class CompactGeneratedKeys {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Read all rows of the given generated keys {@link ResultSet}. The {@link ResultSet} is NOT closed.
+     *
+     * @param resultSet      generated keys
+     * @param columnMetadata column information of generated keys
+     * @return generated keys
+     * @throws SQLException on failure reading the result set
+     */
+    public static CompactGeneratedKeys read(ResultSet resultSet, ColumnMetadata columnMetadata) throws SQLException {
+        int columnCount = columnMetadata.getColumnCount();
+        CompactGeneratedKeys keys = new CompactGeneratedKeys(columnMetadata);
+        if (keys.isLongKeys()) {
+            long[] longKeys = new long[INITIAL_CAPACITY];
+            int rowCount = 0;
+            while (resultSet.next()) {
+                long key = resultSet.getLong(1);
+                if (resultSet.wasNull()) {
+                    // fall back to object storage to keep SQL NULL
+                    Object[] values = new Object[Math.max(INITIAL_CAPACITY, rowCount + 1)];
+                    for (int i = 0; i < rowCount; i++) {
+                        values[i] = longKeys[i];
+                    }
+                    values[rowCount++] = null;
+                    keys.longKeys = false;
+                    readObjects(resultSet, keys, values, rowCount);
+                    return keys;
+                }
+                if (rowCount == longKeys.length) {
+                    longKeys = Arrays.copyOf(longKeys, rowCount * 2);
+                }
+                longKeys[rowCount++] = key;
+            }
+            keys.longValues = longKeys;
+            keys.rowCount = rowCount;
+        } else {
+            readObjects(resultSet, keys, new Object[INITIAL_CAPACITY * columnCount], 0);
+        }
+        return keys;
+    }
+
+    private static void readObjects(ResultSet resultSet, CompactGeneratedKeys keys, Object[] values, int rowCount) throws SQLException {
+        int columnCount = keys.getColumnCount();
+        while (resultSet.next()) {
+            int base = rowCount * columnCount;
+            if (base + columnCount > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, base + columnCount));
+            }
+            for (int i = 0; i < columnCount; i++) {
+                values[base + i] = resultSet.getObject(i + 1);
+            }
+            rowCount++;
+        }
+        keys.values = values;
+        keys.rowCount = rowCount;
+    }
+
+    private static boolean isIntegralType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private final ColumnMetadata columnMetadata;
+    private boolean longKeys;  // false after reading SQL NULL key
+    private long[] longValues;  // when single integral column
+    private Object[] values;  // row-major values for other cases
+    private int rowCount;
+
+    private CompactGeneratedKeys(ColumnMetadata columnMetadata) {
+        this.columnMetadata = columnMetadata;
+        this.longKeys = columnMetadata.getColumnCount() == 1 && isIntegralType(columnMetadata.getColumnType(1));
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.columnMetadata.getColumnCount();
+    }
+
+    public ColumnMetadata getColumnMetadata() {
+        return this.columnMetadata;
+    }
+
+    /**
+     * @return {@code true} when keys are kept in {@code long} array
+     */
+    public boolean isLongKeys() {
+        return this.longKeys;
+    }
+
+    /**
+     * Key of the first column as long.
+     *
+     * @param row 0-based row
+     * @return key value
+     * @throws SQLException when the value cannot be converted to long
+     */
+    public long getLong(int row) throws SQLException {
+        return getLong(row, 1);
+    }
+
+    /**
+     * @param row         0-based row
+     * @param columnIndex 1-based column index
+     * @return key value. {@code 0} for SQL {@code NULL}
+     * @throws SQLException when the value cannot be converted to long
+     */
+    public long getLong(int row, int columnIndex) throws SQLException {
+        checkPosition(row, columnIndex);
+        if (this.longKeys) {
+            return this.longValues[row];
+        }
+        return ResultSetFetchUtils.toLong(this.values[row * getColumnCount() + columnIndex - 1]);
+    }
+
+    /**
+     * @param row         0-based row
+     * @param columnIndex 1-based column index
+     * @return key value
+     */
+    public Object getObject(int row, int columnIndex) {
+        checkPosition(row, columnIndex);
+        if (this.longKeys) {
+            return this.longValues[row];
+        }
+        return this.values[row * getColumnCount() + columnIndex - 1];
+    }
+
+    /**
+     * Keys of the first column.
+     *
+     * @return new array of keys
+     * @throws SQLException when a value cannot be converted to long
+     */
+    public long[] toLongArray() throws SQLException {
+        if (this.longKeys) {
+            return Arrays.copyOf(this.longValues, this.rowCount);
+        }
+        long[] result = new long[this.rowCount];
+        for (int i = 0; i < this.rowCount; i++) {
+            result[i] = getLong(i, 1);
+        }
+        return result;
+    }
+
+    /**
+     * Create a read-only, forward and {@code beforeFirst()} scrollable {@link ResultSet} view on the keys.
+     *
+     * @return result set view. Each call returns a new view positioned before the first row.
+     */
+    public ResultSet toResultSet() {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new ResultSetView(this));
+    }
+
+    private void checkPosition(int row, int columnIndex) {
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException("row " + row + " is out of range. row count=" + this.rowCount);
+        }
+        if (columnIndex < 1 || columnIndex > getColumnCount()) {
+            throw new IndexOutOfBoundsException("column " + columnIndex + " is out of range. column count=" + getColumnCount());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompactGeneratedKeys[");
+        for (int row = 0; row < this.rowCount; row++) {
+            if (row > 0) {
+                sb.append(",");
+            }
+            if (getColumnCount() == 1) {
+                sb.append(getObject(row, 1));
+            } else {
+                sb.append("(");
+                for (int column = 1; column <= getColumnCount(); column++) {
+                    if (column > 1) {
+                        sb.append(",");
+                    }
+                    sb.append(getObject(row, column));
+                }
+                sb.append(")");
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * {@link InvocationHandler} for {@link ResultSet} view.
+     */
+    private static class ResultSetView implements InvocationHandler {
+
+        private final CompactGeneratedKeys keys;
+        private int row = -1;
+        private boolean wasNull;
+        private boolean closed;
+
+        private ResultSetView(CompactGeneratedKeys keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+
+            if ("toString".equals(methodName)) {
+                return this.keys.toString();
+            } else if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            } else if ("close".equals(methodName)) {
+                this.closed = true;
+                return null;
+            } else if ("isClosed".equals(methodName)) {
+                return this.closed;
+            } else if ("unwrap".equals(methodName)) {
+                if (args[0] == CompactGeneratedKeys.class) {
+                    return this.keys;
+                }
+                throw new SQLException("Cannot unwrap to " + args[0]);
+            } else if ("isWrapperFor".equals(methodName)) {
+                return args[0] == CompactGeneratedKeys.class;
+            }
+
+            if (this.closed) {
+                throw new SQLException("Already closed");
+            }
+
+            if ("next".equals(methodName)) {
+                if (this.row < this.keys.rowCount) {
+                    this.row++;
+                }
+                return this.row < this.keys.rowCount;
+            } else if ("beforeFirst".equals(methodName)) {
+                this.row = -1;
+                return null;
+            } else if ("isBeforeFirst".equals(methodName)) {
+                return this.row == -1 && this.keys.rowCount > 0;
+            } else if ("isAfterLast".equals(methodName)) {
+                return this.row >= this.keys.rowCount && this.keys.rowCount > 0;
+            } else if ("getRow".equals(methodName)) {
+                return this.row >= 0 && this.row < this.keys.rowCount ? this.row + 1 : 0;
+            } else if ("wasNull".equals(methodName)) {
+                return this.wasNull;
+            } else if ("findColumn".equals(methodName)) {
+                return findColumn((String) args[0]);
+            } else if ("getType".equals(methodName)) {
+                return ResultSet.TYPE_FORWARD_ONLY;
+            } else if ("getConcurrency".equals(methodName)) {
+                return ResultSet.CONCUR_READ_ONLY;
+            } else if (methodName.startsWith("get") && args != null && args.length == 1) {
+                return getValue(methodName, args[0]);
+            }
+
+            throw new SQLFeatureNotSupportedException(String.format("Method '%s' is not supported by generated keys view", method));
+        }
+
+        private int findColumn(String columnLabel) throws SQLException {
+            Integer index = this.keys.columnMetadata.getColumnIndex(columnLabel);
+            if (index == null) {
+                throw new SQLException(String.format("Unknown column name '%s'", columnLabel));
+            }
+            return index;
+        }
+
+        private Object getValue(String methodName, Object column) throws SQLException {
+            if (this.row < 0 || this.row >= this.keys.rowCount) {
+                throw new SQLException("Cursor is not on a valid row");
+            }
+            int columnIndex = column instanceof Integer ? (Integer) column : findColumn((String) column);
+            Object value = this.keys.getObject(this.row, columnIndex);
+            this.wasNull = value == null;
+
+            if ("getObject".equals(methodName)) {
+                return value;
+            } else if ("getLong".equals(methodName)) {
+                return ResultSetFetchUtils.toLong(value);
+            } else if ("getInt".equals(methodName)) {
+                return (int) ResultSetFetchUtils.toLong(value);
+            } else if ("getShort".equals(methodName)) {
+                return (short) ResultSetFetchUtils.toLong(value);
+            } else if ("getByte".equals(methodName)) {
+                return (byte) ResultSetFetchUtils.toLong(value);
+            } else if ("getDouble".equals(methodName)) {
+                return ResultSetFetchUtils.toDouble(value);
+            } else if ("getFloat".equals(methodName)) {
+                return (float) ResultSetFetchUtils.toDouble(value);
+            } else if ("getString".equals(methodName) || "getNString".equals(methodName)) {
+                return value == null ? null : value.toString();
+            } else if ("getBigDecimal".equals(methodName)) {
+                if (value == null || value instanceof BigDecimal) {
+                    return value;
+                }
+                return new BigDecimal(value.toString());
+            }
+            throw new SQLFeatureNotSupportedException(String.format("Method '%s' is not supported by generated keys view", methodName));
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+package net.ttddyy.dsproxy.proxy;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Detect connection leaks.
+ *
+ * When a connection is acquired, its acquisition time is recorded, and for one out of
+ * {@link #getStackTraceSamplingInterval()} acquisitions, the stack trace of the caller as well. A sweeper task on the
+ * {@link #getExecutor() executor} periodically reports:
+ * <ul>
+ * <li>{@link Leak.Kind#HELD_TOO_LONG}: connections that are not closed after the threshold. Reported once per
+ * connection.</li>
+ * <li>{@link Leak.Kind#NOT_CLOSED}: connection proxies that were garbage collected without {@code close()}.</li>
+ * </ul>
+ *
+ * Garbage collected proxies are detected by {@link PhantomReference}s instead of finalizers, so that tracked
+ * connections do not need an extra GC cycle to be collected.
+ * The sweeper is started at the first acquisition and runs on a daemon thread until {@link #shutdown()}, which is
+ * called by {@link net.ttddyy.dsproxy.support.ProxyDataSource#close()}.
+ *
+ * By default, leaks are logged by JUL(Java Util Logging). Subclass can override {@link #onLeak(Leak)}.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.support.ProxyDataSourceBuilder#detectConnectionLeaks(ConnectionLeakDetector)
+ * @since 1.4.11
+ */
+public class ConnectionLeakDetector {
+
+    public static final int DEFAULT_STACK_TRACE_SAMPLING_INTERVAL = 100;
+
+    /**
+     * Detected leak.
+     */
+    public static class Leak {
+
+        public enum Kind {
+            HELD_TOO_LONG, NOT_CLOSED
+        }
+
+        private final Kind kind;
+        private final String dataSourceName;
+        private final String connectionId;
+        private final long acquiredTime;
+        private final long heldTime;
+        private final StackTraceElement[] stackTrace;
+
+        public Leak(Kind kind, String dataSourceName, String connectionId, long acquiredTime, long heldTime,
+                    StackTraceElement[] stackTrace) {
+            this.kind = kind;
+            this.dataSourceName = dataSourceName;
+            this.connectionId = connectionId;
+            this.acquiredTime = acquiredTime;
+            this.heldTime = heldTime;
+            this.stackTrace = stackTrace;
+        }
+
+        public Kind getKind() {
+            return this.kind;
+        }
+
+        public String getDataSourceName() {
+            return this.dataSourceName;
+        }
+
+        public String getConnectionId() {
+            return this.connectionId;
+        }
+
+        /**
+         * @return time in millis when the connection was acquired
+         */
+        public long getAcquiredTime() {
+            return this.acquiredTime;
+        }
+
+        /**
+         * @return time in millis since acquisition when the leak is detected
+         */
+        public long getHeldTime() {
+            return this.heldTime;
+        }
+
+        /**
+         * @return stack trace of the acquisition. {@code null} when the acquisition is not sampled
+         */
+        public StackTraceElement[] getStackTrace() {
+            return this.stackTrace;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(this.kind == Kind.NOT_CLOSED ? "Connection not closed" : "Connection held too long");
+            sb.append(": dataSource=").append(this.dataSourceName);
+            sb.append(", connection=").append(this.connectionId);
+            sb.append(", held=").append(this.heldTime).append("ms");
+            if (this.stackTrace != null) {
+                for (StackTraceElement element : this.stackTrace) {
+                    sb.append("\n\tat ").append(element);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Tracking state of an acquired connection. Does not hold a strong reference to the connection proxy.
+     */
+    protected static class TrackedConnection extends PhantomReference<Object> {
+        protected final ConnectionInfo connectionInfo;
+        protected final long acquiredTime;
+        protected final StackTraceElement[] stackTrace;
+        protected boolean reported;  // guarded by sweep()
+
+        public TrackedConnection(Object proxyConnection, ReferenceQueue<Object> queue, ConnectionInfo connectionInfo,
+                                 long acquiredTime, StackTraceElement[] stackTrace) {
+            super(proxyConnection, queue);
+            this.connectionInfo = connectionInfo;
+            this.acquiredTime = acquiredTime;
+            this.stackTrace = stackTrace;
+        }
+    }
+
+    protected boolean useDaemonThread = true;
+
+    protected ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setDaemon(ConnectionLeakDetector.this.useDaemonThread);
+            return thread;
+        }
+    });
+    protected Logger logger = Logger.getLogger(ConnectionLeakDetector.class.getName());
+    protected Level logLevel = Level.WARNING;
+
+    protected final long threshold;
+    protected final TimeUnit thresholdTimeUnit;
+    protected final int stackTraceSamplingInterval;
+    protected final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
+    protected final Map<ConnectionInfo, TrackedConnection> trackedConnections = new ConcurrentHashMap<ConnectionInfo, TrackedConnection>();
+    protected final AtomicLong acquisitionCount = new AtomicLong();
+    protected volatile boolean sweeperStarted;
+    protected volatile boolean shutdown;
+
+    public ConnectionLeakDetector(long threshold, TimeUnit thresholdTimeUnit) {
+        this(threshold, thresholdTimeUnit, DEFAULT_STACK_TRACE_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * @param threshold                  report connections held longer than this
+     * @param thresholdTimeUnit          time unit of threshold
+     * @param stackTraceSamplingInterval record the stack trace for one out of this number of acquisitions.
+     *                                   {@code 0} to disable stack traces
+     */
+    public ConnectionLeakDetector(long threshold, TimeUnit thresholdTimeUnit, int stackTraceSamplingInterval) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive but was " + threshold);
+        }
+        if (stackTraceSamplingInterval < 0) {
+            throw new IllegalArgumentException("stackTraceSamplingInterval must not be negative but was " + stackTraceSamplingInterval);
+        }
+        this.threshold = threshold;
+        this.thresholdTimeUnit = thresholdTimeUnit;
+        this.stackTraceSamplingInterval = stackTraceSamplingInterval;
+    }
+
+    /**
+     * Start tracking an acquired connection.
+     *
+     * @param proxyConnection connection proxy returned to the application
+     * @param connectionInfo  connection info of the proxy
+     */
+    public void connectionAcquired(Object proxyConnection, ConnectionInfo connectionInfo) {
+        StackTraceElement[] stackTrace = null;
+        long count = this.acquisitionCount.getAndIncrement();
+        if (this.stackTraceSamplingInterval > 0 && count % this.stackTraceSamplingInterval == 0) {
+            stackTrace = new Throwable().getStackTrace();
+        }
+        TrackedConnection trackedConnection = new TrackedConnection(proxyConnection, this.referenceQueue, connectionInfo,
+                System.currentTimeMillis(), stackTrace);
+        this.trackedConnections.put(connectionInfo, trackedConnection);
+
+        if (!this.sweeperStarted) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * Stop tracking a closed connection.
+     *
+     * @param connectionInfo connection info of the closed connection
+     */
+    public void connectionClosed(ConnectionInfo connectionInfo) {
+        TrackedConnection trackedConnection = this.trackedConnections.remove(connectionInfo);
+        if (trackedConnection != null) {
+            trackedConnection.clear();
+        }
+    }
+
+    protected synchronized void startSweeper() {
+        if (this.sweeperStarted || this.shutdown) {
+            return;
+        }
+        long period = Math.max(1, this.thresholdTimeUnit.toMillis(this.threshold) / 2);
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        this.sweeperStarted = true;
+    }
+
+    /**
+     * Stop the sweeper and shutdown the executor. Connections acquired afterwards are still tracked, but not reported.
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Report connections garbage collected without close, and connections held longer than the threshold.
+     * Called periodically by the sweeper.
+     */
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+
+        Reference<?> reference;
+        while ((reference = this.referenceQueue.poll()) != null) {
+            TrackedConnection trackedConnection = (TrackedConnection) reference;
+            if (this.trackedConnections.remove(trackedConnection.connectionInfo) != null) {
+                reportLeak(Leak.Kind.NOT_CLOSED, trackedConnection, now);
+            }
+        }
+
+        long thresholdInMillis = this.thresholdTimeUnit.toMillis(this.threshold);
+        for (TrackedConnection trackedConnection : this.trackedConnections.values()) {
+            if (!trackedConnection.reported && now - trackedConnection.acquiredTime >= thresholdInMillis) {
+                trackedConnection.reported = true;
+                reportLeak(Leak.Kind.HELD_TOO_LONG, trackedConnection, now);
+            }
+        }
+    }
+
+    private void reportLeak(Leak.Kind kind, TrackedConnection trackedConnection, long now) {
+        ConnectionInfo connectionInfo = trackedConnection.connectionInfo;
+        Leak leak = new Leak(kind, connectionInfo.getDataSourceName(), connectionInfo.getConnectionId(),
+                trackedConnection.acquiredTime, now - trackedConnection.acquiredTime, trackedConnection.stackTrace);
+        try {
+            onLeak(leak);
+        } catch (RuntimeException e) {
+            this.logger.log(Level.WARNING, "Failed to report connection leak", e);  // keep sweeper running
+        }
+    }
+
+    /**
+     * Callback when a leak is detected. Called on the sweeper thread.
+     *
+     * @param leak detected leak
+     */
+    protected void onLeak(Leak leak) {
+        this.logger.log(this.logLevel, leak.toString());
+    }
+
+    /**
+     * @return number of tracked connections that are not yet closed
+     */
+    public int getTrackedConnectionCount() {
+        return this.trackedConnections.size();
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public TimeUnit getThresholdTimeUnit() {
+        return thresholdTimeUnit;
+    }
+
+    public int getStackTraceSamplingInterval() {
+        return stackTraceSamplingInterval;
+    }
+
+    public void setLogLevel(Level logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+}
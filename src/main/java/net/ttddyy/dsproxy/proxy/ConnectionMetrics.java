@@ -0,0 +1,240 @@
+package net.ttddyy.dsproxy.proxy;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Connection acquisition and hold time metrics of a datasource.
+ *
+ * Records the time spent in {@code getConnection()} of the actual datasource (including failed acquisitions) and the
+ * time between acquisition and {@code close()} of each logical connection into {@link Histogram}s. Also provides the
+ * number of currently checked-out connections and the connections held the longest, which help to find the cause of
+ * pool starvation.
+ *
+ * Checked-out connections are identified by the connection ids assigned by {@link net.ttddyy.dsproxy.ConnectionIdManager}.
+ * Connections are not tracked when the manager does not assign ids.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class ConnectionMetrics {
+
+    /**
+     * Histogram of durations with power-of-two microsecond buckets.
+     *
+     * Bucket {@code i} counts durations less than {@code 2^i} microseconds (and not counted by the previous buckets).
+     * The last bucket counts all durations above. Recording is lock-free.
+     */
+    public static class Histogram {
+
+        public static final int BUCKET_COUNT = 32;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            this.buckets.incrementAndGet(bucketOf(nanos));
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(nanos);
+            long max = this.maxNanos.get();
+            while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+                max = this.maxNanos.get();
+            }
+        }
+
+        private static int bucketOf(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);  // 0 for 0us, 1 for 1us, 2 for 2-3us, ...
+            return Math.min(bucket, BUCKET_COUNT - 1);
+        }
+
+        /**
+         * @param bucket bucket index
+         * @return exclusive upper bound of the bucket in microseconds. {@link Long#MAX_VALUE} for the last bucket
+         */
+        public static long getBucketUpperBound(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        /**
+         * @return counts per bucket
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = this.buckets.get(i);
+            }
+            return counts;
+        }
+
+        public long getCount() {
+            return this.count.get();
+        }
+
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(this.totalNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public long getMaxTime(TimeUnit unit) {
+            return unit.convert(this.maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @param percentile percentile between {@code 0} and {@code 100}
+         * @param unit       time unit of the result
+         * @return upper bound of the bucket that contains the percentile, capped by the max recorded time.
+         * {@code 0} when nothing is recorded
+         */
+        public long getPercentile(double percentile, TimeUnit unit) {
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long cumulative = 0;
+            long maxMicros = TimeUnit.NANOSECONDS.toMicros(this.maxNanos.get());
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank && cumulative > 0) {
+                    return unit.convert(Math.min(getBucketUpperBound(i), maxMicros), TimeUnit.MICROSECONDS);
+                }
+            }
+            return unit.convert(maxMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Currently checked-out connection.
+     */
+    public static class Holder {
+        private final String connectionId;
+        private final long heldTime;
+
+        public Holder(String connectionId, long heldTime) {
+            this.connectionId = connectionId;
+            this.heldTime = heldTime;
+        }
+
+        public String getConnectionId() {
+            return this.connectionId;
+        }
+
+        /**
+         * @return time since acquisition in milliseconds
+         */
+        public long getHeldTime() {
+            return this.heldTime;
+        }
+
+        @Override
+        public String toString() {
+            return "connection " + this.connectionId + " held for " + this.heldTime + "ms";
+        }
+    }
+
+    private final Histogram acquisitionTime = new Histogram();
+    private final Histogram holdTime = new Histogram();
+    private final AtomicLong acquisitionFailureCount = new AtomicLong();
+    private final Map<String, ConnectionInfo> openConnections = new ConcurrentHashMap<String, ConnectionInfo>();
+
+    /**
+     * Record successful acquisition of a connection.
+     *
+     * @param connectionInfo    connection info of the acquired connection
+     * @param acquisitionNanos  time spent to acquire the connection in nanoseconds
+     */
+    public void connectionAcquired(ConnectionInfo connectionInfo, long acquisitionNanos) {
+        this.acquisitionTime.record(acquisitionNanos);
+        connectionInfo.setAcquiredTime(System.nanoTime());
+        String connectionId = connectionInfo.getConnectionId();
+        if (connectionId != null) {
+            this.openConnections.put(connectionId, connectionInfo);
+        }
+    }
+
+    /**
+     * Record failed acquisition of a connection, such as timeout of connection pool.
+     *
+     * @param acquisitionNanos time spent until the failure in nanoseconds
+     */
+    public void acquisitionFailed(long acquisitionNanos) {
+        this.acquisitionTime.record(acquisitionNanos);
+        this.acquisitionFailureCount.incrementAndGet();
+    }
+
+    /**
+     * Record close of a connection. Subsequent calls for the same connection are ignored.
+     *
+     * @param connectionInfo connection info of the closed connection
+     */
+    public void connectionClosed(ConnectionInfo connectionInfo) {
+        String connectionId = connectionInfo.getConnectionId();
+        if (connectionId != null && this.openConnections.remove(connectionId) != null) {
+            this.holdTime.record(System.nanoTime() - connectionInfo.getAcquiredTime());
+        }
+    }
+
+    /**
+     * @return histogram of time spent in {@code getConnection()} of the actual datasource
+     */
+    public Histogram getAcquisitionTime() {
+        return this.acquisitionTime;
+    }
+
+    /**
+     * @return histogram of time between acquisition and close of connections
+     */
+    public Histogram getHoldTime() {
+        return this.holdTime;
+    }
+
+    public long getAcquisitionFailureCount() {
+        return this.acquisitionFailureCount.get();
+    }
+
+    /**
+     * @return number of connections acquired and not yet closed
+     */
+    public int getCheckedOutCount() {
+        return this.openConnections.size();
+    }
+
+    /**
+     * @param max max number of connections to return
+     * @return currently checked-out connections ordered by held time, longest first
+     */
+    public List<Holder> getLongestHolders(int max) {
+        long now = System.nanoTime();
+        List<Holder> holders = new ArrayList<Holder>();
+        for (ConnectionInfo connectionInfo : this.openConnections.values()) {
+            long heldTime = TimeUnit.NANOSECONDS.toMillis(now - connectionInfo.getAcquiredTime());
+            holders.add(new Holder(connectionInfo.getConnectionId(), heldTime));
+        }
+        Collections.sort(holders, new Comparator<Holder>() {
+            @Override
+            public int compare(Holder left, Holder right) {
+                return left.heldTime < right.heldTime ? 1 : (left.heldTime == right.heldTime ? 0 : -1);
+            }
+        });
+        return holders.size() > max ? new ArrayList<Holder>(holders.subList(0, max)) : holders;
+    }
+
+}
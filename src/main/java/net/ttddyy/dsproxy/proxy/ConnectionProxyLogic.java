@@ -1,6 +1,8 @@
 package net.ttddyy.dsproxy.proxy;
 
 import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ConnectionStats;
+import net.ttddyy.dsproxy.TransactionInfo;
 import net.ttddyy.dsproxy.listener.MethodExecutionListenerUtils;
 import net.ttddyy.dsproxy.transform.QueryTransformer;
 import net.ttddyy.dsproxy.transform.TransformInfo;
@@ -10,6 +12,7 @@ import java.lang.reflect.Method;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +31,16 @@ public class ConnectionProxyLogic {
             new HashSet<String>(Arrays.asList("unwrap", "isWrapperFor"))
     );
 
+    // transaction boundary methods that flush coalesced writes
+    private static final Set<String> METHODS_TO_FLUSH_WRITES = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("commit", "rollback", "setAutoCommit", "setSavepoint",
+                    "releaseSavepoint", "setTransactionIsolation", "close", "abort"))
+    );
+
+    private static final Set<String> STATEMENT_CREATION_METHODS = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("createStatement", "prepareStatement", "prepareCall"))
+    );
+
     private Connection connection;
     private ConnectionInfo connectionInfo;
     private ProxyConfig proxyConfig;
@@ -36,6 +49,18 @@ public class ConnectionProxyLogic {
         this.connection = connection;
         this.connectionInfo = connectionInfo;
         this.proxyConfig = proxyConfig;
+        if (proxyConfig.isWriteCoalescingEnabled() && connectionInfo != null && connectionInfo.getWriteCoalescer() == null) {
+            connectionInfo.setWriteCoalescer(new WriteCoalescer(proxyConfig.getWriteCoalescing()));
+        }
+        if (proxyConfig.isPreparedStatementCacheEnabled() && connectionInfo != null && connectionInfo.getPreparedStatementCache() == null) {
+            connectionInfo.setPreparedStatementCache(proxyConfig.getPreparedStatementCache().createConnectionCache());
+        }
+        if (proxyConfig.isOpenResourceTrackingEnabled() && connectionInfo != null && connectionInfo.getOpenResources() == null) {
+            connectionInfo.setOpenResources(proxyConfig.getOpenResourceTracker().createConnectionResources());
+        }
+        if (proxyConfig.isConnectionStatsEnabled() && connectionInfo != null && connectionInfo.getStats() == null) {
+            connectionInfo.setStats(new ConnectionStats());
+        }
     }
 
     public Object invoke(final Object proxyConnection, Method method, Object[] args) throws Throwable {
@@ -49,6 +74,9 @@ public class ConnectionProxyLogic {
             public Object execute(Object proxyTarget, Method method, Object[] args) throws Throwable {
                 Object result = performQueryExecutionListener(proxyConnection, method, args);
                 ConnectionInfo connectionInfo = ConnectionProxyLogic.this.connectionInfo;
+                if (ConnectionProxyLogic.this.proxyConfig.isTransactionListenerEnabled()) {
+                    trackTransaction(method.getName(), args);
+                }
                 if (isCommitMethod) {
                     connectionInfo.incrementCommitCount();
                 } else if (isRollbackMethod) {
@@ -57,12 +85,55 @@ public class ConnectionProxyLogic {
                     connectionInfo.setClosed(true);
                     String connId = connectionInfo.getConnectionId();
                     ConnectionProxyLogic.this.proxyConfig.getConnectionIdManager().addClosedId(connId);
+                    ConnectionMetrics connectionMetrics = ConnectionProxyLogic.this.proxyConfig.getConnectionMetrics();
+                    if (connectionMetrics != null) {
+                        connectionMetrics.connectionClosed(connectionInfo);
+                    }
+                    ConnectionLeakDetector connectionLeakDetector = ConnectionProxyLogic.this.proxyConfig.getConnectionLeakDetector();
+                    if (connectionLeakDetector != null) {
+                        connectionLeakDetector.connectionClosed(connectionInfo);
+                    }
                 }
                 return result;
             }
         }, this.proxyConfig, this.connection, this.connectionInfo, method, args);
     }
 
+    /**
+     * Detect transaction boundaries, and notify the transaction listener at the end of a transaction.
+     */
+    private void trackTransaction(String methodName, Object[] args) throws SQLException {
+        if ("commit".equals(methodName)) {
+            endTransaction(TransactionInfo.Outcome.COMMIT);
+        } else if ("rollback".equals(methodName) && (args == null || args.length == 0)) {
+            endTransaction(TransactionInfo.Outcome.ROLLBACK);
+        } else if ("close".equals(methodName)) {
+            endTransaction(TransactionInfo.Outcome.CLOSE);
+        } else if ("setAutoCommit".equals(methodName)) {
+            boolean autoCommit = (Boolean) args[0];
+            if (autoCommit && Boolean.FALSE.equals(this.connectionInfo.getAutoCommit())) {
+                endTransaction(TransactionInfo.Outcome.COMMIT);  // changing auto-commit mode commits the transaction
+            }
+            this.connectionInfo.setAutoCommit(autoCommit);
+        } else if (this.connectionInfo.getAutoCommit() == null && STATEMENT_CREATION_METHODS.contains(methodName)) {
+            this.connectionInfo.setAutoCommit(this.connection.getAutoCommit());
+        }
+    }
+
+    private void endTransaction(TransactionInfo.Outcome outcome) {
+        ConnectionInfo connectionInfo = this.connectionInfo;
+        int queryCount = connectionInfo.getTransactionQueryCount();
+        if (queryCount == 0) {
+            return;
+        }
+        TransactionInfo transactionInfo = new TransactionInfo(connectionInfo.getDataSourceName(),
+                connectionInfo.getConnectionId(), outcome, queryCount,
+                System.nanoTime() - connectionInfo.getTransactionStartTime(),
+                connectionInfo.getTransactionDatabaseTime(), connectionInfo.getTransactionRowsAffected());
+        connectionInfo.resetTransaction();
+        this.proxyConfig.getTransactionListener().afterTransaction(transactionInfo);
+    }
+
     private Object performQueryExecutionListener(Object proxy, Method method, Object[] args) throws Throwable {
         final Connection proxyConnection = (Connection) proxy;
         final String methodName = method.getName();
@@ -94,6 +165,16 @@ public class ConnectionProxyLogic {
             }
         }
 
+        // flush coalesced writes, so that they are performed before commit, savepoint, close, etc.
+        WriteCoalescer writeCoalescer = this.connectionInfo != null ? this.connectionInfo.getWriteCoalescer() : null;
+        if (writeCoalescer != null && METHODS_TO_FLUSH_WRITES.contains(methodName)) {
+            if ("rollback".equals(methodName) && (args == null || args.length == 0)) {
+                writeCoalescer.discard();
+            } else {
+                writeCoalescer.flush();
+            }
+        }
+
         // replace query for PreparedStatement and CallableStatement
         if ("prepareStatement".equals(methodName) || "prepareCall".equals(methodName)) {
             if (ObjectArrayUtils.isFirstArgString(args)) {
@@ -106,12 +187,50 @@ public class ConnectionProxyLogic {
             }
         }
 
+        // reuse idle prepared statement of this connection, or close idle ones on connection close
+        PreparedStatementCache.ConnectionCache statementCache = this.connectionInfo != null ? this.connectionInfo.getPreparedStatementCache() : null;
+        String statementCacheKey = null;
+        if (statementCache != null) {
+            if ("prepareStatement".equals(methodName) && ObjectArrayUtils.isFirstArgString(args)) {
+                statementCacheKey = PreparedStatementCache.createKey((String) args[0], args);
+            } else if ("close".equals(methodName)) {
+                statementCache.close();
+            }
+        }
+
+        // report statements and result sets left open
+        OpenResourceTracker.ConnectionResources openResources = this.connectionInfo != null ? this.connectionInfo.getOpenResources() : null;
+        if (openResources != null && "close".equals(methodName)) {
+            openResources.connectionClosing(this.connectionInfo);
+        }
+
         // Invoke method on original Connection.
-        final Object retVal;
-        try {
-            retVal = method.invoke(this.connection, args);
-        } catch (InvocationTargetException ex) {
-            throw ex.getTargetException();
+        Object retVal = null;
+        if (statementCacheKey != null) {
+            retVal = statementCache.get(statementCacheKey);
+        }
+        if (retVal == null) {
+            try {
+                retVal = method.invoke(this.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+            if (statementCacheKey != null) {
+                statementCache.register(statementCacheKey, (PreparedStatement) retVal);
+            }
+        }
+
+        if (openResources != null && retVal instanceof Statement) {
+            openResources.statementCreated((Statement) retVal);
+        }
+
+        ConnectionStats stats = this.connectionInfo != null ? this.connectionInfo.getStats() : null;
+        if (stats != null && retVal instanceof Statement) {
+            stats.statementCreated();
+        }
+
+        if (writeCoalescer != null && "setAutoCommit".equals(methodName)) {
+            writeCoalescer.setAutoCommit((Boolean) args[0]);
         }
 
         // when it is a call to createStatement, prepareStatement or prepareCall, returns a proxy.
@@ -75,23 +75,51 @@ public class DataSourceProxyLogic {
             }
         }
 
+        // time acquisition of connections
+        ConnectionMetrics connectionMetrics = this.proxyConfig.getConnectionMetrics();
+        boolean isGetConnection = "getConnection".equals(methodName);
+        long acquisitionStart = connectionMetrics != null && isGetConnection ? System.nanoTime() : 0;
+
         // Invoke method on original datasource.
+        final Object retVal;
         try {
-            final Object retVal = method.invoke(dataSource, args);
+            retVal = method.invoke(dataSource, args);
+        } catch (InvocationTargetException ex) {
+            if (connectionMetrics != null && isGetConnection) {
+                connectionMetrics.acquisitionFailed(System.nanoTime() - acquisitionStart);
+            }
+            throw ex.getTargetException();
+        }
+        if (!isGetConnection) {
+            return retVal;
+        }
 
-            if ("getConnection".equals(methodName)) {
-                Connection conn = (Connection) retVal;
-                String connId = connectionIdManager.getId(conn);
-                ConnectionInfo connectionInfo = new ConnectionInfo();
-                connectionInfo.setConnectionId(connId);
-                connectionInfo.setDataSourceName(dataSourceName);
+        long acquisitionNanos = connectionMetrics != null ? System.nanoTime() - acquisitionStart : 0;
+        Connection conn = (Connection) retVal;
+        String connId = connectionIdManager.getId(conn);
+        ConnectionInfo connectionInfo = new ConnectionInfo();
+        connectionInfo.setConnectionId(connId);
+        connectionInfo.setDataSourceName(dataSourceName);
 
-                return jdbcProxyFactory.createConnection((Connection) retVal, connectionInfo, this.proxyConfig);
+        Connection proxyConnection;
+        try {
+            proxyConnection = jdbcProxyFactory.createConnection((Connection) retVal, connectionInfo, this.proxyConfig);
+        } catch (RuntimeException ex) {
+            if (connectionMetrics != null) {
+                connectionMetrics.acquisitionFailed(acquisitionNanos);
             }
-            return retVal;
-        } catch (InvocationTargetException ex) {
-            throw ex.getTargetException();
+            throw ex;
+        }
+
+        // record after the proxy is created, so that a failure does not leave the connection open in the metrics
+        if (connectionMetrics != null) {
+            connectionMetrics.connectionAcquired(connectionInfo, acquisitionNanos);
+        }
+        ConnectionLeakDetector connectionLeakDetector = this.proxyConfig.getConnectionLeakDetector();
+        if (connectionLeakDetector != null) {
+            connectionLeakDetector.connectionAcquired(proxyConnection, connectionInfo);
         }
+        return proxyConnection;
     }
 
 }
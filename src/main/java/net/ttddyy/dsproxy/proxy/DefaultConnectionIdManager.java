@@ -3,14 +3,18 @@ package net.ttddyy.dsproxy.proxy;
 import net.ttddyy.dsproxy.ConnectionIdManager;
 
 import java.sql.Connection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Default implementation of {@link ConnectionIdManager}.
  *
  * This implementation returns sequentially increasing unique number as connection id.
+ * Open ids are kept in a concurrent set without locking, so that acquiring and closing connections do not block each
+ * other nor pin virtual threads.
  *
  * @author Tadaya Tsuyukubo
  * @since 1.4.2
@@ -19,20 +23,18 @@ public class DefaultConnectionIdManager implements ConnectionIdManager {
 
     private AtomicLong idCounter = new AtomicLong(0);
 
-    private Set<String> openIds = new HashSet<String>();
+    private Set<String> openIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     @Override
     public String getId(Connection connection) {
         String id = String.valueOf(this.idCounter.incrementAndGet());
-        synchronized (this) {
-            this.openIds.add(id);
-        }
+        this.openIds.add(id);
         return id;
     }
 
     @Override
     public void addClosedId(String closedId) {
-        synchronized (this) {
+        if (closedId != null) {
             this.openIds.remove(closedId);
         }
     }
@@ -0,0 +1,425 @@
+package net.ttddyy.dsproxy.proxy;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Track {@link Statement}s and {@link ResultSet}s that are not closed.
+ *
+ * Each connection has its own {@link ConnectionResources} that weakly references the actual statements and result sets
+ * created on the connection in arrays, along with their creation time and site. Closed resources are purged by
+ * {@code isClosed()} when the arrays are full, when counts are requested, and when the connection is closed. Resources
+ * that are already garbage collected are considered closed.
+ *
+ * On {@code Connection#close()}, resources still open are reported by {@link #onOpenResources(Report)} with the
+ * creation sites of the oldest ones, and counted as leaked. This instance is shared by all connections of a datasource
+ * and holds the aggregated counts.
+ *
+ * By default, open resources are logged by JUL(Java Util Logging).
+ *
+ * @author Tadaya Tsuyukubo
+ * @see net.ttddyy.dsproxy.support.ProxyDataSourceBuilder#trackOpenResources(OpenResourceTracker)
+ * @since 1.4.11
+ */
+public class OpenResourceTracker {
+
+    public static final int DEFAULT_MAX_REPORTED_RESOURCES = 5;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    public enum ResourceType {
+        STATEMENT, RESULT_SET
+    }
+
+    /**
+     * Resource that is not closed.
+     */
+    public static class OpenResource {
+        private final ResourceType type;
+        private final long age;
+        private final StackTraceElement[] creationSite;
+
+        public OpenResource(ResourceType type, long age, StackTraceElement[] creationSite) {
+            this.type = type;
+            this.age = age;
+            this.creationSite = creationSite;
+        }
+
+        public ResourceType getType() {
+            return this.type;
+        }
+
+        /**
+         * @return time since creation in milliseconds
+         */
+        public long getAge() {
+            return this.age;
+        }
+
+        /**
+         * @return stack trace of the creation. {@code null} when creation site is not captured
+         */
+        public StackTraceElement[] getCreationSite() {
+            return this.creationSite;
+        }
+    }
+
+    /**
+     * Resources left open at {@code Connection#close()}.
+     */
+    public static class Report {
+        private final String dataSourceName;
+        private final String connectionId;
+        private final int openStatementCount;
+        private final int openResultSetCount;
+        private final List<OpenResource> oldestResources;
+
+        public Report(String dataSourceName, String connectionId, int openStatementCount, int openResultSetCount,
+                      List<OpenResource> oldestResources) {
+            this.dataSourceName = dataSourceName;
+            this.connectionId = connectionId;
+            this.openStatementCount = openStatementCount;
+            this.openResultSetCount = openResultSetCount;
+            this.oldestResources = oldestResources;
+        }
+
+        public String getDataSourceName() {
+            return this.dataSourceName;
+        }
+
+        public String getConnectionId() {
+            return this.connectionId;
+        }
+
+        public int getOpenStatementCount() {
+            return this.openStatementCount;
+        }
+
+        public int getOpenResultSetCount() {
+            return this.openResultSetCount;
+        }
+
+        /**
+         * @return open resources ordered by creation, oldest first. Bounded by
+         * {@link OpenResourceTracker#getMaxReportedResources()}.
+         */
+        public List<OpenResource> getOldestResources() {
+            return this.oldestResources;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Connection closed with open resources: dataSource=").append(this.dataSourceName);
+            sb.append(", connection=").append(this.connectionId);
+            sb.append(", statements=").append(this.openStatementCount);
+            sb.append(", resultSets=").append(this.openResultSetCount);
+            for (OpenResource resource : this.oldestResources) {
+                sb.append("\n").append(resource.type).append(" created ").append(resource.age).append("ms ago");
+                if (resource.creationSite != null) {
+                    for (StackTraceElement element : resource.creationSite) {
+                        sb.append("\n\tat ").append(element);
+                    }
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Open resources of a connection.
+     *
+     * Guarded by a {@link ReentrantLock} instead of {@code synchronized}, since {@code isClosed()} of the driver is
+     * called while locked, and it should not pin a virtual thread to its carrier.
+     */
+    public static class ConnectionResources {
+
+        private final OpenResourceTracker tracker;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // parallel arrays ordered by creation. "size" entries are in use.
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private WeakReference<Object>[] resources = new WeakReference[INITIAL_CAPACITY];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private WeakReference<Statement>[] owners = new WeakReference[INITIAL_CAPACITY];  // statement of result set
+        private ResourceType[] types = new ResourceType[INITIAL_CAPACITY];
+        private long[] createdTimes = new long[INITIAL_CAPACITY];
+        private StackTraceElement[][] creationSites = new StackTraceElement[INITIAL_CAPACITY][];
+        private int size;
+
+        private ConnectionResources(OpenResourceTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        /**
+         * Start tracking a statement.
+         *
+         * @param statement actual statement
+         */
+        public void statementCreated(Statement statement) {
+            this.lock.lock();
+            try {
+                add(ResourceType.STATEMENT, statement, null);
+            } finally {
+                this.lock.unlock();
+            }
+            this.tracker.createdStatementCount.incrementAndGet();
+        }
+
+        /**
+         * Start tracking a result set. Result set already tracked, such as one returned by
+         * {@link Statement#getResultSet()} multiple times, is ignored.
+         * The result set is considered closed when the statement is closed, since some drivers do not report closing
+         * result sets by their statement.
+         *
+         * @param resultSet actual result set
+         * @param statement actual statement that created the result set
+         */
+        public void resultSetCreated(ResultSet resultSet, Statement statement) {
+            this.lock.lock();
+            try {
+                for (int i = this.size - 1; i >= 0; i--) {
+                    if (this.resources[i].get() == resultSet) {
+                        return;
+                    }
+                }
+                add(ResourceType.RESULT_SET, resultSet, statement);
+            } finally {
+                this.lock.unlock();
+            }
+            this.tracker.createdResultSetCount.incrementAndGet();
+        }
+
+        /**
+         * Stop tracking a resource that is logically closed but physically kept open, such as a statement returned to
+         * the prepared statement cache.
+         *
+         * @param resource actual statement or result set
+         */
+        public void release(Object resource) {
+            this.lock.lock();
+            try {
+                for (int i = this.size - 1; i >= 0; i--) {
+                    if (this.resources[i].get() == resource) {
+                        this.resources[i].clear();
+                        return;
+                    }
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private void add(ResourceType type, Object resource, Statement owner) {
+            if (this.size == this.resources.length) {
+                purge();
+                if (this.size * 2 > this.resources.length) {
+                    int capacity = this.resources.length * 2;
+                    this.resources = Arrays.copyOf(this.resources, capacity);
+                    this.owners = Arrays.copyOf(this.owners, capacity);
+                    this.types = Arrays.copyOf(this.types, capacity);
+                    this.createdTimes = Arrays.copyOf(this.createdTimes, capacity);
+                    this.creationSites = Arrays.copyOf(this.creationSites, capacity);
+                }
+            }
+            this.resources[this.size] = new WeakReference<Object>(resource);
+            this.owners[this.size] = owner != null ? new WeakReference<Statement>(owner) : null;
+            this.types[this.size] = type;
+            this.createdTimes[this.size] = System.currentTimeMillis();
+            this.creationSites[this.size] = this.tracker.captureCreationSite ? new Throwable().getStackTrace() : null;
+            this.size++;
+        }
+
+        /**
+         * Remove closed or garbage collected resources, keeping the order of the remaining ones.
+         */
+        private void purge() {
+            int live = 0;
+            for (int i = 0; i < this.size; i++) {
+                boolean closed = isClosed(this.resources[i].get())
+                        || (this.owners[i] != null && isClosed(this.owners[i].get()));
+                if (!closed) {
+                    this.resources[live] = this.resources[i];
+                    this.owners[live] = this.owners[i];
+                    this.types[live] = this.types[i];
+                    this.createdTimes[live] = this.createdTimes[i];
+                    this.creationSites[live] = this.creationSites[i];
+                    live++;
+                }
+            }
+            Arrays.fill(this.resources, live, this.size, null);
+            Arrays.fill(this.owners, live, this.size, null);
+            Arrays.fill(this.creationSites, live, this.size, null);
+            this.size = live;
+        }
+
+        private static boolean isClosed(Object resource) {
+            try {
+                if (resource instanceof Statement) {
+                    return ((Statement) resource).isClosed();
+                } else if (resource instanceof ResultSet) {
+                    return ((ResultSet) resource).isClosed();
+                }
+                return true;  // garbage collected or released
+            } catch (SQLException e) {
+                return true;
+            } catch (AbstractMethodError e) {
+                return false;  // pre-JDBC4 driver
+            }
+        }
+
+        public int getOpenStatementCount() {
+            this.lock.lock();
+            try {
+                purge();
+                return count(ResourceType.STATEMENT);
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        public int getOpenResultSetCount() {
+            this.lock.lock();
+            try {
+                purge();
+                return count(ResourceType.RESULT_SET);
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private int count(ResourceType type) {
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (this.types[i] == type) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Report resources still open. Called before closing the actual connection.
+         *
+         * @param connectionInfo connection info
+         */
+        public void connectionClosing(ConnectionInfo connectionInfo) {
+            Report report;
+            this.lock.lock();
+            try {
+                purge();
+                if (this.size == 0) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                int reported = Math.min(this.size, this.tracker.maxReportedResources);
+                List<OpenResource> oldestResources = new ArrayList<OpenResource>(reported);
+                for (int i = 0; i < reported; i++) {
+                    oldestResources.add(new OpenResource(this.types[i], now - this.createdTimes[i], this.creationSites[i]));
+                }
+                report = new Report(connectionInfo.getDataSourceName(), connectionInfo.getConnectionId(),
+                        count(ResourceType.STATEMENT), count(ResourceType.RESULT_SET),
+                        Collections.unmodifiableList(oldestResources));
+                Arrays.fill(this.resources, 0, this.size, null);
+                Arrays.fill(this.owners, 0, this.size, null);
+                Arrays.fill(this.creationSites, 0, this.size, null);
+                this.size = 0;
+            } finally {
+                this.lock.unlock();
+            }
+            this.tracker.leakedStatementCount.addAndGet(report.getOpenStatementCount());
+            this.tracker.leakedResultSetCount.addAndGet(report.getOpenResultSetCount());
+            this.tracker.onOpenResources(report);
+        }
+    }
+
+    protected Logger logger = Logger.getLogger(OpenResourceTracker.class.getName());
+    protected Level logLevel = Level.WARNING;
+
+    private final boolean captureCreationSite;
+    private final int maxReportedResources;
+    private final AtomicLong createdStatementCount = new AtomicLong();
+    private final AtomicLong createdResultSetCount = new AtomicLong();
+    private final AtomicLong leakedStatementCount = new AtomicLong();
+    private final AtomicLong leakedResultSetCount = new AtomicLong();
+
+    public OpenResourceTracker() {
+        this(true, DEFAULT_MAX_REPORTED_RESOURCES);
+    }
+
+    /**
+     * @param captureCreationSite  {@code true} to record the stack trace when a resource is created
+     * @param maxReportedResources max number of oldest open resources in a report
+     */
+    public OpenResourceTracker(boolean captureCreationSite, int maxReportedResources) {
+        if (maxReportedResources < 0) {
+            throw new IllegalArgumentException("maxReportedResources must not be negative but was " + maxReportedResources);
+        }
+        this.captureCreationSite = captureCreationSite;
+        this.maxReportedResources = maxReportedResources;
+    }
+
+    public ConnectionResources createConnectionResources() {
+        return new ConnectionResources(this);
+    }
+
+    /**
+     * Callback when a connection is closed with open resources.
+     *
+     * @param report open resources of the connection
+     */
+    protected void onOpenResources(Report report) {
+        this.logger.log(this.logLevel, report.toString());
+    }
+
+    public boolean isCaptureCreationSite() {
+        return this.captureCreationSite;
+    }
+
+    public int getMaxReportedResources() {
+        return this.maxReportedResources;
+    }
+
+    public long getCreatedStatementCount() {
+        return this.createdStatementCount.get();
+    }
+
+    public long getCreatedResultSetCount() {
+        return this.createdResultSetCount.get();
+    }
+
+    /**
+     * @return number of statements left open at connection close
+     */
+    public long getLeakedStatementCount() {
+        return this.leakedStatementCount.get();
+    }
+
+    /**
+     * @return number of result sets left open at connection close
+     */
+    public long getLeakedResultSetCount() {
+        return this.leakedResultSetCount.get();
+    }
+
+    public void setLogLevel(Level logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+}
@@ -35,8 +35,28 @@ public class ParameterSetOperation {
         return StatementMethodNames.PARAMETER_METHOD_SET_NULL.equals(methodName);
     }
 
+    /**
+     * Create an operation that keeps the display value of the parameter instead of the original value.
+     *
+     * Arguments of the created operation only contain the parameter index or name, so that the original value and
+     * other arguments, such as streams and their lengths, are not retained.
+     *
+     * @param operation    a parameter set operation
+     * @param previewValue display value of the parameter
+     * @return preview operation
+     * @since 1.4.11
+     */
+    public static ParameterSetOperation preview(ParameterSetOperation operation, String previewValue) {
+        ParameterSetOperation preview = new ParameterSetOperation(operation.getMethod(), new Object[]{operation.getArgs()[0]});
+        preview.preview = true;
+        preview.previewValue = previewValue;
+        return preview;
+    }
+
     private Method method;
     private Object[] args;
+    private boolean preview;
+    private String previewValue;
 
     public ParameterSetOperation() {
     }
@@ -62,4 +82,21 @@ public class ParameterSetOperation {
     public void setArgs(Object[] args) {
         this.args = args;
     }
+
+    /**
+     * @return {@code true} when this operation only keeps the display value
+     * @see #preview(ParameterSetOperation, String)
+     * @since 1.4.11
+     */
+    public boolean isPreview() {
+        return preview;
+    }
+
+    /**
+     * @return display value of the parameter. {@code null} when this is not a preview operation
+     * @since 1.4.11
+     */
+    public String getPreviewValue() {
+        return previewValue;
+    }
 }
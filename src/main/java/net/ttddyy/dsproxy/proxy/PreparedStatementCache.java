@@ -0,0 +1,305 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of {@link PreparedStatement} per connection.
+ *
+ * When enabled, {@link java.sql.Connection#prepareStatement(String)} (and its variants) returns an idle statement
+ * prepared by the same connection with the same query and options if available. {@link PreparedStatement#close()}
+ * on the proxy returns the statement to the cache after closing the {@link ResultSet} obtained from the proxy,
+ * clearing its parameters and batch, and restoring the settings changed by {@link #SETTING_METHODS} to the values
+ * before the change. Least recently used idle statements are closed when the number of idle statements exceeds
+ * {@link #getMaxSize()}, and all idle statements are closed when the connection is closed.
+ *
+ * This instance is shared by all connections of a datasource and holds the configuration and aggregated metrics.
+ * Each connection has its own {@link ConnectionCache}, which is bound to the proxy connection returned by
+ * {@link javax.sql.DataSource#getConnection()} and closes its idle statements when the connection is closed.
+ * Therefore, the cache is useful only when the proxy connection is a physical connection: place the proxy datasource
+ * beneath the connection pool, i.e. proxy the driver's datasource and let the pool manage proxy connections.
+ * When the proxy wraps a connection pool, each checkout starts with an empty cache; use the statement cache of the
+ * pool or the driver instead.
+ *
+ * A connection and its statements are used by one thread at a time, so that {@link ConnectionCache} does not
+ * synchronize. Only the aggregated metrics are updated atomically.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class PreparedStatementCache {
+
+    public static final int DEFAULT_MAX_SIZE = 50;
+
+    /**
+     * Statement methods changing settings that are restored when the statement is returned to the cache.
+     */
+    public static final Set<String> SETTING_METHODS = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("setMaxRows", "setLargeMaxRows", "setFetchSize", "setQueryTimeout",
+                    "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing", "setPoolable"))
+    );
+
+    /**
+     * Idle statements of a connection.
+     */
+    public static class ConnectionCache {
+
+        private final PreparedStatementCache preparedStatementCache;
+        private final LinkedHashMap<String, PreparedStatement> idleStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+        private final Map<PreparedStatement, String> inUseStatements = new IdentityHashMap<PreparedStatement, String>();
+        private final Map<PreparedStatement, Map<String, Object>> originalSettings = new IdentityHashMap<PreparedStatement, Map<String, Object>>();
+        private boolean closed;
+
+        private ConnectionCache(PreparedStatementCache preparedStatementCache) {
+            this.preparedStatementCache = preparedStatementCache;
+        }
+
+        /**
+         * Take an idle statement out of the cache.
+         *
+         * @param key key created by {@link PreparedStatementCache#createKey(String, Object[])}
+         * @return idle statement, or {@code null} if not cached
+         */
+        public PreparedStatement get(String key) {
+            PreparedStatement statement = this.idleStatements.remove(key);
+            if (statement != null) {
+                this.inUseStatements.put(statement, key);
+                this.preparedStatementCache.hitCount.incrementAndGet();
+            } else {
+                this.preparedStatementCache.missCount.incrementAndGet();
+            }
+            return statement;
+        }
+
+        /**
+         * Register a newly prepared statement, so that it is returned to the cache on close.
+         *
+         * @param key       key created by {@link PreparedStatementCache#createKey(String, Object[])}
+         * @param statement prepared statement
+         */
+        public void register(String key, PreparedStatement statement) {
+            if (!this.closed) {
+                this.inUseStatements.put(statement, key);
+            }
+        }
+
+        /**
+         * Record the current value of the setting before it is changed, so that it is restored on
+         * {@link #release(PreparedStatement)}.
+         *
+         * @param statement  statement to be changed
+         * @param methodName one of {@link #SETTING_METHODS}
+         * @throws SQLException when reading the current value failed
+         */
+        public void recordSetting(PreparedStatement statement, String methodName) throws SQLException {
+            String setting = "setLargeMaxRows".equals(methodName) ? "setMaxRows" : methodName;
+            if (!this.inUseStatements.containsKey(statement)) {
+                return;
+            }
+            Map<String, Object> settings = this.originalSettings.get(statement);
+            if (settings == null) {
+                settings = new HashMap<String, Object>();
+                this.originalSettings.put(statement, settings);
+            }
+            if (!settings.containsKey(setting)) {
+                settings.put(setting, getSetting(statement, setting));
+            }
+        }
+
+        /**
+         * Return the statement to the cache.
+         *
+         * @param statement statement to return
+         * @return {@code true} if the statement is returned to the cache. {@code false} if the statement is not
+         * managed by the cache and should be closed by the caller.
+         * @throws SQLException when resetting the statement failed
+         */
+        public boolean release(PreparedStatement statement) throws SQLException {
+            String key = this.inUseStatements.remove(statement);
+            if (key == null) {
+                return false;
+            }
+
+            // reset the statement
+            Map<String, Object> settings = this.originalSettings.remove(statement);
+            if (settings != null) {
+                for (Map.Entry<String, Object> entry : settings.entrySet()) {
+                    restoreSetting(statement, entry.getKey(), entry.getValue());
+                }
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+
+            List<PreparedStatement> toClose = new ArrayList<PreparedStatement>();
+            int evicted = 0;
+            if (this.closed || this.idleStatements.containsKey(key)) {
+                toClose.add(statement);  // keep only one idle statement per key
+            } else {
+                this.idleStatements.put(key, statement);
+                Iterator<PreparedStatement> iterator = this.idleStatements.values().iterator();
+                while (this.idleStatements.size() > this.preparedStatementCache.maxSize && iterator.hasNext()) {
+                    toClose.add(iterator.next());  // least recently used first
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+            if (evicted > 0) {
+                this.preparedStatementCache.evictionCount.addAndGet(evicted);
+            }
+            closeAll(toClose);
+            return true;
+        }
+
+        /**
+         * Close all idle statements. Called when the connection is closed.
+         *
+         * @throws SQLException when closing a statement failed
+         */
+        public void close() throws SQLException {
+            this.closed = true;
+            List<PreparedStatement> toClose = new ArrayList<PreparedStatement>(this.idleStatements.values());
+            this.idleStatements.clear();
+            this.inUseStatements.clear();
+            this.originalSettings.clear();
+            closeAll(toClose);
+        }
+
+        /**
+         * @return number of idle statements
+         */
+        public int size() {
+            return this.idleStatements.size();
+        }
+
+        private void closeAll(List<PreparedStatement> statements) throws SQLException {
+            SQLException exception = null;
+            for (PreparedStatement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    exception = e;
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    private static Object getSetting(PreparedStatement statement, String setting) throws SQLException {
+        if ("setMaxRows".equals(setting)) {
+            return statement.getMaxRows();
+        } else if ("setFetchSize".equals(setting)) {
+            return statement.getFetchSize();
+        } else if ("setQueryTimeout".equals(setting)) {
+            return statement.getQueryTimeout();
+        } else if ("setFetchDirection".equals(setting)) {
+            return statement.getFetchDirection();
+        } else if ("setMaxFieldSize".equals(setting)) {
+            return statement.getMaxFieldSize();
+        } else if ("setPoolable".equals(setting)) {
+            return statement.isPoolable();
+        }
+        return Boolean.TRUE;  // setEscapeProcessing has no getter, and escape processing is enabled by default
+    }
+
+    private static void restoreSetting(PreparedStatement statement, String setting, Object value) throws SQLException {
+        if ("setMaxRows".equals(setting)) {
+            statement.setMaxRows((Integer) value);
+        } else if ("setFetchSize".equals(setting)) {
+            statement.setFetchSize((Integer) value);
+        } else if ("setQueryTimeout".equals(setting)) {
+            statement.setQueryTimeout((Integer) value);
+        } else if ("setFetchDirection".equals(setting)) {
+            statement.setFetchDirection((Integer) value);
+        } else if ("setMaxFieldSize".equals(setting)) {
+            statement.setMaxFieldSize((Integer) value);
+        } else if ("setPoolable".equals(setting)) {
+            statement.setPoolable((Boolean) value);
+        } else if ("setEscapeProcessing".equals(setting)) {
+            statement.setEscapeProcessing((Boolean) value);
+        }
+    }
+
+    /**
+     * Create a cache key from arguments of {@link java.sql.Connection#prepareStatement(String)} and its variants.
+     *
+     * @param query query to prepare
+     * @param args  all arguments of prepare method. first argument is the query.
+     * @return key
+     */
+    public static String createKey(String query, Object[] args) {
+        if (args == null || args.length <= 1) {
+            return query;
+        }
+        StringBuilder sb = new StringBuilder(query);
+        for (int i = 1; i < args.length; i++) {
+            Object arg = args[i];
+            sb.append('\u0000');
+            if (arg instanceof int[]) {
+                sb.append("i").append(Arrays.toString((int[]) arg));
+            } else if (arg instanceof String[]) {
+                sb.append("s").append(Arrays.toString((String[]) arg));
+            } else {
+                sb.append(arg);
+            }
+        }
+        return sb.toString();
+    }
+
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public PreparedStatementCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize max number of idle statements per connection
+     */
+    public PreparedStatementCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive but was " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public ConnectionCache createConnectionCache() {
+        return new ConnectionCache(this);
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return number of idle statements closed due to cache overflow
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+}
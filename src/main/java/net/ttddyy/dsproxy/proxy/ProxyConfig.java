@@ -4,8 +4,11 @@ import net.ttddyy.dsproxy.ConnectionIdManager;
 import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.listener.ChainListener;
 import net.ttddyy.dsproxy.listener.CompositeMethodListener;
+import net.ttddyy.dsproxy.listener.CompositeTransactionListener;
 import net.ttddyy.dsproxy.listener.MethodExecutionListener;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.TransactionListener;
+import net.ttddyy.dsproxy.listener.logging.ParameterValueConverter;
 import net.ttddyy.dsproxy.transform.ParameterTransformer;
 import net.ttddyy.dsproxy.transform.QueryTransformer;
 
@@ -27,6 +30,7 @@ public class ProxyConfig {
         private boolean retrieveForBatchStatement = false;  // default false
         private boolean retrieveForBatchPreparedOrCallable = true;  // default true
         private boolean autoClose;
+        private boolean compact;
     }
 
     public static class Builder {
@@ -39,6 +43,17 @@ public class ProxyConfig {
         private ConnectionIdManager connectionIdManager = new DefaultConnectionIdManager();  // create instance every time
         private CompositeMethodListener methodListener = new CompositeMethodListener();  // empty default
         private GeneratedKeysConfig generatedKeysConfig = new GeneratedKeysConfig();
+        private ColumnMetadataCache columnMetadataCache;  // can be null if column metadata cache is disabled
+        private WriteCoalescing writeCoalescing;  // can be null if write coalescing is disabled
+        private BatchInsertRewriter batchInsertRewriter;  // can be null if batch insert rewrite is disabled
+        private PreparedStatementCache preparedStatementCache;  // can be null if prepared statement cache is disabled
+        private int batchChunkSize;  // 0 if batch chunking is disabled
+        private ConnectionMetrics connectionMetrics;  // can be null if connection metrics are disabled
+        private CompositeTransactionListener transactionListener = new CompositeTransactionListener();  // empty default
+        private ConnectionLeakDetector connectionLeakDetector;  // can be null if leak detection is disabled
+        private OpenResourceTracker openResourceTracker;  // can be null if open resource tracking is disabled
+        private boolean connectionStats;
+        private ParameterValueConverter parameterPreviewConverter;  // can be null if parameter preview is disabled
 
         public static Builder create() {
             return new Builder();
@@ -59,6 +74,18 @@ public class ProxyConfig {
                     .retrieveGeneratedKeysForBatchStatement(proxyConfig.generatedKeysConfig.retrieveForBatchStatement)
                     .retrieveGeneratedKeysForBatchPreparedOrCallable(proxyConfig.generatedKeysConfig.retrieveForBatchPreparedOrCallable)
                     .autoCloseGeneratedKeys(proxyConfig.generatedKeysConfig.autoClose)
+                    .compactGeneratedKeys(proxyConfig.generatedKeysConfig.compact)
+                    .columnMetadataCache(proxyConfig.columnMetadataCache)
+                    .writeCoalescing(proxyConfig.writeCoalescing)
+                    .batchInsertRewriter(proxyConfig.batchInsertRewriter)
+                    .preparedStatementCache(proxyConfig.preparedStatementCache)
+                    .batchChunkSize(proxyConfig.batchChunkSize)
+                    .connectionMetrics(proxyConfig.connectionMetrics)
+                    .transactionListener(proxyConfig.transactionListener)
+                    .connectionLeakDetector(proxyConfig.connectionLeakDetector)
+                    .openResourceTracker(proxyConfig.openResourceTracker)
+                    .connectionStats(proxyConfig.connectionStats)
+                    .parameterPreviewConverter(proxyConfig.parameterPreviewConverter)
                     ;
         }
 
@@ -72,6 +99,17 @@ public class ProxyConfig {
             proxyConfig.resultSetProxyLogicFactory = this.resultSetProxyLogicFactory;
             proxyConfig.connectionIdManager = this.connectionIdManager;
             proxyConfig.methodListener = this.methodListener;
+            proxyConfig.columnMetadataCache = this.columnMetadataCache;
+            proxyConfig.writeCoalescing = this.writeCoalescing;
+            proxyConfig.batchInsertRewriter = this.batchInsertRewriter;
+            proxyConfig.preparedStatementCache = this.preparedStatementCache;
+            proxyConfig.batchChunkSize = this.batchChunkSize;
+            proxyConfig.connectionMetrics = this.connectionMetrics;
+            proxyConfig.transactionListener = this.transactionListener;
+            proxyConfig.connectionLeakDetector = this.connectionLeakDetector;
+            proxyConfig.openResourceTracker = this.openResourceTracker;
+            proxyConfig.connectionStats = this.connectionStats;
+            proxyConfig.parameterPreviewConverter = this.parameterPreviewConverter;
 
             // generated keys
             proxyConfig.generatedKeysConfig.proxyLogicFactory = this.generatedKeysConfig.proxyLogicFactory;
@@ -79,6 +117,7 @@ public class ProxyConfig {
             proxyConfig.generatedKeysConfig.autoClose = this.generatedKeysConfig.autoClose;
             proxyConfig.generatedKeysConfig.retrieveForBatchStatement = this.generatedKeysConfig.retrieveForBatchStatement;
             proxyConfig.generatedKeysConfig.retrieveForBatchPreparedOrCallable = this.generatedKeysConfig.retrieveForBatchPreparedOrCallable;
+            proxyConfig.generatedKeysConfig.compact = this.generatedKeysConfig.compact;
 
             return proxyConfig;
         }
@@ -139,6 +178,14 @@ public class ProxyConfig {
             return this;
         }
 
+        /**
+         * @since 1.4.11
+         */
+        public Builder compactGeneratedKeys(boolean compactGeneratedKeys) {
+            this.generatedKeysConfig.compact = compactGeneratedKeys;
+            return this;
+        }
+
         public Builder generatedKeysProxyLogicFactory(ResultSetProxyLogicFactory generatedKeysProxyLogicFactory) {
             this.generatedKeysConfig.proxyLogicFactory = generatedKeysProxyLogicFactory;
             return this;
@@ -149,6 +196,101 @@ public class ProxyConfig {
             return this;
         }
 
+        /**
+         * @since 1.4.11
+         */
+        public Builder columnMetadataCache(ColumnMetadataCache columnMetadataCache) {
+            this.columnMetadataCache = columnMetadataCache;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder writeCoalescing(WriteCoalescing writeCoalescing) {
+            this.writeCoalescing = writeCoalescing;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder batchInsertRewriter(BatchInsertRewriter batchInsertRewriter) {
+            this.batchInsertRewriter = batchInsertRewriter;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder preparedStatementCache(PreparedStatementCache preparedStatementCache) {
+            this.preparedStatementCache = preparedStatementCache;
+            return this;
+        }
+
+        /**
+         * @param batchChunkSize max number of batch entries sent to the database at once. {@code 0} to disable
+         * @since 1.4.11
+         */
+        public Builder batchChunkSize(int batchChunkSize) {
+            this.batchChunkSize = batchChunkSize;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder connectionMetrics(ConnectionMetrics connectionMetrics) {
+            this.connectionMetrics = connectionMetrics;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder connectionLeakDetector(ConnectionLeakDetector connectionLeakDetector) {
+            this.connectionLeakDetector = connectionLeakDetector;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder openResourceTracker(OpenResourceTracker openResourceTracker) {
+            this.openResourceTracker = openResourceTracker;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder connectionStats(boolean connectionStats) {
+            this.connectionStats = connectionStats;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder parameterPreviewConverter(ParameterValueConverter parameterPreviewConverter) {
+            this.parameterPreviewConverter = parameterPreviewConverter;
+            return this;
+        }
+
+        /**
+         * @since 1.4.11
+         */
+        public Builder transactionListener(TransactionListener transactionListener) {
+            if (transactionListener instanceof CompositeTransactionListener) {
+                for (TransactionListener listener : ((CompositeTransactionListener) transactionListener).getListeners()) {
+                    this.transactionListener.addListener(listener);
+                }
+            } else {
+                this.transactionListener.addListener(transactionListener);
+            }
+            return this;
+        }
+
         public Builder methodListener(MethodExecutionListener methodListener) {
             if (methodListener instanceof CompositeMethodListener) {
                 for (MethodExecutionListener listener : ((CompositeMethodListener) methodListener).getListeners()) {
@@ -170,6 +312,17 @@ public class ProxyConfig {
     private ConnectionIdManager connectionIdManager;
     private CompositeMethodListener methodListener;
     private GeneratedKeysConfig generatedKeysConfig = new GeneratedKeysConfig();
+    private ColumnMetadataCache columnMetadataCache;
+    private WriteCoalescing writeCoalescing;
+    private BatchInsertRewriter batchInsertRewriter;
+    private PreparedStatementCache preparedStatementCache;
+    private int batchChunkSize;
+    private ConnectionMetrics connectionMetrics;
+    private CompositeTransactionListener transactionListener;
+    private ConnectionLeakDetector connectionLeakDetector;
+    private OpenResourceTracker openResourceTracker;
+    private boolean connectionStats;
+    private ParameterValueConverter parameterPreviewConverter;
 
     public String getDataSourceName() {
         return dataSourceName;
@@ -275,6 +428,22 @@ public class ProxyConfig {
         return this.generatedKeysConfig.retrieveForBatchPreparedOrCallable;
     }
 
+    /**
+     * Read auto-retrieved generated keys into {@link CompactGeneratedKeys}.
+     *
+     * When this returns {@code true}, auto-retrieved generated-keys {@link ResultSet} is read eagerly and closed.
+     * Keys are available from {@link ExecutionInfo#getCompactGeneratedKeys()}, and {@link Statement#getGeneratedKeys()}
+     * returns a lightweight view on them instead of a {@link ResultSet} proxy.
+     * Only effective when {@link #isAutoRetrieveGeneratedKeys()} is {@code true}.
+     *
+     * Default is set to {@code false}.
+     *
+     * @since 1.4.11
+     */
+    public boolean isCompactGeneratedKeys() {
+        return this.generatedKeysConfig.compact;
+    }
+
     public ConnectionIdManager getConnectionIdManager() {
         return connectionIdManager;
     }
@@ -283,4 +452,166 @@ public class ProxyConfig {
         return methodListener;
     }
 
+    /**
+     * Cache of {@link ResultSet} column information per query shared by result set proxies.
+     *
+     * @return column metadata cache. {@code null} if it is disabled
+     * @since 1.4.11
+     */
+    public ColumnMetadataCache getColumnMetadataCache() {
+        return columnMetadataCache;
+    }
+
+    /**
+     * @return {@code true} when {@link ColumnMetadataCache} is specified
+     * @since 1.4.11
+     */
+    public boolean isColumnMetadataCacheEnabled() {
+        return this.columnMetadataCache != null;
+    }
+
+    /**
+     * @return write coalescing configuration. {@code null} when write coalescing is disabled
+     * @since 1.4.11
+     */
+    public WriteCoalescing getWriteCoalescing() {
+        return writeCoalescing;
+    }
+
+    /**
+     * @return {@code true} when {@link WriteCoalescing} is specified
+     * @since 1.4.11
+     */
+    public boolean isWriteCoalescingEnabled() {
+        return this.writeCoalescing != null;
+    }
+
+    /**
+     * @return rewriter for batch insert. {@code null} when batch insert rewrite is disabled
+     * @since 1.4.11
+     */
+    public BatchInsertRewriter getBatchInsertRewriter() {
+        return batchInsertRewriter;
+    }
+
+    /**
+     * @return prepared statement cache configuration and metrics. {@code null} when prepared statement cache is disabled
+     * @since 1.4.11
+     */
+    public PreparedStatementCache getPreparedStatementCache() {
+        return preparedStatementCache;
+    }
+
+    /**
+     * @return {@code true} when {@link PreparedStatementCache} is specified
+     * @since 1.4.11
+     */
+    public boolean isPreparedStatementCacheEnabled() {
+        return this.preparedStatementCache != null;
+    }
+
+    /**
+     * @return max number of batch entries sent to the database at once. {@code 0} when batch chunking is disabled
+     * @since 1.4.11
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * @return {@code true} when batch chunk size is specified
+     * @since 1.4.11
+     */
+    public boolean isBatchChunkingEnabled() {
+        return this.batchChunkSize > 0;
+    }
+
+    /**
+     * @return connection acquisition and hold time metrics. {@code null} when connection metrics are disabled
+     * @since 1.4.11
+     */
+    public ConnectionMetrics getConnectionMetrics() {
+        return connectionMetrics;
+    }
+
+    /**
+     * @return {@code true} when {@link ConnectionMetrics} is specified
+     * @since 1.4.11
+     */
+    public boolean isConnectionMetricsEnabled() {
+        return this.connectionMetrics != null;
+    }
+
+    /**
+     * @return listeners receiving summary of transactions
+     * @since 1.4.11
+     */
+    public CompositeTransactionListener getTransactionListener() {
+        return transactionListener;
+    }
+
+    /**
+     * @return {@code true} when any {@link TransactionListener} is registered
+     * @since 1.4.11
+     */
+    public boolean isTransactionListenerEnabled() {
+        return !this.transactionListener.getListeners().isEmpty();
+    }
+
+    /**
+     * @return connection leak detector. {@code null} when leak detection is disabled
+     * @since 1.4.11
+     */
+    public ConnectionLeakDetector getConnectionLeakDetector() {
+        return connectionLeakDetector;
+    }
+
+    /**
+     * @return {@code true} when {@link ConnectionLeakDetector} is specified
+     * @since 1.4.11
+     */
+    public boolean isConnectionLeakDetectionEnabled() {
+        return this.connectionLeakDetector != null;
+    }
+
+    /**
+     * @return tracker of open statements and result sets. {@code null} when open resource tracking is disabled
+     * @since 1.4.11
+     */
+    public OpenResourceTracker getOpenResourceTracker() {
+        return openResourceTracker;
+    }
+
+    /**
+     * @return {@code true} when {@link OpenResourceTracker} is specified
+     * @since 1.4.11
+     */
+    public boolean isOpenResourceTrackingEnabled() {
+        return this.openResourceTracker != null;
+    }
+
+    /**
+     * @return {@code true} when per-connection stats are collected to {@link net.ttddyy.dsproxy.ConnectionStats}
+     * @since 1.4.11
+     */
+    public boolean isConnectionStatsEnabled() {
+        return connectionStats;
+    }
+
+    /**
+     * @return converter for parameter values kept for batch entries. {@code null} when parameter preview is disabled
+     * @since 1.4.11
+     */
+    public ParameterValueConverter getParameterPreviewConverter() {
+        return parameterPreviewConverter;
+    }
+
+    /**
+     * @return {@code true} when parameter preview converter is specified
+     * @since 1.4.11
+     */
+    public boolean isParameterPreviewEnabled() {
+        return this.parameterPreviewConverter != null;
+    }
+
 }
@@ -0,0 +1,25 @@
+package net.ttddyy.dsproxy.proxy;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+
+import java.sql.ResultSet;
+
+/**
+ * {@link JdbcProxyFactory} that receives the query that has produced the {@link ResultSet}.
+ *
+ * The query is passed only when the factory implements this interface, so that existing implementations of
+ * {@link JdbcProxyFactory} keep working.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public interface QueryAwareJdbcProxyFactory extends JdbcProxyFactory {
+
+    /**
+     * Create a proxy for {@link ResultSet} with the query that has produced it.
+     *
+     * @param query query that produced the result set. {@code null} when unknown
+     */
+    ResultSet createResultSet(ResultSet resultSet, String query, ConnectionInfo connectionInfo, ProxyConfig proxyConfig);
+
+}
@@ -0,0 +1,25 @@
+package net.ttddyy.dsproxy.proxy;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+
+import java.sql.ResultSet;
+
+/**
+ * {@link ResultSetProxyLogicFactory} that receives the query that has produced the {@link ResultSet}.
+ *
+ * The query is passed only when the factory implements this interface, so that existing implementations of
+ * {@link ResultSetProxyLogicFactory} keep working.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public interface QueryAwareResultSetProxyLogicFactory extends ResultSetProxyLogicFactory {
+
+    /**
+     * Create {@link ResultSetProxyLogic} with the query that has produced the {@link ResultSet}.
+     *
+     * @param query query that produced the result set. {@code null} when unknown
+     */
+    ResultSetProxyLogic create(ResultSet resultSet, String query, ConnectionInfo connectionInfo, ProxyConfig proxyConfig);
+
+}
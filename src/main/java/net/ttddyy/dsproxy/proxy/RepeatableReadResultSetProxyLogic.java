@@ -1,6 +1,7 @@
 package net.ttddyy.dsproxy.proxy;
 
 import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ConnectionStats;
 import net.ttddyy.dsproxy.listener.MethodExecutionListenerUtils;
 
 import java.lang.reflect.InvocationTargetException;
@@ -43,6 +44,7 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
         private ProxyConfig proxyConfig;
         private Map<String, Integer> columnNameToIndex;
         private int columnCount;
+        private ColumnMetadata columnMetadata;
 
         public static Builder create() {
             return new Builder();
@@ -53,11 +55,25 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
             logic.resultSet = this.resultSet;
             logic.connectionInfo = this.connectionInfo;
             logic.proxyConfig = this.proxyConfig;
-            logic.columnNameToIndex = this.columnNameToIndex;
-            logic.columnCount = this.columnCount;
+            if (this.columnMetadata != null) {
+                logic.columnMetadata = this.columnMetadata;
+            } else {
+                logic.columnMetadata = toColumnMetadata(this.columnNameToIndex, this.columnCount);
+            }
+            logic.columnCount = logic.columnMetadata.getColumnCount();
             return logic;
         }
 
+        private static ColumnMetadata toColumnMetadata(Map<String, Integer> columnNameToIndex, int columnCount) {
+            String[] columnLabels = new String[columnCount];
+            if (columnNameToIndex != null) {
+                for (Map.Entry<String, Integer> entry : columnNameToIndex.entrySet()) {
+                    columnLabels[entry.getValue() - 1] = entry.getKey();
+                }
+            }
+            return new ColumnMetadata(columnLabels, new int[columnCount]);
+        }
+
         public Builder resultSet(ResultSet resultSet) {
             this.resultSet = resultSet;
             return this;
@@ -82,9 +98,19 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
             this.columnCount = columnCount;
             return this;
         }
+
+        /**
+         * When specified, {@link #columnNameToIndex(Map)} and {@link #columnCount(int)} are ignored.
+         *
+         * @since 1.4.11
+         */
+        public Builder columnMetadata(ColumnMetadata columnMetadata) {
+            this.columnMetadata = columnMetadata;
+            return this;
+        }
     }
 
-    private Map<String, Integer> columnNameToIndex;
+    private ColumnMetadata columnMetadata;
     private ResultSet resultSet;
     private ConnectionInfo connectionInfo;
     private int columnCount;
@@ -93,8 +119,68 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
     private int resultPointer;
     private boolean resultSetConsumed;
     private boolean closed;
+    private boolean rowsFetchedAdded;
     private Object[] currentResult;
     private final List<Object[]> cachedResults = new ArrayList<Object[]>();
+    private final ResultSetFetchUtils.Cursor cursor = new RepeatableReadCursor();
+
+    /**
+     * {@link ResultSetFetchUtils.Cursor} that populates the row cache while the original result set is being
+     * consumed, and reads from the cache afterwards.
+     */
+    private class RepeatableReadCursor implements ResultSetFetchUtils.Cursor {
+
+        private boolean wasNull;
+
+        @Override
+        public boolean next() throws SQLException {
+            if (resultSetConsumed) {
+                return (Boolean) handleNextMethodUsingCache();
+            }
+            beforeNextOrBeforeFirst();
+            boolean hasNext = resultSet.next();
+            if (hasNext) {
+                currentResult = new Object[columnCount + 1];
+                Arrays.fill(currentResult, UNCONSUMED_RESULT_COLUMN);
+                cachedResults.add(currentResult);
+            } else {
+                addRowsFetched();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public long getLong(int columnIndex) throws SQLException {
+            return ResultSetFetchUtils.toLong(getObject(columnIndex));
+        }
+
+        @Override
+        public int getInt(int columnIndex) throws SQLException {
+            return (int) ResultSetFetchUtils.toLong(getObject(columnIndex));
+        }
+
+        @Override
+        public double getDouble(int columnIndex) throws SQLException {
+            return ResultSetFetchUtils.toDouble(getObject(columnIndex));
+        }
+
+        @Override
+        public Object getObject(int columnIndex) throws SQLException {
+            // keep the value from original getObject in the cache, so that later repeatable reads return the same
+            Object value = currentResult[columnIndex];
+            if (value == UNCONSUMED_RESULT_COLUMN) {
+                value = resultSet.getObject(columnIndex);
+                currentResult[columnIndex] = value;
+            }
+            this.wasNull = value == null;
+            return value;
+        }
+
+        @Override
+        public boolean wasNull() {
+            return this.wasNull;
+        }
+    }
 
 
     @Override
@@ -112,6 +198,13 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
 
         final String methodName = method.getName();
 
+        if (ResultSetFetchUtils.isFetchMethod(method)) {
+            if (this.closed) {
+                throw new SQLException("Already closed");
+            }
+            return ResultSetFetchUtils.invoke(this.cursor, method, args);
+        }
+
         if (!METHODS_TO_INTERCEPT.contains(methodName)) {
             return MethodUtils.proceedExecution(method, this.resultSet, args);
         }
@@ -134,6 +227,7 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
             return method.invoke(this.resultSet, args);
         } else if (methodName.equals("close")) {
             this.closed = true;
+            addRowsFetched();
             return method.invoke(this.resultSet, args);
         } else if (methodName.equals("isClosed")) {
             return method.invoke(this.resultSet, args);
@@ -190,10 +284,23 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
             currentResult = new Object[columnCount + 1];
             Arrays.fill(this.currentResult, UNCONSUMED_RESULT_COLUMN);
             cachedResults.add(currentResult);
+        } else {
+            addRowsFetched();
         }
         return result;
     }
 
+    /**
+     * Add rows read from the original result set to connection stats. Rows read again from the cache are not counted.
+     */
+    private void addRowsFetched() {
+        ConnectionStats stats = this.connectionInfo != null ? this.connectionInfo.getStats() : null;
+        if (stats != null && !this.rowsFetchedAdded && !this.cachedResults.isEmpty()) {
+            stats.rowsFetched(this.cachedResults.size());
+            this.rowsFetchedAdded = true;
+        }
+    }
+
     private Object handleGetMethodByDelegating(Method method, Object[] args) throws SQLException, IllegalAccessException, InvocationTargetException {
         int columnIndex = determineColumnIndex(args);
         Object result = method.invoke(resultSet, args);
@@ -242,15 +349,11 @@ public class RepeatableReadResultSetProxyLogic implements ResultSetProxyLogic {
             return (Integer) lookup;
         }
         String columnName = (String) lookup;
-        Integer indexForColumnName = columnNameToIndex(columnName);
+        Integer indexForColumnName = this.columnMetadata.getColumnIndex(columnName);
         if (indexForColumnName != null) {
             return indexForColumnName;
         } else {
             throw new SQLException(format("Unknown column name '%s'", columnName));
         }
     }
-
-    private Integer columnNameToIndex(String columnName) {
-        return columnNameToIndex.get(columnName.toUpperCase());
-    }
 }
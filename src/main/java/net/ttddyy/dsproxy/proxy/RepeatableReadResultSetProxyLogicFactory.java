@@ -4,41 +4,42 @@ import net.ttddyy.dsproxy.ConnectionInfo;
 import net.ttddyy.dsproxy.DataSourceProxyException;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Factory to create {@link RepeatableReadResultSetProxyLogic}.
  *
+ * When {@link ColumnMetadataCache} is enabled on {@link ProxyConfig} and the query is known, column information is
+ * shared among result sets of the same query.
+ *
  * @author Tadaya Tsuyukubo
  * @author Liam Williams
  * @since 1.4.3
  */
-public class RepeatableReadResultSetProxyLogicFactory implements ResultSetProxyLogicFactory {
+public class RepeatableReadResultSetProxyLogicFactory implements QueryAwareResultSetProxyLogicFactory {
 
     @Override
     public ResultSetProxyLogic create(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
-        Map<String, Integer> columnNameToIndex = columnNameToIndex(resultSet);
+        return create(resultSet, null, connectionInfo, proxyConfig);
+    }
+
+    @Override
+    public ResultSetProxyLogic create(ResultSet resultSet, String query, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
+        ColumnMetadata columnMetadata = columnMetadata(resultSet, query, proxyConfig);
         return RepeatableReadResultSetProxyLogic.Builder.create()
                 .resultSet(resultSet)
                 .connectionInfo(connectionInfo)
                 .proxyConfig(proxyConfig)
-                .columnNameToIndex(columnNameToIndex)
-                .columnCount(columnNameToIndex.size())
+                .columnMetadata(columnMetadata)
                 .build();
     }
 
-    private Map<String, Integer> columnNameToIndex(ResultSet resultSet) {
+    private ColumnMetadata columnMetadata(ResultSet resultSet, String query, ProxyConfig proxyConfig) {
         try {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            Map<String, Integer> columnNameToIndex = new HashMap<String, Integer>();
-            for (int i = 1; i <= columnCount; i++) {
-                columnNameToIndex.put(metaData.getColumnLabel(i).toUpperCase(), i);
+            if (query != null && proxyConfig.isColumnMetadataCacheEnabled()) {
+                return proxyConfig.getColumnMetadataCache().getOrCreate(query, resultSet);
             }
-            return columnNameToIndex;
+            return ColumnMetadata.from(resultSet.getMetaData());
         } catch (SQLException e) {
             throw new DataSourceProxyException("Failed to obtain resultset metadata", e);
         }
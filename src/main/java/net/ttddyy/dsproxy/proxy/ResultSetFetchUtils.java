@@ -0,0 +1,210 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Shared implementation of {@link ResultSetFetcher} for {@link ResultSetProxyLogic}s.
+ *
+ * Proxy logic provides a {@link Cursor} that reads from where its data actually comes from(original
+ * {@link ResultSet}, cached rows, etc.) and dispatches {@link ResultSetFetcher} method calls to
+ * {@link #invoke(Cursor, Method, Object[])}.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class ResultSetFetchUtils {
+
+    /**
+     * Row cursor used by fetch operations.
+     */
+    public interface Cursor {
+
+        boolean next() throws SQLException;
+
+        long getLong(int columnIndex) throws SQLException;
+
+        int getInt(int columnIndex) throws SQLException;
+
+        double getDouble(int columnIndex) throws SQLException;
+
+        Object getObject(int columnIndex) throws SQLException;
+
+        /**
+         * @return {@code true} if the last read value was SQL {@code NULL}
+         */
+        boolean wasNull() throws SQLException;
+    }
+
+    /**
+     * {@link Cursor} that directly reads from given {@link ResultSet}.
+     */
+    public static class ResultSetCursor implements Cursor {
+
+        private ResultSet resultSet;
+
+        public ResultSetCursor(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            return this.resultSet.next();
+        }
+
+        @Override
+        public long getLong(int columnIndex) throws SQLException {
+            return this.resultSet.getLong(columnIndex);
+        }
+
+        @Override
+        public int getInt(int columnIndex) throws SQLException {
+            return this.resultSet.getInt(columnIndex);
+        }
+
+        @Override
+        public double getDouble(int columnIndex) throws SQLException {
+            return this.resultSet.getDouble(columnIndex);
+        }
+
+        @Override
+        public Object getObject(int columnIndex) throws SQLException {
+            return this.resultSet.getObject(columnIndex);
+        }
+
+        @Override
+        public boolean wasNull() throws SQLException {
+            return this.resultSet.wasNull();
+        }
+    }
+
+    /**
+     * Whether the method is defined in {@link ResultSetFetcher}.
+     *
+     * @param method method to check
+     * @return {@code true} for fetch methods
+     */
+    public static boolean isFetchMethod(Method method) {
+        return method.getDeclaringClass() == ResultSetFetcher.class;
+    }
+
+    /**
+     * Perform {@link ResultSetFetcher} method against the given cursor.
+     *
+     * @param cursor cursor to read
+     * @param method one of {@link ResultSetFetcher} method
+     * @param args   method arguments
+     * @return number of rows read
+     * @throws SQLException on failure reading the cursor
+     */
+    public static Object invoke(Cursor cursor, Method method, Object[] args) throws SQLException {
+        String methodName = method.getName();
+        if ("fetch".equals(methodName)) {
+            return fetch(cursor, (RowBuffer) args[0]);
+        } else if ("fetchLongs".equals(methodName)) {
+            return fetchLongs(cursor, (Integer) args[0], (long[]) args[1], (Integer) args[2], (Integer) args[3]);
+        } else if ("fetchDoubles".equals(methodName)) {
+            return fetchDoubles(cursor, (Integer) args[0], (double[]) args[1], (Integer) args[2], (Integer) args[3]);
+        }
+        throw new UnsupportedOperationException(String.format("Method '%s' is not supported", method));
+    }
+
+    public static int fetch(Cursor cursor, RowBuffer rowBuffer) throws SQLException {
+        List<RowBuffer.Column> columns = rowBuffer.getColumns();
+        int columnCount = columns.size();
+        int capacity = rowBuffer.getCapacity();
+        int row = 0;
+        while (row < capacity && cursor.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                RowBuffer.Column column = columns.get(i);
+                int columnIndex = column.getColumnIndex();
+                switch (column.getValueType()) {
+                    case LONG:
+                        long longValue = cursor.getLong(columnIndex);
+                        column.setLong(row, longValue, cursor.wasNull());
+                        break;
+                    case INT:
+                        int intValue = cursor.getInt(columnIndex);
+                        column.setInt(row, intValue, cursor.wasNull());
+                        break;
+                    case DOUBLE:
+                        double doubleValue = cursor.getDouble(columnIndex);
+                        column.setDouble(row, doubleValue, cursor.wasNull());
+                        break;
+                    default:
+                        column.setObject(row, cursor.getObject(columnIndex));
+                }
+            }
+            row++;
+        }
+        rowBuffer.setRowCount(row);
+        return row;
+    }
+
+    public static int fetchLongs(Cursor cursor, int columnIndex, long[] values, int offset, int maxRows) throws SQLException {
+        int limit = Math.min(maxRows, values.length - offset);
+        int count = 0;
+        while (count < limit && cursor.next()) {
+            values[offset + count] = cursor.getLong(columnIndex);
+            count++;
+        }
+        return count;
+    }
+
+    public static int fetchDoubles(Cursor cursor, int columnIndex, double[] values, int offset, int maxRows) throws SQLException {
+        int limit = Math.min(maxRows, values.length - offset);
+        int count = 0;
+        while (count < limit && cursor.next()) {
+            values[offset + count] = cursor.getDouble(columnIndex);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Convert cached value to long in the manner of {@link ResultSet#getLong(int)}.
+     *
+     * @param value value to convert
+     * @return converted value. {@code 0} for {@code null}
+     * @throws SQLException when value cannot be converted
+     */
+    public static long toLong(Object value) throws SQLException {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException(String.format("Cannot convert '%s' to long", value), e);
+        }
+    }
+
+    /**
+     * Convert cached value to double in the manner of {@link ResultSet#getDouble(int)}.
+     *
+     * @param value value to convert
+     * @return converted value. {@code 0} for {@code null}
+     * @throws SQLException when value cannot be converted
+     */
+    public static double toDouble(Object value) throws SQLException {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException(String.format("Cannot convert '%s' to double", value), e);
+        }
+    }
+
+}
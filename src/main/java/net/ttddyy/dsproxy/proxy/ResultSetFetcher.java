@@ -0,0 +1,73 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.sql.SQLException;
+
+/**
+ * Extension interface to read multiple rows of a proxied {@link java.sql.ResultSet} in a single call.
+ *
+ * <p>Calling {@code getXxx} methods on a proxied {@link java.sql.ResultSet} goes through the proxy for every column of
+ * every row. Instead, bulk readers can obtain this interface by {@code resultSet.unwrap(ResultSetFetcher.class)} and
+ * pull the next rows into reusable buffers. Each call is a single proxy invocation, therefore
+ * {@link net.ttddyy.dsproxy.listener.MethodExecutionListener} receives one event per chunk.
+ *
+ * <p>This interface is for callers of the proxied {@link java.sql.ResultSet}. Proxy logics populate their row caches
+ * directly from the original {@link java.sql.ResultSet}, which has no proxy dispatch to save, so they do not use it
+ * internally. {@link java.sql.ResultSet#next()} on the proxy still reads one row per call.
+ *
+ * <p>Fetch methods move the cursor forward as {@link java.sql.ResultSet#next()} does; rows start from the one after
+ * the current row. When a value is SQL {@code NULL}, primitive arrays receive {@code 0}.
+ *
+ * <pre>
+ * {@code
+ * ResultSetFetcher fetcher = resultSet.unwrap(ResultSetFetcher.class);
+ * RowBuffer buffer = RowBuffer.create(500).longColumn(1).objectColumn(2);
+ * while (fetcher.fetch(buffer) > 0) {
+ *     for (int row = 0; row < buffer.getRowCount(); row++) {
+ *         long id = buffer.getLong(row, 0);
+ *         Object name = buffer.getObject(row, 1);
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @see RowBuffer
+ * @see ResultSetFetchUtils
+ * @since 1.4.11
+ */
+public interface ResultSetFetcher {
+
+    /**
+     * Read up to capacity of the buffer rows into the given buffer.
+     *
+     * @param rowBuffer buffer to populate. previous content is discarded
+     * @return number of rows read. {@code 0} when there are no more rows
+     * @throws SQLException on failure reading the result set
+     */
+    int fetch(RowBuffer rowBuffer) throws SQLException;
+
+    /**
+     * Read a column of next rows into the given array.
+     *
+     * @param columnIndex 1-based column index
+     * @param values      destination array
+     * @param offset      start position in the destination array
+     * @param maxRows     max number of rows to read
+     * @return number of rows read. {@code 0} when there are no more rows
+     * @throws SQLException on failure reading the result set
+     */
+    int fetchLongs(int columnIndex, long[] values, int offset, int maxRows) throws SQLException;
+
+    /**
+     * Read a column of next rows into the given array.
+     *
+     * @param columnIndex 1-based column index
+     * @param values      destination array
+     * @param offset      start position in the destination array
+     * @param maxRows     max number of rows to read
+     * @return number of rows read. {@code 0} when there are no more rows
+     * @throws SQLException on failure reading the result set
+     */
+    int fetchDoubles(int columnIndex, double[] values, int offset, int maxRows) throws SQLException;
+
+}
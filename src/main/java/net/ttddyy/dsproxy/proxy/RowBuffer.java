@@ -0,0 +1,240 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable buffer of rows for {@link ResultSetFetcher#fetch(RowBuffer)}.
+ *
+ * Each column is stored in an array of its value type, so that numeric columns are kept as primitives.
+ * Columns are referenced by position in the buffer (0-based, in the order they are added), rows are 0-based as well.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see ResultSetFetcher
+ * @since 1.4.11
+ */
+public class RowBuffer {
+
+    public enum ValueType {
+        LONG, INT, DOUBLE, OBJECT
+    }
+
+    static class Column {
+        private int columnIndex;
+        private ValueType valueType;
+        private long[] longs;
+        private int[] ints;
+        private double[] doubles;
+        private Object[] objects;
+        private boolean[] nulls;
+
+        Column(int columnIndex, ValueType valueType, int capacity) {
+            this.columnIndex = columnIndex;
+            this.valueType = valueType;
+            this.nulls = new boolean[capacity];
+            switch (valueType) {
+                case LONG:
+                    this.longs = new long[capacity];
+                    break;
+                case INT:
+                    this.ints = new int[capacity];
+                    break;
+                case DOUBLE:
+                    this.doubles = new double[capacity];
+                    break;
+                default:
+                    this.objects = new Object[capacity];
+            }
+        }
+
+        int getColumnIndex() {
+            return this.columnIndex;
+        }
+
+        ValueType getValueType() {
+            return this.valueType;
+        }
+
+        void setLong(int row, long value, boolean isNull) {
+            this.longs[row] = value;
+            this.nulls[row] = isNull;
+        }
+
+        void setInt(int row, int value, boolean isNull) {
+            this.ints[row] = value;
+            this.nulls[row] = isNull;
+        }
+
+        void setDouble(int row, double value, boolean isNull) {
+            this.doubles[row] = value;
+            this.nulls[row] = isNull;
+        }
+
+        void setObject(int row, Object value) {
+            this.objects[row] = value;
+            this.nulls[row] = value == null;
+        }
+    }
+
+    public static RowBuffer create(int capacity) {
+        return new RowBuffer(capacity);
+    }
+
+    private final int capacity;
+    private final List<Column> columns = new ArrayList<Column>();
+    private int rowCount;
+
+    public RowBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param columnIndex 1-based column index in the result set
+     * @return this buffer
+     */
+    public RowBuffer longColumn(int columnIndex) {
+        return column(columnIndex, ValueType.LONG);
+    }
+
+    /**
+     * @param columnIndex 1-based column index in the result set
+     * @return this buffer
+     */
+    public RowBuffer intColumn(int columnIndex) {
+        return column(columnIndex, ValueType.INT);
+    }
+
+    /**
+     * @param columnIndex 1-based column index in the result set
+     * @return this buffer
+     */
+    public RowBuffer doubleColumn(int columnIndex) {
+        return column(columnIndex, ValueType.DOUBLE);
+    }
+
+    /**
+     * @param columnIndex 1-based column index in the result set
+     * @return this buffer
+     */
+    public RowBuffer objectColumn(int columnIndex) {
+        return column(columnIndex, ValueType.OBJECT);
+    }
+
+    public RowBuffer column(int columnIndex, ValueType valueType) {
+        this.columns.add(new Column(columnIndex, valueType, this.capacity));
+        return this;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public int getColumnCount() {
+        return this.columns.size();
+    }
+
+    /**
+     * @return number of rows populated by the last fetch
+     */
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public long getLong(int row, int column) {
+        return getColumn(column, ValueType.LONG).longs[checkRow(row)];
+    }
+
+    public int getInt(int row, int column) {
+        return getColumn(column, ValueType.INT).ints[checkRow(row)];
+    }
+
+    public double getDouble(int row, int column) {
+        return getColumn(column, ValueType.DOUBLE).doubles[checkRow(row)];
+    }
+
+    /**
+     * Value of the column. Primitive columns are boxed.
+     *
+     * @param row    0-based row
+     * @param column 0-based position of the column in this buffer
+     * @return value or {@code null} for SQL {@code NULL}
+     */
+    public Object getObject(int row, int column) {
+        Column col = this.columns.get(column);
+        checkRow(row);
+        if (col.nulls[row]) {
+            return null;
+        }
+        switch (col.valueType) {
+            case LONG:
+                return col.longs[row];
+            case INT:
+                return col.ints[row];
+            case DOUBLE:
+                return col.doubles[row];
+            default:
+                return col.objects[row];
+        }
+    }
+
+    public boolean isNull(int row, int column) {
+        return this.columns.get(column).nulls[checkRow(row)];
+    }
+
+    /**
+     * Backing array of a {@link ValueType#LONG} column. Only first {@link #getRowCount()} elements are valid.
+     *
+     * @param column 0-based position of the column in this buffer
+     * @return backing array
+     */
+    public long[] getLongs(int column) {
+        return getColumn(column, ValueType.LONG).longs;
+    }
+
+    /**
+     * Backing array of a {@link ValueType#INT} column. Only first {@link #getRowCount()} elements are valid.
+     *
+     * @param column 0-based position of the column in this buffer
+     * @return backing array
+     */
+    public int[] getInts(int column) {
+        return getColumn(column, ValueType.INT).ints;
+    }
+
+    /**
+     * Backing array of a {@link ValueType#DOUBLE} column. Only first {@link #getRowCount()} elements are valid.
+     *
+     * @param column 0-based position of the column in this buffer
+     * @return backing array
+     */
+    public double[] getDoubles(int column) {
+        return getColumn(column, ValueType.DOUBLE).doubles;
+    }
+
+    List<Column> getColumns() {
+        return this.columns;
+    }
+
+    void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    private Column getColumn(int column, ValueType valueType) {
+        Column col = this.columns.get(column);
+        if (col.valueType != valueType) {
+            throw new IllegalArgumentException("Column " + column + " is " + col.valueType + " but accessed as " + valueType);
+        }
+        return col;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException("row " + row + " is out of range. row count=" + this.rowCount);
+        }
+        return row;
+    }
+
+}
@@ -1,10 +1,12 @@
 package net.ttddyy.dsproxy.proxy;
 
 import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ConnectionStats;
 import net.ttddyy.dsproxy.listener.MethodExecutionListenerUtils;
 
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 
 /**
  * Simply delegate method calls to the actual {@link ResultSet}.
@@ -17,6 +19,8 @@ public class SimpleResultSetProxyLogic implements ResultSetProxyLogic {
     private ResultSet resultSet;
     private ConnectionInfo connectionInfo;
     private ProxyConfig proxyConfig;
+    private long fetchedRows;  // not yet added to connection stats
+    private ResultSetFetchUtils.Cursor cursor;  // created on first fetch
 
     public SimpleResultSetProxyLogic(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
         this.resultSet = resultSet;
@@ -49,8 +53,44 @@ public class SimpleResultSetProxyLogic implements ResultSetProxyLogic {
         } else if ("getTarget".equals(methodName)) {
             // ProxyJdbcObject interface has a method to return original object.
             return this.resultSet;
+        } else if (ResultSetFetchUtils.isFetchMethod(method)) {
+            if (this.cursor == null) {
+                this.cursor = new ResultSetFetchUtils.ResultSetCursor(this.resultSet) {
+                    @Override
+                    public boolean next() throws SQLException {
+                        return countRow(super.next());
+                    }
+                };
+            }
+            return ResultSetFetchUtils.invoke(this.cursor, method, args);
+        }
+
+        Object result = MethodUtils.proceedExecution(method, this.resultSet, args);
+        if ("next".equals(methodName)) {
+            countRow((Boolean) result);
+        } else if ("close".equals(methodName)) {
+            addRowsFetched();
+        }
+        return result;
+    }
+
+    /**
+     * Count rows read by {@code next()}, and add them to connection stats when the result set is exhausted.
+     */
+    private boolean countRow(boolean hasNext) {
+        if (hasNext) {
+            this.fetchedRows++;
+        } else {
+            addRowsFetched();
         }
+        return hasNext;
+    }
 
-        return MethodUtils.proceedExecution(method, this.resultSet, args);
+    private void addRowsFetched() {
+        ConnectionStats stats = this.connectionInfo != null ? this.connectionInfo.getStats() : null;
+        if (stats != null && this.fetchedRows > 0) {
+            stats.rowsFetched(this.fetchedRows);
+        }
+        this.fetchedRows = 0;
     }
 }
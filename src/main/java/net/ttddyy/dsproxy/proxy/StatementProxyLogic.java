@@ -1,18 +1,25 @@
 package net.ttddyy.dsproxy.proxy;
 
 import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ConnectionStats;
 import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.StatementType;
 import net.ttddyy.dsproxy.listener.MethodExecutionListenerUtils;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.listener.logging.ParameterValueConverter;
+import net.ttddyy.dsproxy.transform.NoOpParameterTransformer;
 import net.ttddyy.dsproxy.transform.ParameterReplacer;
 import net.ttddyy.dsproxy.transform.ParameterTransformer;
 import net.ttddyy.dsproxy.transform.QueryTransformer;
 import net.ttddyy.dsproxy.transform.TransformInfo;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -20,9 +27,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static net.ttddyy.dsproxy.proxy.StatementMethodNames.GET_GENERATED_KEYS_METHOD;
 import static net.ttddyy.dsproxy.proxy.StatementMethodNames.GET_RESULTSET_METHOD;
@@ -36,6 +47,28 @@ import static net.ttddyy.dsproxy.proxy.StatementMethodNames.METHODS_TO_RETURN_RE
  */
 public class StatementProxyLogic {
 
+    private static final Method EXECUTE_BATCH_METHOD;
+
+    static {
+        try {
+            EXECUTE_BATCH_METHOD = Statement.class.getMethod("executeBatch");
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // methods on the write buffering statement that do not flush buffered writes
+    private static final Set<String> METHODS_NOT_TO_FLUSH_WRITES = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("toString", "hashCode", "equals", "getDataSourceName", "getTarget",
+                    StatementMethodNames.GET_CONNECTION_METHOD))
+    );
+
+    // methods allowed on the statement returned to the prepared statement cache
+    private static final Set<String> METHODS_ALLOWED_AFTER_RETURN_TO_CACHE = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("toString", "hashCode", "equals", "getDataSourceName", "getTarget",
+                    "unwrap", "isWrapperFor"))
+    );
+
     /**
      * Builder for {@link StatementProxyLogic}.
      *
@@ -113,7 +146,17 @@ public class StatementProxyLogic {
     private Connection proxyConnection;
     private ProxyConfig proxyConfig;
     private ResultSet generatedKeys;
+    private CompactGeneratedKeys compactGeneratedKeys;  // used when compact generated keys is enabled
+    private ColumnMetadata generatedKeysMetadata;  // column info of generated keys for prepared/callable
     private boolean generateKey;  // set true if auto-generate keys is enabled at "Connection#prepareStatement()"
+    private Boolean writeCoalescingTarget;  // whether the query is a target of write coalescing. resolved lazily
+    private BatchInsertRewriter.InsertQuery batchInsertQuery;  // null if batch insert rewrite is not applicable
+    private boolean batchInsertQueryResolved;
+    private boolean returnedToCache;  // set true when closed statement is returned to the prepared statement cache
+    private ResultSet cachedStatementResultSet;  // last result set of the statement managed by prepared statement cache
+    private boolean executingBatchChunk;  // set true while executing a batch chunk from "addBatch()"
+    private List<int[]> batchChunkUpdateCounts = new ArrayList<int[]>();  // update counts of executed batch chunks
+    private int batchChunkEntryCount;  // number of entries executed by batch chunks
 
     public Object invoke(Method method, Object[] args) throws Throwable {
 
@@ -130,6 +173,59 @@ public class StatementProxyLogic {
 
         final String methodName = method.getName();
 
+        WriteCoalescer writeCoalescer = this.connectionInfo != null ? this.connectionInfo.getWriteCoalescer() : null;
+        if (writeCoalescer != null) {
+            if (isCoalescableUpdate(writeCoalescer, methodName, args)) {
+                return coalesceUpdate(writeCoalescer, methodName);
+            }
+            if (writeCoalescer.hasBufferedWrites()) {
+                boolean flush;
+                if (writeCoalescer.isBuffering(this)) {
+                    flush = !StatementMethodNames.PARAMETER_METHODS.contains(methodName) && !METHODS_NOT_TO_FLUSH_WRITES.contains(methodName);
+                } else {
+                    flush = StatementMethodNames.EXEC_METHODS.contains(methodName);
+                }
+                if (flush) {
+                    writeCoalescer.flush();
+                }
+            }
+        }
+
+        // the actual statement may be reused by another proxy once returned to the cache
+        if (this.returnedToCache) {
+            if ("close".equals(methodName)) {
+                return null;
+            } else if ("isClosed".equals(methodName)) {
+                return true;
+            } else if (!METHODS_ALLOWED_AFTER_RETURN_TO_CACHE.contains(methodName)) {
+                throw new SQLException("Statement is already closed");
+            }
+        } else if ("close".equals(methodName) && StatementType.PREPARED == this.statementType && this.connectionInfo != null) {
+            PreparedStatementCache.ConnectionCache statementCache = this.connectionInfo.getPreparedStatementCache();
+            if (statementCache != null && this.cachedStatementResultSet != null) {
+                this.cachedStatementResultSet.close();  // the statement won't close it when returned to the cache
+                this.cachedStatementResultSet = null;
+            }
+            if (statementCache != null && statementCache.release((PreparedStatement) this.statement)) {
+                if (this.connectionInfo.getOpenResources() != null) {
+                    this.connectionInfo.getOpenResources().release(this.statement);
+                }
+                this.returnedToCache = true;
+                this.parameters.clear();
+                this.batchParameters.clear();
+                return null;
+            }
+        }
+
+        // remember settings to restore when the statement is returned to the cache
+        if (!this.returnedToCache && StatementType.PREPARED == this.statementType && this.connectionInfo != null
+                && PreparedStatementCache.SETTING_METHODS.contains(methodName)) {
+            PreparedStatementCache.ConnectionCache statementCache = this.connectionInfo.getPreparedStatementCache();
+            if (statementCache != null) {
+                statementCache.recordSetting((PreparedStatement) this.statement, methodName);
+            }
+        }
+
         if (!StatementMethodNames.METHODS_TO_INTERCEPT.contains(methodName)) {
             return MethodUtils.proceedExecution(method, statement, args);
         }
@@ -183,10 +279,13 @@ public class StatementProxyLogic {
                     batchQueries.add(transformedQuery);
                 } else {  // for "clearBatch" method
                     batchQueries.clear();
+                    resetBatchChunks();
                 }
 
                 // proceed execution, no need to call listener
-                return MethodUtils.proceedExecution(method, statement, args);
+                Object result = MethodUtils.proceedExecution(method, statement, args);
+                executeBatchChunkIfFull(batchQueries.size());
+                return result;
             }
 
         } else {
@@ -225,16 +324,24 @@ public class StatementProxyLogic {
 
                         // copy values
                         Map<ParameterKey, ParameterSetOperation> newParams = new LinkedHashMap<ParameterKey, ParameterSetOperation>(parameters);
+                        if (this.proxyConfig.isParameterPreviewEnabled() && this.proxyConfig.getBatchInsertRewriter() == null) {
+                            toParameterPreview(newParams);
+                        }
                         batchParameters.add(newParams);
 
                         parameters.clear();
                     } else if ("clearBatch".equals(methodName)) {
                         batchParameters.clear();
+                        resetBatchChunks();
                     }
                 }
 
                 // proceed execution, no need to call listener
-                return MethodUtils.proceedExecution(method, ps, args);
+                Object result = MethodUtils.proceedExecution(method, ps, args);
+                if ("addBatch".equals(methodName)) {
+                    executeBatchChunkIfFull(batchParameters.size());
+                }
+                return result;
             }
 
         }
@@ -245,6 +352,7 @@ public class StatementProxyLogic {
         final List<QueryInfo> queries = new ArrayList<QueryInfo>();
         boolean isBatchExecution = StatementMethodNames.BATCH_EXEC_METHODS.contains(methodName);
         int batchSize = 0;
+        List<Map<ParameterKey, ParameterSetOperation>> batchInsertParameters = null;  // set when rewriting batch insert
 
         // "executeBatch", "executeLargeBatch"
         if (isBatchExecution) {
@@ -264,6 +372,9 @@ public class StatementProxyLogic {
                 queries.add(queryInfo);
 
                 batchSize = batchParameters.size();
+                if (isBatchInsertRewritable()) {
+                    batchInsertParameters = new ArrayList<Map<ParameterKey, ParameterSetOperation>>(batchParameters);
+                }
                 batchParameters.clear();
             }
 
@@ -298,29 +409,82 @@ public class StatementProxyLogic {
                 return this.generatedKeys;  // return from cache
             }
         }
+        if (isGetGeneratedKeysMethod && this.compactGeneratedKeys != null) {
+            return this.compactGeneratedKeys.toResultSet();
+        }
 
         final ExecutionInfo execInfo = new ExecutionInfo(this.connectionInfo, this.statement, isBatchExecution, batchSize, method, args);
 
+        // final "executeBatch()" of the chunked batch. update counts of executed chunks are merged to the result
+        final boolean isLastBatchChunk = isBatchExecution && !this.executingBatchChunk && !this.batchChunkUpdateCounts.isEmpty();
+        if (isBatchExecution) {
+            execInfo.setBatchChunk(this.executingBatchChunk);
+        }
+        if (isLastBatchChunk) {
+            execInfo.setTotalBatchSize(this.batchChunkEntryCount + batchSize);
+            execInfo.setBatchChunkCount(this.batchChunkUpdateCounts.size() + 1);
+        }
+
         boolean isGetResultSetMethod = GET_RESULTSET_METHOD.equals(methodName);
         boolean performQueryListener = !isGetGeneratedKeysMethod && !isGetResultSetMethod;
 
         if (performQueryListener) {
             queryListener.beforeQuery(execInfo, queries);
+
+            // a listener aborted the query. e.g. query budget is exceeded
+            if (execInfo.isAborted()) {
+                if (isLastBatchChunk) {
+                    resetBatchChunks();
+                }
+                queryListener.afterQuery(execInfo, queries);
+                Throwable throwable = execInfo.getThrowable();
+                throw throwable != null ? throwable : new SQLException("Query execution is aborted by listener");
+            }
         }
 
+        // record query execution to the stats of current transaction
+        final boolean isTransactionQuery = performQueryListener && this.connectionInfo != null
+                && this.proxyConfig.isTransactionListenerEnabled() && Boolean.FALSE.equals(this.connectionInfo.getAutoCommit());
+        final ConnectionStats stats = performQueryListener && this.connectionInfo != null ? this.connectionInfo.getStats() : null;
+        final long beforeNanos = System.nanoTime();
+        long rowsAffected = 0;
+
         final long beforeTime = System.currentTimeMillis();
 
         // Invoke method on original Statement.
         try {
 
-            Object retVal = method.invoke(this.statement, args);
+            Object retVal;
+            if (batchInsertParameters != null) {
+                retVal = executeBatchInsert(batchInsertParameters, "executeLargeBatch".equals(methodName));
+            } else {
+                retVal = method.invoke(this.statement, args);
+            }
+
+            if (isTransactionQuery || stats != null) {
+                rowsAffected = QueryUtils.getRowsAffected(retVal);  // before merging update counts of executed batch chunks
+            }
+
+            if (isLastBatchChunk) {
+                retVal = mergeBatchChunkUpdateCounts(retVal);
+            }
 
             final long afterTime = System.currentTimeMillis();
+            final long afterNanos = System.nanoTime();
 
 
             // method that returns ResultSet but exclude "getGeneratedKeys()"
             final boolean isResultSetReturningMethod = !isGetGeneratedKeysMethod && METHODS_TO_RETURN_RESULTSET.contains(methodName);
 
+            if (isResultSetReturningMethod && this.connectionInfo != null && this.connectionInfo.getPreparedStatementCache() != null) {
+                this.cachedStatementResultSet = (ResultSet) retVal;
+            }
+
+            OpenResourceTracker.ConnectionResources openResources = this.connectionInfo != null ? this.connectionInfo.getOpenResources() : null;
+            if (openResources != null && (isResultSetReturningMethod || isGetGeneratedKeysMethod) && retVal instanceof ResultSet) {
+                openResources.resultSetCreated((ResultSet) retVal, this.statement);
+            }
+
             final boolean isCreateGeneratedKeysProxy = isGetGeneratedKeysMethod && this.proxyConfig.isGeneratedKeysProxyEnabled();
             final boolean isCreateResultSetProxy = isResultSetReturningMethod && this.proxyConfig.isResultSetProxyEnabled();
 
@@ -328,7 +492,12 @@ public class StatementProxyLogic {
             if (isCreateGeneratedKeysProxy) {
                 retVal = proxyFactory.createGeneratedKeys((ResultSet) retVal, this.connectionInfo, this.proxyConfig);
             } else if (isCreateResultSetProxy) {
-                retVal = proxyFactory.createResultSet((ResultSet) retVal, this.connectionInfo, this.proxyConfig);
+                String resultSetQuery = getResultSetQuery(methodName, args);
+                if (proxyFactory instanceof QueryAwareJdbcProxyFactory) {
+                    retVal = ((QueryAwareJdbcProxyFactory) proxyFactory).createResultSet((ResultSet) retVal, resultSetQuery, this.connectionInfo, this.proxyConfig);
+                } else {
+                    retVal = proxyFactory.createResultSet((ResultSet) retVal, this.connectionInfo, this.proxyConfig);
+                }
             }
 
 
@@ -343,6 +512,8 @@ public class StatementProxyLogic {
                     //   execute(), executeUpdate(), executeLargeUpdate(), or executeBatch() or executeLargeBatch()
                     if (GeneratedKeysUtils.isMethodToRetrieveGeneratedKeys(method)) {
 
+                        this.compactGeneratedKeys = null;  // keys of previous execution
+
                         boolean isTypeStatement = StatementType.STATEMENT == this.statementType;
 
                         boolean retrieveGeneratedKey;
@@ -365,7 +536,9 @@ public class StatementProxyLogic {
                             }
                         }
 
-                        if (retrieveGeneratedKey) {
+                        if (retrieveGeneratedKey && this.proxyConfig.isCompactGeneratedKeys()) {
+                            this.compactGeneratedKeys = readCompactGeneratedKeys();
+                        } else if (retrieveGeneratedKey) {
                             ResultSet generatedKeysResultSet = this.statement.getGeneratedKeys();  // auto retrieve generated-keys
                             if (this.proxyConfig.isGeneratedKeysProxyEnabled()) {
                                 generatedKeysResultSet = proxyFactory.createGeneratedKeys(generatedKeysResultSet, this.connectionInfo, this.proxyConfig);
@@ -378,18 +551,40 @@ public class StatementProxyLogic {
 
             execInfo.setResult(retVal);
             execInfo.setGeneratedKeys(this.generatedKeys);
+            execInfo.setCompactGeneratedKeys(this.compactGeneratedKeys);
             execInfo.setElapsedTime(afterTime - beforeTime);
+            execInfo.setElapsedNanos(afterNanos - beforeNanos);
             execInfo.setSuccess(true);
 
             return retVal;
         } catch (InvocationTargetException ex) {
             final long afterTime = System.currentTimeMillis();
+            final long afterNanos = System.nanoTime();
+
+            Throwable throwable = ex.getTargetException();
+            if (isLastBatchChunk && throwable instanceof BatchUpdateException) {
+                throwable = toChunkedBatchUpdateException((BatchUpdateException) throwable);
+            }
 
             execInfo.setElapsedTime(afterTime - beforeTime);
-            execInfo.setThrowable(ex.getTargetException());
+            execInfo.setElapsedNanos(afterNanos - beforeNanos);
+            execInfo.setThrowable(throwable);
             execInfo.setSuccess(false);
-            throw ex.getTargetException();
+            throw throwable;
         } finally {
+            if (isTransactionQuery || stats != null) {
+                long elapsedNanos = System.nanoTime() - beforeNanos;
+                if (isTransactionQuery) {
+                    this.connectionInfo.addTransactionQuery(beforeNanos, elapsedNanos, rowsAffected);
+                }
+                if (stats != null) {
+                    stats.queryExecuted(elapsedNanos, rowsAffected);
+                }
+            }
+
+            if (isLastBatchChunk) {
+                resetBatchChunks();
+            }
 
             if (performQueryListener) {
                 queryListener.afterQuery(execInfo, queries);
@@ -406,8 +601,291 @@ public class StatementProxyLogic {
     }
 
 
+    /**
+     * Read generated keys eagerly and close the original {@link ResultSet}.
+     *
+     * Prepared and callable statements always return the same columns, therefore column information is obtained only
+     * at the first execution.
+     */
+    private CompactGeneratedKeys readCompactGeneratedKeys() throws SQLException {
+        ResultSet generatedKeysResultSet = this.statement.getGeneratedKeys();
+        try {
+            ColumnMetadata columnMetadata = this.generatedKeysMetadata;
+            if (columnMetadata == null) {
+                columnMetadata = ColumnMetadata.from(generatedKeysResultSet.getMetaData());
+                if (StatementType.STATEMENT != this.statementType) {
+                    this.generatedKeysMetadata = columnMetadata;
+                }
+            }
+            return CompactGeneratedKeys.read(generatedKeysResultSet, columnMetadata);
+        } finally {
+            generatedKeysResultSet.close();
+        }
+    }
+
+    /**
+     * Query that produced the returned {@link ResultSet}.
+     *
+     * Only "executeQuery" on {@link Statement} and {@link PreparedStatement} is considered since a query always
+     * returns same shape of {@link ResultSet}. Callable and "getResultSet" may return multiple results per query.
+     *
+     * @return query or {@code null} if it cannot be determined
+     */
+    private String getResultSetQuery(String methodName, Object[] args) {
+        if (!"executeQuery".equals(methodName)) {
+            return null;
+        }
+        if (StatementType.STATEMENT == this.statementType) {
+            return (String) args[0];  // already transformed
+        } else if (StatementType.PREPARED == this.statementType) {
+            return this.query;
+        }
+        return null;
+    }
+
+    private boolean isBatchInsertRewritable() {
+        BatchInsertRewriter batchInsertRewriter = this.proxyConfig.getBatchInsertRewriter();
+        if (batchInsertRewriter == null || StatementType.PREPARED != this.statementType || this.generateKey) {
+            return false;
+        }
+        if (!this.batchInsertQueryResolved) {
+            this.batchInsertQuery = batchInsertRewriter.parse(this.query);
+            this.batchInsertQueryResolved = true;
+        }
+        return this.batchInsertQuery != null && batchInsertRewriter.isRewritable(this.batchInsertQuery, this.batchParameters);
+    }
+
+    /**
+     * Perform batch with multi-row inserts instead of the batch added to the actual statement.
+     *
+     * @throws InvocationTargetException wrapping {@link SQLException} to be handled same as the actual method invocation
+     */
+    private Object executeBatchInsert(List<Map<ParameterKey, ParameterSetOperation>> batchInsertParameters, boolean isLargeBatch) throws InvocationTargetException {
+        try {
+            int[] updateCounts;
+            try {
+                Connection connection = this.statement.getConnection();
+                updateCounts = this.proxyConfig.getBatchInsertRewriter().execute(connection, this.batchInsertQuery, batchInsertParameters);
+            } finally {
+                this.statement.clearBatch();  // entries added to the actual statement are not executed
+            }
+            if (!isLargeBatch) {
+                return updateCounts;
+            }
+            long[] largeUpdateCounts = new long[updateCounts.length];
+            for (int i = 0; i < updateCounts.length; i++) {
+                largeUpdateCounts[i] = updateCounts[i];
+            }
+            return largeUpdateCounts;
+        } catch (SQLException e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * When batch chunking is enabled and the number of batch entries reached the chunk size, execute them as a chunk.
+     * Query listeners receive it as "executeBatch()".
+     *
+     * Statements prepared with auto-generated keys are not chunked, since "getGeneratedKeys()" only returns keys of
+     * the last execution.
+     *
+     * @param currentBatchSize number of batch entries not executed yet
+     * @throws SQLException when batch execution failed. {@link BatchUpdateException} contains update counts of
+     *                      previous chunks
+     */
+    private void executeBatchChunkIfFull(int currentBatchSize) throws SQLException {
+        if (!this.proxyConfig.isBatchChunkingEnabled() || this.generateKey
+                || currentBatchSize < this.proxyConfig.getBatchChunkSize()) {
+            return;
+        }
+
+        Object result;
+        this.executingBatchChunk = true;
+        try {
+            result = invoke(EXECUTE_BATCH_METHOD, null);
+        } catch (BatchUpdateException e) {
+            BatchUpdateException exception = toChunkedBatchUpdateException(e);
+            resetBatchChunks();
+            throw exception;
+        } catch (SQLException e) {
+            resetBatchChunks();
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException("Failed to execute batch chunk", t);
+        } finally {
+            this.executingBatchChunk = false;
+        }
+
+        this.batchChunkUpdateCounts.add((int[]) result);
+        this.batchChunkEntryCount += currentBatchSize;
+    }
+
+    /**
+     * Replace parameter values of a batch entry with display values, so that original values, such as large strings
+     * and streams, are not kept until the batch is executed.
+     *
+     * @param params parameters of a batch entry
+     */
+    private void toParameterPreview(Map<ParameterKey, ParameterSetOperation> params) {
+        ParameterValueConverter converter = this.proxyConfig.getParameterPreviewConverter();
+        for (Map.Entry<ParameterKey, ParameterSetOperation> entry : params.entrySet()) {
+            ParameterSetOperation operation = entry.getValue();
+            if (ParameterSetOperation.isSetNullParameterOperation(operation)
+                    || ParameterSetOperation.isRegisterOutParameterOperation(operation)) {
+                continue;
+            }
+            entry.setValue(ParameterSetOperation.preview(operation, converter.getValue(operation)));
+        }
+    }
+
+    private Object mergeBatchChunkUpdateCounts(Object lastUpdateCounts) {
+        if (lastUpdateCounts instanceof long[]) {  // "executeLargeBatch()"
+            int[] chunkCounts = mergeBatchChunkUpdateCounts((int[]) null);
+            long[] lastCounts = (long[]) lastUpdateCounts;
+            long[] merged = new long[chunkCounts.length + lastCounts.length];
+            for (int i = 0; i < chunkCounts.length; i++) {
+                merged[i] = chunkCounts[i];
+            }
+            System.arraycopy(lastCounts, 0, merged, chunkCounts.length, lastCounts.length);
+            return merged;
+        }
+        return mergeBatchChunkUpdateCounts((int[]) lastUpdateCounts);
+    }
+
+    private int[] mergeBatchChunkUpdateCounts(int[] lastUpdateCounts) {
+        int[] lastCounts = lastUpdateCounts != null ? lastUpdateCounts : new int[0];
+        int size = 0;
+        for (int[] counts : this.batchChunkUpdateCounts) {
+            size += counts.length;
+        }
+        int[] merged = new int[size + lastCounts.length];
+        int pos = 0;
+        for (int[] counts : this.batchChunkUpdateCounts) {
+            System.arraycopy(counts, 0, merged, pos, counts.length);
+            pos += counts.length;
+        }
+        System.arraycopy(lastCounts, 0, merged, pos, lastCounts.length);
+        return merged;
+    }
+
+    private BatchUpdateException toChunkedBatchUpdateException(BatchUpdateException e) {
+        int[] updateCounts = mergeBatchChunkUpdateCounts(e.getUpdateCounts());
+        return new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), updateCounts, e);
+    }
+
+    private void resetBatchChunks() {
+        this.batchChunkUpdateCounts.clear();
+        this.batchChunkEntryCount = 0;
+    }
+
+    private boolean isCoalescableUpdate(WriteCoalescer writeCoalescer, String methodName, Object[] args) throws SQLException {
+        if (StatementType.PREPARED != this.statementType || this.generateKey) {
+            return false;
+        }
+        if (!("executeUpdate".equals(methodName) || "executeLargeUpdate".equals(methodName)) || (args != null && args.length > 0)) {
+            return false;
+        }
+        if (this.writeCoalescingTarget == null) {
+            this.writeCoalescingTarget = writeCoalescer.getWriteCoalescing().isTarget(this.query);
+        }
+        if (!this.writeCoalescingTarget) {
+            return false;
+        }
+        if (!writeCoalescer.isBuffering(this) && !this.batchParameters.isEmpty()) {
+            return false;  // application is building its own batch
+        }
+        for (ParameterSetOperation operation : this.parameters.values()) {
+            for (Object arg : operation.getArgs()) {
+                if (arg instanceof InputStream || arg instanceof Reader) {
+                    return false;  // stream cannot be set again
+                }
+            }
+        }
+        return !writeCoalescer.isAutoCommit(this.statement.getConnection());
+    }
+
+    /**
+     * Instead of executing the update, add current parameters as a batch entry.
+     *
+     * @return update count assumed to be 1
+     */
+    private Object coalesceUpdate(WriteCoalescer writeCoalescer, String methodName) throws Throwable {
+        PreparedStatement ps = (PreparedStatement) this.statement;
+        writeCoalescer.beforeBuffer(this);
+
+        transformParameters(this.proxyConfig.getParameterTransformer(), ps, true, this.batchParameters.size());
+        Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>(this.parameters);
+        ps.addBatch();
+        this.batchParameters.add(params);
+
+        // parameters remain after "executeUpdate()" while drivers may clear them on "addBatch()"
+        for (ParameterSetOperation operation : params.values()) {
+            operation.getMethod().invoke(ps, operation.getArgs());
+        }
+
+        if (writeCoalescer.afterBuffer()) {
+            writeCoalescer.flush();
+        }
+        return "executeLargeUpdate".equals(methodName) ? (Object) 1L : (Object) 1;
+    }
+
+    /**
+     * Execute writes buffered by write coalescing as a batch. Query listeners receive it as "executeBatch()".
+     *
+     * @param bufferedCount      number of buffered writes
+     * @param verifyUpdateCounts verify each update count is 1
+     * @throws SQLException when batch execution failed or update counts do not match
+     */
+    void flushCoalescedWrites(int bufferedCount, boolean verifyUpdateCounts) throws SQLException {
+        Object result;
+        try {
+            result = invoke(EXECUTE_BATCH_METHOD, null);
+        } catch (SQLException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException("Failed to flush coalesced writes", t);
+        }
+
+        if (!verifyUpdateCounts) {
+            return;
+        }
+        int[] updateCounts = (int[]) result;
+        boolean matched = updateCounts.length == bufferedCount;
+        for (int i = 0; matched && i < updateCounts.length; i++) {
+            matched = updateCounts[i] == 1 || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        if (!matched) {
+            String message = String.format("Coalesced %d writes are expected to update one row each, but update counts were %s. query=%s",
+                    bufferedCount, Arrays.toString(updateCounts), this.query);
+            throw new BatchUpdateException(message, updateCounts);
+        }
+    }
+
+    /**
+     * Discard writes buffered by write coalescing.
+     *
+     * @throws SQLException when clearing batch failed
+     */
+    void discardCoalescedWrites() throws SQLException {
+        this.batchParameters.clear();
+        this.statement.clearBatch();
+    }
+
     private void transformParameters(ParameterTransformer parameterTransformer, PreparedStatement ps, boolean isBatch, int count) throws SQLException, IllegalAccessException, InvocationTargetException {
 
+        // no-op transformer never modifies parameters
+        if (parameterTransformer.getClass() == NoOpParameterTransformer.class) {
+            return;
+        }
+
         // transform parameters
         final ParameterReplacer parameterReplacer = new ParameterReplacer(this.parameters);
         final TransformInfo transformInfo = new TransformInfo(ps.getClass(), this.connectionInfo.getDataSourceName(), query, isBatch, count);
@@ -415,14 +893,20 @@ public class StatementProxyLogic {
 
         if (parameterReplacer.isModified()) {
 
-            ps.clearParameters();  // clear existing parameters
-
-            // re-set parameters
             Map<ParameterKey, ParameterSetOperation> modifiedParameters = parameterReplacer.getModifiedParameters();
-            for (ParameterSetOperation operation : modifiedParameters.values()) {
-                final Method paramMethod = operation.getMethod();
-                final Object[] paramArgs = operation.getArgs();
-                paramMethod.invoke(ps, paramArgs);
+            if (parameterReplacer.isCleared()) {
+                ps.clearParameters();  // clear existing parameters
+
+                // re-set parameters
+                for (ParameterSetOperation operation : modifiedParameters.values()) {
+                    operation.getMethod().invoke(ps, operation.getArgs());
+                }
+            } else {
+                // set only modified parameters. others are already set on the statement
+                for (ParameterKey key : parameterReplacer.getModifiedKeys()) {
+                    ParameterSetOperation operation = modifiedParameters.get(key);
+                    operation.getMethod().invoke(ps, operation.getArgs());
+                }
             }
 
             // replace
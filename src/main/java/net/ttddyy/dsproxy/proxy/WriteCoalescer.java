@@ -0,0 +1,108 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Per connection state of write coalescing.
+ *
+ * Keeps the statement that currently buffers writes. At most one statement per connection buffers writes at a time,
+ * so that the order of writes is preserved on flush.
+ * Like {@link Connection}, this class is not thread-safe.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see WriteCoalescing
+ * @since 1.4.11
+ */
+public class WriteCoalescer {
+
+    private final WriteCoalescing writeCoalescing;
+    private StatementProxyLogic bufferingStatement;
+    private int bufferedCount;
+    private Boolean autoCommit;  // null until first known
+
+    public WriteCoalescer(WriteCoalescing writeCoalescing) {
+        this.writeCoalescing = writeCoalescing;
+    }
+
+    public WriteCoalescing getWriteCoalescing() {
+        return this.writeCoalescing;
+    }
+
+    public boolean hasBufferedWrites() {
+        return this.bufferingStatement != null;
+    }
+
+    public int getBufferedCount() {
+        return this.bufferedCount;
+    }
+
+    boolean isBuffering(StatementProxyLogic statementProxyLogic) {
+        return this.bufferingStatement == statementProxyLogic;
+    }
+
+    /**
+     * Whether auto-commit is enabled on the connection. Obtained from the connection only at first call, then kept
+     * updated by {@link #setAutoCommit(boolean)}.
+     */
+    boolean isAutoCommit(Connection connection) throws SQLException {
+        if (this.autoCommit == null) {
+            this.autoCommit = connection.getAutoCommit();
+        }
+        return this.autoCommit;
+    }
+
+    void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+    }
+
+    /**
+     * Record a buffered write of the given statement. Writes buffered by other statement are flushed first.
+     */
+    void beforeBuffer(StatementProxyLogic statementProxyLogic) throws SQLException {
+        if (this.bufferingStatement != statementProxyLogic) {
+            flush();
+            this.bufferingStatement = statementProxyLogic;
+        }
+    }
+
+    /**
+     * @return {@code true} if the buffer reached max batch size
+     */
+    boolean afterBuffer() {
+        this.bufferedCount++;
+        return this.bufferedCount >= this.writeCoalescing.getMaxBatchSize();
+    }
+
+    /**
+     * Execute buffered writes.
+     *
+     * @throws SQLException when batch execution failed or update counts do not match
+     */
+    public void flush() throws SQLException {
+        StatementProxyLogic statementProxyLogic = this.bufferingStatement;
+        if (statementProxyLogic == null) {
+            return;
+        }
+        int count = this.bufferedCount;
+        this.bufferingStatement = null;
+        this.bufferedCount = 0;
+        statementProxyLogic.flushCoalescedWrites(count, this.writeCoalescing.isVerifyUpdateCounts());
+    }
+
+    /**
+     * Discard buffered writes. Used for rollback.
+     *
+     * @throws SQLException when clearing batch failed
+     */
+    public void discard() throws SQLException {
+        StatementProxyLogic statementProxyLogic = this.bufferingStatement;
+        if (statementProxyLogic == null) {
+            return;
+        }
+        this.bufferingStatement = null;
+        this.bufferedCount = 0;
+        statementProxyLogic.discardCoalescedWrites();
+    }
+
+}
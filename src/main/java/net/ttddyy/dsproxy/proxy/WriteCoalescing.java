@@ -0,0 +1,145 @@
+package net.ttddyy.dsproxy.proxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Configuration of write coalescing.
+ *
+ * When enabled, consecutive {@link java.sql.PreparedStatement#executeUpdate()} calls on the same prepared statement
+ * are buffered with {@link java.sql.PreparedStatement#addBatch()} and sent to the database as a single
+ * {@link java.sql.PreparedStatement#executeBatch()}.
+ * Only queries matching one of the configured tables or query patterns are coalesced, and only while auto-commit is
+ * disabled on the connection.
+ *
+ * Buffered writes are flushed when:
+ * <ul>
+ * <li>any other statement of the same connection is executed (including reads)</li>
+ * <li>any other method than parameter setters is called on the buffering statement</li>
+ * <li>a transaction boundary method of {@link java.sql.Connection} is called ({@code commit}, {@code setAutoCommit},
+ * {@code setSavepoint}, {@code releaseSavepoint}, {@code setTransactionIsolation}, {@code close}, {@code abort},
+ * and {@code rollback(Savepoint)}). {@code rollback()} discards the buffered writes</li>
+ * <li>the number of buffered writes reaches {@link #getMaxBatchSize()}</li>
+ * </ul>
+ *
+ * Since the actual update count is not known until flush, buffered {@code executeUpdate()} returns {@code 1}.
+ * When {@link #isVerifyUpdateCounts()} is {@code true}(default), flush throws {@link java.sql.BatchUpdateException} if
+ * any of the update counts is other than {@code 1} or {@link java.sql.Statement#SUCCESS_NO_INFO}.
+ * Also, errors of buffered writes such as constraint violations are reported by the method that triggered flush.
+ *
+ * Statements created with auto-generated keys, and executions with stream or reader parameters are not coalesced.
+ *
+ * @author Tadaya Tsuyukubo
+ * @see WriteCoalescer
+ * @since 1.4.11
+ */
+public class WriteCoalescing {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+    public static class Builder {
+        private List<Pattern> patterns = new ArrayList<Pattern>();
+        private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        private boolean verifyUpdateCounts = true;
+
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public WriteCoalescing build() {
+            if (this.patterns.isEmpty()) {
+                throw new IllegalStateException("At least one table or query pattern needs to be specified");
+            }
+            WriteCoalescing writeCoalescing = new WriteCoalescing();
+            writeCoalescing.patterns = Collections.unmodifiableList(new ArrayList<Pattern>(this.patterns));
+            writeCoalescing.maxBatchSize = this.maxBatchSize;
+            writeCoalescing.verifyUpdateCounts = this.verifyUpdateCounts;
+            return writeCoalescing;
+        }
+
+        /**
+         * Coalesce {@code INSERT INTO}, {@code UPDATE} and {@code DELETE FROM} on the given table.
+         *
+         * @param tableName table name. case insensitive
+         * @return builder
+         */
+        public Builder table(String tableName) {
+            String regex = "^\\s*(INSERT\\s+INTO|UPDATE|DELETE\\s+FROM)\\s+" + Pattern.quote(tableName) + "(\\s|\\(|$).*";
+            this.patterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL));
+            return this;
+        }
+
+        /**
+         * Coalesce queries that match the given pattern.
+         *
+         * @param queryPattern pattern to match the entire query
+         * @return builder
+         */
+        public Builder queryPattern(Pattern queryPattern) {
+            this.patterns.add(queryPattern);
+            return this;
+        }
+
+        /**
+         * Coalesce queries that match the given regular expression.
+         *
+         * @param regex regular expression to match the entire query. case insensitive
+         * @return builder
+         */
+        public Builder queryPattern(String regex) {
+            this.patterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL));
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("maxBatchSize must be positive but was " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder verifyUpdateCounts(boolean verifyUpdateCounts) {
+            this.verifyUpdateCounts = verifyUpdateCounts;
+            return this;
+        }
+    }
+
+    private List<Pattern> patterns;
+    private int maxBatchSize;
+    private boolean verifyUpdateCounts;
+
+    private WriteCoalescing() {
+    }
+
+    /**
+     * @param query query of prepared statement
+     * @return {@code true} if executions of the query can be coalesced
+     */
+    public boolean isTarget(String query) {
+        if (query == null) {
+            return false;
+        }
+        for (Pattern pattern : this.patterns) {
+            if (pattern.matcher(query).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Pattern> getPatterns() {
+        return this.patterns;
+    }
+
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    public boolean isVerifyUpdateCounts() {
+        return this.verifyUpdateCounts;
+    }
+
+}
@@ -1,9 +1,10 @@
 package net.ttddyy.dsproxy.proxy.jdk;
 
 import net.ttddyy.dsproxy.ConnectionInfo;
-import net.ttddyy.dsproxy.proxy.JdbcProxyFactory;
 import net.ttddyy.dsproxy.proxy.ProxyConfig;
 import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import net.ttddyy.dsproxy.proxy.QueryAwareJdbcProxyFactory;
+import net.ttddyy.dsproxy.proxy.ResultSetFetcher;
 import net.ttddyy.dsproxy.proxy.ResultSetProxyLogicFactory;
 
 import javax.sql.DataSource;
@@ -16,7 +17,7 @@ import java.sql.*;
  * @author Tadaya Tsuyukubo
  * @since 1.2
  */
-public class JdkJdbcProxyFactory implements JdbcProxyFactory {
+public class JdkJdbcProxyFactory implements QueryAwareJdbcProxyFactory {
 
     @Override
     public DataSource createDataSource(DataSource dataSource, ProxyConfig proxyConfig) {
@@ -63,15 +64,23 @@ public class JdkJdbcProxyFactory implements JdbcProxyFactory {
     public ResultSet createResultSet(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
         ResultSetProxyLogicFactory factory = proxyConfig.getResultSetProxyLogicFactory();
         return (ResultSet) Proxy.newProxyInstance(ProxyJdbcObject.class.getClassLoader(),
-                new Class[]{ProxyJdbcObject.class, ResultSet.class},
+                new Class[]{ProxyJdbcObject.class, ResultSet.class, ResultSetFetcher.class},
                 new ResultSetInvocationHandler(factory, resultSet, connectionInfo, proxyConfig));
     }
 
+    @Override
+    public ResultSet createResultSet(ResultSet resultSet, String query, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
+        ResultSetProxyLogicFactory factory = proxyConfig.getResultSetProxyLogicFactory();
+        return (ResultSet) Proxy.newProxyInstance(ProxyJdbcObject.class.getClassLoader(),
+                new Class[]{ProxyJdbcObject.class, ResultSet.class, ResultSetFetcher.class},
+                new ResultSetInvocationHandler(factory, resultSet, query, connectionInfo, proxyConfig));
+    }
+
     @Override
     public ResultSet createGeneratedKeys(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
         ResultSetProxyLogicFactory factory = proxyConfig.getGeneratedKeysProxyLogicFactory();
         return (ResultSet) Proxy.newProxyInstance(ProxyJdbcObject.class.getClassLoader(),
-                new Class[]{ProxyJdbcObject.class, ResultSet.class},
+                new Class[]{ProxyJdbcObject.class, ResultSet.class, ResultSetFetcher.class},
                 new ResultSetInvocationHandler(factory, resultSet, connectionInfo, proxyConfig));
     }
 
@@ -5,6 +5,8 @@ import net.ttddyy.dsproxy.ConnectionInfo;
 import net.ttddyy.dsproxy.DataSourceProxyException;
 import net.ttddyy.dsproxy.listener.MethodExecutionListenerUtils;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ConnectionLeakDetector;
+import net.ttddyy.dsproxy.proxy.ConnectionMetrics;
 import net.ttddyy.dsproxy.proxy.JdbcProxyFactory;
 import net.ttddyy.dsproxy.proxy.ProxyConfig;
 import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
@@ -60,17 +62,37 @@ public class ProxyDataSource implements DataSource, Closeable {
 
     @Override
     public Connection getConnection() throws SQLException {
-        final Connection conn = dataSource.getConnection();
-        return getConnectionProxy(conn, GET_CONNECTION_WITH_NO_ARGS, null);
+        ConnectionMetrics connectionMetrics = this.proxyConfig.getConnectionMetrics();
+        long acquisitionStart = connectionMetrics != null ? System.nanoTime() : 0;
+        final Connection conn;
+        try {
+            conn = dataSource.getConnection();
+        } catch (SQLException e) {
+            if (connectionMetrics != null) {
+                connectionMetrics.acquisitionFailed(System.nanoTime() - acquisitionStart);
+            }
+            throw e;
+        }
+        return getConnectionProxy(conn, GET_CONNECTION_WITH_NO_ARGS, null, acquisitionStart);
     }
 
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        final Connection conn = dataSource.getConnection(username, password);
-        return getConnectionProxy(conn, GET_CONNECTION_WITH_USER_PASS, new Object[]{username, password});
+        ConnectionMetrics connectionMetrics = this.proxyConfig.getConnectionMetrics();
+        long acquisitionStart = connectionMetrics != null ? System.nanoTime() : 0;
+        final Connection conn;
+        try {
+            conn = dataSource.getConnection(username, password);
+        } catch (SQLException e) {
+            if (connectionMetrics != null) {
+                connectionMetrics.acquisitionFailed(System.nanoTime() - acquisitionStart);
+            }
+            throw e;
+        }
+        return getConnectionProxy(conn, GET_CONNECTION_WITH_USER_PASS, new Object[]{username, password}, acquisitionStart);
     }
 
-    private Connection getConnectionProxy(final Connection conn, Method method, Object[] args) throws SQLException {
+    private Connection getConnectionProxy(final Connection conn, Method method, Object[] args, long acquisitionStart) throws SQLException {
         String dataSourceName = this.proxyConfig.getDataSourceName();
         ConnectionIdManager connectionIdManager = this.proxyConfig.getConnectionIdManager();
         final JdbcProxyFactory jdbcProxyFactory = this.proxyConfig.getJdbcProxyFactory();
@@ -81,14 +103,30 @@ public class ProxyDataSource implements DataSource, Closeable {
         connectionInfo.setConnectionId(connectionId);
         connectionInfo.setDataSourceName(dataSourceName);
 
+        ConnectionMetrics connectionMetrics = this.proxyConfig.getConnectionMetrics();
+        long acquisitionNanos = connectionMetrics != null ? System.nanoTime() - acquisitionStart : 0;
+
         try {
-            return (Connection) MethodExecutionListenerUtils.invoke(new MethodExecutionListenerUtils.MethodExecutionCallback() {
+            Connection proxyConnection = (Connection) MethodExecutionListenerUtils.invoke(new MethodExecutionListenerUtils.MethodExecutionCallback() {
                 @Override
                 public Object execute(Object proxy, Method method, Object[] args) throws Throwable {
                     return jdbcProxyFactory.createConnection(conn, connectionInfo, ProxyDataSource.this.proxyConfig);
                 }
             }, this.proxyConfig, this, connectionInfo, method, args);
+
+            // record after the proxy is created, so that a failure does not leave the connection open in the metrics
+            if (connectionMetrics != null) {
+                connectionMetrics.connectionAcquired(connectionInfo, acquisitionNanos);
+            }
+            ConnectionLeakDetector connectionLeakDetector = this.proxyConfig.getConnectionLeakDetector();
+            if (connectionLeakDetector != null) {
+                connectionLeakDetector.connectionAcquired(proxyConnection, connectionInfo);
+            }
+            return proxyConnection;
         } catch (Throwable throwable) {
+            if (connectionMetrics != null) {
+                connectionMetrics.acquisitionFailed(acquisitionNanos);
+            }
             if (throwable instanceof SQLException) {
                 throw (SQLException) throwable;
             } else {
@@ -131,6 +169,10 @@ public class ProxyDataSource implements DataSource, Closeable {
 
     @Override
     public void close() throws IOException {
+        ConnectionLeakDetector connectionLeakDetector = this.proxyConfig.getConnectionLeakDetector();
+        if (connectionLeakDetector != null) {
+            connectionLeakDetector.shutdown();
+        }
         if (dataSource instanceof Closeable) {
             ((Closeable) dataSource).close();
         }
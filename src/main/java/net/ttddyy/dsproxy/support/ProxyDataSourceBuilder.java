@@ -11,6 +11,8 @@ import net.ttddyy.dsproxy.listener.NoOpQueryExecutionListener;
 import net.ttddyy.dsproxy.listener.QueryCountStrategy;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 import net.ttddyy.dsproxy.listener.TracingMethodListener;
+import net.ttddyy.dsproxy.listener.TransactionListener;
+import net.ttddyy.dsproxy.listener.logging.BoundedParameterValueConverter;
 import net.ttddyy.dsproxy.listener.logging.CommonsLogLevel;
 import net.ttddyy.dsproxy.listener.logging.CommonsQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.CommonsSlowQueryListener;
@@ -18,18 +20,31 @@ import net.ttddyy.dsproxy.listener.logging.DefaultJsonQueryLogEntryCreator;
 import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
 import net.ttddyy.dsproxy.listener.logging.JULQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.JULSlowQueryListener;
+import net.ttddyy.dsproxy.listener.logging.ParameterValueConverter;
 import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
 import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.SLF4JSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.SystemOutQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.SystemOutSlowQueryListener;
+import net.ttddyy.dsproxy.proxy.BatchInsertRewriter;
+import net.ttddyy.dsproxy.proxy.ColumnMetadataCache;
+import net.ttddyy.dsproxy.proxy.CompactGeneratedKeys;
+import net.ttddyy.dsproxy.proxy.ConnectionLeakDetector;
+import net.ttddyy.dsproxy.proxy.ConnectionMetrics;
 import net.ttddyy.dsproxy.proxy.DefaultConnectionIdManager;
 import net.ttddyy.dsproxy.proxy.JdbcProxyFactory;
+import net.ttddyy.dsproxy.proxy.OpenResourceTracker;
+import net.ttddyy.dsproxy.proxy.PreparedStatementCache;
 import net.ttddyy.dsproxy.proxy.ProxyConfig;
 import net.ttddyy.dsproxy.proxy.RepeatableReadResultSetProxyLogicFactory;
 import net.ttddyy.dsproxy.proxy.ResultSetProxyLogicFactory;
+import net.ttddyy.dsproxy.proxy.WriteCoalescing;
+import net.ttddyy.dsproxy.transform.CachingQueryTransformer;
+import net.ttddyy.dsproxy.transform.InListPaddingTransformer;
+import net.ttddyy.dsproxy.transform.ParameterReplacer;
 import net.ttddyy.dsproxy.transform.ParameterTransformer;
 import net.ttddyy.dsproxy.transform.QueryTransformer;
+import net.ttddyy.dsproxy.transform.TransformInfo;
 
 import javax.sql.DataSource;
 import java.sql.Statement;
@@ -131,19 +146,33 @@ public class ProxyDataSourceBuilder {
 
     private ParameterTransformer parameterTransformer;
     private QueryTransformer queryTransformer;
+    private InListPaddingTransformer inListPaddingTransformer;
+    private int queryTransformerCacheSize;  // 0 if caching transformed queries is disabled
 
     private JdbcProxyFactory jdbcProxyFactory;
     private ConnectionIdManager connectionIdManager;
 
     private ResultSetProxyLogicFactory resultSetProxyLogicFactory;
+    private ColumnMetadataCache columnMetadataCache;
+    private WriteCoalescing writeCoalescing;
+    private BatchInsertRewriter batchInsertRewriter;
+    private PreparedStatementCache preparedStatementCache;
+    private int batchChunkSize;
+    private ConnectionMetrics connectionMetrics;
+    private ConnectionLeakDetector connectionLeakDetector;
+    private OpenResourceTracker openResourceTracker;
+    private boolean connectionStats;
+    private ParameterValueConverter parameterPreviewConverter;
 
     private boolean autoRetrieveGeneratedKeys;
     private Boolean retrieveGeneratedKeysForBatchStatement;
     private Boolean retrieveGeneratedKeysForBatchPreparedOrCallable;
     private boolean autoCloseGeneratedKeys;
+    private boolean compactGeneratedKeys;
     private ResultSetProxyLogicFactory generatedKeysProxyLogicFactory;
 
     private List<MethodExecutionListener> methodExecutionListeners = new ArrayList<MethodExecutionListener>();
+    private List<TransactionListener> transactionListeners = new ArrayList<TransactionListener>();
 
     public static ProxyDataSourceBuilder create() {
         return new ProxyDataSourceBuilder();
@@ -620,6 +649,53 @@ public class ProxyDataSourceBuilder {
         return this;
     }
 
+    /**
+     * Register {@link InListPaddingTransformer} as both query and parameter transformer.
+     *
+     * Pads the parameter list of {@code IN} clause to the next power of two, in order to reduce the number of
+     * distinct queries for the plan cache of the database and statement caches.
+     * When {@link QueryTransformer} or {@link ParameterTransformer} is also registered, padding is applied after them.
+     *
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder padInLists() {
+        this.inListPaddingTransformer = new InListPaddingTransformer();
+        return this;
+    }
+
+    /**
+     * Cache results of the registered {@link QueryTransformer} with default max size.
+     *
+     * @return builder
+     * @see #cacheTransformedQueries(int)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cacheTransformedQueries() {
+        return cacheTransformedQueries(CachingQueryTransformer.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Cache results of the registered {@link QueryTransformer}.
+     *
+     * The transformer is wrapped by {@link CachingQueryTransformer}, which requires the transformer to be pure: the
+     * result is determined only by statement class, datasource name, query and batch flag of
+     * {@link net.ttddyy.dsproxy.transform.TransformInfo}.
+     * Hit and miss counts are available from {@link CachingQueryTransformer} returned by
+     * {@link ProxyConfig#getQueryTransformer()}.
+     *
+     * @param maxSize max number of cached queries
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cacheTransformedQueries(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive but was " + maxSize);
+        }
+        this.queryTransformerCacheSize = maxSize;
+        return this;
+    }
+
     /**
      * Use multiline output for logging query.
      *
@@ -773,6 +849,25 @@ public class ProxyDataSourceBuilder {
         return this;
     }
 
+    /**
+     * Enable auto retrieval of generated keys that are eagerly read into {@link CompactGeneratedKeys}.
+     *
+     * Instead of keeping the generated-keys {@link java.sql.ResultSet} open with a proxy, all keys are read right after
+     * query execution and the original {@link java.sql.ResultSet} is closed. A single integral key column is kept as
+     * {@code long} array.
+     * Keys are available via {@link ExecutionInfo#getCompactGeneratedKeys()}. {@link ExecutionInfo#getGeneratedKeys()}
+     * and {@link Statement#getGeneratedKeys()} return a lightweight read-only view, which can be read repeatedly.
+     *
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder autoRetrieveCompactGeneratedKeys() {
+        this.autoRetrieveGeneratedKeys = true;
+        this.autoCloseGeneratedKeys = false;
+        this.compactGeneratedKeys = true;
+        return this;
+    }
+
     /**
      * Configure generated-keys retrieval for batch statement and prepared/callable when auto retrieval is enabled.
      *
@@ -809,6 +904,261 @@ public class ProxyDataSourceBuilder {
         return this;
     }
 
+    /**
+     * Enable caching {@link java.sql.ResultSet} column information per query with default max size.
+     *
+     * @return builder
+     * @see #cacheColumnMetadata(int)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cacheColumnMetadata() {
+        return cacheColumnMetadata(ColumnMetadataCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Enable caching {@link java.sql.ResultSet} column information per query.
+     *
+     * When it is enabled, resultset proxies that support it(e.g.: {@link RepeatableReadResultSetProxyLogicFactory})
+     * read {@link java.sql.ResultSetMetaData} once per distinct query of {@code executeQuery()} and reuse it for
+     * subsequent executions.
+     *
+     * @param maxSize max number of queries to cache
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cacheColumnMetadata(int maxSize) {
+        this.columnMetadataCache = new ColumnMetadataCache(maxSize);
+        return this;
+    }
+
+    /**
+     * Enable write coalescing.
+     *
+     * Consecutive {@link java.sql.PreparedStatement#executeUpdate()} calls of the configured queries in a transaction
+     * are buffered and executed as a batch. See {@link WriteCoalescing} for when buffered writes are flushed and how
+     * update counts are handled.
+     *
+     * <pre>
+     * {@code
+     * builder.coalesceWrites(WriteCoalescing.Builder.create().table("audit_log").maxBatchSize(200).build());
+     * }
+     * </pre>
+     *
+     * @param writeCoalescing write coalescing configuration
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder coalesceWrites(WriteCoalescing writeCoalescing) {
+        this.writeCoalescing = writeCoalescing;
+        return this;
+    }
+
+    /**
+     * Rewrite batch execution of a single-row insert into multi-row inserts with default max parameters.
+     *
+     * @return builder
+     * @see #rewriteBatchedInserts(int)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder rewriteBatchedInserts() {
+        return rewriteBatchedInserts(BatchInsertRewriter.DEFAULT_MAX_PARAMETERS);
+    }
+
+    /**
+     * Rewrite batch execution of a single-row insert into multi-row inserts.
+     *
+     * {@link java.sql.PreparedStatement#executeBatch()} of {@code INSERT INTO ... VALUES (?, ?)} is performed as
+     * {@code INSERT INTO ... VALUES (?, ?), (?, ?), ...} in chunks. See {@link BatchInsertRewriter} for conditions.
+     *
+     * @param maxParameters max number of parameters per multi-row insert
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder rewriteBatchedInserts(int maxParameters) {
+        this.batchInsertRewriter = new BatchInsertRewriter(maxParameters);
+        return this;
+    }
+
+    /**
+     * Enable caching {@link java.sql.PreparedStatement} per connection with default max size.
+     *
+     * @return builder
+     * @see #cachePreparedStatements(int)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cachePreparedStatements() {
+        return cachePreparedStatements(PreparedStatementCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Enable caching {@link java.sql.PreparedStatement} per connection.
+     *
+     * Closing a prepared statement returns it to the cache of its connection, and preparing the same query with the
+     * same options on the connection reuses it. Useful for drivers without statement caching.
+     * The cache is bound to the connection returned by {@code getConnection()} and idle statements are closed with the
+     * connection. Build the proxy on the driver's datasource and pool the proxy, so that the cache lives as long as the
+     * physical connection. When the proxy wraps a connection pool, each checkout starts with an empty cache.
+     * Hit, miss and eviction counts are available from {@link ProxyConfig#getPreparedStatementCache()}.
+     *
+     * @param maxSize max number of idle statements per connection
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder cachePreparedStatements(int maxSize) {
+        this.preparedStatementCache = new PreparedStatementCache(maxSize);
+        return this;
+    }
+
+    /**
+     * Send batch entries to the database in chunks.
+     *
+     * When the number of entries added by {@code addBatch()} reaches {@code maxBatchSize}, they are executed with
+     * {@code executeBatch()} on the actual statement while application keeps adding entries.
+     * On final {@code executeBatch()} by application, update counts of the executed chunks and the remaining entries
+     * are merged and returned.
+     *
+     * Query listeners receive an execution for each chunk. Executions of chunks executed during {@code addBatch()}
+     * return {@code true} for {@link net.ttddyy.dsproxy.ExecutionInfo#isBatchChunk()}, and the execution of the final
+     * {@code executeBatch()} provides the summary of the entire batch by
+     * {@link net.ttddyy.dsproxy.ExecutionInfo#getTotalBatchSize()} and
+     * {@link net.ttddyy.dsproxy.ExecutionInfo#getBatchChunkCount()}.
+     *
+     * Since chunks are executed before the final {@code executeBatch()}, {@code clearBatch()} only clears the entries
+     * not executed yet, and executed chunks can only be undone by rolling back the transaction.
+     * Statements prepared with auto-generated keys are not chunked, since {@code getGeneratedKeys()} only returns
+     * keys of the last execution.
+     *
+     * @param maxBatchSize max number of batch entries sent to the database at once
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder chunkBatch(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive but was " + maxBatchSize);
+        }
+        this.batchChunkSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Enable connection acquisition and hold time metrics.
+     *
+     * Time spent in {@code getConnection()} of the actual datasource and time until {@code close()} of each connection
+     * are recorded into histograms, and currently checked-out connections are tracked.
+     * Metrics are available from {@link ProxyConfig#getConnectionMetrics()}.
+     *
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder measureConnections() {
+        this.connectionMetrics = new ConnectionMetrics();
+        return this;
+    }
+
+    /**
+     * Enable connection leak detection that logs leaks by JUL.
+     *
+     * @param threshold         report connections held longer than this
+     * @param thresholdTimeUnit time unit of threshold
+     * @return builder
+     * @see #detectConnectionLeaks(ConnectionLeakDetector)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder detectConnectionLeaks(long threshold, TimeUnit thresholdTimeUnit) {
+        return detectConnectionLeaks(new ConnectionLeakDetector(threshold, thresholdTimeUnit));
+    }
+
+    /**
+     * Enable connection leak detection.
+     *
+     * Connections held longer than the threshold and connection proxies garbage collected without {@code close()}
+     * are reported with the stack trace of acquisition, which is recorded at the sampling interval of the detector.
+     *
+     * @param connectionLeakDetector leak detector
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder detectConnectionLeaks(ConnectionLeakDetector connectionLeakDetector) {
+        this.connectionLeakDetector = connectionLeakDetector;
+        return this;
+    }
+
+    /**
+     * Enable tracking of open statements and result sets per connection, that logs resources left open at connection
+     * close by JUL.
+     *
+     * @return builder
+     * @see #trackOpenResources(OpenResourceTracker)
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder trackOpenResources() {
+        return trackOpenResources(new OpenResourceTracker());
+    }
+
+    /**
+     * Enable tracking of open statements and result sets per connection.
+     *
+     * When a connection is closed with statements or result sets that are not closed, they are reported with the
+     * creation sites of the oldest ones. Created and leaked counts are available from
+     * {@link ProxyConfig#getOpenResourceTracker()}, and open counts of a connection from
+     * {@link net.ttddyy.dsproxy.ConnectionInfo#getOpenResources()}.
+     *
+     * @param openResourceTracker tracker
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder trackOpenResources(OpenResourceTracker openResourceTracker) {
+        this.openResourceTracker = openResourceTracker;
+        return this;
+    }
+
+    /**
+     * Enable per-connection stats.
+     *
+     * Query count, rows fetched and affected, time spent in the database, statement count and last activity time are
+     * kept on each connection, and readable from any thread with
+     * {@link net.ttddyy.dsproxy.ConnectionInfo#getStats()}. Rows fetched are counted only when result set proxy is
+     * enabled.
+     *
+     * @return builder
+     * @see net.ttddyy.dsproxy.ConnectionStats
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder collectConnectionStats() {
+        this.connectionStats = true;
+        return this;
+    }
+
+    /**
+     * Keep display values of batch parameters instead of the original values.
+     *
+     * Parameters of each batch entry are kept until the batch is executed, in order to pass them to query listeners.
+     * With this option, values such as large strings, byte arrays and streams are converted by
+     * {@link BoundedParameterValueConverter} when the entry is added, and the original values can be garbage collected.
+     * Listeners then see them as {@link net.ttddyy.dsproxy.proxy.ParameterSetOperation#isPreview() preview}
+     * operations holding only the parameter key and the display value. Not applied when batch insert rewrite is enabled,
+     * since it sets the parameters again.
+     *
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder captureParameterPreview() {
+        return captureParameterPreview(new BoundedParameterValueConverter());
+    }
+
+    /**
+     * Keep display values of batch parameters converted by the given converter instead of the original values.
+     *
+     * @param parameterPreviewConverter converter for parameter values
+     * @return builder
+     * @see #captureParameterPreview()
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder captureParameterPreview(ParameterValueConverter parameterPreviewConverter) {
+        this.parameterPreviewConverter = parameterPreviewConverter;
+        return this;
+    }
+
     /**
      * Add {@link MethodExecutionListener}.
      *
@@ -857,6 +1207,22 @@ public class ProxyDataSourceBuilder {
         return this;
     }
 
+    /**
+     * Add {@link TransactionListener} that receives a summary of each transaction.
+     *
+     * Transactions are tracked while auto-commit is disabled, and per-transaction number of queries, time spent in
+     * the database, idle time between queries, rows affected and outcome are reported at
+     * {@code commit()}, {@code rollback()}, {@code setAutoCommit(true)} or {@code close()}.
+     *
+     * @param listener a transaction listener
+     * @return builder
+     * @since 1.4.11
+     */
+    public ProxyDataSourceBuilder transactionListener(TransactionListener listener) {
+        this.transactionListeners.add(listener);
+        return this;
+    }
+
     /**
      * Enable {@link TracingMethodListener}.
      *
@@ -982,11 +1348,23 @@ public class ProxyDataSourceBuilder {
             proxyConfigBuilder.methodListener(methodListener);
         }
 
-        if (this.queryTransformer != null) {
-            proxyConfigBuilder.queryTransformer(this.queryTransformer);
+        for (TransactionListener transactionListener : this.transactionListeners) {
+            proxyConfigBuilder.transactionListener(transactionListener);
         }
-        if (this.parameterTransformer != null) {
-            proxyConfigBuilder.parameterTransformer(this.parameterTransformer);
+
+        QueryTransformer queryTransformer = this.queryTransformer;
+        ParameterTransformer parameterTransformer = this.parameterTransformer;
+        if (this.inListPaddingTransformer != null) {
+            queryTransformer = composeQueryTransformers(queryTransformer, this.inListPaddingTransformer);
+            parameterTransformer = composeParameterTransformers(parameterTransformer, this.inListPaddingTransformer);
+        }
+        if (queryTransformer != null && this.queryTransformerCacheSize > 0) {
+            proxyConfigBuilder.queryTransformer(new CachingQueryTransformer(queryTransformer, this.queryTransformerCacheSize));
+        } else if (queryTransformer != null) {
+            proxyConfigBuilder.queryTransformer(queryTransformer);
+        }
+        if (parameterTransformer != null) {
+            proxyConfigBuilder.parameterTransformer(parameterTransformer);
         }
 
 
@@ -1011,6 +1389,24 @@ public class ProxyDataSourceBuilder {
 
         // this can be null if creation of resultset proxy is disabled
         proxyConfigBuilder.resultSetProxyLogicFactory(this.resultSetProxyLogicFactory);
+        // this can be null if column metadata cache is disabled
+        proxyConfigBuilder.columnMetadataCache(this.columnMetadataCache);
+        // this can be null if write coalescing is disabled
+        proxyConfigBuilder.writeCoalescing(this.writeCoalescing);
+        // this can be null if batch insert rewrite is disabled
+        proxyConfigBuilder.batchInsertRewriter(this.batchInsertRewriter);
+        // this can be null if prepared statement cache is disabled
+        proxyConfigBuilder.preparedStatementCache(this.preparedStatementCache);
+        proxyConfigBuilder.batchChunkSize(this.batchChunkSize);
+        // this can be null if connection metrics are disabled
+        proxyConfigBuilder.connectionMetrics(this.connectionMetrics);
+        // this can be null if connection leak detection is disabled
+        proxyConfigBuilder.connectionLeakDetector(this.connectionLeakDetector);
+        // this can be null if open resource tracking is disabled
+        proxyConfigBuilder.openResourceTracker(this.openResourceTracker);
+        proxyConfigBuilder.connectionStats(this.connectionStats);
+        // this can be null if parameter preview is disabled
+        proxyConfigBuilder.parameterPreviewConverter(this.parameterPreviewConverter);
 
         // generated keys
         proxyConfigBuilder.autoRetrieveGeneratedKeys(this.autoRetrieveGeneratedKeys);
@@ -1021,6 +1417,7 @@ public class ProxyDataSourceBuilder {
             proxyConfigBuilder.retrieveGeneratedKeysForBatchPreparedOrCallable(this.retrieveGeneratedKeysForBatchPreparedOrCallable);
         }
         proxyConfigBuilder.autoCloseGeneratedKeys(this.autoCloseGeneratedKeys);
+        proxyConfigBuilder.compactGeneratedKeys(this.compactGeneratedKeys);
         // this can be null if creation of generated keys proxy is disabled
         proxyConfigBuilder.generatedKeysProxyLogicFactory(this.generatedKeysProxyLogicFactory);
 
@@ -1154,6 +1551,34 @@ public class ProxyDataSourceBuilder {
         return entryCreator;
     }
 
+    private static QueryTransformer composeQueryTransformers(final QueryTransformer first, final QueryTransformer second) {
+        if (first == null) {
+            return second;
+        }
+        return new QueryTransformer() {
+            @Override
+            public String transformQuery(TransformInfo transformInfo) {
+                String query = first.transformQuery(transformInfo);
+                TransformInfo next = new TransformInfo(transformInfo.getClazz(), transformInfo.getDataSourceName(),
+                        query, transformInfo.isBatch(), transformInfo.getCount());
+                return second.transformQuery(next);
+            }
+        };
+    }
+
+    private static ParameterTransformer composeParameterTransformers(final ParameterTransformer first, final ParameterTransformer second) {
+        if (first == null) {
+            return second;
+        }
+        return new ParameterTransformer() {
+            @Override
+            public void transformParameters(ParameterReplacer replacer, TransformInfo transformInfo) {
+                first.transformParameters(replacer, transformInfo);
+                second.transformParameters(replacer, transformInfo);
+            }
+        };
+    }
+
     private TracingMethodListener buildTracingMethodListenr() {
         TracingMethodListener listener = new TracingMethodListener();
         if (this.tracingMessageConsumer != null) {
@@ -0,0 +1,82 @@
+package net.ttddyy.dsproxy.support;
+
+import net.ttddyy.dsproxy.QueryBudget;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servlet filter to open a {@link QueryBudget} for each http request.
+ *
+ * Budget is enforced by {@link net.ttddyy.dsproxy.listener.QueryBudgetListener} registered to the datasource.
+ * Limits are specified by filter parameters <em>maxQueries</em>, <em>maxTime</em>(in millis) and <em>maxRows</em>.
+ * Unspecified limits are not enforced.
+ *
+ * <pre>
+ * {@code
+ *   <filter>
+ *     <filter-name>queryBudget</filter-name>
+ *     <filter-class>net.ttddyy.dsproxy.support.QueryBudgetFilter</filter-class>
+ *     <init-param>
+ *       <param-name>maxQueries</param-name>
+ *       <param-value>100</param-value>
+ *     <init-param>
+ *     <init-param>
+ *       <param-name>maxTime</param-name>
+ *       <param-value>2000</param-value>
+ *     <init-param>
+ *   </filter>
+ * }
+ * </pre>
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class QueryBudgetFilter implements Filter {
+    public static final String MAX_QUERIES_PARAM = "maxQueries";
+    public static final String MAX_TIME_PARAM = "maxTime";
+    public static final String MAX_ROWS_PARAM = "maxRows";
+
+    protected QueryBudget budget = QueryBudget.create();
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String maxQueries = filterConfig.getInitParameter(MAX_QUERIES_PARAM);
+        if (maxQueries != null) {
+            this.budget.maxQueries(Integer.parseInt(maxQueries.trim()));
+        }
+        String maxTime = filterConfig.getInitParameter(MAX_TIME_PARAM);
+        if (maxTime != null) {
+            this.budget.maxTime(Long.parseLong(maxTime.trim()), TimeUnit.MILLISECONDS);
+        }
+        String maxRows = filterConfig.getInitParameter(MAX_ROWS_PARAM);
+        if (maxRows != null) {
+            this.budget.maxRows(Long.parseLong(maxRows.trim()));
+        }
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        QueryBudget.Scope scope = this.budget.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            scope.close();
+        }
+    }
+
+    public void destroy() {
+    }
+
+    public QueryBudget getBudget() {
+        return this.budget;
+    }
+
+    public void setBudget(QueryBudget budget) {
+        this.budget = budget;
+    }
+}
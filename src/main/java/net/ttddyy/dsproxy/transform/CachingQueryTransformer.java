@@ -0,0 +1,123 @@
+package net.ttddyy.dsproxy.transform;
+
+import net.ttddyy.dsproxy.proxy.BoundedCache;
+
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link QueryTransformer} that caches results of the delegating transformer.
+ *
+ * Results are keyed by statement class, datasource name, query and batch flag of {@link TransformInfo}.
+ * {@link TransformInfo#getCount()} is not part of the key. Therefore, the delegating transformer must be pure: it
+ * must always return the same query for the same key, and must not rely on side effects.
+ * When number of entries exceeds the max size, least recently used entries are evicted.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class CachingQueryTransformer implements QueryTransformer {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static class CacheKey {
+        private final Class<? extends Statement> clazz;
+        private final String dataSourceName;
+        private final String query;
+        private final boolean isBatch;
+        private final int hash;
+
+        private CacheKey(TransformInfo transformInfo) {
+            this.clazz = transformInfo.getClazz();
+            this.dataSourceName = transformInfo.getDataSourceName();
+            this.query = transformInfo.getQuery();
+            this.isBatch = transformInfo.isBatch();
+
+            int result = this.clazz != null ? this.clazz.hashCode() : 0;
+            result = 31 * result + (this.dataSourceName != null ? this.dataSourceName.hashCode() : 0);
+            result = 31 * result + this.query.hashCode();
+            result = 31 * result + (this.isBatch ? 1 : 0);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return this.hash == that.hash
+                    && this.isBatch == that.isBatch
+                    && this.clazz == that.clazz
+                    && (this.dataSourceName != null ? this.dataSourceName.equals(that.dataSourceName) : that.dataSourceName == null)
+                    && this.query.equals(that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private final QueryTransformer delegate;
+    private final BoundedCache<CacheKey, String> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CachingQueryTransformer(QueryTransformer delegate) {
+        this(delegate, DEFAULT_MAX_SIZE);
+    }
+
+    public CachingQueryTransformer(QueryTransformer delegate, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new BoundedCache<CacheKey, String>(maxSize);
+    }
+
+    @Override
+    public String transformQuery(TransformInfo transformInfo) {
+        if (transformInfo.getQuery() == null) {
+            return this.delegate.transformQuery(transformInfo);
+        }
+
+        CacheKey key = new CacheKey(transformInfo);
+        String transformed = this.cache.get(key);
+        if (transformed != null) {
+            this.hitCount.incrementAndGet();
+            return transformed;
+        }
+        this.missCount.incrementAndGet();
+        transformed = this.delegate.transformQuery(transformInfo);
+        if (transformed != null) {
+            this.cache.put(key, transformed);
+        }
+        return transformed;
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    public QueryTransformer getDelegate() {
+        return this.delegate;
+    }
+
+    public int getMaxSize() {
+        return this.cache.getMaxSize();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+}
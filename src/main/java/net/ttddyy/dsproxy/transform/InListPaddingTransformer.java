@@ -0,0 +1,286 @@
+package net.ttddyy.dsproxy.transform;
+
+import net.ttddyy.dsproxy.proxy.BoundedCache;
+import net.ttddyy.dsproxy.proxy.ParameterKey;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLXML;
+import java.sql.Types;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pad the parameter list of {@code IN} clause to reduce the number of distinct queries.
+ *
+ * ORMs generate {@code IN (?, ?, ..., ?)} of every length, which produces as many distinct queries and floods the
+ * plan cache on the database and statement caches. This transformer pads the list to the next power of two, such as
+ * {@code id IN (?, ?, ?)} to {@code id IN (?, ?, ?, ?)}, and sets the last bound value of the list to the padded
+ * parameters. The result of the query does not change since {@code IN} ignores duplicated values.
+ * When the last value is a stream, reader or LOB, which cannot be bound more than once, the padded parameters are set
+ * to {@code NULL} of the corresponding sql type instead. {@code NULL} never matches in {@code IN}.
+ *
+ * This class needs to be registered as both {@link QueryTransformer} and {@link ParameterTransformer}:
+ * <pre>{@code
+ * InListPaddingTransformer transformer = new InListPaddingTransformer();
+ * builder.queryTransformer(transformer).parameterTransformer(transformer);
+ * }</pre>
+ *
+ * Limitation: only a single {@code IN} list is padded. Queries of {@link PreparedStatement} with exactly one
+ * {@code IN} clause consisting of parameter placeholders are padded, and only when the list holds the last placeholders
+ * of the query and all parameters are set by index. e.g. {@code id IN (?, ?, ?) AND name IN (?, ?)} and
+ * {@code id IN (?, ?, ?) AND name = ?} are not padded.
+ * With multiple {@code IN} clauses, the original length of each list cannot be determined from the padded query.
+ * Also, since parameter setters are passed to the driver as called, shifting the parameters following the list to
+ * other indexes may fail on drivers that validate the value type on set. Other queries are left unchanged.
+ * Padded size does not exceed {@link #getMaxPaddedSize()}.
+ *
+ * Parsed query shapes are cached up to {@link #getMaxCacheSize()} queries, so that transforming a known query is a
+ * single cache lookup. Least recently used shapes are evicted. When the shape of a padded query has been evicted
+ * before its parameters are transformed, it is parsed again from the padded query.
+ *
+ * @author Tadaya Tsuyukubo
+ * @since 1.4.11
+ */
+public class InListPaddingTransformer implements QueryTransformer, ParameterTransformer {
+
+    public static final int DEFAULT_MAX_PADDED_SIZE = 1000;
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+    private static final Pattern IN_LIST_PATTERN = Pattern.compile("\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Padded {@code IN} list at the end of parameters in a query.
+     */
+    private static class InListShape {
+        private final String paddedQuery;
+        private final int paddedSize;
+        private final int parameterCount;  // number of parameters in padded query
+
+        private InListShape(String paddedQuery, int paddedSize, int parameterCount) {
+            this.paddedQuery = paddedQuery;
+            this.paddedSize = paddedSize;
+            this.parameterCount = parameterCount;
+        }
+    }
+
+    // marker for queries not to pad
+    private static final InListShape NO_PADDING = new InListShape(null, 0, 0);
+
+    private final int maxPaddedSize;
+    private final int maxCacheSize;
+
+    // original query to shape, and padded query to shape
+    private final BoundedCache<String, InListShape> shapes;
+    private final BoundedCache<String, InListShape> paddedShapes;
+
+    public InListPaddingTransformer() {
+        this(DEFAULT_MAX_PADDED_SIZE, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxPaddedSize max number of parameters in padded {@code IN} list
+     * @param maxCacheSize  max number of queries to cache their shapes
+     */
+    public InListPaddingTransformer(int maxPaddedSize, int maxCacheSize) {
+        if (maxPaddedSize <= 0) {
+            throw new IllegalArgumentException("maxPaddedSize must be positive but was " + maxPaddedSize);
+        }
+        this.maxPaddedSize = maxPaddedSize;
+        this.maxCacheSize = maxCacheSize;
+        this.shapes = new BoundedCache<String, InListShape>(maxCacheSize);
+        this.paddedShapes = new BoundedCache<String, InListShape>(maxCacheSize);
+    }
+
+    @Override
+    public String transformQuery(TransformInfo transformInfo) {
+        String query = transformInfo.getQuery();
+        if (transformInfo.getClazz() != PreparedStatement.class || query == null) {
+            return query;
+        }
+
+        InListShape shape = this.shapes.get(query);
+        if (shape == null) {
+            shape = parse(query);
+            this.shapes.put(query, shape);
+            if (shape != NO_PADDING) {
+                this.paddedShapes.put(shape.paddedQuery, shape);
+            }
+        }
+        return shape == NO_PADDING ? query : shape.paddedQuery;
+    }
+
+    @Override
+    public void transformParameters(ParameterReplacer replacer, TransformInfo transformInfo) {
+        String query = transformInfo.getQuery();
+        if (query == null) {
+            return;
+        }
+        InListShape shape = this.paddedShapes.get(query);
+        if (shape == null) {
+            shape = parsePadded(query);
+            this.paddedShapes.put(query, shape);
+        }
+        if (shape == NO_PADDING) {
+            return;
+        }
+
+        // parameters are set with the indexes of the original query
+        int parameterCount = 0;
+        for (ParameterKey key : replacer.getModifiedParameters().keySet()) {
+            if (!key.isByIndex()) {
+                return;
+            }
+            parameterCount = Math.max(parameterCount, key.getIndex());
+        }
+        int paddingCount = shape.parameterCount - parameterCount;
+        if (paddingCount <= 0 || paddingCount >= shape.paddedSize) {
+            return;  // not padded, or parameters are not fully set
+        }
+
+        // fill the padded parameters with the last element, or null when it cannot be bound more than once
+        Integer nullType = getNullTypeForPadding(replacer.getModifiedParameters().get(new ParameterKey(parameterCount)));
+        for (int index = parameterCount + 1; index <= shape.parameterCount; index++) {
+            if (nullType != null) {
+                replacer.setNull(index, nullType);
+            } else {
+                replacer.copyParameter(parameterCount, index);
+            }
+        }
+    }
+
+    /**
+     * @return sql type to pad with {@code NULL} when the value is a stream, reader or LOB. {@code null} to repeat
+     * the value
+     */
+    private static Integer getNullTypeForPadding(ParameterSetOperation operation) {
+        Object[] args = operation.getArgs();
+        if (args.length < 2) {
+            return null;
+        }
+        Object value = args[1];
+        String methodName = operation.getMethod() != null ? operation.getMethod().getName() : "";
+        if (value instanceof InputStream) {
+            if ("setBlob".equals(methodName)) {
+                return Types.BLOB;
+            } else if ("setAsciiStream".equals(methodName) || "setUnicodeStream".equals(methodName)) {
+                return Types.LONGVARCHAR;
+            }
+            return Types.LONGVARBINARY;
+        } else if (value instanceof Reader) {
+            if ("setClob".equals(methodName)) {
+                return Types.CLOB;
+            } else if ("setNClob".equals(methodName)) {
+                return Types.NCLOB;
+            } else if ("setNCharacterStream".equals(methodName)) {
+                return Types.LONGNVARCHAR;
+            }
+            return Types.LONGVARCHAR;
+        } else if (value instanceof Blob) {
+            return Types.BLOB;
+        } else if (value instanceof NClob) {
+            return Types.NCLOB;
+        } else if (value instanceof Clob) {
+            return Types.CLOB;
+        } else if (value instanceof SQLXML) {
+            return Types.SQLXML;
+        }
+        return null;
+    }
+
+    private InListShape parse(String query) {
+        Matcher matcher = findInList(query);
+        if (matcher == null) {
+            return NO_PADDING;
+        }
+        int start = matcher.start();
+        int end = matcher.end();
+
+        String inList = query.substring(start, end);
+        int size = countPlaceholders(inList);
+        int paddedSize = Integer.highestOneBit(size);
+        if (paddedSize < size) {
+            paddedSize <<= 1;
+        }
+        paddedSize = Math.min(paddedSize, this.maxPaddedSize);
+        if (paddedSize <= size) {
+            return NO_PADDING;
+        }
+
+        StringBuilder sb = new StringBuilder(query.length() + (paddedSize - size) * 3);
+        sb.append(query, 0, start);
+        sb.append("IN (");
+        for (int i = 0; i < paddedSize; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("?");
+        }
+        sb.append(")");
+        sb.append(query, end, query.length());
+        int parameterCount = countPlaceholders(query) + paddedSize - size;
+        return new InListShape(sb.toString(), paddedSize, parameterCount);
+    }
+
+    /**
+     * Re-create the shape from a padded query, whose list size is a power of two or the max padded size.
+     */
+    private InListShape parsePadded(String query) {
+        Matcher matcher = findInList(query);
+        if (matcher == null) {
+            return NO_PADDING;
+        }
+        int paddedSize = countPlaceholders(query.substring(matcher.start(), matcher.end()));
+        if (paddedSize < 2 || (Integer.bitCount(paddedSize) != 1 && paddedSize != this.maxPaddedSize)) {
+            return NO_PADDING;
+        }
+        return new InListShape(query, paddedSize, countPlaceholders(query));
+    }
+
+    /**
+     * @return matcher positioned at the only {@code IN} list holding the last placeholders, or {@code null}
+     */
+    private static Matcher findInList(String query) {
+        Matcher matcher = IN_LIST_PATTERN.matcher(query);
+        if (!matcher.find()) {
+            return null;
+        }
+        int end = matcher.end();
+        if (countPlaceholders(query.substring(end)) > 0) {
+            return null;  // parameters follow the list
+        }
+        Matcher other = IN_LIST_PATTERN.matcher(query);
+        if (other.find(end)) {
+            return null;  // multiple lists
+        }
+        return matcher;
+    }
+
+    private static int countPlaceholders(String query) {
+        int count = 0;
+        boolean inLiteral = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            } else if (c == '?' && !inLiteral) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getMaxPaddedSize() {
+        return this.maxPaddedSize;
+    }
+
+    public int getMaxCacheSize() {
+        return this.maxCacheSize;
+    }
+
+}
@@ -0,0 +1,163 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class BatchChunkingTest {
+
+    private JDBCDataSource actualDataSource;
+    private DataSource dataSource;
+    private List<ExecutionInfo> executions = new ArrayList<ExecutionInfo>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:batchChunking");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE chunk_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        connection.close();
+
+        this.dataSource = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .afterQuery(new ProxyDataSourceBuilder.SingleQueryExecution() {
+                    @Override
+                    public void execute(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        executions.add(execInfo);
+                    }
+                })
+                .chunkBatch(10)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void preparedStatement() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO chunk_emp (id, name) VALUES (?, ?)");
+        for (int i = 0; i < 25; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "name-" + i);
+            ps.addBatch();
+        }
+        assertThat(this.executions).as("two chunks are executed by addBatch").hasSize(2);
+        assertThat(TestUtils.countTable(this.actualDataSource, "chunk_emp")).isEqualTo(20);
+
+        int[] updateCounts = ps.executeBatch();
+        assertThat(updateCounts).hasSize(25);
+        for (int updateCount : updateCounts) {
+            assertThat(updateCount).isEqualTo(1);
+        }
+        assertThat(TestUtils.countTable(this.actualDataSource, "chunk_emp")).isEqualTo(25);
+
+        assertThat(this.executions).hasSize(3);
+        for (int i = 0; i < 2; i++) {
+            ExecutionInfo chunk = this.executions.get(i);
+            assertThat(chunk.isBatchChunk()).isTrue();
+            assertThat(chunk.getBatchSize()).isEqualTo(10);
+            assertThat(chunk.getTotalBatchSize()).isEqualTo(10);
+            assertThat(chunk.getBatchChunkCount()).isEqualTo(1);
+        }
+        ExecutionInfo last = this.executions.get(2);
+        assertThat(last.isBatchChunk()).isFalse();
+        assertThat(last.getBatchSize()).isEqualTo(5);
+        assertThat(last.getTotalBatchSize()).isEqualTo(25);
+        assertThat(last.getBatchChunkCount()).isEqualTo(3);
+        assertThat((int[]) last.getResult()).hasSize(25);
+
+        // next batch starts from scratch
+        this.executions.clear();
+        ps.setInt(1, 100);
+        ps.setString(2, "name");
+        ps.addBatch();
+        assertThat(ps.executeBatch()).containsExactly(1);
+        assertThat(this.executions.get(0).getBatchChunkCount()).isEqualTo(1);
+
+        connection.close();
+    }
+
+    @Test
+    public void statement() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        for (int i = 0; i < 10; i++) {
+            statement.addBatch("INSERT INTO chunk_emp (id, name) VALUES (" + i + ", 'name')");
+        }
+        assertThat(this.executions).hasSize(1);
+
+        int[] updateCounts = statement.executeBatch();
+        assertThat(updateCounts).hasSize(10);
+        assertThat(this.executions).hasSize(2);
+        assertThat(this.executions.get(1).getBatchSize()).isEqualTo(0);
+        assertThat(this.executions.get(1).getTotalBatchSize()).isEqualTo(10);
+        assertThat(TestUtils.countTable(this.actualDataSource, "chunk_emp")).isEqualTo(10);
+
+        connection.close();
+    }
+
+    @Test
+    public void noChunkingWithGeneratedKeys() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO chunk_emp (id, name) VALUES (?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+        for (int i = 0; i < 15; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "name-" + i);
+            ps.addBatch();
+        }
+        assertThat(this.executions).as("keys of chunks would be lost").isEmpty();
+
+        assertThat(ps.executeBatch()).hasSize(15);
+        assertThat(this.executions).hasSize(1);
+        assertThat(this.executions.get(0).getBatchSize()).isEqualTo(15);
+        assertThat(this.executions.get(0).getBatchChunkCount()).isEqualTo(1);
+
+        connection.close();
+    }
+
+    @Test
+    public void failureInChunk() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO chunk_emp (id, name) VALUES (?, ?)");
+        try {
+            for (int i = 0; i < 20; i++) {
+                ps.setInt(1, i == 15 ? 0 : i);  // duplicate key in the second chunk
+                ps.setString(2, "name");
+                ps.addBatch();
+            }
+            fail("BatchUpdateException should be thrown");
+        } catch (BatchUpdateException e) {
+            int[] updateCounts = e.getUpdateCounts();
+            assertThat(updateCounts.length).as("contains update counts of the first chunk").isGreaterThanOrEqualTo(10);
+        }
+
+        // clearBatch discards executed chunks
+        ps.clearBatch();
+        ps.setInt(1, 100);
+        ps.setString(2, "name");
+        ps.addBatch();
+        assertThat(ps.executeBatch()).containsExactly(1);
+
+        connection.close();
+    }
+
+}
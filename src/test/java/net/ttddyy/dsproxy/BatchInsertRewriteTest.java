@@ -0,0 +1,83 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class BatchInsertRewriteTest {
+
+    private JDBCDataSource actualDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:batchInsertRewrite");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE rewrite_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void rewriteBatchInsert() throws Exception {
+        final List<QueryInfo> executedQueries = new ArrayList<QueryInfo>();
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .afterQuery(new ProxyDataSourceBuilder.SingleQueryExecution() {
+                    @Override
+                    public void execute(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        executedQueries.addAll(queryInfoList);
+                    }
+                })
+                .rewriteBatchedInserts(20)
+                .build();
+
+        Connection connection = dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO rewrite_emp (id, name) VALUES (?, ?)");
+        for (int i = 0; i < 25; i++) {
+            ps.setInt(1, i);
+            if (i % 2 == 0) {
+                ps.setNull(2, java.sql.Types.VARCHAR);
+            } else {
+                ps.setString(2, "name-" + i);
+            }
+            ps.addBatch();
+        }
+        int[] updateCounts = ps.executeBatch();
+
+        assertThat(updateCounts).hasSize(25).containsOnly(1);
+        assertThat(TestUtils.countTable(this.actualDataSource, "rewrite_emp")).isEqualTo(25);
+        assertThat(executedQueries).hasSize(1);
+        assertThat(executedQueries.get(0).getQuery()).isEqualTo("INSERT INTO rewrite_emp (id, name) VALUES (?, ?)");
+        assertThat(executedQueries.get(0).getParametersList()).hasSize(25);
+
+        // the statement is reusable
+        ps.setInt(1, 100);
+        ps.setString(2, "foo");
+        ps.addBatch();
+        ps.setInt(1, 101);
+        ps.setString(2, "bar");
+        ps.addBatch();
+        assertThat(ps.executeBatch()).containsExactly(1, 1);
+        assertThat(TestUtils.countTable(this.actualDataSource, "rewrite_emp")).isEqualTo(27);
+
+        connection.close();
+    }
+
+}
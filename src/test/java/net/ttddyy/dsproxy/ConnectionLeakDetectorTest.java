@@ -0,0 +1,139 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.proxy.ConnectionLeakDetector;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class ConnectionLeakDetectorTest {
+
+    private JDBCDataSource actualDataSource;
+    private List<ConnectionLeakDetector.Leak> leaks = new CopyOnWriteArrayList<ConnectionLeakDetector.Leak>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:connectionLeak");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    private ConnectionLeakDetector createDetector(long thresholdInMillis, int stackTraceSamplingInterval) {
+        return new ConnectionLeakDetector(thresholdInMillis, TimeUnit.MILLISECONDS, stackTraceSamplingInterval) {
+            @Override
+            protected void onLeak(Leak leak) {
+                leaks.add(leak);
+            }
+        };
+    }
+
+    @Test
+    public void heldTooLong() throws Exception {
+        ConnectionLeakDetector detector = createDetector(1000000, 2);  // sweep manually
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).name("myDS").detectConnectionLeaks(detector).build();
+
+        Connection first = ds.getConnection();
+        Connection second = ds.getConnection();
+        Connection closed = ds.getConnection();
+        closed.close();
+        assertThat(detector.getTrackedConnectionCount()).isEqualTo(2);
+
+        detector.sweep();
+        assertThat(this.leaks).as("within threshold").isEmpty();
+
+        ConnectionLeakDetector shortThreshold = createDetector(10, 2);
+        ds = ProxyDataSourceBuilder.create(this.actualDataSource).name("myDS").detectConnectionLeaks(shortThreshold).build();
+        Connection sampled = ds.getConnection();
+        Connection notSampled = ds.getConnection();
+        Thread.sleep(20);
+        shortThreshold.sweep();
+
+        assertThat(this.leaks).hasSize(2);
+        for (ConnectionLeakDetector.Leak leak : this.leaks) {
+            assertThat(leak.getKind()).isEqualTo(ConnectionLeakDetector.Leak.Kind.HELD_TOO_LONG);
+            assertThat(leak.getDataSourceName()).isEqualTo("myDS");
+            assertThat(leak.getHeldTime()).isGreaterThanOrEqualTo(10);
+        }
+        int sampledCount = 0;
+        for (ConnectionLeakDetector.Leak leak : this.leaks) {
+            if (leak.getStackTrace() != null) {
+                sampledCount++;
+            }
+        }
+        assertThat(sampledCount).as("one out of two acquisitions is sampled").isEqualTo(1);
+
+        // reported once
+        shortThreshold.sweep();
+        assertThat(this.leaks).hasSize(2);
+
+        first.close();
+        second.close();
+        sampled.close();
+        notSampled.close();
+        assertThat(detector.getTrackedConnectionCount()).isEqualTo(0);
+        assertThat(shortThreshold.getTrackedConnectionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void notClosed() throws Exception {
+        ConnectionLeakDetector detector = createDetector(1000000, 1);
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).detectConnectionLeaks(detector).build();
+
+        Connection closed = ds.getConnection();
+        closed.close();
+        acquireWithoutClose(ds);
+
+        for (int i = 0; i < 50 && this.leaks.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(20);
+            detector.sweep();
+        }
+
+        assertThat(this.leaks).hasSize(1);
+        ConnectionLeakDetector.Leak leak = this.leaks.get(0);
+        assertThat(leak.getKind()).isEqualTo(ConnectionLeakDetector.Leak.Kind.NOT_CLOSED);
+        assertThat(leak.getConnectionId()).isEqualTo("2");
+        assertThat(leak.getStackTrace()).isNotEmpty();
+        assertThat(detector.getTrackedConnectionCount()).isEqualTo(0);
+    }
+
+    private void acquireWithoutClose(DataSource ds) throws Exception {
+        ds.getConnection().createStatement().execute("VALUES (1)");
+    }
+
+    @Test
+    public void sweeper() throws Exception {
+        ConnectionLeakDetector detector = createDetector(10, 0);
+        ProxyDataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).detectConnectionLeaks(detector).build();
+
+        Connection connection = ds.getConnection();
+        for (int i = 0; i < 100 && this.leaks.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(this.leaks).hasSize(1);
+        assertThat(this.leaks.get(0).getStackTrace()).as("stack trace is disabled").isNull();
+        connection.close();
+
+        ds.close();
+        assertThat(detector.getExecutor().isShutdown()).as("stopped by datasource close").isTrue();
+        ds.getConnection().close();  // no more sweeper
+    }
+
+}
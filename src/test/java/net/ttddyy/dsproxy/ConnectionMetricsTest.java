@@ -0,0 +1,143 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.proxy.ConnectionMetrics;
+import net.ttddyy.dsproxy.proxy.DataSourceProxyLogic;
+import net.ttddyy.dsproxy.proxy.JdbcProxyFactory;
+import net.ttddyy.dsproxy.proxy.ProxyConfig;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class ConnectionMetricsTest {
+
+    private JDBCDataSource actualDataSource;
+    private ProxyDataSource dataSource;
+    private ConnectionMetrics connectionMetrics;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:connectionMetrics");
+
+        this.dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).measureConnections().build();
+        this.connectionMetrics = this.dataSource.getProxyConfig().getConnectionMetrics();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void acquisitionAndHoldTime() throws Exception {
+        Connection first = this.dataSource.getConnection();
+        Thread.sleep(20);
+        Connection second = this.dataSource.getConnection();
+
+        assertThat(this.connectionMetrics.getAcquisitionTime().getCount()).isEqualTo(2);
+        assertThat(this.connectionMetrics.getCheckedOutCount()).isEqualTo(2);
+
+        List<ConnectionMetrics.Holder> holders = this.connectionMetrics.getLongestHolders(1);
+        assertThat(holders).hasSize(1);
+        assertThat(holders.get(0).getConnectionId()).isEqualTo("1");
+        assertThat(holders.get(0).getHeldTime()).isGreaterThanOrEqualTo(20);
+        assertThat(this.connectionMetrics.getLongestHolders(10)).extracting("connectionId").containsExactly("1", "2");
+
+        first.close();
+        first.close();  // second close is not recorded
+        assertThat(this.connectionMetrics.getHoldTime().getCount()).isEqualTo(1);
+        assertThat(this.connectionMetrics.getHoldTime().getMaxTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(this.connectionMetrics.getCheckedOutCount()).isEqualTo(1);
+        assertThat(this.connectionMetrics.getLongestHolders(10)).extracting("connectionId").containsExactly("2");
+
+        second.close();
+        assertThat(this.connectionMetrics.getHoldTime().getCount()).isEqualTo(2);
+        assertThat(this.connectionMetrics.getCheckedOutCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void acquisitionFailure() throws Exception {
+        DataSource failingDataSource = mock(DataSource.class);
+        when(failingDataSource.getConnection()).thenThrow(new SQLException("timeout"));
+        ProxyDataSource ds = ProxyDataSourceBuilder.create(failingDataSource).measureConnections().build();
+        ConnectionMetrics metrics = ds.getProxyConfig().getConnectionMetrics();
+
+        try {
+            ds.getConnection();
+            fail("SQLException should be thrown");
+        } catch (SQLException e) {
+        }
+
+        assertThat(metrics.getAcquisitionFailureCount()).isEqualTo(1);
+        assertThat(metrics.getAcquisitionTime().getCount()).isEqualTo(1);
+        assertThat(metrics.getCheckedOutCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void proxyCreationFailure() throws Throwable {
+        JdbcProxyFactory jdbcProxyFactory = mock(JdbcProxyFactory.class);
+        when(jdbcProxyFactory.createConnection(any(Connection.class), any(ConnectionInfo.class), any(ProxyConfig.class)))
+                .thenThrow(new IllegalStateException("proxy"));
+        ProxyDataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).jdbcProxyFactory(jdbcProxyFactory)
+                .measureConnections().build();
+        ConnectionMetrics metrics = ds.getProxyConfig().getConnectionMetrics();
+
+        try {
+            ds.getConnection();
+            fail("DataSourceProxyException should be thrown");
+        } catch (DataSourceProxyException e) {
+        }
+        DataSourceProxyLogic logic = new DataSourceProxyLogic(this.actualDataSource, ds.getProxyConfig());
+        try {
+            logic.invoke(DataSource.class.getMethod("getConnection"), null);
+            fail("IllegalStateException should be thrown");
+        } catch (IllegalStateException e) {
+        }
+
+        assertThat(metrics.getCheckedOutCount()).as("failed connections are not left open").isEqualTo(0);
+        assertThat(metrics.getAcquisitionFailureCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void histogram() {
+        ConnectionMetrics.Histogram histogram = new ConnectionMetrics.Histogram();
+        assertThat(histogram.getPercentile(50, TimeUnit.MICROSECONDS)).isEqualTo(0);
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(0));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+
+        long[] counts = histogram.getBucketCounts();
+        assertThat(counts[0]).isEqualTo(1);  // 0us
+        assertThat(counts[2]).isEqualTo(1);  // 2-3us
+        assertThat(counts[7]).isEqualTo(1);  // 64-127us
+        assertThat(counts[10]).isEqualTo(1);  // 512-1023us
+
+        assertThat(histogram.getCount()).isEqualTo(4);
+        assertThat(histogram.getTotalTime(TimeUnit.MICROSECONDS)).isEqualTo(1103);
+        assertThat(histogram.getMaxTime(TimeUnit.MICROSECONDS)).isEqualTo(1000);
+        assertThat(histogram.getPercentile(50, TimeUnit.MICROSECONDS)).isEqualTo(4);
+        assertThat(histogram.getPercentile(75, TimeUnit.MICROSECONDS)).isEqualTo(128);
+        assertThat(histogram.getPercentile(100, TimeUnit.MICROSECONDS)).as("capped by max").isEqualTo(1000);
+    }
+
+}
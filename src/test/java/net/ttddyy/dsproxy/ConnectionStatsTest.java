@@ -0,0 +1,144 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class ConnectionStatsTest {
+
+    private JDBCDataSource actualDataSource;
+    private ConnectionInfo connectionInfo;
+    private ProxyDataSourceBuilder.SingleMethodExecution connectionInfoCapture = new ProxyDataSourceBuilder.SingleMethodExecution() {
+        @Override
+        public void execute(MethodExecutionContext executionContext) {
+            connectionInfo = executionContext.getConnectionInfo();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:connectionStats");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE stats_emp(id INTEGER PRIMARY KEY)");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void stats() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .collectConnectionStats().proxyResultSet().afterMethod(this.connectionInfoCapture).build();
+        Connection connection = ds.getConnection();
+        ConnectionStats stats = this.connectionInfo.getStats();
+        assertThat(stats.snapshot().getLastActivityTime()).isEqualTo(0);
+
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO stats_emp VALUES (?)");
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("UPDATE stats_emp SET id = id + 10 WHERE id > 0");
+
+        ResultSet resultSet = statement.executeQuery("SELECT * FROM stats_emp");
+        while (resultSet.next()) {
+        }
+        resultSet = statement.executeQuery("SELECT * FROM stats_emp");
+        resultSet.next();
+        resultSet.close();  // partially read
+
+        ConnectionStats.Snapshot snapshot = stats.snapshot();
+        assertThat(snapshot.getQueryCount()).isEqualTo(4);
+        assertThat(snapshot.getStatementCount()).isEqualTo(2);
+        assertThat(snapshot.getRowsAffected()).isEqualTo(5);
+        assertThat(snapshot.getRowsFetched()).isEqualTo(4);
+        assertThat(snapshot.getDatabaseTime()).isGreaterThan(0);
+        assertThat(snapshot.getLastActivityTime()).isGreaterThan(0);
+        connection.close();
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).afterMethod(this.connectionInfoCapture).build();
+        Connection connection = ds.getConnection();
+        connection.createStatement().executeQuery("SELECT * FROM stats_emp");
+        assertThat(this.connectionInfo.getStats()).isNull();
+        connection.close();
+    }
+
+    @Test
+    public void consistentSnapshot() throws Exception {
+        final ConnectionStats stats = new ConnectionStats();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<ConnectionStats.Snapshot> inconsistent = new AtomicReference<ConnectionStats.Snapshot>();
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    ConnectionStats.Snapshot snapshot = stats.snapshot();
+                    // every execution takes 2ns and affects 3 rows
+                    if (snapshot.getDatabaseTime() != snapshot.getQueryCount() * 2
+                            || snapshot.getRowsAffected() != snapshot.getQueryCount() * 3) {
+                        inconsistent.set(snapshot);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200000; i++) {
+            stats.queryExecuted(2, 3);
+        }
+        running.set(false);
+        reader.join();
+
+        assertThat(inconsistent.get()).isNull();
+        assertThat(stats.snapshot().getQueryCount()).isEqualTo(200000);
+    }
+
+    @Test
+    public void concurrentWriters() throws Exception {
+        final ConnectionStats stats = new ConnectionStats();
+        Thread fetcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200000; i++) {
+                    stats.rowsFetched(1);
+                }
+            }
+        });
+        fetcher.start();
+        for (int i = 0; i < 200000; i++) {
+            stats.queryExecuted(2, 3);
+        }
+        fetcher.join();
+
+        ConnectionStats.Snapshot snapshot = stats.snapshot();
+        assertThat(snapshot.getQueryCount()).as("rows fetched do not contend with the owner").isEqualTo(200000);
+        assertThat(snapshot.getRowsAffected()).isEqualTo(600000);
+        assertThat(snapshot.getRowsFetched()).isEqualTo(200000);
+    }
+
+}
@@ -35,4 +35,29 @@ public class ExecutionInfoTest {
         assertThat(executionInfo.getStatementType()).isEqualTo(StatementType.CALLABLE);
 
     }
+
+    @Test
+    public void attributes() {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        Object first = new Object();
+        Object second = new Object();
+        Object third = new Object();
+        assertThat(executionInfo.getAttribute(first)).isNull();
+
+        executionInfo.setAttribute(first, "foo");
+        executionInfo.setAttribute(second, "bar");
+        executionInfo.setAttribute(third, "baz");
+        assertThat(executionInfo.getAttribute(first)).isEqualTo("foo");
+        assertThat(executionInfo.getAttribute(second)).isEqualTo("bar");
+        assertThat(executionInfo.getAttribute(third)).isEqualTo("baz");
+
+        // remove and reuse the slot
+        executionInfo.setAttribute(first, null);
+        assertThat(executionInfo.getAttribute(first)).isNull();
+        executionInfo.setAttribute(third, "BAZ");
+        executionInfo.setAttribute(first, "FOO");
+        assertThat(executionInfo.getAttribute(first)).isEqualTo("FOO");
+        assertThat(executionInfo.getAttribute(second)).isEqualTo("bar");
+        assertThat(executionInfo.getAttribute(third)).isEqualTo("BAZ");
+    }
 }
@@ -1,6 +1,8 @@
 package net.ttddyy.dsproxy;
 
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ColumnMetadata;
+import net.ttddyy.dsproxy.proxy.CompactGeneratedKeys;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import org.hsqldb.jdbc.JDBCDataSource;
@@ -11,10 +13,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Created on 21/11/17.
@@ -37,6 +42,116 @@ public class GeneratedKeysProxyTest {
         checkThatTheResultSetWasAlsoConsumedInTheListener(listener);
     }
 
+    @Test
+    public void compactGeneratedKeysWithNull() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getLong(1)).thenReturn(10L, 0L);
+        when(resultSet.wasNull()).thenReturn(false, true);
+        when(resultSet.getObject(1)).thenReturn(30L);
+
+        ColumnMetadata columnMetadata = new ColumnMetadata(new String[]{"ID"}, new int[]{Types.BIGINT});
+        CompactGeneratedKeys keys = CompactGeneratedKeys.read(resultSet, columnMetadata);
+
+        assertThat(keys.isLongKeys()).as("falls back to object storage").isFalse();
+        assertThat(keys.getRowCount()).isEqualTo(3);
+        assertThat(keys.getObject(0, 1)).isEqualTo(10L);
+        assertThat(keys.getObject(1, 1)).isNull();
+        assertThat(keys.getObject(2, 1)).isEqualTo(30L);
+
+        ResultSet view = keys.toResultSet();
+        view.next();
+        view.next();
+        assertThat(view.getLong(1)).isEqualTo(0L);
+        assertThat(view.wasNull()).isTrue();
+    }
+
+    @Test
+    public void compactGeneratedKeysViewPerCall() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(10L);
+        CompactGeneratedKeys keys = CompactGeneratedKeys.read(resultSet,
+                new ColumnMetadata(new String[]{"ID"}, new int[]{Types.BIGINT}));
+
+        ExecutionInfo execInfo = new ExecutionInfo();
+        execInfo.setCompactGeneratedKeys(keys);
+
+        // each caller has its own cursor
+        ResultSet first = execInfo.getGeneratedKeys();
+        assertThat(first.next()).isTrue();
+        assertThat(first.next()).isFalse();
+        ResultSet second = execInfo.getGeneratedKeys();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.next()).isTrue();
+        assertThat(second.getLong(1)).isEqualTo(10L);
+    }
+
+    @Test
+    public void compactGeneratedKeys() throws Exception {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setDatabase("jdbc:hsqldb:mem:compactGeneratedKeys");
+        Connection conn = dataSource.getConnection();
+        conn.createStatement().execute("CREATE TABLE compact_keys(id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(10))");
+        conn.close();
+
+        final List<CompactGeneratedKeys> keysInListener = new ArrayList<CompactGeneratedKeys>();
+        final List<Long> keysFromView = new ArrayList<Long>();
+        ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(dataSource)
+                .afterQuery(new ProxyDataSourceBuilder.SingleQueryExecution() {
+                    @Override
+                    public void execute(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        keysInListener.add(execInfo.getCompactGeneratedKeys());
+                        try {
+                            ResultSet resultSet = execInfo.getGeneratedKeys();
+                            while (resultSet != null && resultSet.next()) {
+                                keysFromView.add(resultSet.getLong("ID"));
+                            }
+                        } catch (SQLException e) {
+                            throw new IllegalStateException("Could not extract generated keys", e);
+                        }
+                    }
+                })
+                .autoRetrieveCompactGeneratedKeys()
+                .build();
+
+        Connection connection = proxyDataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO compact_keys(name) VALUES(?)", Statement.RETURN_GENERATED_KEYS);
+        ps.setString(1, "foo");
+        ps.executeUpdate();
+
+        assertThat(keysInListener).hasSize(1);
+        CompactGeneratedKeys keys = keysInListener.get(0);
+        assertThat(keys.isLongKeys()).isTrue();
+        assertThat(keys.toLongArray()).containsExactly(0L);
+        assertThat(keysFromView).containsExactly(0L);
+
+        // application can still read the keys
+        ResultSet generatedKeys = ps.getGeneratedKeys();
+        assertThat(generatedKeys.next()).isTrue();
+        assertThat(generatedKeys.getLong(1)).isEqualTo(0L);
+        assertThat(generatedKeys.next()).isFalse();
+        assertThat(generatedKeys.unwrap(CompactGeneratedKeys.class)).isSameAs(keys);
+        generatedKeys.close();
+
+        // batch
+        for (int i = 0; i < 100; i++) {
+            ps.setString(1, "bar" + i);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+
+        assertThat(keysInListener).hasSize(2);
+        keys = keysInListener.get(1);
+        assertThat(keys.getRowCount()).isEqualTo(100);
+        assertThat(keys.getLong(0)).isEqualTo(1L);
+        assertThat(keys.getLong(99)).isEqualTo(100L);
+        assertThat(keys.getColumnMetadata()).as("metadata is reused for prepared statement")
+                .isSameAs(keysInListener.get(0).getColumnMetadata());
+
+        connection.close();
+    }
+
     private void checkThatTheResultSetWasAlsoConsumedInTheListener(GeneratedKeysProxyTest.LoggingExecutionListener listener) {
         assertThat(listener.generatedKeys).containsExactly(2);
     }
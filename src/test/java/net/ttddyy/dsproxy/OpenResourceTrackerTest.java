@@ -0,0 +1,139 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.proxy.OpenResourceTracker;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class OpenResourceTrackerTest {
+
+    private JDBCDataSource actualDataSource;
+    private List<OpenResourceTracker.Report> reports = new ArrayList<OpenResourceTracker.Report>();
+    private OpenResourceTracker tracker;
+    private ConnectionInfo connectionInfo;
+    private ProxyDataSourceBuilder.SingleMethodExecution connectionInfoCapture = new ProxyDataSourceBuilder.SingleMethodExecution() {
+        @Override
+        public void execute(MethodExecutionContext executionContext) {
+            connectionInfo = executionContext.getConnectionInfo();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:openResources");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE res_emp(id INTEGER PRIMARY KEY)");
+        connection.createStatement().execute("INSERT INTO res_emp VALUES (1)");
+        connection.close();
+
+        this.tracker = new OpenResourceTracker(true, 2) {
+            @Override
+            protected void onOpenResources(Report report) {
+                reports.add(report);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void reportOnClose() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).name("myDS").trackOpenResources(this.tracker).afterMethod(this.connectionInfoCapture).build();
+        Connection connection = ds.getConnection();
+        OpenResourceTracker.ConnectionResources resources = this.connectionInfo.getOpenResources();
+
+        Statement closedStatement = connection.createStatement();
+        closedStatement.executeQuery("SELECT * FROM res_emp").close();
+        closedStatement.close();
+        assertThat(resources.getOpenStatementCount()).isEqualTo(0);
+        assertThat(resources.getOpenResultSetCount()).isEqualTo(0);
+
+        Statement statement = connection.createStatement();
+        statement.executeQuery("SELECT * FROM res_emp");
+        PreparedStatement ps = connection.prepareStatement("SELECT * FROM res_emp WHERE id = ?");
+        connection.prepareCall("CALL 1");
+        assertThat(resources.getOpenStatementCount()).isEqualTo(3);
+        assertThat(resources.getOpenResultSetCount()).isEqualTo(1);
+
+        // result set is closed by closing statement
+        statement.close();
+        assertThat(resources.getOpenStatementCount()).isEqualTo(2);
+        assertThat(resources.getOpenResultSetCount()).isEqualTo(0);
+
+        ps.setInt(1, 1);
+        ps.execute();
+        ps.getResultSet();
+        ps.getResultSet();  // same result set
+        assertThat(resources.getOpenResultSetCount()).isEqualTo(1);
+
+        connection.close();
+
+        assertThat(this.reports).hasSize(1);
+        OpenResourceTracker.Report report = this.reports.get(0);
+        assertThat(report.getDataSourceName()).isEqualTo("myDS");
+        assertThat(report.getOpenStatementCount()).isEqualTo(2);
+        assertThat(report.getOpenResultSetCount()).isEqualTo(1);
+        assertThat(report.getOldestResources()).hasSize(2);  // bounded by max reported resources
+        assertThat(report.getOldestResources().get(0).getType()).isEqualTo(OpenResourceTracker.ResourceType.STATEMENT);
+        assertThat(report.getOldestResources().get(0).getCreationSite()).isNotEmpty();
+
+        assertThat(this.tracker.getCreatedStatementCount()).isEqualTo(4);
+        assertThat(this.tracker.getCreatedResultSetCount()).isEqualTo(3);
+        assertThat(this.tracker.getLeakedStatementCount()).isEqualTo(2);
+        assertThat(this.tracker.getLeakedResultSetCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void noReportWhenAllClosed() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).trackOpenResources(this.tracker).afterMethod(this.connectionInfoCapture).build();
+        Connection connection = ds.getConnection();
+        for (int i = 0; i < 20; i++) {  // exceeds initial capacity
+            Statement statement = connection.createStatement();
+            statement.executeQuery("SELECT * FROM res_emp");
+            statement.close();
+        }
+        connection.close();
+
+        assertThat(this.reports).isEmpty();
+        assertThat(this.tracker.getLeakedStatementCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void preparedStatementCache() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .trackOpenResources(this.tracker).afterMethod(this.connectionInfoCapture).cachePreparedStatements().build();
+        Connection connection = ds.getConnection();
+        OpenResourceTracker.ConnectionResources resources = this.connectionInfo.getOpenResources();
+
+        PreparedStatement ps = connection.prepareStatement("SELECT * FROM res_emp");
+        ps.close();
+        assertThat(resources.getOpenStatementCount()).as("returned to the cache").isEqualTo(0);
+
+        connection.prepareStatement("SELECT * FROM res_emp");
+        assertThat(resources.getOpenStatementCount()).as("reused from the cache").isEqualTo(1);
+
+        connection.close();
+        assertThat(this.reports).hasSize(1);
+        assertThat(this.reports.get(0).getOpenStatementCount()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,95 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.listener.NoOpQueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class ParameterPreviewTest {
+
+    private JDBCDataSource actualDataSource;
+    private List<QueryInfo> queryInfos = new ArrayList<QueryInfo>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:parameterPreview");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE preview_emp(id INTEGER PRIMARY KEY, name VARCHAR(1000), data VARBINARY(1000))");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void batchParameters() throws Exception {
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).captureParameterPreview()
+                .listener(new NoOpQueryExecutionListener() {
+                    @Override
+                    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        queryInfos.addAll(queryInfoList);
+                    }
+                }).build();
+
+        char[] chars = new char[500];
+        Arrays.fill(chars, 'a');
+        String name = new String(chars);
+        byte[] data = new byte[100];
+
+        Connection connection = ds.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO preview_emp VALUES (?, ?, ?)");
+        ps.setInt(1, 1);
+        ps.setString(2, name);
+        ps.setBytes(3, data);
+        ps.addBatch();
+        ps.setInt(1, 2);
+        ps.setNull(2, java.sql.Types.VARCHAR);
+        ps.setBytes(3, data);
+        ps.addBatch();
+        ps.executeBatch();
+
+        assertThat(this.queryInfos).hasSize(1);
+        List<List<ParameterSetOperation>> parametersList = this.queryInfos.get(0).getParametersList();
+        assertThat(parametersList).hasSize(2);
+        ParameterSetOperation id = parametersList.get(0).get(0);
+        assertThat(id.isPreview()).isTrue();
+        assertThat(id.getArgs()).as("original value is not kept").containsExactly(1);
+        assertThat(id.getPreviewValue()).isEqualTo("1");
+        assertThat(id.getMethod().getName()).isEqualTo("setInt");
+        assertThat(parametersList.get(0).get(1).getPreviewValue()).endsWith("...(500 chars)");
+        assertThat(parametersList.get(0).get(2).getPreviewValue()).endsWith("...(100 bytes)");
+        assertThat(ParameterSetOperation.isSetNullParameterOperation(parametersList.get(1).get(1))).isTrue();
+        assertThat(parametersList.get(1).get(1).isPreview()).isFalse();
+
+        // log entry uses preview values
+        String entry = new DefaultQueryLogEntryCreator().getLogEntry(new ExecutionInfo(), this.queryInfos, false, false);
+        assertThat(entry).contains("(1=1,2=aaaa").contains("...(500 chars),3=0x0000").contains("2=NULL(VARCHAR)");
+
+        // original values are written
+        ResultSet rs = connection.createStatement().executeQuery("SELECT name FROM preview_emp WHERE id = 1");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo(name);
+        connection.close();
+    }
+
+}
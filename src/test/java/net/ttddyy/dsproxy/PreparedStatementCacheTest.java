@@ -0,0 +1,160 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.proxy.PreparedStatementCache;
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class PreparedStatementCacheTest {
+
+    private static final String SELECT = "SELECT name FROM cache_emp WHERE id = ?";
+
+    private JDBCDataSource actualDataSource;
+    private ProxyDataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:preparedStatementCache");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE cache_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        connection.createStatement().execute("INSERT INTO cache_emp VALUES (1, 'foo')");
+        connection.close();
+
+        this.dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).cachePreparedStatements(2).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void reuseStatement() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement(SELECT);
+        ps.setInt(1, 1);
+        ResultSet rs = ps.executeQuery();
+        assertThat(rs.next()).isTrue();
+        Statement actual = getTarget(ps);
+        ps.close();
+
+        assertThat(ps.isClosed()).isTrue();
+        assertThat(actual.isClosed()).as("returned to the cache").isFalse();
+        assertThat(rs.isClosed()).as("result set is closed on return").isTrue();
+        try {
+            ps.executeQuery();
+            fail("SQLException should be thrown");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        PreparedStatement reused = connection.prepareStatement(SELECT);
+        assertThat(getTarget(reused)).isSameAs(actual);
+        reused.setInt(1, 1);
+        rs = reused.executeQuery();
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("foo");
+        reused.close();
+
+        // different options are different entries
+        PreparedStatement other = connection.prepareStatement(SELECT, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        assertThat(getTarget(other)).isNotSameAs(actual);
+        other.close();
+
+        PreparedStatementCache cache = this.dataSource.getProxyConfig().getPreparedStatementCache();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+
+        connection.close();
+        assertThat(actual.isClosed()).as("idle statements are closed with connection").isTrue();
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        Statement first = prepareAndClose(connection, "SELECT id FROM cache_emp");
+        Statement second = prepareAndClose(connection, "SELECT name FROM cache_emp");
+        Statement third = prepareAndClose(connection, SELECT);
+
+        assertThat(first.isClosed()).isTrue();
+        assertThat(second.isClosed()).isFalse();
+        assertThat(third.isClosed()).isFalse();
+        assertThat(this.dataSource.getProxyConfig().getPreparedStatementCache().getEvictionCount()).isEqualTo(1);
+
+        connection.close();
+        assertThat(second.isClosed()).isTrue();
+        assertThat(third.isClosed()).isTrue();
+    }
+
+    @Test
+    public void restoreSettingsOnReturn() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement(SELECT);
+        Statement actual = getTarget(ps);
+        int maxRows = actual.getMaxRows();
+        int fetchSize = actual.getFetchSize();
+        int queryTimeout = actual.getQueryTimeout();
+        int maxFieldSize = actual.getMaxFieldSize();
+        ps.setMaxRows(1);
+        ps.setMaxRows(2);
+        ps.setFetchSize(10);
+        ps.setQueryTimeout(30);
+        ps.setMaxFieldSize(100);
+        ps.close();
+
+        assertThat(actual.isClosed()).as("returned to the cache").isFalse();
+        assertThat(actual.getMaxRows()).isEqualTo(maxRows);
+        assertThat(actual.getFetchSize()).isEqualTo(fetchSize);
+        assertThat(actual.getQueryTimeout()).isEqualTo(queryTimeout);
+        assertThat(actual.getMaxFieldSize()).isEqualTo(maxFieldSize);
+
+        PreparedStatement reused = connection.prepareStatement(SELECT);
+        assertThat(getTarget(reused)).isSameAs(actual);
+        assertThat(reused.getMaxRows()).isEqualTo(maxRows);
+        reused.close();
+        connection.close();
+    }
+
+    @Test
+    public void notSharedAcrossConnections() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        Statement actual = prepareAndClose(connection, SELECT);
+
+        Connection otherConnection = this.dataSource.getConnection();
+        PreparedStatement ps = otherConnection.prepareStatement(SELECT);
+        assertThat(getTarget(ps)).isNotSameAs(actual);
+        ps.close();
+
+        otherConnection.close();
+        connection.close();
+    }
+
+    private Statement prepareAndClose(Connection connection, String query) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(query);
+        Statement actual = getTarget(ps);
+        ps.close();
+        return actual;
+    }
+
+    private Statement getTarget(Statement statement) {
+        return (Statement) ((ProxyJdbcObject) statement).getTarget();
+    }
+
+}
@@ -1,6 +1,12 @@
 package net.ttddyy.dsproxy;
 
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ProxyConfig;
+import net.ttddyy.dsproxy.proxy.ResultSetFetcher;
+import net.ttddyy.dsproxy.proxy.ResultSetProxyLogic;
+import net.ttddyy.dsproxy.proxy.ResultSetProxyLogicFactory;
+import net.ttddyy.dsproxy.proxy.RowBuffer;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import org.hsqldb.jdbc.JDBCDataSource;
@@ -35,6 +41,107 @@ public class ResultSetProxyTest {
         checkThatTheResultSetWasAlsoConsumedInTheListener(listener);
     }
 
+    @Test
+    public void fetchRowsWithSimpleResultSetProxy() throws Exception {
+        final List<String> methodNames = new ArrayList<String>();
+        ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(dataSourceWithData("fetch-simple"))
+                .proxyResultSet()
+                .afterMethod(new ProxyDataSourceBuilder.SingleMethodExecution() {
+                    @Override
+                    public void execute(MethodExecutionContext executionContext) {
+                        if (executionContext.getTarget() instanceof ResultSet) {
+                            methodNames.add(executionContext.getMethod().getName());
+                        }
+                    }
+                })
+                .build();
+
+        Connection connection = proxyDataSource.getConnection();
+        ResultSet resultSet = connection.prepareStatement("SELECT * FROM test ORDER BY a").executeQuery();
+
+        assertThat(resultSet.isWrapperFor(ResultSetFetcher.class)).isTrue();
+        ResultSetFetcher fetcher = resultSet.unwrap(ResultSetFetcher.class);
+
+        RowBuffer buffer = RowBuffer.create(2).longColumn(1).objectColumn(2);
+        assertThat(fetcher.fetch(buffer)).isEqualTo(2);
+        assertThat(buffer.getLong(0, 0)).isEqualTo(1L);
+        assertThat(buffer.getObject(0, 1)).isEqualTo(2);
+        assertThat(buffer.getLong(1, 0)).isEqualTo(3L);
+        assertThat(buffer.getObject(1, 1)).isEqualTo(4);
+
+        long[] values = new long[10];
+        assertThat(fetcher.fetchLongs(2, values, 0, 10)).isEqualTo(1);
+        assertThat(values[0]).isEqualTo(6L);
+
+        assertThat(fetcher.fetch(buffer)).isEqualTo(0);
+        assertThat(buffer.getRowCount()).isEqualTo(0);
+
+        // one method event per chunk
+        assertThat(methodNames).containsExactly("fetch", "fetchLongs", "fetch");
+
+        connection.close();
+    }
+
+    @Test
+    public void fetchRowsWithRepeatableReadResultSetProxy() throws Exception {
+        ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(dataSourceWithData("fetch-repeatable"))
+                .repeatableReadResultSet()
+                .build();
+
+        Connection connection = proxyDataSource.getConnection();
+        ResultSet resultSet = connection.prepareStatement("SELECT * FROM test ORDER BY a").executeQuery();
+        ResultSetFetcher fetcher = resultSet.unwrap(ResultSetFetcher.class);
+
+        double[] values = new double[3];
+        assertThat(fetcher.fetchDoubles(1, values, 0, 3)).isEqualTo(3);
+        assertThat(values).containsExactly(1.0, 3.0, 5.0);
+
+        // fetched rows are cached and can be read again
+        resultSet.beforeFirst();
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getInt("b")).isEqualTo(2);
+
+        RowBuffer buffer = RowBuffer.create(5).intColumn(1).intColumn(2);
+        assertThat(fetcher.fetch(buffer)).isEqualTo(2);
+        assertThat(buffer.getInts(0)).startsWith(3, 5);
+        assertThat(buffer.getInts(1)).startsWith(4, 6);
+
+        connection.close();
+    }
+
+    @Test
+    public void resultSetProxyLogicFactoryWithoutQuery() throws Exception {
+        final List<ResultSet> created = new ArrayList<ResultSet>();
+        // implements only the method that does not take the query
+        ResultSetProxyLogicFactory factory = new ResultSetProxyLogicFactory() {
+            @Override
+            public ResultSetProxyLogic create(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
+                created.add(resultSet);
+                return ResultSetProxyLogicFactory.DEFAULT.create(resultSet, connectionInfo, proxyConfig);
+            }
+        };
+        ProxyDataSource proxyDataSource = ProxyDataSourceBuilder.create(dataSourceWithData("custom-factory"))
+                .proxyResultSet(factory)
+                .build();
+
+        Connection connection = proxyDataSource.getConnection();
+        ResultSet resultSet = connection.prepareStatement("SELECT * FROM test ORDER BY a").executeQuery();
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getInt("a")).isEqualTo(1);
+        assertThat(created).hasSize(1);
+        connection.close();
+    }
+
+    private JDBCDataSource dataSourceWithData(String databaseName) throws SQLException {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setDatabase("jdbc:hsqldb:mem:" + databaseName);
+        Connection connection = dataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE test(a INT, b INT)");
+        connection.createStatement().execute("INSERT INTO test(a, b) VALUES(1,2),(3,4),(5,6)");
+        connection.close();
+        return dataSource;
+    }
+
     private void checkThatTheResultSetWasAlsoConsumedInTheListener(LoggingExecutionListener listener) {
         assertThat(listener.table.columns).containsExactly("A", "B");
         assertThat(listener.table.rows).containsExactly(
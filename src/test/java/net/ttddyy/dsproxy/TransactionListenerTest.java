@@ -0,0 +1,143 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.listener.TransactionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class TransactionListenerTest {
+
+    private JDBCDataSource actualDataSource;
+    private DataSource dataSource;
+    private List<TransactionInfo> transactions = new ArrayList<TransactionInfo>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:transactionListener");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE tx_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        connection.close();
+
+        this.dataSource = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .name("myDS")
+                .transactionListener(new TransactionListener() {
+                    @Override
+                    public void afterTransaction(TransactionInfo transactionInfo) {
+                        transactions.add(transactionInfo);
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void commitAndRollback() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO tx_emp VALUES (?, ?)");
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "name");
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        Thread.sleep(20);
+        connection.createStatement().executeUpdate("UPDATE tx_emp SET name = 'updated'");
+        connection.commit();
+
+        assertThat(this.transactions).hasSize(1);
+        TransactionInfo transactionInfo = this.transactions.get(0);
+        assertThat(transactionInfo.getOutcome()).isEqualTo(TransactionInfo.Outcome.COMMIT);
+        assertThat(transactionInfo.getDataSourceName()).isEqualTo("myDS");
+        assertThat(transactionInfo.getConnectionId()).isNotNull();
+        assertThat(transactionInfo.getQueryCount()).isEqualTo(2);
+        assertThat(transactionInfo.getRowsAffected()).isEqualTo(6);
+        assertThat(transactionInfo.getIdleTime()).isGreaterThanOrEqualTo(20);
+        assertThat(transactionInfo.getElapsedTime()).isGreaterThanOrEqualTo(transactionInfo.getIdleTime());
+
+        // commit without queries is not reported
+        connection.commit();
+        assertThat(this.transactions).hasSize(1);
+
+        connection.createStatement().executeQuery("SELECT * FROM tx_emp");
+        connection.rollback();
+        assertThat(this.transactions).hasSize(2);
+        assertThat(this.transactions.get(1).getOutcome()).isEqualTo(TransactionInfo.Outcome.ROLLBACK);
+        assertThat(this.transactions.get(1).getQueryCount()).isEqualTo(1);
+        assertThat(this.transactions.get(1).getRowsAffected()).isEqualTo(0);
+
+        connection.close();
+        assertThat(this.transactions).hasSize(2);
+    }
+
+    @Test
+    public void setAutoCommitAndClose() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("INSERT INTO tx_emp VALUES (1, 'foo')");
+        assertThat(this.transactions).as("auto-commit mode").isEmpty();
+
+        connection.setAutoCommit(false);
+        statement.executeUpdate("INSERT INTO tx_emp VALUES (2, 'bar')");
+        connection.setAutoCommit(true);
+        assertThat(this.transactions).hasSize(1);
+        assertThat(this.transactions.get(0).getOutcome()).isEqualTo(TransactionInfo.Outcome.COMMIT);
+
+        statement.executeUpdate("INSERT INTO tx_emp VALUES (3, 'baz')");
+        connection.setAutoCommit(false);
+        statement.executeUpdate("DELETE FROM tx_emp");
+        connection.close();
+
+        assertThat(this.transactions).hasSize(2);
+        assertThat(this.transactions.get(1).getOutcome()).isEqualTo(TransactionInfo.Outcome.CLOSE);
+        assertThat(this.transactions.get(1).getQueryCount()).isEqualTo(1);
+        assertThat(this.transactions.get(1).getRowsAffected()).isEqualTo(3);
+    }
+
+    @Test
+    public void autoCommitDisabledBeforeAcquisition() throws Exception {
+        Connection actualConnection = this.actualDataSource.getConnection();
+        actualConnection.setAutoCommit(false);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(actualConnection);
+        DataSource ds = ProxyDataSourceBuilder.create(pool)
+                .transactionListener(new TransactionListener() {
+                    @Override
+                    public void afterTransaction(TransactionInfo transactionInfo) {
+                        transactions.add(transactionInfo);
+                    }
+                })
+                .build();
+
+        Connection connection = ds.getConnection();
+        connection.createStatement().executeUpdate("INSERT INTO tx_emp VALUES (1, 'foo')");
+        connection.rollback();
+
+        assertThat(this.transactions).hasSize(1);
+        assertThat(this.transactions.get(0).getOutcome()).isEqualTo(TransactionInfo.Outcome.ROLLBACK);
+        actualConnection.close();
+    }
+
+}
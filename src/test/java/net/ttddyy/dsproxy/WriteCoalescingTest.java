@@ -0,0 +1,212 @@
+package net.ttddyy.dsproxy;
+
+import net.ttddyy.dsproxy.proxy.WriteCoalescing;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class WriteCoalescingTest {
+
+    private static final String INSERT = "INSERT INTO coalesce_log(id, message) VALUES (?, ?)";
+
+    private JDBCDataSource actualDataSource;
+    private DataSource dataSource;
+    private List<ExecutionInfo> executions = new ArrayList<ExecutionInfo>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:writeCoalescing");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE coalesce_log(id INTEGER PRIMARY KEY, message VARCHAR(20))");
+        connection.close();
+
+        WriteCoalescing writeCoalescing = WriteCoalescing.Builder.create().table("coalesce_log").maxBatchSize(5).build();
+        this.dataSource = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .afterQuery(new ProxyDataSourceBuilder.SingleQueryExecution() {
+                    @Override
+                    public void execute(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                        executions.add(execInfo);
+                    }
+                })
+                .coalesceWrites(writeCoalescing)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void coalesceUntilCommit() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement ps = connection.prepareStatement(INSERT);
+        for (int i = 0; i < 4; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "message-" + i);
+            assertThat(ps.executeUpdate()).isEqualTo(1);
+        }
+        assertThat(this.executions).as("writes are buffered").isEmpty();
+
+        connection.commit();
+
+        assertThat(this.executions).hasSize(1);
+        assertThat(this.executions.get(0).isBatch()).isTrue();
+        assertThat(this.executions.get(0).getBatchSize()).isEqualTo(4);
+        assertThat(countRows()).isEqualTo(4);
+        connection.close();
+    }
+
+    @Test
+    public void flushOnMaxBatchSizeAndRead() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement ps = connection.prepareStatement(INSERT);
+        for (int i = 0; i < 7; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "message");  // keep "message" param for the following updates
+            ps.executeUpdate();
+        }
+        assertThat(this.executions).hasSize(1);
+        assertThat(this.executions.get(0).getBatchSize()).isEqualTo(5);
+
+        // read on the same connection flushes remaining writes
+        ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM coalesce_log WHERE message = 'message'");
+        rs.next();
+        assertThat(rs.getInt(1)).isEqualTo(7);
+        assertThat(this.executions).hasSize(3);
+        assertThat(this.executions.get(1).getBatchSize()).isEqualTo(2);
+        assertThat(this.executions.get(2).isBatch()).isFalse();
+
+        connection.commit();
+        connection.close();
+    }
+
+    @Test
+    public void noFlushOnNonTransactionalConnectionMethods() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement ps = connection.prepareStatement(INSERT);
+        ps.setInt(1, 1);
+        ps.setString(2, "message");
+        ps.executeUpdate();
+
+        assertThat(connection.getAutoCommit()).isFalse();
+        connection.isClosed();
+        connection.isReadOnly();
+        connection.getMetaData();
+        connection.getWarnings();
+        connection.getTransactionIsolation();
+        assertThat(this.executions).as("write is still buffered").isEmpty();
+
+        connection.commit();
+        assertThat(this.executions).hasSize(1);
+        assertThat(countRows()).isEqualTo(1);
+        connection.close();
+    }
+
+    @Test
+    public void discardOnRollback() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement ps = connection.prepareStatement(INSERT);
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "message");
+            ps.executeUpdate();
+        }
+        connection.rollback();
+
+        assertThat(this.executions).isEmpty();
+        assertThat(countRows()).isEqualTo(0);
+
+        // statement is usable after rollback
+        ps.setInt(1, 100);
+        ps.executeUpdate();
+        connection.commit();
+        assertThat(countRows()).isEqualTo(1);
+        connection.close();
+    }
+
+    @Test
+    public void noCoalescingForAutoCommitOrGeneratedKeys() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement(INSERT);
+        ps.setInt(1, 1);
+        ps.setString(2, "message");
+        ps.executeUpdate();
+        assertThat(this.executions).as("auto-commit is enabled").hasSize(1);
+
+        connection.setAutoCommit(false);
+        PreparedStatement other = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
+        other.setInt(1, 2);
+        other.setString(2, "message");
+        other.executeUpdate();
+        assertThat(this.executions).as("statement with generated keys is not coalesced").hasSize(2);
+        connection.commit();
+        connection.close();
+    }
+
+    @Test
+    public void updateCountMismatch() throws Exception {
+        WriteCoalescing writeCoalescing = WriteCoalescing.Builder.create().queryPattern("UPDATE coalesce_log .*").build();
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).coalesceWrites(writeCoalescing).build();
+
+        Connection connection = ds.getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement ps = connection.prepareStatement("UPDATE coalesce_log SET message = ? WHERE id = ?");
+        ps.setString(1, "updated");
+        ps.setInt(2, 999);  // no such row
+        assertThat(ps.executeUpdate()).isEqualTo(1);
+
+        try {
+            connection.commit();
+            fail("BatchUpdateException should be thrown");
+        } catch (BatchUpdateException e) {
+            assertThat(e.getUpdateCounts()).containsExactly(0);
+        }
+        connection.rollback();
+        connection.close();
+    }
+
+    @Test
+    public void isTarget() {
+        WriteCoalescing writeCoalescing = WriteCoalescing.Builder.create().table("coalesce_log").build();
+        assertThat(writeCoalescing.isTarget(INSERT)).isTrue();
+        assertThat(writeCoalescing.isTarget("insert into COALESCE_LOG values (?)")).isTrue();
+        assertThat(writeCoalescing.isTarget("DELETE FROM coalesce_log WHERE id = ?")).isTrue();
+        assertThat(writeCoalescing.isTarget("INSERT INTO coalesce_log_archive VALUES (?)")).isFalse();
+        assertThat(writeCoalescing.isTarget("SELECT * FROM coalesce_log")).isFalse();
+    }
+
+    private int countRows() throws SQLException {
+        Connection connection = this.actualDataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM coalesce_log");
+        rs.next();
+        int count = rs.getInt(1);
+        connection.close();
+        return count;
+    }
+
+}
@@ -0,0 +1,159 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.TestUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class AsyncQueryExecutionListenerTest {
+
+    private static class BlockingListener implements ExecutionEventListener {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final List<String> threadNames = new CopyOnWriteArrayList<String>();
+        private final List<ExecutionEvent> events = new CopyOnWriteArrayList<ExecutionEvent>();
+
+        @Override
+        public void onEvent(ExecutionEvent event) {
+            try {
+                this.latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.threadNames.add(Thread.currentThread().getName());
+            this.events.add(event);
+        }
+    }
+
+    private JDBCDataSource actualDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:asyncListener");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE async_emp(id INTEGER PRIMARY KEY)");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void detachedExecution() throws Exception {
+        BlockingListener delegate = new BlockingListener();
+        delegate.latch.countDown();
+        AsyncQueryExecutionListener listener = new AsyncQueryExecutionListener(delegate);
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).build();
+
+        Connection connection = ds.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO async_emp VALUES (?)");
+        ps.setInt(1, 1);
+        ps.addBatch();
+        ps.setInt(1, 2);
+        ps.addBatch();
+        ps.executeBatch();
+        ps.setInt(1, 3);
+        ps.executeUpdate();
+        connection.close();
+
+        assertThat(listener.shutdown(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.getProcessedCount()).isEqualTo(2);
+        assertThat(listener.getDroppedCount()).isEqualTo(0);
+        assertThat(delegate.threadNames).doesNotContain(Thread.currentThread().getName());
+
+        ExecutionEvent batch = delegate.events.get(0);
+        assertThat(batch.getThreadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(batch.getRowsAffected()).isEqualTo(2);
+        assertThat(batch.getBatchSize()).isEqualTo(2);
+        assertThat(batch.getParameterSetCount()).as("not cleared by later execution").isEqualTo(2);
+        assertThat(batch.getParameterValues(1)).containsExactly(2);
+        assertThat(delegate.events.get(1).getRowsAffected()).isEqualTo(1);
+    }
+
+    @Test
+    public void drop() throws Exception {
+        BlockingListener delegate = new BlockingListener();
+        AsyncQueryExecutionListener listener = new AsyncQueryExecutionListener(delegate, 1, 1,
+                AsyncQueryExecutionListener.BackpressurePolicy.DROP);
+
+        for (int i = 0; i < 5; i++) {
+            listener.afterQuery(new ExecutionInfo(), Collections.<QueryInfo>emptyList());
+        }
+        // one is running on the worker, one is queued
+        assertThat(listener.getDroppedCount()).isGreaterThanOrEqualTo(3);
+
+        delegate.latch.countDown();
+        assertThat(listener.shutdown(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.getProcessedCount() + listener.getDroppedCount()).isEqualTo(5);
+        assertThat(listener.getMaxLag(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        BlockingListener delegate = new BlockingListener();
+        AsyncQueryExecutionListener listener = new AsyncQueryExecutionListener(delegate, 2, 1,
+                AsyncQueryExecutionListener.BackpressurePolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 10; i++) {
+            ExecutionInfo execInfo = new ExecutionInfo();
+            execInfo.setResult(i);
+            listener.afterQuery(execInfo, Collections.<QueryInfo>emptyList());
+        }
+
+        delegate.latch.countDown();
+        assertThat(listener.shutdown(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.getProcessedCount() + listener.getDroppedCount()).isEqualTo(10);
+        ExecutionEvent last = delegate.events.get(delegate.events.size() - 1);
+        assertThat(last.getRowsAffected()).as("newest execution is kept").isEqualTo(9);
+    }
+
+    @Test
+    public void callerRuns() throws Exception {
+        BlockingListener delegate = new BlockingListener();
+        final AsyncQueryExecutionListener listener = new AsyncQueryExecutionListener(delegate, 1, 1,
+                AsyncQueryExecutionListener.BackpressurePolicy.CALLER_RUNS);
+
+        final List<String> callerThreads = new ArrayList<String>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 3; i++) {
+                    listener.afterQuery(new ExecutionInfo(), Collections.<QueryInfo>emptyList());
+                }
+                callerThreads.add(Thread.currentThread().getName());
+            }
+        }, "caller");
+        caller.start();
+        Thread.sleep(50);
+        delegate.latch.countDown();
+        caller.join();
+
+        assertThat(listener.shutdown(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.getDroppedCount()).isEqualTo(0);
+        assertThat(delegate.threadNames).hasSize(3).contains("caller");
+        assertThat(callerThreads).containsExactly("caller");
+    }
+
+}
@@ -0,0 +1,170 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionEvent;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.TestUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class ExecutionEventDispatcherTest {
+
+    private JDBCDataSource actualDataSource;
+    private ExecutionEventDispatcher dispatcher;
+    private List<ExecutionEvent> events = new ArrayList<ExecutionEvent>();
+    private DataSource ds;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:executionEvent");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE event_emp(id INTEGER PRIMARY KEY, name VARCHAR(20), data BLOB)");
+        connection.close();
+
+        this.dispatcher = new ExecutionEventDispatcher();
+        this.dispatcher.addListener(new ExecutionEventListener() {
+            @Override
+            public void onEvent(ExecutionEvent event) {
+                events.add(event);
+            }
+        });
+        this.ds = ProxyDataSourceBuilder.create(this.actualDataSource).name("myDS").listener(this.dispatcher).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void preparedStatement() throws Exception {
+        Connection connection = this.ds.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO event_emp VALUES (?, ?, ?)");
+        ps.setString(2, "foo");
+        ps.setInt(1, 1);
+        ps.setInt(1, 2);  // overridden
+        ps.setBinaryStream(3, new ByteArrayInputStream(new byte[]{1, 2}), 2);
+        ps.executeUpdate();
+
+        ps.setInt(1, 3);
+        ps.setNull(2, Types.VARCHAR);
+        ps.setBytes(3, new byte[]{1, 2, 3});
+        ps.executeUpdate();
+        connection.close();
+
+        assertThat(this.events).hasSize(2);
+        ExecutionEvent event = this.events.get(0);
+        assertThat(event.getDataSourceName()).isEqualTo("myDS");
+        assertThat(event.getStatementType()).isEqualTo(StatementType.PREPARED);
+        assertThat(event.getMethodName()).isEqualTo("executeUpdate");
+        assertThat(event.isSuccess()).isTrue();
+        assertThat(event.getErrorType()).isNull();
+        assertThat(event.getRowsAffected()).isEqualTo(1);
+        assertThat(event.getElapsedNanos()).isGreaterThan(0);
+        assertThat(event.getThreadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(event.getQueryCount()).isEqualTo(1);
+        assertThat(event.getFingerprint(0)).isEqualTo("INSERT INTO event_emp VALUES (?, ?, ?)");
+        assertThat(event.getParameterSetCount()).isEqualTo(1);
+        assertThat(event.getParameterKeys(0)).containsExactly(1, 2, 3);
+        assertThat(event.getParameterValues(0)).containsExactly(2, "foo", "[InputStream]");
+
+        ExecutionEvent second = this.events.get(1);
+        assertThat(second.getParameterValues(0)).containsExactly(3, null, "[byte[3]]");
+        assertThat(second.getQuery(0)).as("query string is shared").isSameAs(event.getQuery(0));
+        assertThat(second.getFingerprintId(0)).isEqualTo(event.getFingerprintId(0));
+    }
+
+    @Test
+    public void statementWithLiterals() throws Exception {
+        Connection connection = this.ds.getConnection();
+        Statement statement = connection.createStatement();
+        statement.executeQuery("SELECT * FROM event_emp WHERE id = 1");
+        statement.executeQuery("SELECT * FROM event_emp WHERE id = 2");
+        statement.executeQuery("SELECT * FROM event_emp WHERE name = 'foo'");
+        connection.close();
+
+        assertThat(this.events).hasSize(3);
+        assertThat(this.events.get(0).getFingerprintId(0)).isEqualTo(this.events.get(1).getFingerprintId(0));
+        assertThat(this.events.get(0).getFingerprintId(0)).isNotEqualTo(this.events.get(2).getFingerprintId(0));
+        assertThat(this.events.get(0).getParameterSetCount()).isEqualTo(0);
+        assertThat(this.dispatcher.getEncoder().getCachedQueryCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void leastRecentlyUsedQueryCache() {
+        ExecutionEventEncoder encoder = new ExecutionEventEncoder(2);
+        String first = new String("SELECT 1");
+        encoder.encode(new ExecutionInfo(), Collections.singletonList(new QueryInfo(first)));
+        encoder.encode(new ExecutionInfo(), Collections.singletonList(new QueryInfo("SELECT 2")));
+        encoder.encode(new ExecutionInfo(), Collections.singletonList(new QueryInfo("SELECT 1")));
+        encoder.encode(new ExecutionInfo(), Collections.singletonList(new QueryInfo("SELECT 3")));
+        assertThat(encoder.getCachedQueryCount()).isEqualTo(2);
+
+        // "SELECT 1" is recently used and still cached, so the cached string instance is shared
+        ExecutionEvent event = encoder.encode(new ExecutionInfo(), Collections.singletonList(new QueryInfo("SELECT 1")));
+        assertThat(event.getQuery(0)).isSameAs(first);
+    }
+
+    @Test
+    public void batch() throws Exception {
+        Connection connection = this.ds.getConnection();
+        PreparedStatement ps = connection.prepareStatement("INSERT INTO event_emp (id, name) VALUES (?, ?)");
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "name" + i);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        connection.close();
+
+        assertThat(this.events).hasSize(1);
+        ExecutionEvent event = this.events.get(0);
+        assertThat(event.isBatch()).isTrue();
+        assertThat(event.getBatchSize()).isEqualTo(3);
+        assertThat(event.getRowsAffected()).isEqualTo(3);
+        assertThat(event.getParameterSetCount()).isEqualTo(3);
+        assertThat(event.getParameterValues(2)).containsExactly(2, "name2");
+    }
+
+    @Test
+    public void failure() throws Exception {
+        Connection connection = this.ds.getConnection();
+        SQLException thrown = null;
+        try {
+            connection.createStatement().executeQuery("SELECT * FROM no_such_table");
+            fail("SQLException is expected");
+        } catch (SQLException e) {
+            thrown = e;
+        }
+        connection.close();
+
+        assertThat(this.events).hasSize(1);
+        ExecutionEvent event = this.events.get(0);
+        assertThat(event.isSuccess()).isFalse();
+        assertThat(event.getErrorType()).isEqualTo(thrown.getClass().getName());
+        assertThat(event.getErrorMessage()).contains("no_such_table".toUpperCase());
+    }
+
+}
@@ -0,0 +1,109 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.Test;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class InFlightQueryListenerTest {
+
+    @Test
+    public void trackInFlightQueries() throws Exception {
+        InFlightQueryListener listener = new InFlightQueryListener();
+
+        Statement slowStatement = mock(Statement.class);
+        Statement fastStatement = mock(Statement.class);
+        ExecutionInfo slowExecInfo = executionInfo("conn-1", slowStatement);
+        ExecutionInfo fastExecInfo = executionInfo("conn-2", fastStatement);
+        List<QueryInfo> slowQueries = queries("SELECT * FROM emp WHERE id = 1");
+        List<QueryInfo> fastQueries = queries("SELECT * FROM dept");
+
+        listener.beforeQuery(slowExecInfo, slowQueries);
+        TimeUnit.MILLISECONDS.sleep(50);
+        listener.beforeQuery(fastExecInfo, fastQueries);
+
+        List<InFlightQueryListener.InFlightQuery> inFlightQueries = listener.getInFlightQueries();
+        assertThat(inFlightQueries).hasSize(2);
+        InFlightQueryListener.InFlightQuery oldest = inFlightQueries.get(0);
+        assertThat(oldest.getConnectionId()).isEqualTo("conn-1");
+        assertThat(oldest.getQuery()).isEqualTo("SELECT * FROM emp WHERE id = 1");
+        assertThat(oldest.getFingerprint()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(oldest.getThreadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(oldest.getElapsedTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+        assertThat(inFlightQueries.get(1).getConnectionId()).isEqualTo("conn-2");
+
+        String dump = listener.dump();
+        assertThat(dump).startsWith("In-flight queries: 2").contains("connection=conn-1", "SELECT * FROM dept");
+
+        assertThat(listener.cancelOlderThan(40, TimeUnit.MILLISECONDS)).isEqualTo(1);
+        verify(slowStatement).cancel();
+        verify(fastStatement, never()).cancel();
+
+        listener.afterQuery(fastExecInfo, fastQueries);
+        assertThat(listener.getInFlightQueryCount()).isEqualTo(1);
+        listener.afterQuery(slowExecInfo, slowQueries);
+        assertThat(listener.getInFlightQueryCount()).isEqualTo(0);
+        assertThat(listener.getInFlightQueries()).isEmpty();
+    }
+
+    @Test
+    public void snapshotFromOtherThread() throws Exception {
+        final InFlightQueryListener listener = new InFlightQueryListener();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ExecutionInfo execInfo = executionInfo("conn-1", null);
+                List<QueryInfo> queries = queries("UPDATE emp SET name = 'foo'");
+                listener.beforeQuery(execInfo, queries);
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                listener.afterQuery(execInfo, queries);
+            }
+        }, "query-thread");
+        thread.start();
+
+        started.await();
+        List<InFlightQueryListener.InFlightQuery> inFlightQueries = listener.getInFlightQueries();
+        assertThat(inFlightQueries).hasSize(1);
+        assertThat(inFlightQueries.get(0).getThreadName()).isEqualTo("query-thread");
+        assertThat(inFlightQueries.get(0).cancel()).as("no statement to cancel").isFalse();
+
+        finish.countDown();
+        thread.join();
+        assertThat(listener.getInFlightQueryCount()).isEqualTo(0);
+    }
+
+    private static ExecutionInfo executionInfo(String connectionId, Statement statement) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        executionInfo.setConnectionId(connectionId);
+        executionInfo.setStatement(statement);
+        return executionInfo;
+    }
+
+    private static List<QueryInfo> queries(String query) {
+        List<QueryInfo> queryInfoList = new ArrayList<QueryInfo>();
+        queryInfoList.add(new QueryInfo(query));
+        return queryInfoList;
+    }
+
+}
@@ -0,0 +1,196 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.TestUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class NPlusOneQueryListenerTest {
+
+    private static class RecordingListener extends NPlusOneQueryListener {
+        private List<NPlusOneQuery> detected = new ArrayList<NPlusOneQuery>();
+
+        private RecordingListener(int threshold, Scope scope) {
+            super(threshold, scope);
+        }
+
+        @Override
+        protected void onNPlusOneQuery(NPlusOneQuery nPlusOneQuery) {
+            this.detected.add(nPlusOneQuery);
+        }
+    }
+
+    private JDBCDataSource actualDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:nPlusOne");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE nplus_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryCountHolder.clear();
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void transactionScope() throws Exception {
+        RecordingListener listener = new RecordingListener(3, NPlusOneQueryListener.Scope.TRANSACTION);
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).methodListener(listener).build();
+
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        Statement statement = connection.createStatement();
+        for (int i = 0; i < 5; i++) {
+            statement.executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        PreparedStatement ps = connection.prepareStatement("SELECT name FROM nplus_emp WHERE id = ?");
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.executeQuery();
+        }
+        assertThat(listener.detected).as("reported at the end of unit of work").isEmpty();
+
+        connection.commit();
+
+        assertThat(listener.detected).hasSize(1);
+        NPlusOneQueryListener.NPlusOneQuery detected = listener.detected.get(0);
+        assertThat(detected.getFingerprint()).isEqualTo("SELECT name FROM nplus_emp WHERE id = ?");
+        assertThat(detected.getQuery()).isEqualTo("SELECT name FROM nplus_emp WHERE id = 3");
+        assertThat(detected.getCount()).as("literal and prepared queries share the fingerprint").isEqualTo(8);
+        assertThat(detected.getTotalElapsedTime()).isGreaterThanOrEqualTo(0);
+        assertThat(detected.getCallSite()).isNotEmpty();
+
+        // new unit of work
+        listener.detected.clear();
+        for (int i = 0; i < 3; i++) {
+            statement.executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        connection.close();
+        assertThat(listener.detected).isEmpty();
+    }
+
+    @Test
+    public void transactionScopeWithoutMethodListener() throws Exception {
+        RecordingListener listener = new RecordingListener(1, NPlusOneQueryListener.Scope.TRANSACTION);
+        Logger logger = mock(Logger.class);
+        listener.setLogger(logger);
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).build();
+
+        Connection connection = dataSource.getConnection();
+        for (int i = 0; i < 3; i++) {
+            connection.createStatement().executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        connection.close();
+
+        assertThat(listener.detected).isEmpty();
+        verify(logger, times(1)).log(eq(Level.WARNING), anyString());
+    }
+
+    @Test
+    public void threadScope() throws Exception {
+        RecordingListener listener = new RecordingListener(2, NPlusOneQueryListener.Scope.THREAD);
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).methodListener(listener).build();
+
+        for (int i = 0; i < 4; i++) {
+            Connection connection = dataSource.getConnection();
+            connection.createStatement().executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+            connection.close();
+        }
+        assertThat(listener.detected).isEmpty();
+
+        listener.endUnitOfWork();
+        assertThat(listener.detected).hasSize(1);
+        assertThat(listener.detected.get(0).getCount()).isEqualTo(4);
+
+        listener.endUnitOfWork();
+        assertThat(listener.detected).hasSize(1);
+    }
+
+    @Test
+    public void transactionScopeWithAutoCommit() throws Exception {
+        RecordingListener listener = new RecordingListener(2, NPlusOneQueryListener.Scope.TRANSACTION);
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).methodListener(listener).build();
+
+        Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        for (int i = 0; i < 5; i++) {
+            statement.executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        connection.setAutoCommit(false);
+        for (int i = 0; i < 3; i++) {
+            statement.executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        assertThat(listener.detected).isEmpty();
+
+        connection.setAutoCommit(true);
+        assertThat(listener.detected).as("auto-commit executions are not counted").hasSize(1);
+        assertThat(listener.detected.get(0).getCount()).isEqualTo(3);
+
+        for (int i = 0; i < 5; i++) {
+            statement.executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        connection.close();
+        assertThat(listener.detected).hasSize(1);
+    }
+
+    @Test
+    public void threadScopeClearedByQueryCountHolder() throws Exception {
+        RecordingListener listener = new RecordingListener(2, NPlusOneQueryListener.Scope.THREAD);
+        DataSource dataSource = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).methodListener(listener).build();
+
+        Connection connection = dataSource.getConnection();
+        for (int i = 0; i < 3; i++) {
+            connection.createStatement().executeQuery("SELECT name FROM nplus_emp WHERE id = " + i);
+        }
+        QueryCountHolder.clear();  // end of request without endUnitOfWork()
+
+        connection.createStatement().executeQuery("SELECT name FROM nplus_emp WHERE id = 10");
+        connection.close();
+        listener.endUnitOfWork();
+        assertThat(listener.detected).as("counts of the previous request are discarded").isEmpty();
+    }
+
+    @Test
+    public void manyFingerprints() {
+        NPlusOneQueryListener.FingerprintCounter counter = new NPlusOneQueryListener.FingerprintCounter();
+        for (int i = 0; i < 100; i++) {
+            assertThat(counter.increment("query-" + i, 1)).isEqualTo(1);
+        }
+        counter.detected("query-50", new NPlusOneQueryListener.NPlusOneQuery("query-50", "query-50", "ds", "1", 0, 0, new StackTraceElement[0]));
+        for (int i = 0; i < 100; i++) {
+            assertThat(counter.increment("query-" + i, 2)).isEqualTo(2);
+        }
+        List<NPlusOneQueryListener.NPlusOneQuery> detected = counter.getDetected();
+        assertThat(detected).hasSize(1);
+        assertThat(detected.get(0).getCount()).isEqualTo(2);
+        assertThat(detected.get(0).getTotalElapsedTime()).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,183 @@
+package net.ttddyy.dsproxy.listener;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryBudget;
+import net.ttddyy.dsproxy.QueryBudgetExceededException;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.TestUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class QueryBudgetListenerTest {
+
+    private static class RecordingListener extends QueryBudgetListener {
+        private List<QueryBudget.Scope> exceeded = new ArrayList<QueryBudget.Scope>();
+
+        private RecordingListener(boolean failFast) {
+            super(failFast);
+        }
+
+        @Override
+        protected void onBudgetExceeded(QueryBudget.Scope scope, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            this.exceeded.add(scope);
+        }
+    }
+
+    private JDBCDataSource actualDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        this.actualDataSource = new JDBCDataSource();
+        this.actualDataSource.setDatabase("jdbc:hsqldb:mem:queryBudget");
+        Connection connection = this.actualDataSource.getConnection();
+        connection.createStatement().execute("CREATE TABLE budget_emp(id INTEGER PRIMARY KEY)");
+        connection.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        assertThat(QueryBudget.current()).isNull();
+        TestUtils.shutdown(this.actualDataSource);
+    }
+
+    @Test
+    public void failFast() throws Exception {
+        RecordingListener listener = new RecordingListener(true);
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).build();
+        Connection connection = ds.getConnection();
+        Statement statement = connection.createStatement();
+
+        QueryBudget.Scope scope = QueryBudget.create().maxQueries(2).open();
+        try {
+            statement.executeQuery("SELECT * FROM budget_emp");
+            statement.executeQuery("SELECT * FROM budget_emp");
+            try {
+                statement.executeUpdate("INSERT INTO budget_emp VALUES (1)");
+                fail("budget is exceeded");
+            } catch (QueryBudgetExceededException e) {
+                assertThat((Throwable) e).isInstanceOf(SQLException.class);
+                assertThat(e.getScope()).isSameAs(scope);
+            }
+            try {
+                statement.executeUpdate("INSERT INTO budget_emp VALUES (1)");
+                fail("budget is exceeded");
+            } catch (QueryBudgetExceededException e) {
+            }
+        } finally {
+            scope.close();
+        }
+
+        assertThat(listener.exceeded).as("reported once").hasSize(1);
+        assertThat(scope.getQueryCount()).isEqualTo(2);
+
+        // budget is not enforced after the scope is closed
+        statement.executeUpdate("INSERT INTO budget_emp VALUES (1)");
+        connection.close();
+    }
+
+    @Test
+    public void reportOnly() throws Exception {
+        RecordingListener listener = new RecordingListener(false);
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource).listener(listener).build();
+        Connection connection = ds.getConnection();
+        Statement statement = connection.createStatement();
+
+        QueryBudget.Scope scope = QueryBudget.create().maxRows(2).maxTime(1, TimeUnit.MINUTES).open();
+        try {
+            statement.executeUpdate("INSERT INTO budget_emp VALUES (1)");
+            statement.executeUpdate("INSERT INTO budget_emp VALUES (2)");
+            assertThat(listener.exceeded).isEmpty();
+            statement.executeUpdate("DELETE FROM budget_emp");
+        } finally {
+            scope.close();
+        }
+
+        assertThat(listener.exceeded).hasSize(1);
+        assertThat(scope.getRowsAffected()).isEqualTo(4);
+        assertThat(scope.getQueryCount()).isEqualTo(3);
+        connection.close();
+    }
+
+    @Test
+    public void nestedScope() throws Exception {
+        QueryBudget.Scope outer = QueryBudget.create().maxQueries(10).open();
+        QueryBudget.Scope inner = QueryBudget.create().maxQueries(1).open();
+        assertThat(QueryBudget.current()).isSameAs(inner);
+
+        inner.close();
+        assertThat(QueryBudget.current()).isSameAs(outer);
+        inner.close();
+        assertThat(QueryBudget.current()).isSameAs(outer);
+
+        outer.close();
+        assertThat(QueryBudget.current()).isNull();
+    }
+
+    @Test
+    public void failFastReleasesPrecedingListeners() throws Exception {
+        InFlightQueryListener inFlightListener = new InFlightQueryListener();
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .listener(inFlightListener).listener(new RecordingListener(true)).build();
+        Connection connection = ds.getConnection();
+        Statement statement = connection.createStatement();
+
+        QueryBudget.Scope scope = QueryBudget.create().maxQueries(1).open();
+        try {
+            statement.executeQuery("SELECT * FROM budget_emp");
+            try {
+                statement.executeQuery("SELECT * FROM budget_emp");
+                fail("budget is exceeded");
+            } catch (QueryBudgetExceededException e) {
+            }
+        } finally {
+            scope.close();
+        }
+
+        assertThat(inFlightListener.getInFlightQueryCount()).as("aborted query is not left in flight").isZero();
+        connection.close();
+    }
+
+    @Test
+    public void abortedQueryIsNotCounted() throws Exception {
+        QueryExecutionListener abortingListener = new NoOpQueryExecutionListener() {
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                throw new IllegalStateException("abort");
+            }
+        };
+        DataSource ds = ProxyDataSourceBuilder.create(this.actualDataSource)
+                .listener(new RecordingListener(false)).listener(abortingListener).build();
+        Connection connection = ds.getConnection();
+        Statement statement = connection.createStatement();
+
+        QueryBudget.Scope scope = QueryBudget.create().maxQueries(10).open();
+        try {
+            statement.executeQuery("SELECT * FROM budget_emp");
+            fail("query is aborted");
+        } catch (IllegalStateException e) {
+        } finally {
+            scope.close();
+        }
+
+        assertThat(scope.getQueryCount()).isZero();
+        connection.close();
+    }
+
+}
@@ -37,4 +37,16 @@ public class QueryUtilsTest {
         assertThat(QueryUtils.getQueryType("DELETE")).isEqualTo(QueryType.DELETE);
         assertThat(QueryUtils.getQueryType("delete")).isEqualTo(QueryType.DELETE);
     }
+
+    @Test
+    public void getFingerprint() {
+        assertThat(QueryUtils.getFingerprint(null)).isNull();
+        assertThat(QueryUtils.getFingerprint("")).isEqualTo("");
+        assertThat(QueryUtils.getFingerprint("SELECT * FROM emp WHERE id = 10 AND name = 'foo'"))
+                .isEqualTo("SELECT * FROM emp WHERE id = ? AND name = ?");
+        assertThat(QueryUtils.getFingerprint("SELECT *  FROM\n emp2 WHERE id=1.5 AND name='it''s' -- comment\n"))
+                .isEqualTo("SELECT * FROM emp2 WHERE id=? AND name=?");
+        assertThat(QueryUtils.getFingerprint("/* hint */ UPDATE t_1 SET c = ? WHERE id IN (1, 2)"))
+                .isEqualTo("UPDATE t_1 SET c = ? WHERE id IN (?, ?)");
+    }
 }
@@ -87,6 +87,89 @@ public class SlowQueryListenerTest {
     }
 
 
+    @Test
+    public void onSlowQueryWithTimerWheel() throws Exception {
+
+        final ExecutionInfo slowExecutionInfo = new ExecutionInfo();
+        final ExecutionInfo fastExecutionInfo = new ExecutionInfo();
+        final List<QueryInfo> queryInfo = new ArrayList<QueryInfo>();
+
+        final List<ExecutionInfo> reported = new ArrayList<ExecutionInfo>();
+
+        SlowQueryListener listener = new SlowQueryListener() {
+            @Override
+            protected void onSlowQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, long startTimeInMills) {
+                synchronized (reported) {
+                    reported.add(execInfo);
+                }
+            }
+        };
+        listener.setThreshold(50);
+        listener.setThresholdTimeUnit(TimeUnit.MILLISECONDS);
+        listener.setTimerWheelTick(5, TimeUnit.MILLISECONDS);
+
+        // nested fast query within slow query on the same thread
+        listener.beforeQuery(slowExecutionInfo, queryInfo);
+        listener.beforeQuery(fastExecutionInfo, queryInfo);
+        listener.afterQuery(fastExecutionInfo, queryInfo);
+        TimeUnit.MILLISECONDS.sleep(200);  // ample time
+        listener.afterQuery(slowExecutionInfo, queryInfo);
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        synchronized (reported) {
+            assertThat(reported).as("callback should be called once only for slow query").containsExactly(slowExecutionInfo);
+        }
+        assertThat(slowExecutionInfo.getElapsedTime()).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    public void onSlowQueryWithTimerWheelFromMultipleThreads() throws Exception {
+
+        final AtomicInteger counter = new AtomicInteger();
+        final SlowQueryListener listener = new SlowQueryListener() {
+            @Override
+            protected void onSlowQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, long startTimeInMills) {
+                counter.incrementAndGet();
+            }
+        };
+        listener.setThreshold(100);
+        listener.setThresholdTimeUnit(TimeUnit.MILLISECONDS);
+        listener.setTimerWheelTick(10, TimeUnit.MILLISECONDS);
+
+        int threadCount = 4;
+        final int queryCount = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final boolean slow = i == 0;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<QueryInfo> queryInfo = new ArrayList<QueryInfo>();
+                    for (int j = 0; j < queryCount; j++) {
+                        ExecutionInfo executionInfo = new ExecutionInfo();
+                        listener.beforeQuery(executionInfo, queryInfo);
+                        if (slow && j == 0) {
+                            try {
+                                TimeUnit.MILLISECONDS.sleep(300);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        listener.afterQuery(executionInfo, queryInfo);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        assertThat(counter.get()).isEqualTo(1);
+    }
+
     @Test
     public void executionTime() throws Exception {
 
@@ -5,6 +5,12 @@ import net.ttddyy.dsproxy.QueryCountHolder;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -49,5 +55,101 @@ public class ThreadQueryCountHolderTest {
 
     }
 
+    @Test
+    public void propagateContext() throws Exception {
+        final ThreadQueryCountHolder holder = new ThreadQueryCountHolder();
+        QueryCount queryCount = holder.getOrCreateQueryCount("testDS");
+        queryCount.incrementSuccess();
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                holder.getOrCreateQueryCount("testDS").incrementSuccess();
+                holder.getOrCreateQueryCount("otherDS").incrementSuccess();
+            }
+        };
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(4);
+        try {
+            threadPool.submit(QueryCountHolder.wrap(task)).get();
+            int result = threadPool.submit(QueryCountHolder.wrap(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    holder.getOrCreateQueryCount("testDS").incrementSuccess();
+                    return 1;
+                }
+            })).get();
+            assertThat(result).isEqualTo(1);
+
+            Executor executor = QueryCountHolder.wrap(threadPool);
+            final CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        holder.getOrCreateQueryCount("testDS").incrementSuccess();
+                        latch.countDown();
+                    }
+                });
+            }
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // not propagated
+            threadPool.submit(task).get();
+        } finally {
+            threadPool.shutdown();
+        }
+
+        assertThat(holder.getOrCreateQueryCount("testDS")).isSameAs(queryCount);
+        assertThat(queryCount.getSuccess()).isEqualTo(103);
+        assertThat(QueryCountHolder.get("otherDS").getSuccess()).isEqualTo(1);
+        assertThat(QueryCountHolder.getGrandTotal().getSuccess()).isEqualTo(104);
+    }
+
+    @Test
+    public void attachAndDetach() {
+        QueryCountHolder.Context context = new QueryCountHolder.Context();
+        QueryCount original = QueryCountHolder.getOrCreate("testDS");
+
+        QueryCountHolder.Context previous = QueryCountHolder.attach(context);
+        QueryCount attached = QueryCountHolder.getOrCreate("testDS");
+        assertThat(attached).isNotSameAs(original);
+        assertThat(context.get("testDS")).isSameAs(attached);
+
+        QueryCountHolder.detach(previous);
+        assertThat(QueryCountHolder.getOrCreate("testDS")).isSameAs(original);
+    }
+
+    @Test
+    public void clear() {
+        QueryCount queryCount = QueryCountHolder.getOrCreate("testDS");
+        assertThat(QueryCountHolder.get("testDS")).isSameAs(queryCount);
+
+        QueryCountHolder.clear();
+        assertThat(QueryCountHolder.get("testDS")).isNull();
+        assertThat(QueryCountHolder.getDataSourceNames()).isEmpty();
+        assertThat(QueryCountHolder.getOrCreate("testDS")).isNotSameAs(queryCount);
+    }
+
+    @Test
+    public void noContextWithoutQueries() throws Exception {
+        final AtomicReference<QueryCountHolder.Context> previousReference = new AtomicReference<QueryCountHolder.Context>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                QueryCountHolder.get("testDS");
+                QueryCountHolder.getGrandTotal();
+                QueryCountHolder.getDataSourceNames();
+                QueryCountHolder.clear();
+                QueryCountHolder.Context previous = QueryCountHolder.attach(new QueryCountHolder.Context());
+                previousReference.set(previous);
+                QueryCountHolder.detach(previous);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(previousReference.get()).isNull();
+    }
 
 }
@@ -0,0 +1,48 @@
+package net.ttddyy.dsproxy.listener.logging;
+
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.Test;
+
+import javax.sql.rowset.serial.SerialBlob;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class BoundedParameterValueConverterTest {
+
+    private BoundedParameterValueConverter converter = new BoundedParameterValueConverter(5, 2);
+
+    private String getValue(Object... args) {
+        ParameterSetOperation param = new ParameterSetOperation();
+        param.setArgs(args);
+        return this.converter.getValue(param);
+    }
+
+    @Test
+    public void string() {
+        assertThat(getValue(1, null)).isNull();
+        assertThat(getValue(1, "abcde")).isEqualTo("abcde");
+        assertThat(getValue(1, "abcdefg")).isEqualTo("abcde...(7 chars)");
+        assertThat(getValue(1, 1234567)).isEqualTo("12345...(7 chars)");
+        assertThat(getValue(1, "abcd😀")).as("surrogate pair is not split").isEqualTo("abcd...(6 chars)");
+    }
+
+    @Test
+    public void bytes() {
+        assertThat(getValue(1, new byte[]{1, (byte) 0xab})).isEqualTo("0x01ab");
+        assertThat(getValue(1, new byte[]{1, (byte) 0xab, 3})).isEqualTo("0x01ab...(3 bytes)");
+    }
+
+    @Test
+    public void streamsAndLobs() throws Exception {
+        assertThat(getValue(1, new ByteArrayInputStream(new byte[10]))).isEqualTo("[InputStream]");
+        assertThat(getValue(1, new ByteArrayInputStream(new byte[10]), 10)).isEqualTo("[InputStream(10)]");
+        assertThat(getValue(1, new StringReader("foo"), 3L)).isEqualTo("[Reader(3)]");
+        assertThat(getValue(1, new SerialBlob(new byte[20]))).isEqualTo("[Blob(20)]");
+    }
+
+}
@@ -5,12 +5,15 @@ import net.ttddyy.dsproxy.ExecutionInfoBuilder;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.QueryInfoBuilder;
 import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
 import org.assertj.core.util.Lists;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -392,4 +395,34 @@ public class DefaultJsonQueryLogEntryCreatorTest {
         assertThat(jsonResult).containsOnlyOnce("\"batchSize\":100");
     }
 
+    @Test
+    public void getLogEntryWithOverriddenParametersMapHooks() throws Exception {
+        Method method = Object.class.getMethod("toString");
+
+        ExecutionInfo executionInfo = ExecutionInfoBuilder
+                .create()
+                .method(method)
+                .statementType(StatementType.CALLABLE)
+                .success(true)
+                .build();
+
+        QueryInfo queryInfo = QueryInfoBuilder.create()
+                .query("select 1")
+                .param("name", "foo")
+                .param("password", "secret")
+                .build();
+
+        DefaultJsonQueryLogEntryCreator creator = new DefaultJsonQueryLogEntryCreator() {
+            @Override
+            protected SortedMap<String, String> getParametersToDisplay(List<ParameterSetOperation> params) {
+                SortedMap<String, String> paramMap = super.getParametersToDisplay(params);
+                paramMap.remove("password");
+                return paramMap;
+            }
+        };
+
+        String entry = creator.getLogEntry(executionInfo, Lists.newArrayList(queryInfo), false, false);
+        assertThat(entry).endsWith("\"params\":[{\"name\":\"foo\"}]}");
+    }
+
 }
@@ -5,12 +5,17 @@ import net.ttddyy.dsproxy.ExecutionInfoBuilder;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.QueryInfoBuilder;
 import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
 import org.assertj.core.util.Lists;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -192,6 +197,110 @@ public class DefaultQueryLogEntryCreatorTest {
                         "Params:[(foo,100),(bar,200)]");
     }
 
+    @Test
+    public void getLogEntryWithBoundedParameters() throws Exception {
+        Method method = Object.class.getMethod("toString");
+
+        ExecutionInfo executionInfo = ExecutionInfoBuilder
+                .create()
+                .method(method)
+                .statementType(StatementType.PREPARED)
+                .success(true)
+                .batch(true)
+                .batchSize(3)
+                .build();
+
+        QueryInfo queryInfo = QueryInfoBuilder.create()
+                .query("select 1")
+                .batchParam(1, 1, "foofoofoo")
+                .batchParam(1, 2, new byte[]{1, 2})
+                .batchParam(2, 1, "bar")
+                .batchParam(2, 2, 200)
+                .batchParam(3, 1, "baz")
+                .batchParam(3, 2, 300)
+                .build();
+
+        DefaultQueryLogEntryCreator creator = new DefaultQueryLogEntryCreator();
+        creator.setParameterValueConverter(new BoundedParameterValueConverter(3, 16));
+        creator.setMaxParametersLength(30);
+
+        String entry = creator.getLogEntry(executionInfo, Lists.newArrayList(queryInfo), false, false);
+        assertThat(entry).endsWith("Params:[(foo...(9 chars),0x0102),(bar,200),...(1 more)]");
+    }
+
+    @Test
+    public void getSortedParameters() throws Exception {
+        Method setString = PreparedStatement.class.getMethod("setString", int.class, String.class);
+        List<ParameterSetOperation> params = new ArrayList<ParameterSetOperation>();
+        for (int i = 12; i >= 1; i--) {
+            params.add(new ParameterSetOperation(setString, new Object[]{i, "v" + i}));
+        }
+        params.add(new ParameterSetOperation(setString, new Object[]{"name", "foo"}));
+        params.add(new ParameterSetOperation(setString, new Object[]{"13", "v13"}));
+        params.add(new ParameterSetOperation(setString, new Object[]{2, "v2-override"}));
+
+        DefaultQueryLogEntryCreator creator = new DefaultQueryLogEntryCreator();
+        AbstractQueryLogEntryCreator.SortedParameters sorted = creator.getSortedParameters(params);
+
+        assertThat(sorted.size()).isEqualTo(14);
+        assertThat(sorted.getKey(0)).isEqualTo("1");
+        assertThat(sorted.getKey(1)).isEqualTo("2");
+        assertThat(sorted.getValue(1)).isEqualTo("v2-override");
+        assertThat(sorted.getKey(9)).isEqualTo("10");
+        assertThat(sorted.getKey(12)).isEqualTo("13");
+        assertThat(sorted.getKey(13)).isEqualTo("name");
+        assertThat(sorted.getValue(13)).isEqualTo("foo");
+    }
+
+    @Test
+    public void getLogEntryWithOverriddenParametersMapHooks() throws Exception {
+        Method method = Object.class.getMethod("toString");
+
+        ExecutionInfo executionInfo = ExecutionInfoBuilder
+                .create()
+                .method(method)
+                .statementType(StatementType.PREPARED)
+                .success(true)
+                .build();
+
+        QueryInfo queryInfo = QueryInfoBuilder.create()
+                .query("select 1")
+                .param(1, "foo")
+                .param(2, "secret")
+                .build();
+
+        // mask a parameter by overriding getParametersToDisplay
+        DefaultQueryLogEntryCreator maskingCreator = new DefaultQueryLogEntryCreator() {
+            @Override
+            protected SortedMap<String, String> getParametersToDisplay(List<ParameterSetOperation> params) {
+                SortedMap<String, String> paramMap = super.getParametersToDisplay(params);
+                paramMap.put("2", "****");
+                return paramMap;
+            }
+        };
+        String entry = maskingCreator.getLogEntry(executionInfo, Lists.newArrayList(queryInfo), false, false);
+        assertThat(entry).endsWith("Params:[(foo,****)]");
+
+        // customize output by overriding SortedMap based hook
+        DefaultQueryLogEntryCreator writingCreator = new DefaultQueryLogEntryCreator() {
+            @Override
+            @SuppressWarnings("deprecation")
+            protected void writeParamsForSinglePreparedEntry(StringBuilder sb, SortedMap<String, String> paramMap, ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                sb.append("(");
+                for (Map.Entry<String, String> paramEntry : paramMap.entrySet()) {
+                    sb.append(paramEntry.getKey()).append(":").append(paramEntry.getValue()).append(";");
+                }
+                sb.append("),");
+            }
+        };
+        entry = writingCreator.getLogEntry(executionInfo, Lists.newArrayList(queryInfo), false, false);
+        assertThat(entry).endsWith("Params:[(1:foo;2:secret;)]");
+
+        assertThat(new DefaultQueryLogEntryCreator().isParametersMapOverridden()).isFalse();
+        assertThat(maskingCreator.isParametersMapOverridden()).isTrue();
+        assertThat(writingCreator.isParametersMapOverridden()).isTrue();
+    }
+
     @Test
     public void getLogEntryForCallableStatement() throws Exception {
         Method method = Object.class.getMethod("toString");
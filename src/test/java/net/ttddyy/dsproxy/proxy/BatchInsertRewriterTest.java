@@ -0,0 +1,141 @@
+package net.ttddyy.dsproxy.proxy;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class BatchInsertRewriterTest {
+
+    @Test
+    public void parse() {
+        BatchInsertRewriter rewriter = new BatchInsertRewriter();
+
+        BatchInsertRewriter.InsertQuery insertQuery = rewriter.parse("INSERT INTO emp (id, name) VALUES (?, ?)");
+        assertThat(insertQuery).isNotNull();
+        assertThat(insertQuery.getParameterCount()).isEqualTo(2);
+        assertThat(insertQuery.toMultiRowQuery(3)).isEqualTo("INSERT INTO emp (id, name) VALUES (?, ?), (?, ?), (?, ?)");
+
+        insertQuery = rewriter.parse("insert into emp values(?, 10, ?, ?)");
+        assertThat(insertQuery.getParameterCount()).isEqualTo(3);
+        assertThat(insertQuery.toMultiRowQuery(2)).isEqualTo("insert into emp values (?, 10, ?, ?), (?, 10, ?, ?)");
+
+        assertThat(rewriter.parse("INSERT INTO emp (id, name) VALUES (?, 'foo')")).as("string literal").isNull();
+        assertThat(rewriter.parse("INSERT INTO emp (id, name) VALUES (?, UPPER(?))")).as("function").isNull();
+        assertThat(rewriter.parse("INSERT INTO emp (id, name) SELECT id, name FROM emp2 WHERE id = ?")).isNull();
+        assertThat(rewriter.parse("INSERT INTO emp (id) VALUES (?) ON DUPLICATE KEY UPDATE id = ?")).isNull();
+        assertThat(rewriter.parse("INSERT INTO emp (id, name) VALUES (1, 2)")).as("no parameter").isNull();
+        assertThat(rewriter.parse("UPDATE emp SET name = ?")).isNull();
+        assertThat(new BatchInsertRewriter(2).parse("INSERT INTO emp VALUES (?, ?, ?)")).as("exceeds max parameters").isNull();
+    }
+
+    @Test
+    public void isRewritable() throws Exception {
+        BatchInsertRewriter rewriter = new BatchInsertRewriter();
+        BatchInsertRewriter.InsertQuery insertQuery = rewriter.parse("INSERT INTO emp VALUES (?, ?)");
+
+        List<Map<ParameterKey, ParameterSetOperation>> batch = new ArrayList<Map<ParameterKey, ParameterSetOperation>>();
+        batch.add(row(1, "foo"));
+        assertThat(rewriter.isRewritable(insertQuery, batch)).as("single entry").isFalse();
+
+        batch.add(row(2, "bar"));
+        assertThat(rewriter.isRewritable(insertQuery, batch)).isTrue();
+
+        Map<ParameterKey, ParameterSetOperation> named = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        named.put(new ParameterKey("id"), operation(1, "setInt", int.class, 1));
+        named.put(new ParameterKey(2), operation(2, "setString", String.class, "baz"));
+        batch.add(named);
+        assertThat(rewriter.isRewritable(insertQuery, batch)).as("named parameter").isFalse();
+    }
+
+    @Test
+    public void execute() throws Exception {
+        BatchInsertRewriter rewriter = new BatchInsertRewriter(4);  // 2 rows per chunk
+        BatchInsertRewriter.InsertQuery insertQuery = rewriter.parse("INSERT INTO emp VALUES (?, ?)");
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement fullChunk = mock(PreparedStatement.class);
+        PreparedStatement lastChunk = mock(PreparedStatement.class);
+        when(connection.prepareStatement("INSERT INTO emp VALUES (?, ?), (?, ?)")).thenReturn(fullChunk);
+        when(connection.prepareStatement("INSERT INTO emp VALUES (?, ?)")).thenReturn(lastChunk);
+        when(fullChunk.executeUpdate()).thenReturn(2, 1);
+        when(lastChunk.executeUpdate()).thenReturn(1);
+
+        List<Map<ParameterKey, ParameterSetOperation>> batch = new ArrayList<Map<ParameterKey, ParameterSetOperation>>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(row(i, "name-" + i));
+        }
+
+        int[] updateCounts = rewriter.execute(connection, insertQuery, batch);
+
+        assertThat(updateCounts).containsExactly(1, 1, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 1);
+        verify(connection, times(1)).prepareStatement("INSERT INTO emp VALUES (?, ?), (?, ?)");
+        verify(fullChunk).setInt(1, 0);
+        verify(fullChunk).setString(2, "name-0");
+        verify(fullChunk).setInt(3, 1);
+        verify(fullChunk).setString(4, "name-1");
+        verify(fullChunk).setInt(1, 2);
+        verify(fullChunk).setString(4, "name-3");
+        verify(lastChunk).setInt(1, 4);
+        verify(lastChunk).setString(2, "name-4");
+        verify(fullChunk).close();
+        verify(lastChunk).close();
+    }
+
+    @Test
+    public void executeFailure() throws Exception {
+        BatchInsertRewriter rewriter = new BatchInsertRewriter(2);  // 1 row per chunk
+        BatchInsertRewriter.InsertQuery insertQuery = rewriter.parse("INSERT INTO emp VALUES (?, ?)");
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(ps);
+        when(ps.executeUpdate()).thenReturn(1).thenThrow(new SQLException("duplicate", "23505"));
+
+        List<Map<ParameterKey, ParameterSetOperation>> batch = new ArrayList<Map<ParameterKey, ParameterSetOperation>>();
+        batch.add(row(1, "foo"));
+        batch.add(row(1, "foo"));
+        batch.add(row(2, "bar"));
+
+        try {
+            rewriter.execute(connection, insertQuery, batch);
+            fail("BatchUpdateException should be thrown");
+        } catch (BatchUpdateException e) {
+            assertThat(e.getUpdateCounts()).containsExactly(1);
+            assertThat(e.getSQLState()).isEqualTo("23505");
+        }
+        verify(ps).close();
+    }
+
+    private static Map<ParameterKey, ParameterSetOperation> row(int id, String name) throws Exception {
+        Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        params.put(new ParameterKey(1), operation(1, "setInt", int.class, id));
+        params.put(new ParameterKey(2), operation(2, "setString", String.class, name));
+        return params;
+    }
+
+    private static ParameterSetOperation operation(int index, String methodName, Class<?> type, Object value) throws Exception {
+        Method method = PreparedStatement.class.getMethod(methodName, int.class, type);
+        return new ParameterSetOperation(method, new Object[]{index, value});
+    }
+
+}
@@ -0,0 +1,59 @@
+package net.ttddyy.dsproxy.proxy;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertThat(cache.get("a")).isEqualTo(1);
+
+        cache.put("c", 3);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(3);
+    }
+
+    @Test
+    public void evictDownToNinetyPercent() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 50; i++) {
+            cache.get(i);  // keep the first half hot
+        }
+
+        cache.put(100, 100);
+
+        assertThat(cache.size()).isEqualTo(90);
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get(i)).isEqualTo(i);
+        }
+        assertThat(cache.get(100)).isEqualTo(100);
+        assertThat(cache.get(50)).isNull();
+    }
+
+    @Test
+    public void replaceDoesNotEvict() {
+        BoundedCache<String, Integer> cache = new BoundedCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 10);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(10);
+        assertThat(cache.get("b")).isEqualTo(2);
+    }
+
+}
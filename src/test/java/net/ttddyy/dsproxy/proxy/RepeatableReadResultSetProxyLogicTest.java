@@ -11,12 +11,14 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -239,6 +241,101 @@ public class RepeatableReadResultSetProxyLogicTest {
         }).isInstanceOf(SQLException.class).hasMessage("Unknown column name 'bad'");
     }
 
+    @Test
+    public void getColumnByLabelIsCaseInsensitive() throws Throwable {
+        ResultSet resultSet = exampleResultSet();
+        RepeatableReadResultSetProxyLogic resultSetProxyLogic = createProxyLogic(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getObject(1)).thenReturn(COLUMN_1_VALUE);
+
+        invokeNext(resultSetProxyLogic);
+        invokeBeforeFirst(resultSetProxyLogic);
+        invokeNext(resultSetProxyLogic);
+
+        assertThat(invokeGetString(resultSetProxyLogic, "first")).isEqualTo(COLUMN_1_VALUE);
+        assertThat(invokeGetString(resultSetProxyLogic, "First")).isEqualTo(COLUMN_1_VALUE);
+        assertThat(invokeGetString(resultSetProxyLogic, COLUMN_1_LABEL)).isEqualTo(COLUMN_1_VALUE);
+    }
+
+    @Test
+    public void columnMetadataIsSharedBySameQuery() throws Throwable {
+        ColumnMetadataCache cache = new ColumnMetadataCache();
+        ProxyConfig proxyConfig = ProxyConfig.Builder.create().columnMetadataCache(cache).build();
+        RepeatableReadResultSetProxyLogicFactory factory = new RepeatableReadResultSetProxyLogicFactory();
+
+        ResultSet first = exampleResultSet();
+        ResultSet second = exampleResultSet();
+        ResultSet third = exampleResultSet();
+
+        factory.create(first, "SELECT 1", new ConnectionInfo(), proxyConfig);
+        factory.create(second, "SELECT 1", new ConnectionInfo(), proxyConfig);
+        factory.create(third, "SELECT 2", new ConnectionInfo(), proxyConfig);
+
+        verify(first.getMetaData()).getColumnType(1);
+        verify(second.getMetaData(), never()).getColumnType(1);
+        verify(third.getMetaData()).getColumnType(1);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.get("SELECT 1").getColumnIndex("third")).isEqualTo(3);
+        assertThat(cache.get("SELECT 1").getColumnIndex("THIRD")).isEqualTo(3);
+    }
+
+    @Test
+    public void columnMetadataIsReloadedWhenShapeChanged() throws Throwable {
+        ColumnMetadataCache cache = new ColumnMetadataCache();
+        ProxyConfig proxyConfig = ProxyConfig.Builder.create().columnMetadataCache(cache).build();
+        RepeatableReadResultSetProxyLogicFactory factory = new RepeatableReadResultSetProxyLogicFactory();
+
+        factory.create(exampleResultSet(), "SELECT * FROM foo", new ConnectionInfo(), proxyConfig);
+
+        // a column is added
+        ResultSetMetaData added = exampleResultSetMetaData();
+        when(added.getColumnCount()).thenReturn(NUMBER_OF_COLUMNS + 1);
+        when(added.getColumnLabel(4)).thenReturn("FOURTH");
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(added);
+        factory.create(resultSet, "SELECT * FROM foo", new ConnectionInfo(), proxyConfig);
+
+        assertThat(cache.getHitCount()).isEqualTo(0);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.get("SELECT * FROM foo").getColumnCount()).isEqualTo(4);
+        assertThat(cache.get("SELECT * FROM foo").getColumnIndex("fourth")).isEqualTo(4);
+
+        // a column is renamed
+        ResultSetMetaData renamed = exampleResultSetMetaData();
+        when(renamed.getColumnCount()).thenReturn(NUMBER_OF_COLUMNS + 1);
+        when(renamed.getColumnLabel(2)).thenReturn("RENAMED");
+        when(renamed.getColumnLabel(4)).thenReturn("FOURTH");
+        resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(renamed);
+        factory.create(resultSet, "SELECT * FROM foo", new ConnectionInfo(), proxyConfig);
+
+        assertThat(cache.getMissCount()).isEqualTo(3);
+        assertThat(cache.get("SELECT * FROM foo").getColumnIndex("renamed")).isEqualTo(2);
+        assertThat(cache.get("SELECT * FROM foo").getColumnIndex("second")).isNull();
+
+        // same shape
+        resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(renamed);
+        factory.create(resultSet, "SELECT * FROM foo", new ConnectionInfo(), proxyConfig);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void columnMetadataCacheIsBounded() throws Throwable {
+        ColumnMetadataCache cache = new ColumnMetadataCache(2);
+        ColumnMetadata columnMetadata = new ColumnMetadata(new String[]{"ID"}, new int[]{Types.INTEGER});
+
+        cache.put("SELECT 1", columnMetadata);
+        cache.put("SELECT 2", columnMetadata);
+        cache.put("SELECT 3", columnMetadata);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("SELECT 3")).isSameAs(columnMetadata);
+    }
+
     private RepeatableReadResultSetProxyLogic createProxyLogic(ResultSet resultSet) {
         RepeatableReadResultSetProxyLogicFactory factory = new RepeatableReadResultSetProxyLogicFactory();
         return (RepeatableReadResultSetProxyLogic) factory.create(resultSet, new ConnectionInfo(), ProxyConfig.Builder.create().build());
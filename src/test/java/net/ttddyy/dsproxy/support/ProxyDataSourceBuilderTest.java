@@ -12,6 +12,7 @@ import net.ttddyy.dsproxy.listener.QueryCountStrategy;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 import net.ttddyy.dsproxy.listener.ThreadQueryCountHolder;
 import net.ttddyy.dsproxy.listener.TracingMethodListener;
+import net.ttddyy.dsproxy.listener.TransactionListener;
 import net.ttddyy.dsproxy.listener.logging.AbstractQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.AbstractSlowQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.CommonsLogLevel;
@@ -26,9 +27,17 @@ import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.SLF4JSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.SystemOutQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.SystemOutSlowQueryListener;
+import net.ttddyy.dsproxy.proxy.BatchInsertRewriter;
+import net.ttddyy.dsproxy.proxy.ColumnMetadataCache;
+import net.ttddyy.dsproxy.proxy.ConnectionLeakDetector;
 import net.ttddyy.dsproxy.proxy.JdbcProxyFactory;
+import net.ttddyy.dsproxy.proxy.OpenResourceTracker;
+import net.ttddyy.dsproxy.proxy.PreparedStatementCache;
 import net.ttddyy.dsproxy.proxy.RepeatableReadResultSetProxyLogicFactory;
 import net.ttddyy.dsproxy.proxy.ResultSetProxyLogicFactory;
+import net.ttddyy.dsproxy.proxy.WriteCoalescing;
+import net.ttddyy.dsproxy.transform.CachingQueryTransformer;
+import net.ttddyy.dsproxy.transform.QueryTransformer;
 import org.junit.Test;
 
 import java.util.List;
@@ -573,6 +582,7 @@ public class ProxyDataSourceBuilderTest {
         assertThat(ds.getProxyConfig().isAutoRetrieveGeneratedKeys()).isFalse();
         assertThat(ds.getProxyConfig().isAutoCloseGeneratedKeys()).isFalse();
         assertThat(ds.getProxyConfig().isGeneratedKeysProxyEnabled()).isFalse();
+        assertThat(ds.getProxyConfig().isCompactGeneratedKeys()).isFalse();
 
         // set true
         ds = ProxyDataSourceBuilder.create().autoRetrieveGeneratedKeys(true).build();
@@ -613,6 +623,13 @@ public class ProxyDataSourceBuilderTest {
         assertThat(ds.getProxyConfig().isGeneratedKeysProxyEnabled()).isTrue();
         assertThat(ds.getProxyConfig().getGeneratedKeysProxyLogicFactory()).isInstanceOf(RepeatableReadResultSetProxyLogicFactory.class);
 
+        // compact
+        ds = ProxyDataSourceBuilder.create().autoRetrieveCompactGeneratedKeys().build();
+        assertThat(ds.getProxyConfig().isAutoRetrieveGeneratedKeys()).isTrue();
+        assertThat(ds.getProxyConfig().isAutoCloseGeneratedKeys()).isFalse();
+        assertThat(ds.getProxyConfig().isCompactGeneratedKeys()).isTrue();
+        assertThat(ds.getProxyConfig().isGeneratedKeysProxyEnabled()).isFalse();
+
     }
 
     @Test
@@ -640,4 +657,173 @@ public class ProxyDataSourceBuilderTest {
         assertThat(ds.getProxyConfig().isRetrieveGeneratedKeysForBatchPreparedOrCallable()).isFalse();
 
     }
+
+    @Test
+    public void coalesceWrites() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isWriteCoalescingEnabled()).isFalse();
+        assertThat(ds.getProxyConfig().getWriteCoalescing()).isNull();
+
+        WriteCoalescing writeCoalescing = WriteCoalescing.Builder.create().table("foo").build();
+        ds = ProxyDataSourceBuilder.create().coalesceWrites(writeCoalescing).build();
+        assertThat(ds.getProxyConfig().isWriteCoalescingEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getWriteCoalescing()).isSameAs(writeCoalescing);
+    }
+
+    @Test
+    public void rewriteBatchedInserts() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().getBatchInsertRewriter()).isNull();
+
+        ds = ProxyDataSourceBuilder.create().rewriteBatchedInserts().build();
+        assertThat(ds.getProxyConfig().getBatchInsertRewriter().getMaxParameters()).isEqualTo(BatchInsertRewriter.DEFAULT_MAX_PARAMETERS);
+
+        ds = ProxyDataSourceBuilder.create().rewriteBatchedInserts(100).build();
+        assertThat(ds.getProxyConfig().getBatchInsertRewriter().getMaxParameters()).isEqualTo(100);
+    }
+
+    @Test
+    public void cachePreparedStatements() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isPreparedStatementCacheEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().cachePreparedStatements().build();
+        assertThat(ds.getProxyConfig().isPreparedStatementCacheEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getPreparedStatementCache().getMaxSize()).isEqualTo(PreparedStatementCache.DEFAULT_MAX_SIZE);
+
+        ds = ProxyDataSourceBuilder.create().cachePreparedStatements(10).build();
+        assertThat(ds.getProxyConfig().getPreparedStatementCache().getMaxSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void chunkBatch() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isBatchChunkingEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().chunkBatch(100).build();
+        assertThat(ds.getProxyConfig().isBatchChunkingEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getBatchChunkSize()).isEqualTo(100);
+    }
+
+    @Test
+    public void measureConnections() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isConnectionMetricsEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().measureConnections().build();
+        assertThat(ds.getProxyConfig().isConnectionMetricsEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getConnectionMetrics()).isNotNull();
+    }
+
+    @Test
+    public void detectConnectionLeaks() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isConnectionLeakDetectionEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().detectConnectionLeaks(30, TimeUnit.SECONDS).build();
+        assertThat(ds.getProxyConfig().isConnectionLeakDetectionEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getConnectionLeakDetector().getThreshold()).isEqualTo(30);
+        assertThat(ds.getProxyConfig().getConnectionLeakDetector().getThresholdTimeUnit()).isEqualTo(TimeUnit.SECONDS);
+
+        ConnectionLeakDetector detector = new ConnectionLeakDetector(1, TimeUnit.MINUTES, 10);
+        ds = ProxyDataSourceBuilder.create().detectConnectionLeaks(detector).build();
+        assertThat(ds.getProxyConfig().getConnectionLeakDetector()).isSameAs(detector);
+    }
+
+    @Test
+    public void trackOpenResources() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isOpenResourceTrackingEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().trackOpenResources().build();
+        assertThat(ds.getProxyConfig().isOpenResourceTrackingEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getOpenResourceTracker().isCaptureCreationSite()).isTrue();
+
+        OpenResourceTracker tracker = new OpenResourceTracker(false, 10);
+        ds = ProxyDataSourceBuilder.create().trackOpenResources(tracker).build();
+        assertThat(ds.getProxyConfig().getOpenResourceTracker()).isSameAs(tracker);
+    }
+
+    @Test
+    public void collectConnectionStats() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isConnectionStatsEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().collectConnectionStats().build();
+        assertThat(ds.getProxyConfig().isConnectionStatsEnabled()).isTrue();
+    }
+
+    @Test
+    public void transactionListener() {
+        ProxyDataSource ds;
+        TransactionListener listener = mock(TransactionListener.class);
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isTransactionListenerEnabled()).isFalse();
+
+        ds = ProxyDataSourceBuilder.create().transactionListener(listener).build();
+        assertThat(ds.getProxyConfig().isTransactionListenerEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getTransactionListener().getListeners()).containsExactly(listener);
+    }
+
+    @Test
+    public void cacheTransformedQueries() {
+        ProxyDataSource ds;
+        QueryTransformer queryTransformer = mock(QueryTransformer.class);
+
+        ds = ProxyDataSourceBuilder.create().queryTransformer(queryTransformer).build();
+        assertThat(ds.getProxyConfig().getQueryTransformer()).isSameAs(queryTransformer);
+
+        ds = ProxyDataSourceBuilder.create().queryTransformer(queryTransformer).cacheTransformedQueries().build();
+        assertThat(ds.getProxyConfig().getQueryTransformer()).isInstanceOf(CachingQueryTransformer.class);
+        CachingQueryTransformer cachingQueryTransformer = (CachingQueryTransformer) ds.getProxyConfig().getQueryTransformer();
+        assertThat(cachingQueryTransformer.getDelegate()).isSameAs(queryTransformer);
+        assertThat(cachingQueryTransformer.getMaxSize()).isEqualTo(CachingQueryTransformer.DEFAULT_MAX_SIZE);
+
+        ds = ProxyDataSourceBuilder.create().queryTransformer(queryTransformer).cacheTransformedQueries(10).build();
+        assertThat(((CachingQueryTransformer) ds.getProxyConfig().getQueryTransformer()).getMaxSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void cacheColumnMetadata() {
+        ProxyDataSource ds;
+
+        // default
+        ds = ProxyDataSourceBuilder.create().build();
+        assertThat(ds.getProxyConfig().isColumnMetadataCacheEnabled()).isFalse();
+        assertThat(ds.getProxyConfig().getColumnMetadataCache()).isNull();
+
+        ds = ProxyDataSourceBuilder.create().cacheColumnMetadata().build();
+        assertThat(ds.getProxyConfig().isColumnMetadataCacheEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getColumnMetadataCache().getMaxSize()).isEqualTo(ColumnMetadataCache.DEFAULT_MAX_SIZE);
+
+        ds = ProxyDataSourceBuilder.create().cacheColumnMetadata(10).build();
+        assertThat(ds.getProxyConfig().isColumnMetadataCacheEnabled()).isTrue();
+        assertThat(ds.getProxyConfig().getColumnMetadataCache().getMaxSize()).isEqualTo(10);
+    }
 }
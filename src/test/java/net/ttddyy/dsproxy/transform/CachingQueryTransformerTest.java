@@ -0,0 +1,61 @@
+package net.ttddyy.dsproxy.transform;
+
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class CachingQueryTransformerTest {
+
+    private static class CountingTransformer implements QueryTransformer {
+        private AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String transformQuery(TransformInfo transformInfo) {
+            this.count.incrementAndGet();
+            return "/* " + transformInfo.getDataSourceName() + " */ " + transformInfo.getQuery();
+        }
+    }
+
+    @Test
+    public void transformQuery() {
+        CountingTransformer delegate = new CountingTransformer();
+        CachingQueryTransformer transformer = new CachingQueryTransformer(delegate);
+
+        assertThat(transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 1", false, 0))).isEqualTo("/* myDS */ SELECT 1");
+        assertThat(transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 1", false, 0))).isEqualTo("/* myDS */ SELECT 1");
+        assertThat(delegate.count.get()).isEqualTo(1);
+        assertThat(transformer.getHitCount()).isEqualTo(1);
+        assertThat(transformer.getMissCount()).isEqualTo(1);
+
+        // count is not a part of the key
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 1", true, 0));
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 1", true, 5));
+        assertThat(delegate.count.get()).isEqualTo(2);
+
+        // different keys
+        assertThat(transformer.transformQuery(new TransformInfo(Statement.class, "otherDS", "SELECT 1", false, 0))).isEqualTo("/* otherDS */ SELECT 1");
+        transformer.transformQuery(new TransformInfo(PreparedStatement.class, "myDS", "SELECT 1", false, 0));
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 2", false, 0));
+        assertThat(delegate.count.get()).isEqualTo(5);
+        assertThat(transformer.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void maxSize() {
+        CountingTransformer delegate = new CountingTransformer();
+        CachingQueryTransformer transformer = new CachingQueryTransformer(delegate, 2);
+
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 1", false, 0));
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 2", false, 0));
+        transformer.transformQuery(new TransformInfo(Statement.class, "myDS", "SELECT 3", false, 0));
+        assertThat(transformer.size()).isEqualTo(2);
+    }
+
+}
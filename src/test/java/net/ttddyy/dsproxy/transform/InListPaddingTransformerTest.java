@@ -0,0 +1,214 @@
+package net.ttddyy.dsproxy.transform;
+
+import net.ttddyy.dsproxy.TestUtils;
+import net.ttddyy.dsproxy.proxy.ParameterKey;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.ttddyy.dsproxy.transform.InListPaddingTransformer.DEFAULT_MAX_PADDED_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Tadaya Tsuyukubo
+ */
+public class InListPaddingTransformerTest {
+
+    @Test
+    public void transformQuery() {
+        InListPaddingTransformer transformer = new InListPaddingTransformer();
+
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?, ?, ?)");
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE name = ? AND id in(?,?,?,?,?) ORDER BY id"))
+                .isEqualTo("SELECT * FROM emp WHERE name = ? AND id IN (?, ?, ?, ?, ?, ?, ?, ?) ORDER BY id");
+
+        // already power of two
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?)");
+        // multiple lists
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?) AND name IN (?, ?, ?)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?, ?) AND name IN (?, ?, ?)");
+        // parameters follow the list
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?) AND name = ?"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?, ?) AND name = ?");
+        // not a list of placeholders
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (1, 2, 3)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (1, 2, 3)");
+
+        // only for prepared statement
+        String query = "SELECT * FROM emp WHERE id IN (?, ?, ?)";
+        assertThat(transformer.transformQuery(new TransformInfo(CallableStatement.class, "myDS", query, false, 0))).isEqualTo(query);
+        assertThat(transformer.transformQuery(new TransformInfo(Statement.class, "myDS", query, false, 0))).isEqualTo(query);
+    }
+
+    @Test
+    public void maxPaddedSize() {
+        InListPaddingTransformer transformer = new InListPaddingTransformer(6, 100);
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?, ?, ?)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?, ?, ?, ?, ?)");
+        assertThat(transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?, ?, ?, ?, ?)"))
+                .isEqualTo("SELECT * FROM emp WHERE id IN (?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    @Test
+    public void transformParameters() {
+        InListPaddingTransformer transformer = new InListPaddingTransformer();
+        String padded = transformQuery(transformer, "SELECT * FROM emp WHERE dept = ? AND id IN (?, ?, ?, ?, ?)");
+
+        Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        for (int i = 1; i <= 6; i++) {
+            params.put(new ParameterKey(i), new ParameterSetOperation(null, new Object[]{i, "value-" + i}));
+        }
+        ParameterReplacer replacer = new ParameterReplacer(params);
+        transformer.transformParameters(replacer, new TransformInfo(PreparedStatement.class, "myDS", padded, false, 0));
+
+        assertThat(replacer.isModified()).isTrue();
+        Map<ParameterKey, ParameterSetOperation> result = replacer.getModifiedParameters();
+        assertThat(result).hasSize(9);
+        String[] expected = {"value-1", "value-2", "value-3", "value-4", "value-5", "value-6", "value-6", "value-6", "value-6"};
+        for (int i = 0; i < expected.length; i++) {
+            ParameterSetOperation operation = result.get(new ParameterKey(i + 1));
+            assertThat(operation.getArgs()).containsExactly(i + 1, expected[i]);
+        }
+
+        // unknown query
+        replacer = new ParameterReplacer(params);
+        transformer.transformParameters(replacer, new TransformInfo(PreparedStatement.class, "myDS", "SELECT 1", false, 0));
+        assertThat(replacer.isModified()).isFalse();
+    }
+
+    @Test
+    public void transformParametersWithStream() throws Exception {
+        InListPaddingTransformer transformer = new InListPaddingTransformer();
+        String padded = transformQuery(transformer, "SELECT * FROM emp WHERE data IN (?, ?, ?)");
+
+        Method setBinaryStream = PreparedStatement.class.getMethod("setBinaryStream", int.class, InputStream.class);
+        Method setCharacterStream = PreparedStatement.class.getMethod("setCharacterStream", int.class, Reader.class);
+        Method setBlob = PreparedStatement.class.getMethod("setBlob", int.class, Blob.class);
+        Method setBlobWithStream = PreparedStatement.class.getMethod("setBlob", int.class, InputStream.class);
+
+        assertThat(padLastParameter(transformer, padded, setBinaryStream, new ByteArrayInputStream(new byte[0])))
+                .isEqualTo(Types.LONGVARBINARY);
+        assertThat(padLastParameter(transformer, padded, setCharacterStream, new StringReader("")))
+                .isEqualTo(Types.LONGVARCHAR);
+        assertThat(padLastParameter(transformer, padded, setBlob, mock(Blob.class)))
+                .isEqualTo(Types.BLOB);
+        assertThat(padLastParameter(transformer, padded, setBlobWithStream, new ByteArrayInputStream(new byte[0])))
+                .isEqualTo(Types.BLOB);
+    }
+
+    /**
+     * @return sql type of setNull for the padded parameter
+     */
+    private Object padLastParameter(InListPaddingTransformer transformer, String padded, Method method, Object value) {
+        Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        params.put(new ParameterKey(1), new ParameterSetOperation(null, new Object[]{1, "value-1"}));
+        params.put(new ParameterKey(2), new ParameterSetOperation(null, new Object[]{2, "value-2"}));
+        params.put(new ParameterKey(3), new ParameterSetOperation(method, new Object[]{3, value}));
+        ParameterReplacer replacer = new ParameterReplacer(params);
+        transformer.transformParameters(replacer, new TransformInfo(PreparedStatement.class, "myDS", padded, false, 0));
+
+        ParameterSetOperation operation = replacer.getModifiedParameters().get(new ParameterKey(4));
+        assertThat(operation.getMethod().getName()).isEqualTo("setNull");
+        assertThat(operation.getArgs()[0]).isEqualTo(4);
+        assertThat(replacer.getModifiedParameters().get(new ParameterKey(3)).getArgs()[1]).isSameAs(value);
+        return operation.getArgs()[1];
+    }
+
+    @Test
+    public void transformParametersOnlyForSingleTrailingList() {
+        InListPaddingTransformer transformer = new InListPaddingTransformer();
+        String[] queries = {
+                "SELECT * FROM emp WHERE id IN (?, ?, ?) AND name IN (?, ?, ?)",
+                "SELECT * FROM emp WHERE id IN (?, ?, ?) AND name = ?",
+        };
+        for (String query : queries) {
+            String transformed = transformQuery(transformer, query);
+            assertThat(transformed).as("not padded: %s", query).isEqualTo(query);
+
+            Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+            for (int i = 1; i <= 3; i++) {
+                params.put(new ParameterKey(i), new ParameterSetOperation(null, new Object[]{i, "value-" + i}));
+            }
+            ParameterReplacer replacer = new ParameterReplacer(params);
+            transformer.transformParameters(replacer, new TransformInfo(PreparedStatement.class, "myDS", transformed, false, 0));
+            assertThat(replacer.isModified()).as("parameters not padded: %s", query).isFalse();
+        }
+    }
+
+    @Test
+    public void evictedShape() {
+        InListPaddingTransformer transformer = new InListPaddingTransformer(DEFAULT_MAX_PADDED_SIZE, 1);
+        String padded = transformQuery(transformer, "SELECT * FROM emp WHERE id IN (?, ?, ?)");
+        assertThat(transformQuery(transformer, "SELECT * FROM dept WHERE id IN (?, ?, ?)"))
+                .isEqualTo("SELECT * FROM dept WHERE id IN (?, ?, ?, ?)");
+
+        // the shape of the first query is evicted, but parameters are still padded
+        Map<ParameterKey, ParameterSetOperation> params = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        for (int i = 1; i <= 3; i++) {
+            params.put(new ParameterKey(i), new ParameterSetOperation(null, new Object[]{i, "value-" + i}));
+        }
+        ParameterReplacer replacer = new ParameterReplacer(params);
+        transformer.transformParameters(replacer, new TransformInfo(PreparedStatement.class, "myDS", padded, false, 0));
+        assertThat(replacer.getModifiedParameters()).hasSize(4);
+        assertThat(replacer.getModifiedParameters().get(new ParameterKey(4)).getArgs()).containsExactly(4, "value-3");
+    }
+
+    @Test
+    public void withDataSource() throws Exception {
+        JDBCDataSource actualDataSource = new JDBCDataSource();
+        actualDataSource.setDatabase("jdbc:hsqldb:mem:inListPadding");
+        Connection actualConnection = actualDataSource.getConnection();
+        actualConnection.createStatement().execute("CREATE TABLE padding_emp(id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        for (int i = 1; i <= 5; i++) {
+            actualConnection.createStatement().execute("INSERT INTO padding_emp VALUES (" + i + ", 'name-" + i + "')");
+        }
+        actualConnection.close();
+
+        // padding is applied after other query transformer
+        QueryTransformer queryTransformer = new QueryTransformer() {
+            @Override
+            public String transformQuery(TransformInfo transformInfo) {
+                return transformInfo.getQuery().replace("emp_table", "padding_emp");
+            }
+        };
+        DataSource dataSource = ProxyDataSourceBuilder.create(actualDataSource)
+                .queryTransformer(queryTransformer).padInLists().build();
+        Connection connection = dataSource.getConnection();
+        PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM emp_table WHERE name <> ? AND id IN (?, ?, ?)");
+        ps.setString(1, "name-2");
+        ps.setInt(2, 1);
+        ps.setInt(3, 2);
+        ps.setInt(4, 5);
+        ResultSet rs = ps.executeQuery();
+        rs.next();
+        assertThat(rs.getInt(1)).isEqualTo(2);
+        connection.close();
+
+        TestUtils.shutdown(actualDataSource);
+    }
+
+    private String transformQuery(InListPaddingTransformer transformer, String query) {
+        return transformer.transformQuery(new TransformInfo(PreparedStatement.class, "myDS", query, false, 0));
+    }
+
+}
@@ -65,4 +65,52 @@ public class ParameterReplacerTest {
         assertThat((String) params.get(new ParameterKey("foo")).getArgs()[1]).isEqualTo("replaced-foo");
     }
 
+    @Test
+    public void copyParameter() {
+        Map<ParameterKey, ParameterSetOperation> input = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        input.put(new ParameterKey(1), new ParameterSetOperation(null, new Object[]{1, "value-1"}));
+
+        ParameterReplacer replacer = new ParameterReplacer(input);
+        replacer.copyParameter(1, 2);
+
+        assertThat(replacer.isModified()).isTrue();
+        Map<ParameterKey, ParameterSetOperation> params = replacer.getModifiedParameters();
+        assertThat(params.get(new ParameterKey(1)).getArgs()).containsExactly(1, "value-1");
+        assertThat(params.get(new ParameterKey(2)).getArgs()).containsExactly(2, "value-1");
+    }
+
+    @Test
+    public void modifiedKeys() {
+        Map<ParameterKey, ParameterSetOperation> input = new LinkedHashMap<ParameterKey, ParameterSetOperation>();
+        input.put(new ParameterKey(1), new ParameterSetOperation(null, new Object[]{1, "value-1"}));
+        input.put(new ParameterKey(2), new ParameterSetOperation(null, new Object[]{2, "value-2"}));
+
+        ParameterReplacer replacer = new ParameterReplacer(input);
+        assertThat(replacer.isModified()).isFalse();
+        assertThat(replacer.getModifiedKeys()).isEmpty();
+
+        replacer.setInt(2, 100);
+        assertThat(replacer.isModified()).isTrue();
+        assertThat(replacer.isCleared()).isFalse();
+        assertThat(replacer.getModifiedKeys()).containsExactly(new ParameterKey(2));
+
+        replacer.clearParameters();
+        replacer.setString(1, "foo");
+        assertThat(replacer.isCleared()).isTrue();
+        assertThat(replacer.getModifiedKeys()).containsExactly(new ParameterKey(1));
+    }
+
+    @Test
+    public void setterMethods() throws Exception {
+        ParameterReplacer replacer = new ParameterReplacer();
+        replacer.setObject(1, "foo", java.sql.Types.VARCHAR);
+        replacer.registerOutParameter(2, java.sql.Types.STRUCT, "MY_TYPE");
+
+        Map<ParameterKey, ParameterSetOperation> params = replacer.getModifiedParameters();
+        assertThat(params.get(new ParameterKey(1)).getMethod())
+                .isEqualTo(java.sql.PreparedStatement.class.getMethod("setObject", int.class, Object.class, int.class));
+        assertThat(params.get(new ParameterKey(2)).getMethod())
+                .isEqualTo(java.sql.CallableStatement.class.getMethod("registerOutParameter", int.class, int.class, String.class));
+    }
+
 }